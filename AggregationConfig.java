@@ -0,0 +1,140 @@
+package com.candle.service;
+
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.OverflowPolicy;
+import com.candle.ingest.TickLogConfig;
+import com.candle.ingest.WaitStrategy;
+import com.candle.model.IntervalCatalog;
+
+import java.util.Objects;
+
+/**
+ * How an {@link AggregationService} ingests and aggregates ticks. {@link com.candle.config.AppConfig} builds it
+ * from the {@code candle.*} properties; elsewhere start from {@link #builder()}, whose defaults are the
+ * properties' defaults.
+ *
+ * @param mode                   Ingest execution mode
+ * @param shards                 Number of worker threads in sharded mode
+ * @param queueCapacity          Ring buffer capacity per shard in sharded mode
+ * @param reorderWindowSeconds   Seconds a closed candle stays open to late ticks (0 drops every late tick)
+ * @param flushClock             Clock that closes candles no newer tick has rolled
+ * @param allowedLatenessSeconds With {@link FlushClock#EVENT_TIME}, seconds the watermark trails the newest event time
+ * @param waitStrategy           How idle shard workers wait in sharded mode
+ * @param overflowPolicy         What a tick finding its shard's ring full does in sharded mode
+ * @param idleEvictSeconds       Seconds without a new 1s bucket after which a symbol is evicted (0 never evicts)
+ * @param maxActiveSymbols       Most symbols with live aggregators (0 for no limit)
+ * @param intervals              The intervals to aggregate
+ * @param tickLog                Where ticks are logged ahead of aggregation, or null not to log them. Ignored in
+ *                               sharded mode with {@link OverflowPolicy#DROP_OLDEST}, whose shed ticks a replay
+ *                               would restore
+ */
+public record AggregationConfig(IngestMode mode, int shards, int queueCapacity, long reorderWindowSeconds,
+                                FlushClock flushClock, long allowedLatenessSeconds, WaitStrategy waitStrategy,
+                                OverflowPolicy overflowPolicy, long idleEvictSeconds, int maxActiveSymbols,
+                                IntervalCatalog intervals, TickLogConfig tickLog) {
+
+    public AggregationConfig {
+        Objects.requireNonNull(mode, "mode");
+        Objects.requireNonNull(flushClock, "flushClock");
+        Objects.requireNonNull(waitStrategy, "waitStrategy");
+        Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        Objects.requireNonNull(intervals, "intervals");
+        if (reorderWindowSeconds < 0) throw new IllegalArgumentException("Reorder window must be >= 0 seconds");
+        if (idleEvictSeconds < 0) throw new IllegalArgumentException("Idle eviction must be >= 0 seconds");
+        if (maxActiveSymbols < 0) throw new IllegalArgumentException("Active symbol cap must be >= 0");
+    }
+
+    /** The configuration with every property at its default. */
+    public static AggregationConfig defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private IngestMode mode = IngestMode.LOCKED;
+        private int shards = 4;
+        private int queueCapacity = 65_536;
+        private long reorderWindowSeconds = 2;
+        private FlushClock flushClock = FlushClock.WALL_CLOCK;
+        private long allowedLatenessSeconds;
+        private WaitStrategy waitStrategy = WaitStrategy.PARKING;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private long idleEvictSeconds = 900;
+        private int maxActiveSymbols;
+        private IntervalCatalog intervals = IntervalCatalog.defaults();
+        private TickLogConfig tickLog;
+
+        private Builder() {
+        }
+
+        public Builder mode(IngestMode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder reorderWindowSeconds(long reorderWindowSeconds) {
+            this.reorderWindowSeconds = reorderWindowSeconds;
+            return this;
+        }
+
+        public Builder flushClock(FlushClock flushClock) {
+            this.flushClock = flushClock;
+            return this;
+        }
+
+        public Builder allowedLatenessSeconds(long allowedLatenessSeconds) {
+            this.allowedLatenessSeconds = allowedLatenessSeconds;
+            return this;
+        }
+
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public Builder idleEvictSeconds(long idleEvictSeconds) {
+            this.idleEvictSeconds = idleEvictSeconds;
+            return this;
+        }
+
+        public Builder maxActiveSymbols(int maxActiveSymbols) {
+            this.maxActiveSymbols = maxActiveSymbols;
+            return this;
+        }
+
+        public Builder intervals(IntervalCatalog intervals) {
+            this.intervals = intervals;
+            return this;
+        }
+
+        public Builder tickLog(TickLogConfig tickLog) {
+            this.tickLog = tickLog;
+            return this;
+        }
+
+        public AggregationConfig build() {
+            return new AggregationConfig(mode, shards, queueCapacity, reorderWindowSeconds, flushClock,
+                    allowedLatenessSeconds, waitStrategy, overflowPolicy, idleEvictSeconds, maxActiveSymbols,
+                    intervals, tickLog);
+        }
+    }
+}
@@ -1,31 +1,94 @@
 package com.candle.service;
 
+import com.candle.aggregator.AggregatorState;
 import com.candle.aggregator.CandleAggregator;
+import com.candle.aggregator.CandleListener;
+import com.candle.aggregator.EventTimeWatermark;
+import com.candle.aggregator.OhlcKernel;
+import com.candle.aggregator.StaleFlushWheel;
+import com.candle.aggregator.SymbolAggregators;
 import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
+import com.candle.ingest.ConflatedTicks;
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.IngestResult;
+import com.candle.ingest.OverflowPolicy;
+import com.candle.ingest.ShardedIngestEngine;
+import com.candle.ingest.TickLog;
+import com.candle.ingest.TickLogConfig;
+import com.candle.model.Candle;
 import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
 import com.candle.store.CandleStore;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
 /**
  * Central orchestration service that:
  * <ul>
  *   <li>Maintains a pool of {@link CandleAggregator}s, one per (symbol, interval) pair</li>
- *   <li>Routes incoming {@link BidAskEvent}s to all relevant aggregators</li>
+ *   <li>Routes incoming {@link BidAskEvent}s to the finest-interval aggregator of each symbol,
+ *       which cascades completed candles up through the coarser intervals</li>
  *   <li>Runs a scheduled flush to finalize stale open candles</li>
  *   <li>Stores completed candles to {@link CandleStore}</li>
  * </ul>
  *
  * <p>New symbols are auto-registered on first event — no configuration restart required.
+ *
+ * <p>Three execution modes are supported via {@code candle.ingest.mode}:
+ * <ul>
+ *   <li>{@code locked} (default) — {@link #ingest} aggregates on the caller's thread under
+ *       per-aggregator locks</li>
+ *   <li>{@code sharded} — {@link #ingest} writes the tick into a pre-allocated slot of a
+ *       {@link ShardedIngestEngine} ring and returns; each symbol's aggregators are owned by a single
+ *       worker thread and run without locks, so a slow {@link CandleStore} never stalls the producer</li>
+ *   <li>{@code lock-free} — like {@code locked}, but many threads may update a symbol's open 1s candle
+ *       at once with CAS operations; only bucket rolls take a lock</li>
+ * </ul>
+ *
+ * <p>In sharded mode {@code candle.ingest.overflow-policy} sets what a burst that fills a shard's ring
+ * does: block the producer, drop the oldest queued ticks, or conflate ticks into partial candles — see
+ * {@link OverflowPolicy}.
+ *
+ * <p>Candles that no newer tick rolls are closed by the wall clock, or with
+ * {@code candle.flush.clock=event-time} by an {@link EventTimeWatermark} that the ingested ticks
+ * advance — see {@link FlushClock}.
+ *
+ * <p>Symbols are created on demand and evicted when they go quiet: a symbol that has not opened a 1s
+ * bucket for {@code candle.symbols.idle-evict-seconds} (by the same clock) has its candles flushed and its
+ * aggregators dropped, and {@code candle.symbols.max-active} caps the live symbols by evicting the least
+ * recently active ones first. A tick for an evicted symbol recreates its aggregators, which resume the
+ * buckets left open from the {@link CandleStore}; ticks older than the evicted symbol's last second are
+ * dropped as late. Memory thus follows the active symbols rather than every symbol ever seen.
+ *
+ * <p>With {@code candle.tick-log.enabled} every tick is written to a {@link TickLog} before it is applied,
+ * and {@link #checkpoint} periodically commits the aggregators' state with it. On startup the state of the
+ * last checkpoint is restored and the ticks logged after it replayed, so candles left open by a crash are
+ * rebuilt rather than lost.
  */
 @Service
 public class AggregationService {
@@ -34,19 +97,190 @@ public class AggregationService {
 
     private final CandleStore candleStore;
 
+    /** Interns symbols to dense int IDs, used by {@link SymbolAggregators} and primitive tick paths. */
+    private final SymbolRegistry registry = new SymbolRegistry();
+
+    /**
+     * Key: symbol → all interval aggregators of that symbol (one roll-up cascade).
+     * ConcurrentHashMap for safe concurrent reads + computeIfAbsent writes; one lookup per tick.
+     */
+    private final ConcurrentMap<String, SymbolAggregators> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Symbol ID → bundle, for the primitive {@link TickBatch} path. Grown under {@code this};
+     * a reader that sees a stale or empty slot falls back to {@link #symbols}.
+     */
+    private volatile SymbolAggregators[] byId = new SymbolAggregators[16];
+
+    private final IngestMode mode;
+
+    /** The intervals every symbol is aggregated over. */
+    private final IntervalCatalog intervals;
+
+    /** Non-null only in {@link IngestMode#SHARDED} mode. */
+    private final ShardedIngestEngine engine;
+
     /**
-     * Key: "SYMBOL::INTERVAL_LABEL" → aggregator
-     * ConcurrentHashMap for safe concurrent reads + computeIfAbsent writes
+     * Stale-flush timer wheels: one per shard in sharded mode (advanced on the shard's worker),
+     * otherwise a single one advanced by the scheduler thread.
      */
-    private final ConcurrentMap<String, CandleAggregator> aggregators = new ConcurrentHashMap<>();
+    private final StaleFlushWheel[] wheels;
+
+    /** Late ticks up to this many seconds behind the newest bucket patch closed candles instead of being dropped. */
+    private final long reorderWindowSeconds;
+
+    private final FlushClock flushClock;
+
+    /** Non-null only with {@link FlushClock#EVENT_TIME}. */
+    private final EventTimeWatermark watermark;
+
+    /** The feed every ingest path reports event time to; null with {@link FlushClock#WALL_CLOCK}. */
+    private final EventTimeWatermark.Feed ingestFeed;
+
+    /** Watermark the wheels were last advanced to. */
+    private final AtomicLong sweptTo = new AtomicLong(EventTimeWatermark.NONE);
+
+    /** Symbols that have not opened a 1s bucket for this many seconds are evicted; 0 keeps them all. */
+    private final long idleEvictSeconds;
+
+    /** Most live symbols, spread evenly over the shards in sharded mode; 0 for no limit. */
+    private final int maxActiveSymbols;
+
+    /** Live bundles per shard (a single count outside sharded mode), checked against the cap on creation. */
+    private final AtomicIntegerArray liveSymbols;
+
+    /** Symbol ID → {@link SymbolAggregators#activeUntil()} of its last evicted bundle, 0 if never evicted. Grown under {@code this}. */
+    private long[] evictedUntil = new long[16];
+
+    private final AtomicLong symbolsEvicted = new AtomicLong();
+
+    /** Serialises evictions for the cap, so that threads creating symbols at once do not each evict a batch. */
+    private final Object capLock = new Object();
+
+    /** Late-tick counters of evicted bundles by catalog position, so the service totals do not go backwards. */
+    private final AtomicLongArray evictedLatePatched;
+    private final AtomicLongArray evictedLateDropped;
+
+    /** Non-null only with {@code candle.tick-log.enabled}. */
+    private final TickLog tickLog;
 
-    public AggregationService(CandleStore candleStore) {
+    /**
+     * Read-held while a tick is logged and applied, and while candles change off the shard workers;
+     * write-held by {@link #checkpoint} to cut the log where the state it copies ends. Null without a tick log.
+     */
+    private final ReentrantReadWriteLock checkpointGate;
+
+    /** Serialises checkpoints, and shutdown with them. Not {@code this}: shard workers take that while one waits. */
+    private final Object checkpointLock = new Object();
+
+    private final AtomicLong checkpoints = new AtomicLong();
+
+    private boolean stopped;
+
+    /**
+     * @param config How to ingest and aggregate, built by {@link com.candle.config.AppConfig} from the
+     *               {@code candle.*} properties
+     */
+    @Autowired
+    public AggregationService(CandleStore candleStore, AggregationConfig config) {
         this.candleStore = candleStore;
+        this.reorderWindowSeconds = config.reorderWindowSeconds();
+        this.idleEvictSeconds = config.idleEvictSeconds();
+        this.maxActiveSymbols = config.maxActiveSymbols();
+        this.flushClock = config.flushClock();
+        this.watermark = flushClock == FlushClock.EVENT_TIME
+                ? new EventTimeWatermark(config.allowedLatenessSeconds()) : null;
+        this.ingestFeed = watermark != null ? watermark.feed("ingest") : null;
+        this.mode = config.mode();
+        this.intervals = config.intervals();
+        this.evictedLatePatched = new AtomicLongArray(intervals.size());
+        this.evictedLateDropped = new AtomicLongArray(intervals.size());
+        this.engine = mode == IngestMode.SHARDED
+                ? ShardedIngestEngine.builder()
+                        .shards(config.shards())
+                        .queueCapacity(config.queueCapacity())
+                        .waitStrategy(config.waitStrategy())
+                        .overflowPolicy(config.overflowPolicy())
+                        .conflateSlotMillis(intervals.slotMillis())
+                        .handler(this::route)
+                        .batchHandler(this::routeBatch)
+                        .ticksHandler(this::applyTicks)
+                        .conflatedHandler(this::applyConflated)
+                        .build()
+                : null;
+        long nowSeconds = Instant.now().getEpochSecond();
+        this.wheels = new StaleFlushWheel[engine != null ? engine.shardCount() : 1];
+        for (int i = 0; i < wheels.length; i++) {
+            // Event time starts wherever the first tick is, e.g. at the beginning of a replay
+            wheels[i] = watermark != null ? new StaleFlushWheel(intervals) : new StaleFlushWheel(nowSeconds, intervals);
+        }
+        this.liveSymbols = new AtomicIntegerArray(wheels.length);
+        log.info("AggregationService started in {} mode, flushing by {}, {} OHLC kernel, intervals {}", mode,
+                flushClock, OhlcKernel.get().name(), intervals);
+        if (idleEvictSeconds > 0 || maxActiveSymbols > 0) {
+            log.info("Evicting symbols idle for {}s (0 = never), at most {} active (0 = unlimited)",
+                    idleEvictSeconds, maxActiveSymbols);
+        }
+        TickLogConfig tickLog = config.tickLog();
+        if (tickLog != null && engine != null && config.overflowPolicy() == OverflowPolicy.DROP_OLDEST) {
+            // A replay would bring back the ticks shed under overload, so the candles would not match
+            log.warn("Tick log disabled: ticks shed by the {} overflow policy cannot be left out of a replay",
+                    config.overflowPolicy());
+            tickLog = null;
+        }
+        this.checkpointGate = tickLog != null ? new ReentrantReadWriteLock() : null;
+        this.tickLog = tickLog != null ? recover(tickLog) : null;
+    }
+
+    /**
+     * With a tick log, checkpoint the recovered state, so that a restart replays only the ticks logged
+     * from here on.
+     */
+    @PostConstruct
+    public void start() {
+        checkpoint();
+    }
+
+    /**
+     * Restore the state of the tick log's last checkpoint, replay the ticks logged after it, and start
+     * logging. Runs before the first tick; bundles and wheels touched here reach the shard workers
+     * through the ring, with the first event published to them.
+     */
+    private TickLog recover(TickLogConfig config) {
+        try {
+            TickLog recovered = TickLog.open(config);
+            if (recovered.checkpoint() != null) restore(Checkpoint.decode(recovered.checkpoint()));
+            recovered.replay((symbol, bid, ask, timestampMs) -> dispatch(new BidAskEvent(symbol, bid, ask, timestampMs)));
+            recovered.start();
+            return recovered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover from the tick log in " + config.dir(), e);
+        }
+    }
+
+    private void restore(List<Checkpoint.SymbolState> states) {
+        int live = 0;
+        for (Checkpoint.SymbolState state : states) {
+            int id = registry.intern(state.symbol());
+            synchronized (this) {
+                if (id >= evictedUntil.length) evictedUntil = Arrays.copyOf(evictedUntil, Math.max(id + 1, evictedUntil.length * 2));
+                evictedUntil[id] = state.evictedUntil();
+            }
+        }
+        for (Checkpoint.SymbolState state : states) {
+            if (state.aggregators().isEmpty()) continue;
+            String symbol = state.symbol();
+            aggregatorsFor(symbol).restore(state.aggregators(),
+                    (interval, bucketTime) -> candleStore.find(symbol, interval.getLabel(), bucketTime));
+            live++;
+        }
+        log.info("Restored {} symbols from the tick log checkpoint, {} of them live", states.size(), live);
     }
 
     /**
      * Ingest a single bid/ask event.
      * Fans out to all interval aggregators for this symbol, creating them if needed.
+     * In sharded mode the tick is copied into a ring slot of the symbol's shard and processed asynchronously.
      *
      * @param event The incoming market data event
      */
@@ -54,60 +288,646 @@ public class AggregationService {
         log.debug("Ingesting event: symbol={} bid={} ask={} ts={}",
                 event.symbol(), event.bid(), event.ask(), event.timestamp());
 
-        for (Interval interval : Interval.values()) {
-            String key = aggregatorKey(event.symbol(), interval);
-            CandleAggregator aggregator = aggregators.computeIfAbsent(key, k -> {
-                log.info("Creating new aggregator for symbol={} interval={}", event.symbol(), interval.getLabel());
-                return new CandleAggregator(
-                        event.symbol(),
-                        interval,
-                        (intervalLabel, candle) -> candleStore.save(event.symbol(), intervalLabel, candle)
-                );
-            });
-            aggregator.process(event);
+        enterGate();
+        try {
+            if (tickLog != null) {
+                tickLog.append(registry.intern(event.symbol()), event.symbol(), event.bid(), event.ask(), event.timestamp());
+            }
+            dispatch(event);
+        } finally {
+            exitGate();
+        }
+    }
+
+    private void dispatch(BidAskEvent event) {
+        if (engine != null) {
+            engine.publishTick(event.symbol(), registry.intern(event.symbol()),
+                    event.bid(), event.ask(), event.timestamp());
+        } else {
+            route(event);
+        }
+        if (ingestFeed != null) advanceEventTime(ingestFeed, event.timestampSeconds());
+    }
+
+    /**
+     * Ingest a burst of events in one call.
+     *
+     * <p>Events are grouped by symbol (preserving their relative order within each symbol) and each
+     * group is applied with a single lock acquisition in locked mode, or published to its shard as
+     * a single ring entry in sharded mode.
+     *
+     * @param events Events for any mix of symbols; {@code null} entries are rejected
+     * @return counts of accepted and rejected events. In locked mode late events dropped by the
+     *         aggregator count as rejected; in sharded mode events are accepted once queued
+     */
+    public IngestResult ingestBatch(Collection<BidAskEvent> events) {
+        enterGate();
+        try {
+            if (tickLog != null) {
+                for (BidAskEvent event : events) {
+                    if (event != null) {
+                        tickLog.append(registry.intern(event.symbol()), event.symbol(), event.bid(), event.ask(),
+                                event.timestamp());
+                    }
+                }
+            }
+            return dispatch(events);
+        } finally {
+            exitGate();
+        }
+    }
+
+    private IngestResult dispatch(Collection<BidAskEvent> events) {
+        Map<String, List<BidAskEvent>> bySymbol = new LinkedHashMap<>();
+        int rejected = 0;
+        long newestSeconds = EventTimeWatermark.NONE;
+        for (BidAskEvent event : events) {
+            if (event == null) {
+                rejected++;
+                continue;
+            }
+            bySymbol.computeIfAbsent(event.symbol(), k -> new ArrayList<>()).add(event);
+            newestSeconds = Math.max(newestSeconds, event.timestampSeconds());
+        }
+
+        int accepted = 0;
+        for (Map.Entry<String, List<BidAskEvent>> group : bySymbol.entrySet()) {
+            List<BidAskEvent> symbolEvents = group.getValue();
+            if (engine != null) {
+                engine.publishBatch(group.getKey(), symbolEvents);
+                accepted += symbolEvents.size();
+            } else {
+                int applied = routeBatch(symbolEvents);
+                accepted += applied;
+                rejected += symbolEvents.size() - applied;
+            }
+        }
+        if (ingestFeed != null && newestSeconds != EventTimeWatermark.NONE) advanceEventTime(ingestFeed, newestSeconds);
+        log.debug("Ingested batch: accepted={} rejected={} symbols={}", accepted, rejected, bySymbol.size());
+        return new IngestResult(accepted, rejected);
+    }
+
+    /**
+     * Ingest a columnar batch of ticks without allocating per tick.
+     *
+     * <p>Rows are grouped by symbol ID (stable within each symbol) and each group is applied with a
+     * single lock acquisition. In sharded mode each group is copied once into a compact
+     * {@link TickBatch} and published to its shard, because the caller reuses {@code batch} as soon
+     * as this method returns. Symbol IDs must come from {@link #getSymbolRegistry()}.
+     *
+     * @return counts of accepted and rejected rows. Rows failing {@link TickBatch#isValid(int)} or
+     *         carrying an unknown symbol ID are rejected; in locked mode so are late rows
+     */
+    public IngestResult ingestBatch(TickBatch batch) {
+        enterGate();
+        try {
+            if (tickLog != null) tickLog.append(batch, id -> id < registry.size() ? registry.symbol(id) : null);
+            return dispatch(batch);
+        } finally {
+            exitGate();
+        }
+    }
+
+    private IngestResult dispatch(TickBatch batch) {
+        IngestResult result = engine != null ? publishTicks(batch) : applyTicks(batch);
+        if (ingestFeed != null) {
+            long newestSeconds = EventTimeWatermark.NONE;
+            for (int row = 0; row < batch.size(); row++) {
+                if (batch.isValid(row)) newestSeconds = Math.max(newestSeconds, batch.timestampSeconds(row));
+            }
+            if (newestSeconds != EventTimeWatermark.NONE) advanceEventTime(ingestFeed, newestSeconds);
+        }
+        return result;
+    }
+
+    /**
+     * Copy each symbol group of a columnar batch into its own {@link TickBatch} and publish it to the
+     * symbol's shard.
+     */
+    private IngestResult publishTicks(TickBatch batch) {
+        int valid = batch.groupBySymbol();
+        int[] rows = batch.groupedRows();
+        int accepted = 0;
+        int rejected = batch.size() - valid;
+        for (int start = 0, end; start < valid; start = end) {
+            int symbolId = batch.symbolId(rows[start]);
+            end = groupEnd(batch, rows, start, valid);
+            if (symbolId >= registry.size()) {
+                rejected += end - start;
+                continue;
+            }
+            engine.publishTicks(registry.symbol(symbolId), batch.copyOf(rows, start, end));
+            accepted += end - start;
+        }
+        return new IngestResult(accepted, rejected);
+    }
+
+    /**
+     * Apply a columnar batch to the symbols' cascades, one lock acquisition per symbol group.
+     * Runs on the caller's thread in locked mode, or on the owning shard's worker in sharded mode.
+     */
+    private IngestResult applyTicks(TickBatch batch) {
+        int valid = batch.groupBySymbol();
+        int[] rows = batch.groupedRows();
+        int accepted = 0;
+        int rejected = batch.size() - valid;
+        for (int start = 0, end; start < valid; start = end) {
+            int symbolId = batch.symbolId(rows[start]);
+            end = groupEnd(batch, rows, start, valid);
+            int applied = 0;
+            for (SymbolAggregators bundle = aggregatorsFor(symbolId); bundle != null; bundle = aggregatorsFor(symbolId)) {
+                // A bundle evicted since the lookup applies nothing; the next lookup recreates it
+                applied = bundle.processRows(batch, rows, start, end);
+                if (applied != SymbolAggregators.RETIRED) break;
+                applied = 0;
+            }
+            accepted += applied;
+            rejected += end - start - applied;
+        }
+        return new IngestResult(accepted, rejected);
+    }
+
+    /**
+     * Apply partial candles of ticks conflated under overload, on the owning shard's worker.
+     */
+    private void applyConflated(ConflatedTicks partials) {
+        for (int i = 0; i < partials.size(); i++) {
+            for (SymbolAggregators bundle = aggregatorsFor(partials.symbolId(i)); bundle != null;
+                 bundle = aggregatorsFor(partials.symbolId(i))) {
+                if (bundle.processPartialMillis(partials.slotStart(i), partials.open(i), partials.high(i),
+                        partials.low(i), partials.close(i), partials.count(i)) != SymbolAggregators.RETIRED) break;
+            }
+        }
+    }
+
+    /** End (exclusive) of the run of rows sharing the symbol ID at {@code rows[start]}. */
+    private static int groupEnd(TickBatch batch, int[] rows, int start, int limit) {
+        int symbolId = batch.symbolId(rows[start]);
+        int end = start + 1;
+        while (end < limit && batch.symbolId(rows[end]) == symbolId) end++;
+        return end;
+    }
+
+    /**
+     * Apply an event to its symbol's roll-up cascade.
+     * Runs on the caller's thread in locked mode, or on the owning shard's worker in sharded mode.
+     */
+    private void route(BidAskEvent event) {
+        SymbolAggregators bundle = aggregatorsFor(event.symbol());
+        // A bundle evicted since the lookup refuses the tick; the next lookup recreates it
+        while (!bundle.process(event) && bundle.isRetired()) {
+            bundle = aggregatorsFor(event.symbol());
+        }
+    }
+
+    /**
+     * Apply a group of one symbol's events to its cascade under a single lock acquisition.
+     *
+     * @return number of events applied
+     */
+    private int routeBatch(List<BidAskEvent> events) {
+        String symbol = events.get(0).symbol();
+        int applied;
+        do {
+            applied = aggregatorsFor(symbol).processAll(events);
+        } while (applied == SymbolAggregators.RETIRED);
+        return applied;
+    }
+
+    /**
+     * The live bundle for {@code symbol}, created — or recreated after eviction — if there is none.
+     */
+    private SymbolAggregators aggregatorsFor(String symbol) {
+        SymbolAggregators bundle = symbols.get(symbol);
+        if (bundle != null && !bundle.isRetired()) return bundle;
+        if (maxActiveSymbols > 0) evictForCap(shardOf(symbol));
+        // Replaces a bundle that was retired but not yet removed, taking over where it left off
+        return symbols.compute(symbol, (key, current) ->
+                current != null && !current.isRetired() ? current : createAggregators(key, current));
+    }
+
+    /**
+     * @return the bundle for a registered symbol ID, or null if the ID was never issued
+     */
+    private SymbolAggregators aggregatorsFor(int symbolId) {
+        SymbolAggregators[] snapshot = byId;
+        SymbolAggregators bundle = symbolId < snapshot.length ? snapshot[symbolId] : null;
+        if (bundle != null && !bundle.isRetired()) return bundle;
+        if (symbolId < 0 || symbolId >= registry.size()) return null;
+        return aggregatorsFor(registry.symbol(symbolId));
+    }
+
+    /**
+     * @param retired The symbol's retired bundle if it is still mapped, otherwise null
+     */
+    private SymbolAggregators createAggregators(String symbol, SymbolAggregators retired) {
+        log.info("Creating aggregators for symbol={} intervals={}", symbol, intervals.size());
+        BiConsumer<String, Candle> save = (intervalLabel, candle) -> candleStore.save(symbol, intervalLabel, candle);
+        int symbolId = registry.intern(symbol);
+        SymbolAggregators bundle = mode == IngestMode.LOCK_FREE
+                ? SymbolAggregators.lockFree(symbolId, symbol, CandleListener.of(save), intervals)
+                : new SymbolAggregators(symbolId, symbol, CandleListener.of(save), engine != null, intervals);
+        bundle.setReorderWindow(reorderWindowSeconds);
+        long activeUntil = retired != null ? retired.activeUntil() : evictedUntil(symbolId);
+        if (activeUntil > 0) {
+            bundle.resume(activeUntil, (interval, bucketTime) -> candleStore.find(symbol, interval.getLabel(), bucketTime));
+        }
+        int shard = shardOf(symbol);
+        bundle.scheduleOn(wheels[shard]);
+        indexById(bundle);
+        liveSymbols.incrementAndGet(shard);
+        return bundle;
+    }
+
+    private synchronized void indexById(SymbolAggregators bundle) {
+        int id = bundle.getSymbolId();
+        SymbolAggregators[] grown = byId.length > id ? byId : Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+        grown[id] = bundle;
+        byId = grown; // volatile write publishes the slot
+    }
+
+    private synchronized long evictedUntil(int symbolId) {
+        return symbolId < evictedUntil.length ? evictedUntil[symbolId] : 0;
+    }
+
+    /** Shard owning {@code symbol}'s bundle, or 0 outside sharded mode. */
+    private int shardOf(String symbol) {
+        return engine != null ? engine.shardOf(symbol) : 0;
+    }
+
+    /**
+     * Scheduled eviction of symbols that have not opened a bucket for {@code candle.symbols.idle-evict-seconds},
+     * measured by the flush clock: the wall clock, or the event-time watermark. In sharded mode every shard
+     * evicts the symbols it owns, on its own thread.
+     */
+    @Scheduled(fixedRateString = "${candle.symbols.evict-interval-ms:10000}")
+    public void evictIdleSymbols() {
+        if (idleEvictSeconds == 0) return;
+        long nowSeconds = watermark != null ? watermark.current() : Instant.now().getEpochSecond();
+        if (nowSeconds == EventTimeWatermark.NONE) return;
+        long idleBefore = nowSeconds - idleEvictSeconds;
+        if (engine != null) {
+            engine.broadcast(shard -> evictIdle(shard, idleBefore));
+        } else {
+            enterGate();
+            try {
+                evictIdle(0, idleBefore);
+            } finally {
+                exitGate();
+            }
+        }
+    }
+
+    private void evictIdle(int shard, long idleBefore) {
+        int evicted = 0;
+        for (SymbolAggregators bundle : symbols.values()) {
+            if (bundle.activeUntil() <= idleBefore * 1000 && shardOf(bundle.getSymbol()) == shard && evict(bundle, shard, idleBefore)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) log.info("Evicted {} idle symbols, {} remain active", evicted, symbols.size());
+    }
+
+    /**
+     * Make room for a new symbol on {@code shard} if it is at its share of {@code candle.symbols.max-active}:
+     * evict the least recently active tenth of the shard's symbols at once, so that a stream of new symbols
+     * does not pay for a scan each. Runs on the thread creating the symbol, which in sharded mode owns the shard.
+     */
+    private void evictForCap(int shard) {
+        int cap = engine != null ? (maxActiveSymbols + wheels.length - 1) / wheels.length : maxActiveSymbols;
+        if (liveSymbols.get(shard) < cap) return;
+        // Not under this: evicting removes map entries, while creating a bundle takes this inside a map bin lock
+        synchronized (capLock) {
+            int excess = liveSymbols.get(shard) - cap + Math.max(1, cap / 10);
+            if (liveSymbols.get(shard) < cap) return;
+            List<SymbolAggregators> candidates = new ArrayList<>();
+            for (SymbolAggregators bundle : symbols.values()) {
+                if (!bundle.isRetired() && shardOf(bundle.getSymbol()) == shard) candidates.add(bundle);
+            }
+            candidates.sort(Comparator.comparingLong(SymbolAggregators::activeUntil));
+            int evicted = 0;
+            for (int i = 0; i < candidates.size() && evicted < excess; i++) {
+                if (evict(candidates.get(i), shard, Long.MAX_VALUE)) evicted++;
+            }
+            log.info("Evicted {} least recently active symbols at the cap of {}", evicted, maxActiveSymbols);
         }
     }
 
     /**
-     * Scheduled flush — runs every second to finalize open candles that have passed their bucket boundary.
+     * Retire {@code bundle} if it is idle before {@code idleBefore}, then drop it, remembering where it left
+     * off for the next bundle of its symbol.
+     */
+    private boolean evict(SymbolAggregators bundle, int shard, long idleBefore) {
+        if (!bundle.retireIfIdle(idleBefore)) return false;
+        symbols.remove(bundle.getSymbol(), bundle);
+        synchronized (this) {
+            int id = bundle.getSymbolId();
+            if (id < byId.length && byId[id] == bundle) byId[id] = null;
+            if (id >= evictedUntil.length) evictedUntil = Arrays.copyOf(evictedUntil, Math.max(id + 1, evictedUntil.length * 2));
+            evictedUntil[id] = bundle.activeUntil();
+        }
+        liveSymbols.decrementAndGet(shard);
+        symbolsEvicted.incrementAndGet();
+        for (int i = 0; i < intervals.size(); i++) {
+            evictedLatePatched.addAndGet(i, bundle.latePatched(i));
+            evictedLateDropped.addAndGet(i, bundle.lateDropped(i));
+        }
+        log.debug("Evicted symbol={} activeUntil={}", bundle.getSymbol(), bundle.activeUntil());
+        return true;
+    }
+
+    /**
+     * Scheduled flush — runs every 100ms to finalize open candles that have passed their bucket boundary.
      * This ensures candles are emitted even when event flow temporarily stops.
+     *
+     * <p>Driven by {@link StaleFlushWheel}s, so only aggregators whose bucket has ended are visited —
+     * the cost scales with candles due, not with the number of aggregators.
+     *
+     * <p>Does nothing with {@link FlushClock#EVENT_TIME}: there the wheels follow the watermark as
+     * ticks arrive, and the wall clock says nothing about a replay or a skewed feed.
      */
-    @Scheduled(fixedRateString = "${candle.flush.interval-ms:1000}")
+    @Scheduled(fixedRateString = "${candle.flush.interval-ms:100}")
     public void flushStaleCandles() {
-        long nowSeconds = Instant.now().getEpochSecond();
-        aggregators.values().forEach(agg -> agg.flushIfStale(nowSeconds));
+        if (watermark != null) return;
+        long nowMs = Instant.now().toEpochMilli();
+        if (engine != null) {
+            // Each shard advances its own wheel, which only holds the symbols it owns, on its own thread
+            engine.broadcast(shard -> wheels[shard].advanceMillis(nowMs));
+        } else {
+            enterGate();
+            try {
+                wheels[0].advanceMillis(nowMs);
+            } finally {
+                exitGate();
+            }
+        }
+    }
+
+    /**
+     * Report event time for a named feed without a tick — a heartbeat from a quiet source, or the end of
+     * a replay. Once every feed has reported, the watermark only advances as fast as the slowest one.
+     *
+     * @param feed            Feed name; ticks ingested through this service report as feed {@code "ingest"}
+     * @param eventTimeMillis Event time the feed has reached, in epoch milliseconds
+     * @throws IllegalStateException if candles are flushed by the wall clock
+     */
+    public void advanceWatermark(String feed, long eventTimeMillis) {
+        if (watermark == null) throw new IllegalStateException("Flush clock is " + flushClock + ", not EVENT_TIME");
+        enterGate();
+        try {
+            advanceEventTime(watermark.feed(feed), eventTimeMillis / 1000L);
+        } finally {
+            exitGate();
+        }
     }
 
     /**
-     * On shutdown, force-flush all open candles so no data is lost.
+     * Report event time on {@code feed} and, if that moved the watermark, close every candle whose
+     * bucket ended by the new watermark. Only one thread sweeps to a given watermark.
+     */
+    private void advanceEventTime(EventTimeWatermark.Feed feed, long eventSeconds) {
+        if (!feed.observe(eventSeconds)) return;
+        long now = watermark.current();
+        for (long swept = sweptTo.get(); now > swept; swept = sweptTo.get()) {
+            if (sweptTo.compareAndSet(swept, now)) {
+                if (engine != null) {
+                    // Through the rings, so the sweep does not overtake ticks already queued to a shard
+                    engine.broadcastInOrder(shard -> wheels[shard].advance(now));
+                } else {
+                    wheels[0].advance(now);
+                }
+                return;
+            }
+        }
+    }
+
+    /** Hold off a {@link #checkpoint} while ticks are logged and applied; nothing to do without a tick log. */
+    private void enterGate() {
+        if (checkpointGate != null) checkpointGate.readLock().lock();
+    }
+
+    private void exitGate() {
+        if (checkpointGate != null) checkpointGate.readLock().unlock();
+    }
+
+    /**
+     * Scheduled tick log checkpoint: with ticks held off for a moment, roll the log to a new segment and copy
+     * every aggregator's state — on each shard's worker in sharded mode, after the ticks already queued to
+     * it. Once the {@link CandleStore} has forced the candles closed so far, the copy is committed with the
+     * new segment and the segments before it are deleted, so recovery replays only the ticks since.
+     */
+    @Scheduled(fixedRateString = "${candle.tick-log.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (tickLog == null) return;
+        synchronized (checkpointLock) {
+            if (stopped) return;
+            List<Checkpoint.SymbolState> states = new ArrayList<>();
+            CountDownLatch copied = new CountDownLatch(wheels.length);
+            long sequence;
+            checkpointGate.writeLock().lock();
+            try {
+                sequence = tickLog.roll();
+                if (engine != null) {
+                    engine.broadcastInOrder(shard -> {
+                        List<Checkpoint.SymbolState> shardStates = snapshot(shard);
+                        synchronized (states) {
+                            states.addAll(shardStates);
+                        }
+                        copied.countDown();
+                    });
+                } else {
+                    states.addAll(snapshot(0));
+                    copied.countDown();
+                }
+            } catch (IOException e) {
+                log.error("Tick log checkpoint skipped: cannot roll the log", e);
+                return;
+            } finally {
+                checkpointGate.writeLock().unlock();
+            }
+            try {
+                copied.await();
+                candleStore.force();
+                synchronized (states) {
+                    tickLog.commit(sequence, Checkpoint.encode(states));
+                }
+                checkpoints.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                log.error("Tick log checkpoint at segment {} failed; the previous one stands", sequence, e);
+            }
+        }
+    }
+
+    /**
+     * State of the symbols {@code shard} owns (every symbol outside sharded mode), live or evicted.
+     */
+    private List<Checkpoint.SymbolState> snapshot(int shard) {
+        List<Checkpoint.SymbolState> states = new ArrayList<>();
+        for (int id = 0; id < registry.size(); id++) {
+            String symbol = registry.symbol(id);
+            if (shardOf(symbol) != shard) continue;
+            SymbolAggregators bundle = symbols.get(symbol);
+            List<AggregatorState> live = bundle != null && !bundle.isRetired() ? bundle.state() : List.of();
+            long until = evictedUntil(id);
+            if (!live.isEmpty() || until > 0) states.add(new Checkpoint.SymbolState(symbol, until, live));
+        }
+        return states;
+    }
+
+    /**
+     * On shutdown, force-flush all open candles so no data is lost. With a tick log, a last checkpoint
+     * is taken first, so that a restart carries on from the open candles rather than the flushed ones.
      */
     @PreDestroy
     public void shutdown() {
-        log.info("Shutdown: force-flushing {} aggregators", aggregators.size());
-        aggregators.values().forEach(agg -> agg.forceFlush().ifPresent(candle ->
-                log.info("Flushed on shutdown: symbol={} interval={} time={}",
-                        agg.getSymbol(), agg.getInterval().getLabel(), candle.time())));
+        if (tickLog != null) {
+            checkpoint();
+            synchronized (checkpointLock) {
+                stopped = true;
+            }
+        }
+        if (engine != null) {
+            // Drain queued events; once the workers have exited their aggregators are safe to touch here
+            engine.close();
+        }
+        log.info("Shutdown: force-flushing {} aggregators", aggregatorCount());
+        symbols.values().forEach(bundle -> bundle.forceFlush().ifPresent(candle ->
+                log.info("Flushed on shutdown: symbol={} time={} (and all coarser intervals)",
+                        bundle.getSymbol(), candle.time())));
+        if (tickLog != null) tickLog.close();
+    }
+
+    /**
+     * The tick log, or null if ticks are not logged.
+     */
+    public TickLog getTickLog() {
+        return tickLog;
+    }
+
+    /**
+     * Tick log checkpoints committed since startup, the one taken after recovery included.
+     */
+    public long checkpointsTaken() {
+        return checkpoints.get();
     }
 
     /**
-     * Returns the list of symbols currently known to the aggregation engine.
+     * Returns the symbols that currently have live aggregators; evicted symbols are not listed.
      */
     public List<String> activeSymbols() {
-        return aggregators.keySet().stream()
-                .map(key -> key.split("::")[0])
-                .distinct()
+        return symbols.keySet().stream()
                 .sorted()
                 .toList();
     }
 
     /**
-     * Returns the total number of active aggregators (symbols × intervals).
+     * Returns the total number of live aggregators (active symbols × intervals).
      */
     public int aggregatorCount() {
-        return aggregators.size();
+        return symbols.values().stream().mapToInt(SymbolAggregators::size).sum();
+    }
+
+    /**
+     * Late ticks patched into a recently closed candle, across all symbols.
+     */
+    public long lateTicksPatched() {
+        return lateTicksPatched(intervals.get(intervals.mainHead()));
+    }
+
+    /**
+     * Late ticks dropped as older than the reorder window, across all symbols.
+     */
+    public long lateTicksDropped() {
+        return lateTicksDropped(intervals.get(intervals.mainHead()));
     }
 
-    private static String aggregatorKey(String symbol, Interval interval) {
-        return symbol + "::" + interval.getLabel();
+    /**
+     * Late ticks {@code interval} patched into a recently closed candle, across all symbols. Only the heads
+     * of the cascades patch ticks of their own; the intervals rolled up from them take the patches along.
+     */
+    public long lateTicksPatched(Interval interval) {
+        int index = intervals.indexOf(interval);
+        return evictedLatePatched.get(index) + symbols.values().stream().mapToLong(bundle -> bundle.latePatched(index)).sum();
+    }
+
+    /**
+     * Late ticks {@code interval} lost, across all symbols: ticks older than the reorder window at the head
+     * of a cascade, and further up the ticks of finer candles that reached it too late to be counted in.
+     */
+    public long lateTicksDropped(Interval interval) {
+        int index = intervals.indexOf(interval);
+        return evictedLateDropped.get(index) + symbols.values().stream().mapToLong(bundle -> bundle.lateDropped(index)).sum();
+    }
+
+    /**
+     * Number of symbols with live aggregators.
+     */
+    public int activeSymbolCount() {
+        return symbols.size();
+    }
+
+    /**
+     * Symbols evicted so far, as idle or to stay under the cap. A symbol evicted twice counts twice.
+     */
+    public long symbolsEvicted() {
+        return symbolsEvicted.get();
+    }
+
+    /**
+     * The registry assigning dense int IDs to every symbol seen by this service.
+     */
+    public SymbolRegistry getSymbolRegistry() {
+        return registry;
+    }
+
+    public IngestMode getMode() {
+        return mode;
+    }
+
+    public FlushClock getFlushClock() {
+        return flushClock;
+    }
+
+    public IntervalCatalog getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Current event-time watermark in Unix seconds, or {@link EventTimeWatermark#NONE} before the first
+     * tick or when candles are flushed by the wall clock.
+     */
+    public long eventTimeWatermark() {
+        return watermark != null ? watermark.current() : EventTimeWatermark.NONE;
+    }
+
+    /**
+     * Events accepted but not yet aggregated. Always zero in locked mode.
+     */
+    public int queuedEvents() {
+        return engine != null ? engine.queuedEvents() : 0;
+    }
+
+    /**
+     * What a tick finding its shard's ring full does; {@link OverflowPolicy#BLOCK} outside sharded mode,
+     * where there is no queue.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return engine != null ? engine.overflowPolicy() : OverflowPolicy.BLOCK;
+    }
+
+    /**
+     * Ticks shed under overload with {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public long ticksDropped() {
+        return engine != null ? engine.droppedTicks() : 0;
+    }
+
+    /**
+     * Ticks folded into partial candles under overload with {@link OverflowPolicy#CONFLATE}.
+     */
+    public long ticksConflated() {
+        return engine != null ? engine.conflatedTicks() : 0;
     }
 }
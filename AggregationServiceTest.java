@@ -1,17 +1,45 @@
 package com.candle.aggregator;
 
 import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.IngestResult;
+import com.candle.ingest.OverflowPolicy;
+import com.candle.ingest.TickLogConfig;
 import com.candle.model.Candle;
 import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
+import com.candle.service.AggregationConfig;
 import com.candle.service.AggregationService;
+import com.candle.service.FlushClock;
+import com.candle.service.IngestMetrics;
 import com.candle.store.CandleStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 @DisplayName("AggregationService")
 class AggregationServiceTest {
@@ -19,15 +47,23 @@ class AggregationServiceTest {
     private CandleStore candleStore;
     private AggregationService service;
 
+    @TempDir
+    Path dir;
+
     private BidAskEvent event(String symbol, double mid, long timestampSeconds) {
         double spread = mid * 0.001;
         return new BidAskEvent(symbol, mid - spread / 2, mid + spread / 2, timestampSeconds * 1000L);
     }
 
+    /** Late ticks are dropped and symbols never evicted, unless a test says otherwise. */
+    private static AggregationConfig.Builder config() {
+        return AggregationConfig.builder().reorderWindowSeconds(0).idleEvictSeconds(0);
+    }
+
     @BeforeEach
     void setUp() {
         candleStore = new CandleStore();
-        service = new AggregationService(candleStore);
+        service = new AggregationService(candleStore, config().build());
     }
 
     @Test
@@ -90,4 +126,531 @@ class AggregationServiceTest {
         // This is a smoke test — just ensure it doesn't throw
         assertThat(candleStore.totalCandles()).isGreaterThanOrEqualTo(0);
     }
+
+    @Test
+    @DisplayName("Sharded mode produces the same candles as locked mode")
+    void shardedModeMatchesLocked() {
+        CandleStore shardedStore = new CandleStore();
+        AggregationService sharded = new AggregationService(shardedStore,
+                config().mode(IngestMode.SHARDED).shards(2).queueCapacity(1024).build());
+
+        long t = 1_700_000_000L;
+        for (AggregationService target : List.of(service, sharded)) {
+            target.ingest(event("BTC-USD", 100.0, t));
+            target.ingest(event("BTC-USD", 120.0, t + 30));
+            target.ingest(event("ETH-USD", 200.0, t + 10));
+            target.ingest(event("BTC-USD", 90.0, t + 60));
+            target.ingest(event("ETH-USD", 210.0, t + 70));
+        }
+        sharded.shutdown(); // drains the shards, then force-flushes on this thread
+        service.shutdown();
+
+        for (String symbol : List.of("BTC-USD", "ETH-USD")) {
+            for (Interval interval : Interval.values()) {
+                assertThat(shardedStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("%s@%s", symbol, interval.getLabel())
+                        .isNotEmpty()
+                        .isEqualTo(candleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE));
+            }
+        }
+        assertThat(sharded.activeSymbols()).containsExactly("BTC-USD", "ETH-USD");
+    }
+
+    @Test
+    @DisplayName("Lock-free mode, configured as \"lock-free\", produces the same candles as locked mode")
+    void lockFreeModeMatchesLocked() {
+        CandleStore lockFreeStore = new CandleStore();
+        AggregationService lockFree = new AggregationService(lockFreeStore,
+                config().mode(IngestMode.fromConfig("lock-free")).build());
+        assertThat(lockFree.getMode()).isEqualTo(IngestMode.LOCK_FREE);
+
+        long t = 1_700_000_000L;
+        for (AggregationService target : List.of(service, lockFree)) {
+            target.ingest(event("BTC-USD", 100.0, t));
+            target.ingest(event("BTC-USD", 120.0, t + 30));
+            target.ingest(event("ETH-USD", 200.0, t + 10));
+            target.ingest(event("BTC-USD", 90.0, t + 60));
+            target.ingest(event("ETH-USD", 210.0, t + 70));
+        }
+        lockFree.shutdown();
+        service.shutdown();
+
+        for (String symbol : List.of("BTC-USD", "ETH-USD")) {
+            for (Interval interval : Interval.values()) {
+                assertThat(lockFreeStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("%s@%s", symbol, interval.getLabel())
+                        .isNotEmpty()
+                        .isEqualTo(candleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown ingest mode is rejected at startup")
+    void unknownModeRejected() {
+        assertThatThrownBy(() -> IngestMode.fromConfig("turbo"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("turbo");
+    }
+
+    @Test
+    @DisplayName("Roll-up cascade yields the same candles as feeding every interval with raw ticks")
+    void cascadeMatchesDirectFanOut() {
+        Map<Interval, List<Candle>> direct = new HashMap<>();
+        List<CandleAggregator> independent = new ArrayList<>();
+        for (Interval interval : Interval.values()) {
+            List<Candle> sink = new ArrayList<>();
+            direct.put(interval, sink);
+            independent.add(new CandleAggregator("BTC-USD", interval, (label, candle) -> sink.add(candle)));
+        }
+
+        Random random = new Random(42);
+        long timestampMs = 1_700_000_000_000L;
+        double mid = 100.0;
+        for (int i = 0; i < 20_000; i++) {
+            timestampMs += random.nextInt(800);  // ~4.5 hours of irregular ticks
+            mid = Math.max(1.0, mid + random.nextGaussian());
+            BidAskEvent tick = new BidAskEvent("BTC-USD", mid - 0.01, mid + 0.01, timestampMs);
+            service.ingest(tick);
+            independent.forEach(agg -> agg.process(tick));
+        }
+        service.shutdown();
+        independent.forEach(CandleAggregator::forceFlush);
+
+        for (Interval interval : Interval.values()) {
+            assertThat(candleStore.query("BTC-USD", interval.getLabel(), 0, Long.MAX_VALUE))
+                    .as(interval.getLabel())
+                    .isEqualTo(direct.get(interval));
+        }
+    }
+
+    @Test
+    @DisplayName("ingestBatch produces the same candles as ingesting events one by one")
+    void batchMatchesSingleIngest() {
+        long t = 1_700_000_000L;
+        List<BidAskEvent> burst = List.of(
+                event("BTC-USD", 100.0, t),
+                event("ETH-USD", 200.0, t),
+                event("BTC-USD", 110.0, t + 1),
+                event("ETH-USD", 190.0, t + 2),
+                event("BTC-USD", 90.0, t + 61),
+                event("ETH-USD", 220.0, t + 61));
+
+        CandleStore singleStore = new CandleStore();
+        AggregationService single = new AggregationService(singleStore, config().build());
+        burst.forEach(single::ingest);
+        single.shutdown();
+
+        IngestResult result = service.ingestBatch(burst);
+        service.shutdown();
+
+        assertThat(result).isEqualTo(new IngestResult(6, 0));
+        for (String symbol : List.of("BTC-USD", "ETH-USD")) {
+            for (Interval interval : Interval.values()) {
+                assertThat(candleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("%s@%s", symbol, interval.getLabel())
+                        .isEqualTo(singleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("ingestBatch counts null entries and late events as rejected")
+    void batchReportsRejections() {
+        long t = 1_700_000_000L;
+        IngestResult result = service.ingestBatch(Arrays.asList(
+                event("BTC-USD", 100.0, t + 5),
+                null,
+                event("BTC-USD", 101.0, t + 3),   // late: older 1s bucket than t+5
+                event("ETH-USD", 200.0, t)));
+
+        assertThat(result.accepted()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(result.total()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("ingestBatch in sharded mode publishes per-symbol groups and drains on shutdown")
+    void batchInShardedMode() {
+        CandleStore shardedStore = new CandleStore();
+        AggregationService sharded = new AggregationService(shardedStore,
+                config().mode(IngestMode.SHARDED).shards(2).queueCapacity(16).build());
+        long t = 1_700_000_000L;
+
+        IngestResult result = sharded.ingestBatch(List.of(
+                event("BTC-USD", 100.0, t),
+                event("ETH-USD", 200.0, t),
+                event("BTC-USD", 110.0, t + 1)));
+        sharded.shutdown();
+
+        assertThat(result).isEqualTo(new IngestResult(3, 0));
+        assertThat(shardedStore.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).hasSize(2);
+        assertThat(shardedStore.query("ETH-USD", "1s", 0, Long.MAX_VALUE)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("ingestBatch(TickBatch) produces the same candles as BidAskEvent ingestion")
+    void tickBatchMatchesEvents() {
+        long t = 1_700_000_000L;
+        int btc = service.getSymbolRegistry().intern("BTC-USD");
+        int eth = service.getSymbolRegistry().intern("ETH-USD");
+        TickBatch batch = new TickBatch(8);
+        List<BidAskEvent> events = new ArrayList<>();
+        Object[][] ticks = {
+                {btc, "BTC-USD", 100.0, t}, {eth, "ETH-USD", 200.0, t}, {btc, "BTC-USD", 120.0, t},
+                {btc, "BTC-USD", 90.0, t + 1}, {eth, "ETH-USD", 210.0, t + 61}, {btc, "BTC-USD", 95.0, t + 61}};
+        for (Object[] tick : ticks) {
+            BidAskEvent e = event((String) tick[1], (double) tick[2], (long) tick[3]);
+            events.add(e);
+            batch.add((int) tick[0], e.bid(), e.ask(), e.timestamp());
+        }
+
+        CandleStore eventStore = new CandleStore();
+        AggregationService eventService = new AggregationService(eventStore, config().build());
+        events.forEach(eventService::ingest);
+        eventService.shutdown();
+
+        assertThat(service.ingestBatch(batch)).isEqualTo(new IngestResult(6, 0));
+        service.shutdown();
+
+        for (String symbol : List.of("BTC-USD", "ETH-USD")) {
+            for (Interval interval : Interval.values()) {
+                assertThat(candleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("%s@%s", symbol, interval.getLabel())
+                        .isEqualTo(eventStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("ingestBatch(TickBatch) rejects invalid rows and unknown symbol IDs")
+    void tickBatchRejections() {
+        long ts = 1_700_000_000_000L;
+        int btc = service.getSymbolRegistry().intern("BTC-USD");
+        TickBatch batch = new TickBatch(4);
+        batch.add(btc, 100.0, 100.1, ts);
+        batch.add(btc, 100.2, 100.1, ts);   // crossed
+        batch.add(99, 100.0, 100.1, ts);    // never interned
+
+        assertThat(service.ingestBatch(batch)).isEqualTo(new IngestResult(1, 2));
+        assertThat(service.activeSymbols()).containsExactly("BTC-USD");
+    }
+
+    @Test
+    @DisplayName("Steady-state TickBatch ingestion allocates nothing per tick")
+    void tickBatchIsAllocationFree() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int[] ids = {service.getSymbolRegistry().intern("BTC-USD"), service.getSymbolRegistry().intern("ETH-USD")};
+        long ts = 1_700_000_000_000L; // every tick stays in one 1s bucket, so no candle is completed
+        TickBatch batch = new TickBatch(10_000);
+
+        for (int round = 0; round < 20; round++) {
+            batch.clear();
+            for (int i = 0; i < batch.capacity(); i++) {
+                batch.add(ids[i % 2], 100.0 + (i % 7), 100.5 + (i % 7), ts + (i % 500));
+            }
+            long before = threads.getCurrentThreadAllocatedBytes();
+            service.ingestBatch(batch);
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            if (round >= 10) {
+                // Only the per-batch IngestResult and logging remain — far below one byte per tick
+                assertThat(allocated).as("bytes allocated for %d ticks", batch.size()).isLessThan(batch.size());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Event-time flush closes a quiet symbol's candles as the replay passes them, not by the wall clock")
+    void eventTimeFlushFollowsReplay() {
+        AggregationService replay = new AggregationService(candleStore,
+                config().flushClock(FlushClock.EVENT_TIME).build());
+        long t = 1_700_000_040L; // minute-aligned, years behind the wall clock
+
+        replay.ingest(event("ETH-USD", 200.0, t));       // ETH then goes quiet
+        replay.ingest(event("BTC-USD", 100.0, t + 30));
+        replay.flushStaleCandles();                       // wall clock: must not close anything
+
+        assertThat(candleStore.query("ETH-USD", "15s", 0, Long.MAX_VALUE)).hasSize(1);
+        assertThat(candleStore.query("ETH-USD", "1m", 0, Long.MAX_VALUE)).isEmpty();
+        assertThat(candleStore.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).isEmpty();
+        assertThat(replay.eventTimeWatermark()).isEqualTo(t + 30);
+
+        replay.ingest(event("BTC-USD", 101.0, t + 60));
+        assertThat(candleStore.query("ETH-USD", "1m", 0, Long.MAX_VALUE)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Allowed lateness holds buckets open; a watermark report ends the replay")
+    void allowedLatenessAndWatermarkReport() {
+        AggregationService replay = new AggregationService(candleStore,
+                config().flushClock(FlushClock.EVENT_TIME).allowedLatenessSeconds(5).build());
+        long t = 1_700_000_040L;
+
+        replay.ingest(event("ETH-USD", 200.0, t));
+        replay.ingest(event("BTC-USD", 100.0, t + 3));
+        assertThat(candleStore.query("ETH-USD", "1s", 0, Long.MAX_VALUE)).isEmpty();
+        replay.ingest(event("ETH-USD", 201.0, t + 2));   // within the lateness: lands in its bucket
+        replay.ingest(event("BTC-USD", 101.0, t + 6));
+        assertThat(candleStore.query("ETH-USD", "1s", 0, Long.MAX_VALUE)).hasSize(1);
+
+        replay.advanceWatermark("ingest", (t + 2 * 3600) * 1000L);
+        for (Interval interval : Interval.values()) {
+            assertThat(candleStore.query("ETH-USD", interval.getLabel(), 0, Long.MAX_VALUE))
+                    .as(interval.getLabel()).isNotEmpty();
+            assertThat(candleStore.query("BTC-USD", interval.getLabel(), 0, Long.MAX_VALUE))
+                    .as(interval.getLabel()).isNotEmpty();
+        }
+        assertThatThrownBy(() -> service.advanceWatermark("ingest", t * 1000L))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("An in-order replay flushed by event time, in locked and sharded mode, matches event-driven rolls")
+    void eventTimeReplayMatchesEventDriven() {
+        CandleStore lockedStore = new CandleStore();
+        CandleStore shardedStore = new CandleStore();
+        AggregationService locked = new AggregationService(lockedStore,
+                config().flushClock(FlushClock.EVENT_TIME).build());
+        AggregationService sharded = new AggregationService(shardedStore, config().mode(IngestMode.SHARDED).shards(2)
+                .queueCapacity(1024).flushClock(FlushClock.EVENT_TIME).build());
+
+        Random random = new Random(7);
+        List<String> symbols = List.of("BTC-USD", "ETH-USD", "SOL-USD");
+        long timestampMs = 1_700_000_000_000L;
+        for (int i = 0; i < 5_000; i++) {
+            timestampMs += random.nextInt(1500);  // ~1 hour, symbols going quiet at random
+            BidAskEvent tick = event(symbols.get(random.nextInt(symbols.size())), 100.0 + random.nextInt(50),
+                    timestampMs / 1000L);
+            service.ingest(tick);
+            locked.ingest(tick);
+            sharded.ingest(tick);
+        }
+        int flushedByWatermark = lockedStore.totalCandles();
+        service.shutdown();
+        locked.shutdown();
+        sharded.shutdown();
+
+        assertThat(flushedByWatermark).isGreaterThan(candleStore.totalCandles() / 2);
+        for (String symbol : symbols) {
+            for (Interval interval : Interval.values()) {
+                List<Candle> expected = candleStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE);
+                assertThat(lockedStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("locked %s@%s", symbol, interval.getLabel()).isEqualTo(expected);
+                assertThat(shardedStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("sharded %s@%s", symbol, interval.getLabel()).isEqualTo(expected);
+            }
+        }
+    }
+
+    /** A store that takes a while to save, so that a single producer outruns a shard worker. */
+    private static CandleStore slowStore() {
+        return new CandleStore() {
+            @Override
+            public void save(String symbol, String interval, Candle candle) {
+                LockSupport.parkNanos(200_000);
+                super.save(symbol, interval, candle);
+            }
+        };
+    }
+
+    /** In-order ticks for two symbols, several per second, with occasional late ones inside a 2s window. */
+    private static List<BidAskEvent> burst(int ticks) {
+        Random random = new Random(11);
+        List<BidAskEvent> events = new ArrayList<>();
+        long timestampMs = 1_700_000_040_000L;
+        for (int i = 0; i < ticks; i++) {
+            timestampMs += random.nextInt(120);
+            long ts = random.nextInt(20) == 0 ? timestampMs - 1_500 : timestampMs;
+            double mid = 100.0 + random.nextInt(40) * 0.25;
+            events.add(new BidAskEvent(i % 3 == 0 ? "ETH-USD" : "BTC-USD", mid - 0.05, mid + 0.05, ts));
+        }
+        return events;
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlushClock.class)
+    @DisplayName("Conflating a burst that overflows the shard ring gives the same candles as tick-by-tick")
+    void conflatedOverflowMatchesTickByTick(FlushClock flushClock) {
+        CandleStore lockedStore = new CandleStore();
+        CandleStore conflatedStore = slowStore();
+        AggregationService locked = new AggregationService(lockedStore,
+                config().reorderWindowSeconds(2).flushClock(flushClock).build());
+        AggregationService conflating = new AggregationService(conflatedStore,
+                config().mode(IngestMode.SHARDED).shards(1).queueCapacity(8).reorderWindowSeconds(2)
+                        .flushClock(flushClock).overflowPolicy(OverflowPolicy.CONFLATE).build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new IngestMetrics(conflating).bindTo(registry);
+
+        for (BidAskEvent tick : burst(5_000)) {
+            locked.ingest(tick);
+            conflating.ingest(tick);
+        }
+        locked.shutdown();
+        conflating.shutdown();
+
+        assertThat(conflating.ticksConflated()).isPositive();
+        assertThat(registry.get("candle.ingest.ticks.conflated").functionCounter().count())
+                .isEqualTo(conflating.ticksConflated());
+        assertThat(conflating.lateTicksDropped()).isEqualTo(locked.lateTicksDropped());
+        for (String symbol : List.of("BTC-USD", "ETH-USD")) {
+            for (Interval interval : Interval.values()) {
+                assertThat(conflatedStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE))
+                        .as("%s@%s", symbol, interval.getLabel())
+                        .isEqualTo(lockedStore.query(symbol, interval.getLabel(), 0, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Dropping the oldest ticks on overflow loses exactly the ticks it counts as dropped")
+    void dropOldestCountsEveryShedTick() {
+        CandleStore droppingStore = slowStore();
+        AggregationService dropping = new AggregationService(droppingStore, config().mode(IngestMode.SHARDED).shards(1)
+                .queueCapacity(8).overflowPolicy(OverflowPolicy.DROP_OLDEST).build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new IngestMetrics(dropping).bindTo(registry);
+
+        long timestampMs = 1_700_000_040_000L;
+        int ticks = 3_000;
+        for (int i = 0; i < ticks; i++) {
+            dropping.ingest(new BidAskEvent("BTC-USD", 99.95, 100.05, timestampMs + i * 10L));
+        }
+        dropping.shutdown();
+
+        long aggregated = droppingStore.query("BTC-USD", "1s", 0, Long.MAX_VALUE).stream()
+                .mapToLong(Candle::volume).sum();
+        assertThat(dropping.ticksDropped()).isPositive();
+        assertThat(aggregated + dropping.ticksDropped()).isEqualTo(ticks);
+        assertThat(registry.get("candle.ingest.ticks.dropped").functionCounter().count())
+                .isEqualTo(dropping.ticksDropped());
+        assertThat(registry.get("candle.ingest.queue.depth").tag("policy", "drop-oldest").gauge().value()).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(IngestMode.class)
+    @DisplayName("An idle symbol is evicted and, on its next tick, resumes the candles it left open")
+    void idleSymbolIsEvictedAndResumes(IngestMode mode) {
+        AggregationService evicting = new AggregationService(candleStore, config().mode(mode).shards(2)
+                .queueCapacity(1024).flushClock(FlushClock.EVENT_TIME).idleEvictSeconds(60).build());
+        long t = 1_700_002_800L; // hour-aligned
+
+        evicting.ingest(event("ETH-USD", 200.0, t));
+        evicting.ingest(event("BTC-USD", 100.0, t));
+        evicting.ingest(event("BTC-USD", 101.0, t + 120)); // the watermark leaves ETH idle for 120s
+        await().atMost(Duration.ofSeconds(5)).until(() -> evicting.queuedEvents() == 0);
+        evicting.evictIdleSymbols();
+        await().atMost(Duration.ofSeconds(5)).until(() -> evicting.symbolsEvicted() == 1);
+        assertThat(evicting.activeSymbols()).containsExactly("BTC-USD");
+        assertThat(evicting.activeSymbolCount()).isEqualTo(1);
+
+        evicting.ingest(event("ETH-USD", 210.0, t + 130));
+        evicting.ingest(event("ETH-USD", 190.0, t - 5)); // before its last second: late
+        evicting.shutdown();
+
+        assertThat(evicting.activeSymbols()).containsExactly("BTC-USD", "ETH-USD");
+        assertThat(evicting.lateTicksDropped()).isEqualTo(1);
+        assertThat(candleStore.query("ETH-USD", "1h", 0, Long.MAX_VALUE))
+                .containsExactly(new Candle(t, 200.0, 210.0, 200.0, 210.0, 2));
+        assertThat(candleStore.query("ETH-USD", "1m", 0, Long.MAX_VALUE)).extracting(Candle::time)
+                .containsExactly(t, t + 120);
+    }
+
+    @Test
+    @DisplayName("The active symbol cap evicts the least recently active symbols first")
+    void activeSymbolCapEvictsLeastRecentlyActive() {
+        AggregationService capped = new AggregationService(candleStore, config().maxActiveSymbols(3).build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new IngestMetrics(capped).bindTo(registry);
+        long t = 1_700_002_800L;
+
+        capped.ingest(event("A", 1.0, t + 2));
+        capped.ingest(event("B", 2.0, t));
+        capped.ingest(event("C", 3.0, t + 1));
+        capped.ingest(event("D", 4.0, t + 3));
+        assertThat(capped.activeSymbols()).containsExactly("A", "C", "D");
+
+        capped.ingest(event("B", 2.5, t + 4)); // back again, in place of C
+        assertThat(capped.activeSymbols()).containsExactly("A", "B", "D");
+        assertThat(capped.symbolsEvicted()).isEqualTo(2);
+        assertThat(registry.get("candle.symbols.active").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("candle.symbols.evicted").functionCounter().count()).isEqualTo(2);
+
+        capped.shutdown();
+        assertThat(candleStore.query("B", "1h", 0, Long.MAX_VALUE))
+                .containsExactly(new Candle(t, 2.0, 2.5, 2.0, 2.5, 2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(IngestMode.class)
+    @DisplayName("After a crash, the tick log checkpoint and the ticks logged since rebuild the open candles")
+    void tickLogRecoversOpenCandles(IngestMode mode) throws IOException {
+        long t = 1_700_002_800L; // hour-aligned
+        Random random = new Random(7);
+        List<BidAskEvent> ticks = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            long late = random.nextInt(10) == 0 ? 1_500 : 0; // inside the reorder window
+            ticks.add(new BidAskEvent("SYM-" + random.nextInt(3), 100 + random.nextInt(100), 200,
+                    t * 1000 + i * 130L - late));
+        }
+        CandleStore referenceStore = new CandleStore();
+        AggregationService reference = logged(referenceStore, mode, null);
+        ticks.forEach(reference::ingest);
+        reference.shutdown();
+
+        AggregationService crashed = logged(candleStore, mode, dir.resolve("ticks"));
+        ticks.subList(0, 1_000).forEach(crashed::ingest);
+        crashed.checkpoint();
+        crashed.ingestBatch(ticks.subList(1_000, 2_000));
+        ticks.subList(2_000, 2_500).forEach(crashed::ingest);
+        await().atMost(Duration.ofSeconds(5)).until(() -> crashed.queuedEvents() == 0);
+        crashed.getTickLog().sync();
+        // What the crash leaves on disk: the log and the candles already closed
+        copy(dir.resolve("ticks"), dir.resolve("image"));
+        CandleStore survivingStore = new CandleStore();
+        for (String symbol : candleStore.knownSymbols()) {
+            for (String interval : IntervalCatalog.defaults().labels()) {
+                candleStore.query(symbol, interval, 0, Long.MAX_VALUE).forEach(c -> survivingStore.save(symbol, interval, c));
+            }
+        }
+        crashed.shutdown();
+
+        AggregationService recovered = logged(survivingStore, mode, dir.resolve("image"));
+        assertThat(recovered.getTickLog().replayedTicks()).isEqualTo(1_500);
+        ticks.subList(2_500, 3_000).forEach(recovered::ingest);
+        recovered.shutdown();
+
+        for (String symbol : referenceStore.knownSymbols()) {
+            for (String interval : IntervalCatalog.defaults().labels()) {
+                assertThat(survivingStore.query(symbol, interval, 0, Long.MAX_VALUE)).as("%s %s", symbol, interval)
+                        .isEqualTo(referenceStore.query(symbol, interval, 0, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The tick log is left off under drop-oldest, whose shed ticks a replay would restore")
+    void tickLogIsOffUnderDropOldest() {
+        AggregationService dropping = new AggregationService(new CandleStore(), config().mode(IngestMode.SHARDED)
+                .shards(1).queueCapacity(1024).reorderWindowSeconds(2).overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .tickLog(new TickLogConfig(dir.resolve("ticks"), 10, 65_536)).build());
+        dropping.ingest(new BidAskEvent("BTC-USD", 99.95, 100.05, 1_700_000_040_000L));
+        dropping.shutdown();
+
+        assertThat(dropping.getTickLog()).isNull();
+        assertThat(dir.resolve("ticks")).doesNotExist();
+    }
+
+    private static AggregationService logged(CandleStore store, IngestMode mode, Path tickLog) {
+        AggregationService service = new AggregationService(store, config().mode(mode).shards(2).queueCapacity(1024)
+                .reorderWindowSeconds(2).tickLog(tickLog != null ? new TickLogConfig(tickLog, 10, 65_536) : null).build());
+        service.start();
+        return service;
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) Files.copy(file, to.resolve(file.getFileName()));
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package com.candle.aggregator;
+
+import com.candle.model.Candle;
+
+import java.util.List;
+
+/**
+ * What one {@link CandleAggregator} holds between ticks, copied by {@link CandleAggregator#state()} for a
+ * checkpoint and put back by {@link CandleAggregator#restore}: an aggregator restored from it and fed the
+ * ticks that came after it ends up where the original did.
+ *
+ * @param interval         Label of the aggregator's interval
+ * @param open             The open candle, or null if none is open
+ * @param closeTime        Lock-free aggregators: timestamp of the tick that set the open candle's close, as a
+ *                         later tick only takes the close if it is newer; {@link Long#MIN_VALUE} otherwise
+ * @param closed           Recently closed candles kept for late ticks, in any order
+ * @param lastClosedBucket Bucket start of the newest closed candle in Unix milliseconds; {@link Long#MIN_VALUE} if none
+ * @param flushDeadline    End of the most recently opened bucket in Unix milliseconds; 0 before the first one
+ * @param resumedVolume    Volume the open candle resumed from a stored one and leaves out when merged up
+ * @param resuming         True if the first candle still has to start from a stored one (see {@link CandleAggregator#resume})
+ */
+public record AggregatorState(String interval, Candle open, long closeTime, List<Candle> closed, long lastClosedBucket,
+                              long flushDeadline, long resumedVolume, boolean resuming) {
+
+    public AggregatorState {
+        closed = List.copyOf(closed);
+    }
+}
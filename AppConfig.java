@@ -1,10 +1,21 @@
 package com.candle.config;
 
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.OverflowPolicy;
+import com.candle.ingest.TickLogConfig;
+import com.candle.ingest.WaitStrategy;
+import com.candle.model.IntervalCatalog;
+import com.candle.model.SessionCalendar;
+import com.candle.service.AggregationConfig;
+import com.candle.service.FlushClock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.nio.file.Path;
+
 /**
  * Application-wide Spring configuration.
  */
@@ -27,4 +38,58 @@ public class AppConfig {
         scheduler.setAwaitTerminationSeconds(5);
         return scheduler;
     }
+
+    /**
+     * The intervals candles are aggregated over, from a comma-separated list of labels such as
+     * {@code 1m,3m,5m,15m,1h,4h,1d}. The calendar intervals {@code 1d}, {@code 1w} and {@code 1M} start at
+     * the session open in the configured time zone. Startup fails if a label is malformed or the intervals
+     * do not nest (see {@link IntervalCatalog}).
+     */
+    @Bean
+    public IntervalCatalog intervalCatalog(
+            @Value("${candle.intervals:100ms,250ms,500ms,1s,5s,15s,1m,5m,15m,1h,1d,1w,1M}") String intervals,
+            @Value("${candle.calendar.zone:UTC}") String zone,
+            @Value("${candle.calendar.session-open:00:00}") String sessionOpen,
+            @Value("${candle.calendar.week-start:monday}") String weekStart) {
+        return IntervalCatalog.parse(intervals, SessionCalendar.fromConfig(zone, sessionOpen, weekStart));
+    }
+
+    /**
+     * How {@link com.candle.service.AggregationService} ingests and aggregates: execution mode, sharding,
+     * late ticks, flush clock, overflow policy, symbol eviction and the tick log. Startup fails if a value
+     * is unknown or out of range (see {@link AggregationConfig}).
+     */
+    @Bean
+    public AggregationConfig aggregationConfig(
+            @Value("${candle.ingest.mode:locked}") String mode,
+            @Value("${candle.ingest.shards:4}") int shards,
+            @Value("${candle.ingest.queue-capacity:65536}") int queueCapacity,
+            @Value("${candle.reorder.window-seconds:2}") long reorderWindowSeconds,
+            @Value("${candle.flush.clock:wall-clock}") String flushClock,
+            @Value("${candle.watermark.allowed-lateness-seconds:0}") long allowedLatenessSeconds,
+            @Value("${candle.ingest.wait-strategy:parking}") String waitStrategy,
+            @Value("${candle.ingest.overflow-policy:block}") String overflowPolicy,
+            @Value("${candle.symbols.idle-evict-seconds:900}") long idleEvictSeconds,
+            @Value("${candle.symbols.max-active:0}") int maxActiveSymbols,
+            IntervalCatalog intervals,
+            @Value("${candle.tick-log.enabled:false}") boolean tickLogEnabled,
+            @Value("${candle.tick-log.dir:data/ticks}") String tickLogDir,
+            @Value("${candle.tick-log.sync-interval-ms:10}") long tickLogSyncMillis,
+            @Value("${candle.tick-log.buffer-kb:1024}") int tickLogBufferKb) {
+        return AggregationConfig.builder()
+                .mode(IngestMode.fromConfig(mode))
+                .shards(shards)
+                .queueCapacity(queueCapacity)
+                .reorderWindowSeconds(reorderWindowSeconds)
+                .flushClock(FlushClock.fromConfig(flushClock))
+                .allowedLatenessSeconds(allowedLatenessSeconds)
+                .waitStrategy(WaitStrategy.fromConfig(waitStrategy))
+                .overflowPolicy(OverflowPolicy.fromConfig(overflowPolicy))
+                .idleEvictSeconds(idleEvictSeconds)
+                .maxActiveSymbols(maxActiveSymbols)
+                .intervals(intervals)
+                .tickLog(tickLogEnabled
+                        ? new TickLogConfig(Path.of(tickLogDir), tickLogSyncMillis, tickLogBufferKb * 1024) : null)
+                .build();
+    }
 }
@@ -0,0 +1,97 @@
+package com.candle.ingest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.BidAskEvent;
+import com.candle.service.AggregationConfig;
+import com.candle.service.AggregationService;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code ingestBatch} vs a loop of single {@code ingest} calls, for bursts of ticks.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Batch ingest benchmark")
+class BatchIngestBenchmark {
+
+    private static final String[] SYMBOLS = {"BTC-USD", "ETH-USD", "SOL-USD", "BNB-USD", "XRP-USD", "ADA-USD"};
+    private static final int BATCH_SIZE = 2_000;
+    private static final int BATCHES = 1_000;
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("single ingest loop vs ingestBatch")
+    void singleVsBatch() {
+        List<List<BidAskEvent>> bursts = bursts();
+        for (IngestMode mode : IngestMode.values()) {
+            // Warm-up
+            runSingle(mode, bursts);
+            runBatch(mode, bursts);
+
+            double single = runSingle(mode, bursts);
+            double batch = runBatch(mode, bursts);
+            System.out.printf("%s mode, %d-event bursts: single=%,.0f ev/s batch=%,.0f ev/s%n",
+                    mode, BATCH_SIZE, single, batch);
+            assertThat(single).isPositive();
+            assertThat(batch).isPositive();
+        }
+    }
+
+    private static List<List<BidAskEvent>> bursts() {
+        BidAskEvent[][] bursts = new BidAskEvent[BATCHES][BATCH_SIZE];
+        long timestamp = START_MS;
+        for (int b = 0; b < BATCHES; b++) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                double mid = 100.0 + (i % 50);
+                bursts[b][i] = new BidAskEvent(SYMBOLS[i % SYMBOLS.length], mid - 0.05, mid + 0.05, timestamp);
+                if (i % SYMBOLS.length == SYMBOLS.length - 1) timestamp++;
+            }
+        }
+        return Arrays.stream(bursts).map(List::of).toList();
+    }
+
+    private static double runSingle(IngestMode mode, List<List<BidAskEvent>> bursts) {
+        AggregationService service = new AggregationService(new CandleStore(), AggregationConfig.builder()
+                .mode(mode).shards(4).reorderWindowSeconds(0).idleEvictSeconds(0).build());
+        long t0 = System.nanoTime();
+        for (List<BidAskEvent> burst : bursts) {
+            for (BidAskEvent event : burst) {
+                service.ingest(event);
+            }
+        }
+        service.shutdown();
+        return throughput(t0);
+    }
+
+    private static double runBatch(IngestMode mode, List<List<BidAskEvent>> bursts) {
+        AggregationService service = new AggregationService(new CandleStore(), AggregationConfig.builder()
+                .mode(mode).shards(4).reorderWindowSeconds(0).idleEvictSeconds(0).build());
+        long t0 = System.nanoTime();
+        for (List<BidAskEvent> burst : bursts) {
+            service.ingestBatch(burst);
+        }
+        service.shutdown();
+        return throughput(t0);
+    }
+
+    private static double throughput(long startNanos) {
+        return (double) BATCHES * BATCH_SIZE / ((System.nanoTime() - startNanos) / 1e9);
+    }
+}
@@ -0,0 +1,62 @@
+package com.candle.aggregator;
+
+import com.candle.model.Interval;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bucket start of 16M millisecond timestamps: {@code (ts / millis) * millis} against
+ * {@link Interval#bucketStartMillis}, which masks for a power-of-two duration and otherwise multiplies by a
+ * precomputed reciprocal. Timestamps are spread over a day so every call hits a different bucket mix.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Bucket math benchmark")
+class BucketMathBenchmark {
+
+    private static final int TIMESTAMPS = 1 << 24;
+    private static final String[] LABELS = {"250ms", "1s", "3m", "1h", "1d", "1024ms"};
+
+    @Test
+    @DisplayName("division vs precomputed multiply/shift")
+    void bucketStart() {
+        long[] timestamps = new long[TIMESTAMPS];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < TIMESTAMPS; i++) timestamps[i] = 1_700_000_000_000L + random.nextLong(86_400_000L);
+
+        for (String label : LABELS) {
+            Interval interval = Interval.parse(label);
+            long[] divided = new long[2];
+            long[] precomputed = new long[2];
+            for (int i = 0; i < 5; i++) {
+                divided = divide(timestamps, interval.getMillis());
+                precomputed = precomputed(timestamps, interval);
+            }
+            System.out.printf("%-6s division %.2f ns/ts · precomputed %.2f ns/ts%n", label,
+                    (double) divided[0] / TIMESTAMPS, (double) precomputed[0] / TIMESTAMPS);
+            assertThat(precomputed[1]).isEqualTo(divided[1]);
+        }
+    }
+
+    /** @return elapsed nanos, checksum */
+    private static long[] divide(long[] timestamps, long millis) {
+        long sum = 0;
+        long start = System.nanoTime();
+        for (long ts : timestamps) sum += (ts / millis) * millis;
+        return new long[]{System.nanoTime() - start, sum};
+    }
+
+    /** @return elapsed nanos, checksum */
+    private static long[] precomputed(long[] timestamps, Interval interval) {
+        long sum = 0;
+        long start = System.nanoTime();
+        for (long ts : timestamps) sum += interval.bucketStartMillis(ts);
+        return new long[]{System.nanoTime() - start, sum};
+    }
+}
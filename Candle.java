@@ -3,18 +3,34 @@ package com.candle.model;
 /**
  * Immutable candlestick (OHLC) record for a given time bucket.
  *
- * @param time   Bucket start time in Unix seconds
- * @param open   Opening price (first tick in bucket)
- * @param high   Highest price in bucket
- * @param low    Lowest price in bucket
- * @param close  Closing price (last tick in bucket)
- * @param volume Number of ticks (synthetic volume)
+ * @param time       Bucket start time in Unix seconds (rounded down for a sub-second bucket)
+ * @param open       Opening price (first tick in bucket)
+ * @param high       Highest price in bucket
+ * @param low        Lowest price in bucket
+ * @param close      Closing price (last tick in bucket)
+ * @param volume     Number of ticks (synthetic volume)
+ * @param timeMillis Bucket start time in Unix milliseconds; {@code time * 1000} unless the bucket is sub-second
  */
-public record Candle(long time, double open, double high, double low, double close, long volume) {
+public record Candle(long time, double open, double high, double low, double close, long volume, long timeMillis) {
 
     public Candle {
         if (time <= 0) throw new IllegalArgumentException("Time must be positive");
         if (high < low) throw new IllegalArgumentException("High must be >= low");
         if (volume < 0) throw new IllegalArgumentException("Volume must be non-negative");
+        if (timeMillis / 1000 != time) throw new IllegalArgumentException("Time in milliseconds must fall into time");
+    }
+
+    /**
+     * A candle whose bucket starts on a whole second.
+     */
+    public Candle(long time, double open, double high, double low, double close, long volume) {
+        this(time, open, high, low, close, volume, time * 1000);
+    }
+
+    /**
+     * A candle whose bucket starts at {@code timeMillis}, which need not be a whole second.
+     */
+    public static Candle atMillis(long timeMillis, double open, double high, double low, double close, long volume) {
+        return new Candle(timeMillis / 1000, open, high, low, close, volume, timeMillis);
     }
 }
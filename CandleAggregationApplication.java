@@ -5,16 +5,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication
 public class CandleAggregationApplication {
 
     private static final Logger log = LoggerFactory.getLogger(CandleAggregationApplication.class);
 
     public static void main(String[] args) {
-        SpringApplication.run(CandleAggregationApplication.class, args);
+        SpringApplication app = new SpringApplication(CandleAggregationApplication.class);
+        // Request threads (POST /ticks streams) are virtual; Spring Boot ignores this below Java 21
+        app.setDefaultProperties(Map.of(
+                "spring.threads.virtual.enabled", "true",
+                "management.endpoints.web.exposure.include", "health,metrics"));
+        app.run(args);
         log.info("Candle Aggregation Service started.");
         log.info("History API:  GET http://localhost:8080/history?symbol=BTC-USD&interval=1m&from=<unix>&to=<unix>");
         log.info("Status:       GET http://localhost:8080/status");
+        log.info("Tick ingest:  POST http://localhost:8080/ticks (application/x-ndjson)");
         log.info("Health:       GET http://localhost:8080/actuator/health");
+        log.info("Metrics:      GET http://localhost:8080/actuator/metrics/candle.ingest.queue.depth");
     }
 }
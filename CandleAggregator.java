@@ -1,13 +1,17 @@
 package com.candle.aggregator;
 
 import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
 import com.candle.model.Candle;
 import com.candle.model.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 
 /**
@@ -16,24 +20,148 @@ import java.util.function.BiConsumer;
  *
  * <p>Thread-safety is achieved via a per-aggregator {@link ReentrantLock} so that
  * multiple symbols/intervals can be processed in parallel without contention.
+ * An aggregator created as <em>thread-confined</em> skips the lock entirely; the caller
+ * then guarantees that only one thread ever touches it (see
+ * {@link com.candle.ingest.ShardedIngestEngine}).
  *
  * <p>A candle is considered complete ("flushed") when:
  * <ul>
  *   <li>An event arrives with a timestamp belonging to a <em>newer</em> bucket, or</li>
  *   <li>The external flush scheduler calls {@link #flushIfStale(long)}</li>
  * </ul>
+ *
+ * <p><b>Roll-up cascade:</b> an aggregator may be given a coarser {@code rollUp} aggregator.
+ * Every completed candle is then {@link #merge merged} into it, and bucket rolls, stale flushes
+ * and force flushes propagate up the chain. Only the finest interval needs to see raw ticks;
+ * coarser intervals are built from completed candles, once per finer bucket instead of once per tick.
+ * A cascade may fan out: {@link #alsoRollUpInto} adds further coarser targets, e.g. {@code 1m} feeding both
+ * {@code 3m} and {@code 5m}. Calendar intervals ({@code 1d}, {@code 1w}, {@code 1M}) cascade like the others, their
+ * buckets ending at {@link Interval#bucketEndMillis} rather than after a fixed length. An interval that cannot roll up into the chain heads a cascade of its own, fed
+ * by another head through {@link #feedAlso}. Buckets are kept in Unix milliseconds, so sub-second intervals cascade
+ * like the others.
+ *
+ * <p><b>Allocation-free roll-over:</b> the in-progress {@link MutableCandle} is reset in place on
+ * every bucket roll, and completed candles are handed to a primitive {@link CandleListener} rather
+ * than as a fresh {@link Candle}. Rolling over, cascading and flushing allocate nothing unless the
+ * listener does, or debug logging is enabled.
+ *
+ * <p><b>Micro-batch pre-aggregation:</b> {@link #processAll} and {@link #processRows} fold each run of
+ * consecutive ticks that fall into the same bucket into a partial candle — first price, extremes, last
+ * price and count — then apply it to the open candle with one {@link MutableCandle#merge}. On columnar
+ * batches the run is folded by the {@link OhlcKernel}, vectorised when the Vector API is available.
+ * A burst of ticks for one symbol costs one candle update instead of one per tick. The result is exactly
+ * that of processing the ticks one by one: a run ends at the first tick of another bucket, so late ticks
+ * keep their place in the sequence.
+ *
+ * <p><b>Lock-free mode:</b> an aggregator created with {@link #lockFree} is shared by many writer
+ * threads without serialising them. Same-bucket ticks update a published
+ * {@link ConcurrentMutableCandle} with CAS operations only; the lock is taken just to roll to a new
+ * bucket or to flush, which unpublishes the candle and waits for in-flight writers before emitting it.
+ * Two candles are recycled alternately, so roll-over still allocates nothing. A lock-free aggregator
+ * accepts raw ticks only, so it must be the finest link of a cascade.
+ *
+ * <p><b>Reorder window:</b> an aggregator given a {@link #setReorderWindow reorder window} keeps its
+ * most recently closed candles in a small ring. A late tick for one of those buckets patches the
+ * closed candle in place (high, low and volume — open and close stay with the in-order ticks), re-emits
+ * it so the store overwrites the earlier version, and patches the coarser candles of the cascade too.
+ * A late tick for a bucket inside the window that saw no ticks at all closes a new candle for it.
+ * Ticks older than the window are dropped. Both outcomes are counted rather than logged per event, and
+ * so are the ticks a coarser link loses: those of a finer candle merged after its bucket has rolled,
+ * and late ticks patched into a finer candle whose bucket is past the coarser link's window.
+ *
+ * <p><b>Timer-driven flushing:</b> an aggregator attached to a {@link StaleFlushWheel} with
+ * {@link #scheduleOn} registers itself whenever it opens a candle, and the wheel calls
+ * {@link #flushIfDue} once the bucket has ended. Unlike {@link #flushIfStale}, that flush does not
+ * propagate up the cascade — every link has its own wheel entry.
+ *
+ * <p><b>Retirement:</b> {@link #retireIfIdle} flushes the whole cascade and makes the aggregator refuse
+ * every later tick, so that its owner can drop it and create a fresh one on demand. A fresh cascade given
+ * a {@link #resume} source continues the buckets the retired one left open from their stored candles.
  */
 public class CandleAggregator {
 
     private static final Logger log = LoggerFactory.getLogger(CandleAggregator.class);
 
+    private static final OhlcKernel KERNEL = OhlcKernel.get();
+
     private final String symbol;
     private final Interval interval;
-    private final BiConsumer<String, Candle> onCandleComplete;
-    private final ReentrantLock lock = new ReentrantLock();
+    private final CandleListener listener;
+
+    /** Null when the aggregator is thread-confined and needs no locking. */
+    private final ReentrantLock lock;
+
+    /** Aggregators of other cascades fed the same raw ticks, inside this one's critical section. See {@link #feedAlso}. */
+    private CandleAggregator[] siblings = new CandleAggregator[0];
+
+    /** Coarser aggregators fed with this aggregator's completed candles. Empty at the top of a chain. See {@link #alsoRollUpInto}. */
+    private CandleAggregator[] rollUps;
+
+    /** The candle currently being built; reused for every bucket. Only meaningful while {@link #active}. */
+    private final MutableCandle currentCandle = new MutableCandle();
+
+    /** {@link OhlcKernel#foldRun} output for {@link #processRows}: high and low of the current run. Guarded by the lock. */
+    private final double[] runExtremes = new double[2];
+
+    /** False until the first event, and again after a stale or forced flush. */
+    private boolean active;
+
+    /** True for an aggregator created with {@link #lockFree}; {@link #currentCandle} is then unused. */
+    private final boolean lockFree;
+
+    /** Lock-free mode: the candle writers update, or null when none is open. Replaced only under the lock. */
+    private volatile ConcurrentMutableCandle shared;
+
+    /** Lock-free mode: the two candles alternately published as {@link #shared}. */
+    private final ConcurrentMutableCandle[] sharedBuffers;
+
+    /** Returned by the batch methods of a {@link #retireIfIdle retired} aggregator, which applies nothing. */
+    public static final int RETIRED = -1;
+
+    /** Set once, under the lock (and {@link #batchGate}), when the aggregator is retired. */
+    private volatile boolean retired;
 
-    /** The candle currently being built. Null if no events received yet. */
-    private MutableCandle currentCandle;
+    /**
+     * Lock-free mode: held shared by batch calls, exclusively by {@link #retireIfIdle}, so that a batch is
+     * applied either entirely before retirement or not at all. Null in the other modes, where the lock does that.
+     */
+    private final ReentrantReadWriteLock batchGate;
+
+    /** Where the first candle this aggregator opens may already be stored; null once consulted. Guarded by the lock. */
+    private CandleSource resumeFrom;
+
+    /**
+     * Volume of the stored candle the open one resumed from. The roll-up resumed from its own stored candle,
+     * which already counts it, so this much is left out when the candle is merged up. Guarded by the lock.
+     */
+    private long resumedVolume;
+
+    /** {@link #flushIfDue} result: the candle was flushed and the wheel entry dropped. */
+    static final long FLUSHED = -1;
+    /** {@link #flushIfDue} result: no candle was open; the wheel entry is dropped. */
+    static final long IDLE = 0;
+
+    /** Wheel this aggregator registers its open candles with, or null for scheduler-driven flushing only. */
+    private StaleFlushWheel wheel;
+
+    /** True while this aggregator holds a wheel entry. Guarded by the lock. */
+    private boolean scheduled;
+
+    /** End of the open candle's bucket in Unix milliseconds; read by the wheel without locking. */
+    private volatile long flushDeadline;
+
+    /** Next entry in the same wheel slot. Owned by the wheel. */
+    CandleAggregator timerNext;
+
+    /** Recently closed candles, oldest overwritten first; empty when there is no reorder window. */
+    private MutableCandle[] closedRing = new MutableCandle[0];
+
+    /** Bucket (in Unix milliseconds) of the most recently closed candle; ticks at or before it are late. Guarded by the lock. */
+    private long lastClosedBucket = Long.MIN_VALUE;
+
+    /** Late ticks patched into a closed candle, and ones dropped as older than the window. Written under the lock. */
+    private volatile long latePatched;
+    private volatile long lateDropped;
 
     /**
      * @param symbol           The trading symbol this aggregator handles
@@ -41,91 +169,894 @@ public class CandleAggregator {
      * @param onCandleComplete Callback invoked with the interval label and completed candle
      */
     public CandleAggregator(String symbol, Interval interval, BiConsumer<String, Candle> onCandleComplete) {
+        this(symbol, interval, onCandleComplete, false);
+    }
+
+    /**
+     * @param symbol           The trading symbol this aggregator handles
+     * @param interval         The time interval to aggregate over
+     * @param onCandleComplete Callback invoked with the interval label and completed candle
+     * @param threadConfined   If true, no lock is taken — the caller must confine all access to one thread
+     */
+    public CandleAggregator(String symbol, Interval interval, BiConsumer<String, Candle> onCandleComplete,
+                            boolean threadConfined) {
+        this(symbol, interval, onCandleComplete, threadConfined, null);
+    }
+
+    /**
+     * @param symbol           The trading symbol this aggregator handles
+     * @param interval         The time interval to aggregate over
+     * @param onCandleComplete Callback invoked with the interval label and completed candle
+     * @param threadConfined   If true, no lock is taken — the caller must confine all access to one thread
+     * @param rollUp           Coarser aggregator to cascade completed candles into, or null
+     */
+    public CandleAggregator(String symbol, Interval interval, BiConsumer<String, Candle> onCandleComplete,
+                            boolean threadConfined, CandleAggregator rollUp) {
+        this(symbol, interval, CandleListener.of(onCandleComplete), threadConfined, rollUp);
+    }
+
+    /**
+     * @param symbol         The trading symbol this aggregator handles
+     * @param interval       The time interval to aggregate over
+     * @param listener       Receives every completed candle as primitive values
+     * @param threadConfined If true, no lock is taken — the caller must confine all access to one thread
+     * @param rollUp         Coarser aggregator to cascade completed candles into, or null
+     */
+    public CandleAggregator(String symbol, Interval interval, CandleListener listener,
+                            boolean threadConfined, CandleAggregator rollUp) {
+        this(symbol, interval, listener, threadConfined, false, rollUp);
+    }
+
+    /**
+     * Create an aggregator that many threads may feed concurrently, updating the open candle
+     * without taking a lock (see the class documentation).
+     *
+     * @param symbol   The trading symbol this aggregator handles
+     * @param interval The time interval to aggregate over
+     * @param listener Receives every completed candle as primitive values
+     * @param rollUp   Coarser aggregator to cascade completed candles into, or null
+     */
+    public static CandleAggregator lockFree(String symbol, Interval interval, CandleListener listener,
+                                            CandleAggregator rollUp) {
+        return new CandleAggregator(symbol, interval, listener, false, true, rollUp);
+    }
+
+    private CandleAggregator(String symbol, Interval interval, CandleListener listener,
+                             boolean threadConfined, boolean lockFree, CandleAggregator rollUp) {
+        if (rollUp != null) checkRollUp(interval, rollUp);
         this.symbol = symbol;
         this.interval = interval;
-        this.onCandleComplete = onCandleComplete;
+        this.listener = listener;
+        this.lock = threadConfined ? null : new ReentrantLock();
+        this.rollUps = rollUp != null ? new CandleAggregator[]{rollUp} : new CandleAggregator[0];
+        this.lockFree = lockFree;
+        this.sharedBuffers = lockFree
+                ? new ConcurrentMutableCandle[]{new ConcurrentMutableCandle(), new ConcurrentMutableCandle()}
+                : null;
+        this.batchGate = lockFree ? new ReentrantReadWriteLock() : null;
     }
 
     /**
      * Process a new bid/ask event.
      * If the event falls into a new time bucket, the current candle is flushed first.
+     *
+     * @return {@code false} if the event was dropped as late, or the aggregator has been retired
      */
-    public void process(BidAskEvent event) {
-        double price = event.midPrice();
-        long bucket = interval.bucketStart(event.timestampSeconds());
+    public boolean process(BidAskEvent event) {
+        if (lockFree) return applyShared(event.midPrice(), event.timestamp());
+        acquire();
+        try {
+            if (retired) return false;
+            for (CandleAggregator sibling : siblings) sibling.process(event);
+            return apply(event.midPrice(), event.timestamp());
+        } finally {
+            release();
+        }
+    }
 
+    /**
+     * Process a batch of events for this aggregator's symbol under a single lock acquisition.
+     * Events are applied in list order; consecutive events of one bucket are folded into a partial
+     * candle first (see the class documentation).
+     *
+     * @return number of events applied (the rest were dropped as late), or {@link #RETIRED}
+     */
+    public int processAll(List<BidAskEvent> events) {
+        int applied = 0;
+        if (lockFree) {
+            batchGate.readLock().lock();
+            try {
+                if (retired) return RETIRED;
+                for (int i = 0, n = events.size(); i < n; i++) {
+                    BidAskEvent event = events.get(i);
+                    if (applyShared(event.midPrice(), event.timestamp())) applied++;
+                }
+                return applied;
+            } finally {
+                batchGate.readLock().unlock();
+            }
+        }
+        acquire();
+        try {
+            if (retired) return RETIRED;
+            for (CandleAggregator sibling : siblings) sibling.processAll(events);
+            int n = events.size();
+            int i = 0;
+            while (i < n) {
+                BidAskEvent first = events.get(i);
+                long timestampMs = first.timestamp();
+                long bucket = interval.bucketStartMillis(timestampMs);
+                long bucketEnd = interval.bucketEndMillis(bucket);
+                double open = first.midPrice();
+                double high = open;
+                double low = open;
+                double close = open;
+                int end = i + 1;
+                for (; end < n; end++) {
+                    BidAskEvent event = events.get(end);
+                    long ts = event.timestamp();
+                    if (ts < bucket || ts >= bucketEnd) break;
+                    close = event.midPrice();
+                    if (close > high) high = close;
+                    if (close < low) low = close;
+                }
+                applied += applyRun(timestampMs, bucket, open, high, low, close, end - i);
+                i = end;
+            }
+        } finally {
+            release();
+        }
+        return applied;
+    }
+
+    /**
+     * Process rows of a columnar {@link TickBatch} under a single lock acquisition, without allocating.
+     * All rows must belong to this aggregator's symbol. Consecutive rows of one bucket are folded into a
+     * partial candle first (see the class documentation).
+     *
+     * @param batch The tick batch
+     * @param rows  Row indices into {@code batch}, e.g. {@link TickBatch#groupedRows()}
+     * @param from  First index into {@code rows} (inclusive)
+     * @param to    Last index into {@code rows} (exclusive)
+     * @return number of rows applied (the rest were dropped as late), or {@link #RETIRED}
+     */
+    public int processRows(TickBatch batch, int[] rows, int from, int to) {
+        int applied = 0;
+        if (lockFree) {
+            batchGate.readLock().lock();
+            try {
+                if (retired) return RETIRED;
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    if (applyShared(batch.midPrice(row), batch.timestampMs(row))) applied++;
+                }
+                return applied;
+            } finally {
+                batchGate.readLock().unlock();
+            }
+        }
+        acquire();
+        try {
+            if (retired) return RETIRED;
+            for (CandleAggregator sibling : siblings) sibling.processRows(batch, rows, from, to);
+            long[] timestampMs = batch.timestampColumn();
+            double[] bid = batch.bidColumn();
+            double[] ask = batch.askColumn();
+            int i = from;
+            while (i < to) {
+                int row = rows[i];
+                long bucket = interval.bucketStartMillis(timestampMs[row]);
+                long bucketEnd = interval.bucketEndMillis(bucket);
+                int end = KERNEL.foldRun(timestampMs, bid, ask, rows, i, to, bucket, bucketEnd, runExtremes);
+                applied += applyRun(timestampMs[row], bucket, batch.midPrice(row), runExtremes[0], runExtremes[1],
+                        batch.midPrice(rows[end - 1]), end - i);
+                i = end;
+            }
+        } finally {
+            release();
+        }
+        return applied;
+    }
+
+    /**
+     * Process {@code count} ticks of one second at once, folded into a partial candle: the price of the
+     * first tick ({@code open}), the extremes of all of them, and the price of the last one that was in
+     * order ({@code close}). Leaves this aggregator and the cascade as applying the ticks one by one would.
+     *
+     * @param timestampSeconds The ticks' second
+     * @return number of ticks applied (the rest were dropped as late), or {@link #RETIRED}
+     */
+    public int processPartial(long timestampSeconds, double open, double high, double low, double close, long count) {
+        return processPartialMillis(timestampSeconds * 1000, open, high, low, close, count);
+    }
+
+    /**
+     * Millisecond form of {@link #processPartial}: the ticks fall into the slot starting at {@code timestampMs},
+     * which must not straddle a bucket of this interval or of any {@link #feedAlso sibling}.
+     *
+     * @return number of ticks applied (the rest were dropped as late), or {@link #RETIRED}
+     */
+    public int processPartialMillis(long timestampMs, double open, double high, double low, double close, long count) {
+        if (lockFree) {
+            throw new IllegalStateException("Lock-free aggregator " + symbol + "@" + interval.getLabel()
+                    + " accepts raw ticks only");
+        }
+        acquire();
+        try {
+            if (retired) return RETIRED;
+            for (CandleAggregator sibling : siblings) sibling.processPartialMillis(timestampMs, open, high, low, close, count);
+            return applyRun(timestampMs, interval.bucketStartMillis(timestampMs), open, high, low, close, count);
+        } finally {
+            release();
+        }
+    }
+
+    /** Must be called while holding the lock. */
+    private boolean apply(double price, long timestampMs) {
+        long bucket = interval.bucketStartMillis(timestampMs);
+
+        if (!active && bucket <= lastClosedBucket) {
+            // Stale-flushed bucket (or older) — never reopen it, that would overwrite the full candle
+            return patchLate(bucket, price);
+        } else if (!active) {
+            // First event ever for this aggregator (or first since a stale/forced flush)
+            Candle stored = storedCandle(bucket);
+            if (stored != null) {
+                currentCandle.reset(bucket, stored.open(), stored.high(), stored.low(), stored.close(), stored.volume());
+                currentCandle.update(price);
+            } else {
+                currentCandle.reset(bucket, price);
+            }
+            active = true;
+            opened(bucket);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}@{}] Started candle at bucket={}", symbol, interval.getLabel(), bucket);
+            }
+        } else if (bucket > currentCandle.getBucketTime()) {
+            // Event belongs to a newer bucket — flush and start fresh
+            flush();
+            currentCandle.reset(bucket, price);
+            opened(bucket);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}@{}] Rolled to new candle at bucket={}", symbol, interval.getLabel(), bucket);
+            }
+            // Time has moved on — coarser candles whose bucket ended before this one are complete too
+            for (CandleAggregator rollUp : rollUps) rollUp.flushIfStaleMillis(bucket);
+        } else if (bucket == currentCandle.getBucketTime()) {
+            // Same bucket — update in place
+            currentCandle.update(price);
+        } else {
+            // Late/out-of-order event — patch a recently closed candle, or drop it
+            return patchLate(bucket, price);
+        }
+        return true;
+    }
+
+    /**
+     * Apply a run of {@code count} ticks of one bucket, folded into a partial candle, with a single
+     * {@link MutableCandle#merge} instead of one update per tick. Must be called while holding the lock.
+     *
+     * @param timestampMs Time of the first tick of the run
+     * @return number of ticks applied (the rest were dropped as late)
+     */
+    private int applyRun(long timestampMs, long bucket, double open, double high, double low, double close,
+                         long count) {
+        if (count == 1) return apply(open, timestampMs) ? 1 : 0;
+        if (active && bucket == currentCandle.getBucketTime()) {
+            currentCandle.merge(high, low, close, count);
+            return (int) count;
+        }
+        if (active ? bucket > currentCandle.getBucketTime() : bucket > lastClosedBucket) {
+            apply(open, timestampMs); // starts or rolls to the run's bucket
+            currentCandle.merge(high, low, close, count - 1);
+            return (int) count;
+        }
+        // The first tick is late, so are the others: patch them in, each extending high and low
+        int applied = patchLate(bucket, open) ? 1 : 0;
+        if (count == 2) return applied + (patchLate(bucket, high != open ? high : low) ? 1 : 0);
+        if (patchLate(bucket, high)) applied++;
+        if (patchLate(bucket, low)) applied++;
+        for (long i = 3; i < count; i++) {
+            if (patchLate(bucket, close)) applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Apply a late tick to the closed candle of {@code bucket}, if it is still in the reorder window.
+     * Must be called while holding the lock.
+     *
+     * @return {@code false} if the tick was dropped as too late
+     */
+    private boolean patchLate(long bucket, double price) {
+        if (!patchClosed(bucket, price)) {
+            lateDropped++;
+            if (log.isDebugEnabled()) {
+                log.debug("[{}@{}] Late event dropped: eventBucket={}, lastClosedBucket={}",
+                        symbol, interval.getLabel(), bucket, lastClosedBucket);
+            }
+            return false;
+        }
+        latePatched++;
+        return true;
+    }
+
+    /**
+     * Apply a late tick that has been patched into a finer closed candle: update this aggregator's open
+     * candle if the tick falls into it, otherwise patch the matching closed candle.
+     */
+    void patch(long timeMillis, double price) {
+        long bucket = interval.bucketStartMillis(timeMillis);
+        acquire();
+        try {
+            if (active && bucket == currentCandle.getBucketTime()) {
+                currentCandle.patch(price);
+            } else if (!patchClosed(bucket, price)) {
+                // Outside this interval's window the coarse candle keeps its old values
+                lateDropped++;
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}@{}] Late patch dropped: bucket={}, lastClosedBucket={}",
+                            symbol, interval.getLabel(), bucket, lastClosedBucket);
+                }
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Patch the closed candle of {@code bucket} — or, for a bucket inside the window that never had a
+     * tick, close a new one in place of the oldest — then re-emit it and patch the cascade.
+     * Must be called while holding the lock.
+     *
+     * @return {@code false} if {@code bucket} is outside the reorder window
+     */
+    private boolean patchClosed(long bucket, double price) {
+        MutableCandle closed = findClosed(bucket);
+        long newest = newestBucket();
+        if (closed != null) {
+            closed.patch(price);
+        } else if (closedRing.length > 0 && bucket > interval.bucketsBefore(newest, closedRing.length)
+                // Behind the open candle — or, with none open, possibly past the last closed one (a roll-up gap)
+                && (bucket < newest || newest == lastClosedBucket)) {
+            closed = oldestClosed();
+            closed.reset(bucket, price);
+            if (bucket > lastClosedBucket) lastClosedBucket = bucket;
+        } else {
+            return false;
+        }
+        closed.emit(interval, listener);
+        for (CandleAggregator rollUp : rollUps) rollUp.patch(bucket, price);
+        return true;
+    }
+
+    /** Must be called while holding the lock. */
+    private MutableCandle findClosed(long bucket) {
+        for (MutableCandle closed : closedRing) {
+            if (closed.getBucketTime() == bucket) return closed;
+        }
+        return null;
+    }
+
+    /** The open candle's bucket, or the last closed one when none is open. Must be called while holding the lock. */
+    private long newestBucket() {
+        if (lockFree) {
+            ConcurrentMutableCandle candle = shared;
+            return candle != null ? candle.getBucketTime() : lastClosedBucket;
+        }
+        return active ? currentCandle.getBucketTime() : lastClosedBucket;
+    }
+
+    /**
+     * The candle stored for {@code bucket} before this aggregator was created, if it has a {@link #resume}
+     * source and is opening its first candle. Must be called while holding the lock.
+     */
+    private Candle storedCandle(long bucket) {
+        CandleSource source = resumeFrom;
+        if (source == null) return null;
+        resumeFrom = null;
+        Candle stored = source.find(interval, bucket).orElse(null);
+        if (stored != null) resumedVolume = stored.volume();
+        return stored;
+    }
+
+    /** Must be called while holding the lock, with a non-empty ring. */
+    private MutableCandle oldestClosed() {
+        MutableCandle oldest = closedRing[0];
+        for (MutableCandle closed : closedRing) {
+            if (closed.getBucketTime() < oldest.getBucketTime()) oldest = closed;
+        }
+        return oldest;
+    }
+
+    /**
+     * Lock-free mode: apply a tick to the shared candle, taking the lock only to start or roll a bucket.
+     */
+    private boolean applyShared(double price, long timestampMs) {
+        long bucket = interval.bucketStartMillis(timestampMs);
+        while (true) {
+            ConcurrentMutableCandle candle = shared;
+            if (candle != null) {
+                long currentBucket = candle.getBucketTime();
+                if (bucket == currentBucket) {
+                    int stripe = candle.enter();
+                    try {
+                        // Re-check under the claim: a roll or flush may have unpublished (and recycled) the candle
+                        if (shared == candle && candle.getBucketTime() == bucket) {
+                            candle.update(stripe, price, timestampMs);
+                            for (CandleAggregator sibling : siblings) sibling.applyShared(price, timestampMs);
+                            return true;
+                        }
+                    } finally {
+                        candle.exit(stripe);
+                    }
+                    continue;
+                }
+            }
+            return applySharedLocked(bucket, price, timestampMs);
+        }
+    }
+
+    /**
+     * Lock-free mode slow path: start or roll a bucket, or handle a late tick, under the lock.
+     * Publishes a fresh candle first, then completes the previous one.
+     */
+    private boolean applySharedLocked(long bucket, double price, long timestampMs) {
         lock.lock();
         try {
-            if (currentCandle == null) {
-                // First event ever for this aggregator
-                currentCandle = new MutableCandle(bucket, price);
-                log.debug("[{}@{}] Started first candle at bucket={}", symbol, interval.getLabel(), bucket);
+            if (retired) return false;
+            for (CandleAggregator sibling : siblings) sibling.applyShared(price, timestampMs);
+            ConcurrentMutableCandle previous = shared;
+            if (previous != null && previous.getBucketTime() == bucket) {
+                // Another writer got here first; lock-free writers may still be updating it
+                int stripe = previous.enter();
+                try {
+                    previous.update(stripe, price, timestampMs);
+                } finally {
+                    previous.exit(stripe);
+                }
+                return true;
+            }
+            if (previous != null ? bucket < previous.getBucketTime() : bucket <= lastClosedBucket) {
+                return patchLate(bucket, price);
+            }
+
+            ConcurrentMutableCandle next = previous == sharedBuffers[0] ? sharedBuffers[1] : sharedBuffers[0];
+            next.awaitWriters(); // stale claimants from its last use only re-check and leave
+            next.reset(bucket, price, timestampMs);
+            if (previous == null) {
+                Candle stored = storedCandle(bucket);
+                if (stored != null) next.resume(stored);
+            }
+            shared = next;
+            opened(bucket);
+
+            if (previous == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}@{}] Started candle at bucket={}", symbol, interval.getLabel(), bucket);
+                }
+            } else {
+                previous.awaitWriters();
+                flushShared(previous);
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}@{}] Rolled to new candle at bucket={}", symbol, interval.getLabel(), bucket);
+                }
+                for (CandleAggregator rollUp : rollUps) rollUp.flushIfStaleMillis(bucket);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lock-free mode: unpublish the shared candle and wait for in-flight writers. Must hold the lock.
+     *
+     * @return the now quiescent candle, or null if none was open
+     */
+    private ConcurrentMutableCandle unpublishShared() {
+        ConcurrentMutableCandle candle = shared;
+        if (candle != null) {
+            shared = null;
+            candle.awaitWriters();
+        }
+        return candle;
+    }
+
+    /**
+     * Merge a completed candle from a finer interval (the previous link of a roll-up cascade).
+     * If the candle falls into a new bucket, the current candle is flushed first.
+     */
+    public void merge(Candle finer) {
+        merge(finer.timeMillis(), finer.open(), finer.high(), finer.low(), finer.close(), finer.volume());
+    }
+
+    /**
+     * Primitive form of {@link #merge(Candle)}, used by the cascade so that nothing is allocated.
+     *
+     * @param timeMillis Bucket start of the finer candle in Unix milliseconds
+     */
+    public void merge(long timeMillis, double open, double high, double low, double close, long volume) {
+        if (lockFree) {
+            throw new IllegalStateException("Lock-free aggregator " + symbol + "@" + interval.getLabel()
+                    + " accepts raw ticks only");
+        }
+        long bucket = interval.bucketStartMillis(timeMillis);
+
+        acquire();
+        try {
+            if (!active) {
+                Candle stored = storedCandle(bucket);
+                if (stored != null) {
+                    currentCandle.reset(bucket, stored.open(), stored.high(), stored.low(), stored.close(), stored.volume());
+                    currentCandle.merge(high, low, close, volume);
+                } else {
+                    currentCandle.reset(bucket, open, high, low, close, volume);
+                }
+                active = true;
+                opened(bucket);
             } else if (bucket > currentCandle.getBucketTime()) {
-                // Event belongs to a newer bucket — flush and start fresh
                 flush();
-                currentCandle = new MutableCandle(bucket, price);
-                log.debug("[{}@{}] Rolled to new candle at bucket={}", symbol, interval.getLabel(), bucket);
+                currentCandle.reset(bucket, open, high, low, close, volume);
+                opened(bucket);
             } else if (bucket == currentCandle.getBucketTime()) {
-                // Same bucket — update in place
-                currentCandle.update(price);
+                currentCandle.merge(high, low, close, volume);
             } else {
-                // Late/out-of-order event — log and skip (could backfill in extended version)
-                log.warn("[{}@{}] Late event dropped: eventBucket={}, currentBucket={}",
-                        symbol, interval.getLabel(), bucket, currentCandle.getBucketTime());
+                lateDropped += volume;
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}@{}] Late candle dropped: candleBucket={}, currentBucket={}, ticks={}",
+                            symbol, interval.getLabel(), bucket, currentCandle.getBucketTime(), volume);
+                }
             }
         } finally {
-            lock.unlock();
+            release();
         }
     }
 
     /**
      * Flush the current candle if its bucket is older than the given wall-clock time.
      * Called by the external scheduler to ensure candles are emitted even when event flow slows.
+     * Always propagates to the roll-up aggregator, so flushing the finest link flushes the whole chain.
      *
      * @param nowSeconds Current wall-clock time in Unix seconds
      */
     public void flushIfStale(long nowSeconds) {
-        lock.lock();
+        flushIfStaleMillis(toMillis(nowSeconds));
+    }
+
+    /**
+     * Millisecond form of {@link #flushIfStale}.
+     *
+     * @param nowMs Current wall-clock time in Unix milliseconds
+     */
+    public void flushIfStaleMillis(long nowMs) {
+        acquire();
         try {
-            if (currentCandle == null) return;
-            long currentBucket = currentCandle.getBucketTime();
-            long expectedCurrentBucket = interval.bucketStart(nowSeconds);
+            if (lockFree) {
+                ConcurrentMutableCandle candle = shared;
+                if (candle != null && candle.getBucketTime() < interval.bucketStartMillis(nowMs)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}@{}] Scheduler flushing stale candle at bucket={}",
+                                symbol, interval.getLabel(), candle.getBucketTime());
+                    }
+                    flushShared(unpublishShared());
+                }
+            } else if (active) {
+                long currentBucket = currentCandle.getBucketTime();
+                long expectedCurrentBucket = interval.bucketStartMillis(nowMs);
 
-            if (currentBucket < expectedCurrentBucket) {
-                log.debug("[{}@{}] Scheduler flushing stale candle at bucket={}",
-                        symbol, interval.getLabel(), currentBucket);
-                flush();
-                currentCandle = null;
+                if (currentBucket < expectedCurrentBucket) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}@{}] Scheduler flushing stale candle at bucket={}",
+                                symbol, interval.getLabel(), currentBucket);
+                    }
+                    flush();
+                    active = false;
+                }
             }
+            for (CandleAggregator rollUp : rollUps) rollUp.flushIfStaleMillis(nowMs);
         } finally {
-            lock.unlock();
+            release();
         }
     }
 
     /**
      * Force-flush the current open candle without starting a new one.
-     * Useful for graceful shutdown.
+     * Useful for graceful shutdown. The roll-up chain is force-flushed after this candle
+     * has been merged into it.
+     *
+     * @return this aggregator's flushed candle, if one was open
      */
     public Optional<Candle> forceFlush() {
-        lock.lock();
+        acquire();
         try {
-            if (currentCandle == null) return Optional.empty();
-            Candle candle = currentCandle.snapshot();
-            onCandleComplete.accept(interval.getLabel(), candle);
-            currentCandle = null;
-            return Optional.of(candle);
+            Candle candle = null;
+            if (lockFree) {
+                ConcurrentMutableCandle open = unpublishShared();
+                if (open != null) {
+                    candle = open.snapshot();
+                    flushShared(open);
+                }
+            } else if (active) {
+                candle = currentCandle.snapshot();
+                flush();
+                active = false;
+            }
+            for (CandleAggregator rollUp : rollUps) rollUp.forceFlush();
+            return Optional.ofNullable(candle);
         } finally {
-            lock.unlock();
+            release();
         }
     }
 
-    /** Must be called while holding the lock. */
+    /**
+     * Retire this aggregator if it has not opened a candle for a bucket ending after
+     * {@code idleBeforeSeconds}: force-flush it and the cascade above it, then refuse every later tick.
+     * Pass {@link Long#MAX_VALUE} to retire it however recently it was fed.
+     *
+     * <p>Meant for the finest link of a cascade, the only one fed with ticks. Its {@link #feedAlso siblings}
+     * are retired along with it. Once this returns {@code true}, {@link #process} returns {@code false} and
+     * the batch methods return {@link #RETIRED}.
+     *
+     * @return true if the aggregator was retired by this call
+     */
+    public boolean retireIfIdle(long idleBeforeSeconds) {
+        if (batchGate != null) batchGate.writeLock().lock();
+        acquire();
+        try {
+            if (retired || flushDeadline > toMillis(idleBeforeSeconds)) return false;
+            forceFlush();
+            retired = true;
+            for (CandleAggregator sibling : siblings) sibling.retireIfIdle(Long.MAX_VALUE);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}@{}] Retired, last bucket ended at {}", symbol, interval.getLabel(), flushDeadline);
+            }
+            return true;
+        } finally {
+            release();
+            if (batchGate != null) batchGate.writeLock().unlock();
+        }
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Continue where an earlier, retired aggregator for the same symbol and interval left off: the first
+     * candle this one opens starts from the candle {@code stored} holds for its bucket, if any, and ticks at
+     * or before {@code closedThrough} (a bucket start in Unix milliseconds) are late. Call once, before the first event.
+     */
+    public void resume(CandleSource stored, long closedThrough) {
+        acquire();
+        try {
+            this.resumeFrom = stored;
+            this.lastClosedBucket = Math.max(lastClosedBucket, closedThrough);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Copy the open candle, the recently closed ones and the bookkeeping around them. The caller must keep
+     * ticks, flushes and merges away from the whole cascade meanwhile, so that the copies of its links agree:
+     * {@link com.candle.service.AggregationService} takes them between ticks, for a checkpoint.
+     */
+    public AggregatorState state() {
+        acquire();
+        try {
+            Candle open = null;
+            long closeTime = Long.MIN_VALUE;
+            if (lockFree) {
+                ConcurrentMutableCandle candle = shared;
+                if (candle != null) {
+                    candle.awaitWriters();
+                    open = candle.snapshot();
+                    closeTime = candle.closeTime();
+                }
+            } else if (active) {
+                open = currentCandle.snapshot();
+            }
+            List<Candle> closed = Arrays.stream(closedRing)
+                    .filter(candle -> candle.getBucketTime() != Long.MIN_VALUE)
+                    .map(MutableCandle::snapshot)
+                    .toList();
+            return new AggregatorState(interval.getLabel(), open, closeTime, closed, lastClosedBucket, flushDeadline,
+                    resumedVolume, resumeFrom != null);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Continue from a {@link #state()} copied from an aggregator of the same symbol and interval. Call once,
+     * before the first event, after {@link #setReorderWindow}; closed candles beyond the window are left out.
+     *
+     * @param stored Where the first candle starts from if the copied aggregator had not opened it yet
+     */
+    public void restore(AggregatorState state, CandleSource stored) {
+        acquire();
+        try {
+            for (int i = 0; i < closedRing.length && i < state.closed().size(); i++) {
+                Candle closed = state.closed().get(i);
+                closedRing[i].reset(closed.timeMillis(), closed.open(), closed.high(), closed.low(), closed.close(),
+                        closed.volume());
+            }
+            lastClosedBucket = state.lastClosedBucket();
+            resumedVolume = state.resumedVolume();
+            resumeFrom = state.resuming() ? stored : null;
+            Candle open = state.open();
+            if (open != null) {
+                if (lockFree) {
+                    sharedBuffers[0].restore(open, state.closeTime());
+                    shared = sharedBuffers[0];
+                } else {
+                    currentCandle.reset(open.timeMillis(), open.open(), open.high(), open.low(), open.close(),
+                            open.volume());
+                    active = true;
+                }
+                opened(open.timeMillis());
+            }
+            flushDeadline = state.flushDeadline();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Keep the last {@code buckets} closed candles open to late ticks (0 disables the window).
+     * Call once, before the first event.
+     */
+    public void setReorderWindow(int buckets) {
+        if (buckets < 0) throw new IllegalArgumentException("Reorder window must be >= 0 buckets");
+        MutableCandle[] ring = new MutableCandle[buckets];
+        for (int i = 0; i < buckets; i++) {
+            ring[i] = new MutableCandle();
+            ring[i].reset(Long.MIN_VALUE, 0.0); // matches no bucket until a candle is closed into it
+        }
+        this.closedRing = ring;
+    }
+
+    /**
+     * Late ticks patched into a recently closed candle.
+     */
+    public long getLatePatched() {
+        return latePatched;
+    }
+
+    /**
+     * Late ticks dropped because their bucket was older than the reorder window. In a roll-up, also the
+     * ticks of finer candles merged after their bucket had rolled, and late ticks patched into a finer
+     * candle whose bucket this interval no longer keeps.
+     */
+    public long getLateDropped() {
+        return lateDropped;
+    }
+
+    /**
+     * Feed {@code sibling}, the finest link of another cascade of the same symbol, every raw tick this
+     * aggregator receives, inside this aggregator's critical section — so that retiring this aggregator
+     * retires the sibling atomically with it. The sibling must be locked the same way as this aggregator
+     * and is not fed directly. Call once per sibling, before the first event.
+     */
+    public void feedAlso(CandleAggregator sibling) {
+        if (sibling.lockFree != lockFree || (sibling.lock == null) != (lock == null)) {
+            throw new IllegalArgumentException("Sibling " + sibling.interval.getLabel()
+                    + " must be locked like " + interval.getLabel());
+        }
+        CandleAggregator[] grown = Arrays.copyOf(siblings, siblings.length + 1);
+        grown[siblings.length] = sibling;
+        this.siblings = grown;
+    }
+
+    /**
+     * Cascade completed candles into {@code coarser} as well as the roll-up given at construction, so one
+     * interval can feed several coarser ones that do not nest in each other ({@code 1m} into {@code 3m} and
+     * {@code 5m}). Bucket rolls, stale flushes, force flushes and late patches reach every target.
+     * Call once per target, before the first event.
+     */
+    public void alsoRollUpInto(CandleAggregator coarser) {
+        checkRollUp(interval, coarser);
+        CandleAggregator[] grown = Arrays.copyOf(rollUps, rollUps.length + 1);
+        grown[rollUps.length] = coarser;
+        this.rollUps = grown;
+    }
+
+    private static void checkRollUp(Interval interval, CandleAggregator rollUp) {
+        if (!interval.nestsIn(rollUp.interval)) {
+            throw new IllegalArgumentException("Cannot roll " + interval.getLabel() + " up into "
+                    + rollUp.interval.getLabel() + ": interval must divide evenly into a coarser one");
+        }
+    }
+
+    /**
+     * Register open candles with {@code wheel} from now on. Call once, before the first event.
+     */
+    public void scheduleOn(StaleFlushWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    /**
+     * Flush the open candle if its bucket has ended, without propagating up the cascade.
+     * Called by the {@link StaleFlushWheel} this aggregator is scheduled on.
+     *
+     * @return {@link #FLUSHED}, {@link #IDLE}, or the open candle's deadline if it is not due yet
+     */
+    long flushIfDue(long nowMs) {
+        acquire();
+        try {
+            long deadline = flushDeadline;
+            boolean open = lockFree ? shared != null : active;
+            if (open && deadline > nowMs) return deadline;
+            scheduled = false;
+            if (!open) return IDLE;
+            if (log.isDebugEnabled()) {
+                log.debug("[{}@{}] Timer flushing stale candle ending at {}", symbol, interval.getLabel(), deadline);
+            }
+            if (lockFree) {
+                flushShared(unpublishShared());
+            } else {
+                flush();
+                active = false;
+            }
+            return FLUSHED;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * End of the most recently opened candle's bucket in Unix milliseconds, whether or not it is still open;
+     * 0 before the first one.
+     */
+    public long flushDeadline() {
+        return flushDeadline;
+    }
+
+    /** Must be called while holding the lock, whenever a candle for {@code bucket} is opened. */
+    private void opened(long bucket) {
+        flushDeadline = interval.bucketEndMillis(bucket);
+        if (wheel != null && !scheduled) {
+            scheduled = true;
+            wheel.schedule(this);
+        }
+    }
+
+    /** Seconds to milliseconds, saturating so that {@link Long#MAX_VALUE} keeps meaning "any time". */
+    static long toMillis(long seconds) {
+        return seconds > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : seconds * 1000;
+    }
+
+    private void acquire() {
+        if (lock != null) lock.lock();
+    }
+
+    private void release() {
+        if (lock != null) lock.unlock();
+    }
+
+    /** Must be called while holding the lock. Emits the current candle and cascades it upwards. */
     private void flush() {
-        Candle candle = currentCandle.snapshot();
-        log.info("[{}@{}] Candle complete: time={} O={} H={} L={} C={} V={}",
-                symbol, interval.getLabel(),
-                candle.time(), candle.open(), candle.high(), candle.low(), candle.close(), candle.volume());
-        onCandleComplete.accept(interval.getLabel(), candle);
+        if (log.isDebugEnabled()) {
+            log.debug("[{}@{}] Candle complete: {}", symbol, interval.getLabel(), currentCandle.snapshot());
+        }
+        currentCandle.emit(interval, listener);
+        for (CandleAggregator rollUp : rollUps) currentCandle.mergeInto(rollUp, resumedVolume);
+        resumedVolume = 0;
+        lastClosedBucket = currentCandle.getBucketTime();
+        if (closedRing.length > 0) currentCandle.copyTo(oldestClosed());
+    }
+
+    /** Lock-free mode: emit a quiescent candle and cascade it upwards. Must hold the lock. */
+    private void flushShared(ConcurrentMutableCandle candle) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}@{}] Candle complete: {}", symbol, interval.getLabel(), candle.snapshot());
+        }
+        candle.emit(interval, listener);
+        for (CandleAggregator rollUp : rollUps) candle.mergeInto(rollUp, resumedVolume);
+        resumedVolume = 0;
+        lastClosedBucket = candle.getBucketTime();
+        if (closedRing.length > 0) candle.copyTo(oldestClosed());
     }
 
     public String getSymbol() {
@@ -1,18 +1,31 @@
 package com.candle.aggregator;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
 import com.candle.model.Candle;
 import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.within;
 
 /**
@@ -176,6 +189,245 @@ class CandleAggregatorTest {
         }
     }
 
+    @Nested
+    @DisplayName("Reorder window")
+    class ReorderWindow {
+
+        private static final long T0 = 1_700_000_040L; // 1-minute aligned
+
+        @Test
+        @DisplayName("a late tick within the window patches the closed candle and re-emits it")
+        void latePatchedAndReEmitted() {
+            aggregator.setReorderWindow(2);
+            aggregator.process(event(100.0, T0));
+            aggregator.process(event(110.0, T0 + 30));
+            aggregator.process(event(105.0, T0 + 60));   // closes bucket T0
+            aggregator.process(event(120.0, T0 + 45));   // late, but bucket T0 is in the window
+
+            assertThat(completedCandles).hasSize(2);
+            Candle original = completedCandles.get(0);
+            Candle patched = completedCandles.get(1);
+            assertThat(patched.time()).isEqualTo(original.time()).isEqualTo(T0);
+            assertThat(patched.high()).isCloseTo(120.0, within(0.5));
+            assertThat(patched.volume()).isEqualTo(3);
+            assertThat(patched.open()).isEqualTo(original.open());
+            assertThat(patched.close()).isEqualTo(original.close());
+            assertThat(aggregator.getLatePatched()).isEqualTo(1);
+            assertThat(aggregator.getLateDropped()).isZero();
+
+            // The open candle is untouched
+            assertThat(aggregator.forceFlush().get().volume()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("a tick older than the window is dropped and counted")
+        void tooLateDropped() {
+            aggregator.setReorderWindow(1);
+            aggregator.process(event(100.0, T0));
+            aggregator.process(event(101.0, T0 + 60));
+            aggregator.process(event(102.0, T0 + 120));
+            assertThat(aggregator.process(event(200.0, T0 + 5))).isFalse(); // bucket T0 left the ring
+
+            assertThat(completedCandles).hasSize(2);
+            assertThat(aggregator.getLateDropped()).isEqualTo(1);
+            assertThat(aggregator.getLatePatched()).isZero();
+        }
+
+        @Test
+        @DisplayName("without a window every late tick is dropped and counted")
+        void noWindow() {
+            aggregator.process(event(100.0, T0 + 60));
+            assertThat(aggregator.process(event(200.0, T0))).isFalse();
+            assertThat(aggregator.getLateDropped()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("a tick for a stale-flushed bucket patches it instead of reopening it")
+        void staleFlushedBucketNotReopened() {
+            aggregator.setReorderWindow(1);
+            aggregator.process(event(100.0, T0));
+            aggregator.process(event(110.0, T0 + 10));
+            aggregator.flushIfStale(T0 + 60);
+            aggregator.process(event(90.0, T0 + 20));
+
+            assertThat(completedCandles).hasSize(2);
+            assertThat(completedCandles.get(1).volume()).isEqualTo(3);
+            assertThat(completedCandles.get(1).low()).isCloseTo(90.0, within(0.5));
+            assertThat(aggregator.forceFlush()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("a patch reaches the coarser candles of the cascade")
+        void patchCascades() {
+            List<Candle> minutes = new ArrayList<>();
+            SymbolAggregators bundle = new SymbolAggregators(0, SYMBOL, (label, candle) -> {
+                if (label.equals("1m")) minutes.add(candle);
+            }, false);
+            bundle.setReorderWindow(2);
+
+            bundle.process(event(100.0, T0));
+            bundle.process(event(101.0, T0 + 1));
+            bundle.process(event(150.0, T0));          // late for the 1s candle, inside the open 1m one
+            bundle.process(event(102.0, T0 + 60));     // closes the minute
+            bundle.process(event(50.0, T0 + 59));      // late for the closed minute too
+
+            Candle minute = minutes.get(minutes.size() - 1);
+            assertThat(minute.time()).isEqualTo(T0);
+            assertThat(minute.volume()).isEqualTo(4);
+            assertThat(minute.high()).isCloseTo(150.0, within(0.5));
+            assertThat(minute.low()).isCloseTo(50.0, within(0.5));
+            assertThat(bundle.latePatched()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("lock-free aggregators patch late ticks under the lock")
+        void lockFreePatch() {
+            CandleAggregator lockFree = CandleAggregator.lockFree(SYMBOL, Interval.ONE_SECOND,
+                    CandleListener.of((label, candle) -> completedCandles.add(candle)), null);
+            lockFree.setReorderWindow(2);
+            lockFree.process(event(100.0, T0));
+            lockFree.process(event(101.0, T0 + 1));
+            lockFree.process(event(130.0, T0));
+
+            assertThat(completedCandles).extracting(Candle::volume).containsExactly(1L, 2L);
+            assertThat(completedCandles.get(1).high()).isCloseTo(130.0, within(0.5));
+            assertThat(lockFree.getLatePatched()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Partial candles")
+    class PartialCandles {
+
+        private static final long T0 = 1_700_000_040L; // 1-minute aligned
+
+        /** The mid-price {@link #event} produces for {@code price}. */
+        private double mid(double price) {
+            return event(price, T0).midPrice();
+        }
+
+        @Test
+        @DisplayName("a partial candle of in-order ticks equals processing them one by one")
+        void inOrderPartialMatchesTicks() {
+            List<Candle> byTick = new ArrayList<>();
+            CandleAggregator reference = new CandleAggregator(SYMBOL, INTERVAL, (interval, candle) -> byTick.add(candle));
+            for (double price : new double[]{100.0, 104.0, 98.0, 101.0}) {
+                reference.process(event(price, T0 + 5));
+            }
+            reference.process(event(103.0, T0 + 61));
+            aggregator.processPartial(T0 + 5, mid(100.0), mid(104.0), mid(98.0), mid(101.0), 4);
+            assertThat(aggregator.processPartial(T0 + 61, mid(103.0), mid(103.0), mid(103.0), mid(103.0), 1))
+                    .isEqualTo(1);
+
+            assertThat(completedCandles).isEqualTo(byTick).hasSize(1);
+            assertThat(completedCandles.get(0).volume()).isEqualTo(4);
+            assertThat(aggregator.forceFlush()).isEqualTo(reference.forceFlush());
+        }
+
+        @Test
+        @DisplayName("a late partial candle patches the closed candle like its ticks would, or is dropped with them")
+        void latePartialPatchesOrDrops() {
+            aggregator.setReorderWindow(1);
+            aggregator.process(event(100.0, T0));
+            aggregator.process(event(105.0, T0 + 60));   // closes bucket T0
+
+            assertThat(aggregator.processPartial(T0 + 10, 101.0, 120.0, 90.0, 95.0, 3)).isEqualTo(3);
+            Candle patched = completedCandles.get(completedCandles.size() - 1);
+            assertThat(patched.time()).isEqualTo(T0);
+            assertThat(patched.high()).isEqualTo(120.0);
+            assertThat(patched.low()).isEqualTo(90.0);
+            assertThat(patched.volume()).isEqualTo(4);
+            assertThat(patched.close()).isCloseTo(100.0, within(0.5)); // late ticks never move the close
+            assertThat(aggregator.getLatePatched()).isEqualTo(3);
+
+            aggregator.process(event(106.0, T0 + 120));
+            assertThat(aggregator.processPartial(T0 + 10, 101.0, 101.0, 101.0, 101.0, 2)).isZero(); // out of the window
+            assertThat(aggregator.getLateDropped()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Micro-batch pre-aggregation")
+    class MicroBatches {
+
+        private static final long T0 = 1_700_000_040L; // 1-minute aligned
+
+        /** Bursts of up to 300 ticks per second; with {@code lateEvery > 0}, every so often a tick up to 15s late. */
+        private TickBatch bursts(int size, int lateEvery) {
+            Random random = new Random(42);
+            TickBatch batch = new TickBatch(size);
+            long ms = T0 * 1000L;
+            for (int i = 0; i < size; i++) {
+                if (random.nextInt(100) == 0) ms += 1000L * (1 + random.nextInt(30)); // gaps roll coarser candles
+                ms += random.nextInt(300) == 0 ? 1000 : random.nextInt(2);
+                long ts = lateEvery > 0 && i % lateEvery == 0 ? ms - 1000L * random.nextInt(16) : ms;
+                double bid = 100.0 + random.nextInt(50) / 10.0;
+                batch.add(0, bid, bid + 0.5, ts);
+            }
+            return batch;
+        }
+
+        private int[] allRows(TickBatch batch) {
+            int[] rows = new int[batch.size()];
+            for (int i = 0; i < rows.length; i++) rows[i] = i;
+            return rows;
+        }
+
+        @Test
+        @DisplayName("in-order bursts emit exactly the candles of tick-by-tick processing")
+        void inOrderBurstsMatchTicks() {
+            // Per interval: a batch reaches the 100ms cascade before the main one, so only the interleaving differs
+            Map<String, List<Candle>> byTick = new HashMap<>();
+            Map<String, List<Candle>> byRun = new HashMap<>();
+            SymbolAggregators reference = new SymbolAggregators(0, SYMBOL,
+                    (label, candle) -> byTick.computeIfAbsent(label, k -> new ArrayList<>()).add(candle), true);
+            SymbolAggregators batched = new SymbolAggregators(0, SYMBOL,
+                    (label, candle) -> byRun.computeIfAbsent(label, k -> new ArrayList<>()).add(candle), true);
+
+            TickBatch batch = bursts(20_000, 0);
+            for (int row = 0; row < batch.size(); row++) {
+                reference.process(new BidAskEvent(SYMBOL, batch.bid(row), batch.ask(row), batch.timestampMs(row)));
+            }
+            assertThat(batched.processRows(batch, allRows(batch), 0, batch.size())).isEqualTo(batch.size());
+            reference.forceFlush();
+            batched.forceFlush();
+
+            assertThat(byRun).isEqualTo(byTick);
+            assertThat(byRun.get(Interval.ONE_SECOND.getLabel())).hasSizeGreaterThan(100);
+        }
+
+        @Test
+        @DisplayName("bursts with late ticks leave the same candles and late counts as tick-by-tick processing")
+        void lateTicksMatchTicks() {
+            Map<String, Candle> byTick = new HashMap<>();
+            Map<String, Candle> byRun = new HashMap<>();
+            SymbolAggregators reference = new SymbolAggregators(0, SYMBOL,
+                    (label, candle) -> byTick.put(label + "@" + candle.timeMillis(), candle), true);
+            SymbolAggregators batched = new SymbolAggregators(0, SYMBOL,
+                    (label, candle) -> byRun.put(label + "@" + candle.timeMillis(), candle), true);
+            reference.setReorderWindow(5);
+            batched.setReorderWindow(5);
+
+            TickBatch batch = bursts(20_000, 50);
+            List<BidAskEvent> events = new ArrayList<>();
+            for (int row = 0; row < batch.size(); row++) {
+                BidAskEvent event = new BidAskEvent(SYMBOL, batch.bid(row), batch.ask(row), batch.timestampMs(row));
+                reference.process(event);
+                events.add(event);
+            }
+            int[] rows = allRows(batch);
+            int applied = batched.processRows(batch, rows, 0, rows.length / 2)
+                    + batched.processAll(events.subList(rows.length / 2, rows.length));
+            reference.forceFlush();
+            batched.forceFlush();
+
+            assertThat(batched.lateDropped()).isEqualTo(reference.lateDropped()).isPositive();
+            assertThat(batched.latePatched()).isEqualTo(reference.latePatched()).isPositive();
+            assertThat(applied).isEqualTo(batch.size() - (int) reference.lateDropped());
+            assertThat(byRun).isEqualTo(byTick);
+        }
+    }
+
     @Nested
     @DisplayName("Stale flush (scheduler-driven)")
     class StaleFlush {
@@ -237,4 +489,223 @@ class CandleAggregatorTest {
             assertThat(completedCandles).hasSize(1);
         }
     }
+
+    @Nested
+    @DisplayName("Roll-up cascade")
+    class RollUpCascade {
+
+        private static final long T0 = 1_700_000_040L; // 1-minute aligned
+
+        private final List<Candle> minuteCandles = new ArrayList<>();
+        private final List<Candle> secondCandles = new ArrayList<>();
+        private CandleAggregator minute;
+        private CandleAggregator second;
+
+        @BeforeEach
+        void setUpChain() {
+            minute = new CandleAggregator(SYMBOL, Interval.ONE_MINUTE,
+                    (interval, candle) -> minuteCandles.add(candle), false, null);
+            second = new CandleAggregator(SYMBOL, Interval.ONE_SECOND,
+                    (interval, candle) -> secondCandles.add(candle), false, minute);
+        }
+
+        @Test
+        @DisplayName("Coarser candle is built from completed finer candles")
+        void coarserBuiltFromFinerCandles() {
+            second.process(event(100.0, T0));
+            second.process(event(120.0, T0));       // same second: new high
+            second.process(event(90.0, T0 + 1));    // rolls second 0 → merged into minute
+            second.process(event(110.0, T0 + 30));  // rolls second 1 → merged into minute
+
+            second.forceFlush();                    // flushes second 30, then the minute
+
+            assertThat(secondCandles).hasSize(3);
+            assertThat(minuteCandles).hasSize(1);
+            Candle m = minuteCandles.get(0);
+            assertThat(m.time()).isEqualTo(T0);
+            assertThat(m.open()).isCloseTo(100.0, within(0.5));
+            assertThat(m.high()).isCloseTo(120.0, within(0.5));
+            assertThat(m.low()).isCloseTo(90.0, within(0.5));
+            assertThat(m.close()).isCloseTo(110.0, within(0.5));
+            assertThat(m.volume()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("A finer bucket roll into the next minute completes the minute immediately")
+        void finerRollClosesCoarserPromptly() {
+            second.process(event(100.0, T0 + 10));
+            second.process(event(105.0, T0 + 59));
+            second.process(event(200.0, T0 + 60)); // new minute
+
+            assertThat(minuteCandles).hasSize(1);
+            assertThat(minuteCandles.get(0).close()).isCloseTo(105.0, within(0.5));
+            assertThat(minuteCandles.get(0).volume()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("A finer candle for a minute that has rolled is dropped and its ticks counted")
+        void lateFinerCandleCounted() {
+            minute.merge((T0 + 60) * 1000, 100.0, 100.0, 100.0, 100.0, 1);
+            minute.merge((T0 + 5) * 1000, 90.0, 95.0, 85.0, 92.0, 3); // a second of the minute before
+
+            assertThat(minute.getLateDropped()).isEqualTo(3);
+            assertThat(minute.getLatePatched()).isZero();
+            assertThat(minuteCandles).isEmpty();
+            assertThat(minute.forceFlush().get().volume()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("flushIfStale on the head flushes the whole chain")
+        void staleFlushPropagates() {
+            second.process(event(100.0, T0 + 10));
+
+            second.flushIfStale(T0 + 65);
+
+            assertThat(secondCandles).hasSize(1);
+            assertThat(minuteCandles).hasSize(1);
+            assertThat(minuteCandles.get(0).time()).isEqualTo(T0);
+        }
+
+        @Test
+        @DisplayName("Roll-up target must be a coarser multiple of the interval")
+        void rejectsIncompatibleRollUp() {
+            assertThatThrownBy(() -> new CandleAggregator(SYMBOL, Interval.ONE_MINUTE,
+                    (interval, candle) -> { }, false, second))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Sub-second intervals")
+    class SubSecond {
+
+        private static final long T0_MS = 1_700_000_040_000L; // 1-minute aligned
+
+        private final Map<String, List<Candle>> emitted = new HashMap<>();
+
+        private SymbolAggregators bundle(boolean lockFree) {
+            CandleListener listener = CandleListener.of(
+                    (label, candle) -> emitted.computeIfAbsent(label, k -> new ArrayList<>()).add(candle));
+            return lockFree
+                    ? SymbolAggregators.lockFree(0, SYMBOL, listener)
+                    : new SymbolAggregators(0, SYMBOL, listener, false);
+        }
+
+        private BidAskEvent tick(double mid, long timestampMs) {
+            return new BidAskEvent(SYMBOL, mid, mid, timestampMs);
+        }
+
+        @ParameterizedTest(name = "lockFree={0}")
+        @ValueSource(booleans = {false, true})
+        @DisplayName("100ms and 250ms candles are cut from millisecond timestamps; 250ms rolls up to 1s")
+        void subSecondBuckets(boolean lockFree) {
+            SymbolAggregators bundle = bundle(lockFree);
+            bundle.process(tick(100.0, T0_MS));
+            bundle.process(tick(104.0, T0_MS + 50));
+            bundle.process(tick(98.0, T0_MS + 120));
+            bundle.process(tick(101.0, T0_MS + 260));
+            bundle.process(tick(110.0, T0_MS + 1_000));
+            bundle.forceFlush();
+
+            assertThat(emitted.get("100ms")).containsExactly(
+                    Candle.atMillis(T0_MS, 100.0, 104.0, 100.0, 104.0, 2),
+                    Candle.atMillis(T0_MS + 100, 98.0, 98.0, 98.0, 98.0, 1),
+                    Candle.atMillis(T0_MS + 200, 101.0, 101.0, 101.0, 101.0, 1),
+                    Candle.atMillis(T0_MS + 1_000, 110.0, 110.0, 110.0, 110.0, 1));
+            assertThat(emitted.get("250ms")).containsExactly(
+                    Candle.atMillis(T0_MS, 100.0, 104.0, 98.0, 98.0, 3),
+                    Candle.atMillis(T0_MS + 250, 101.0, 101.0, 101.0, 101.0, 1),
+                    Candle.atMillis(T0_MS + 1_000, 110.0, 110.0, 110.0, 110.0, 1));
+            assertThat(emitted.get("1s").get(0)).isEqualTo(new Candle(T0_MS / 1000, 100.0, 104.0, 98.0, 101.0, 4));
+            assertThat(emitted.get("1m")).containsExactly(new Candle(T0_MS / 1000, 100.0, 110.0, 98.0, 110.0, 5));
+        }
+
+        @Test
+        @DisplayName("Retiring the bundle retires the 100ms cascade with the main one")
+        void retirementCoversSiblingCascade() {
+            SymbolAggregators bundle = bundle(false);
+            bundle.process(tick(100.0, T0_MS + 50));
+
+            assertThat(bundle.retireIfIdle(Long.MAX_VALUE)).isTrue();
+            assertThat(bundle.get(Interval.HUNDRED_MILLIS).isRetired()).isTrue();
+            assertThat(emitted.get("100ms")).hasSize(1);
+
+            assertThat(bundle.process(tick(101.0, T0_MS + 60))).isFalse();
+            assertThat(emitted.get("100ms")).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Conflation slots lie within one bucket of every interval")
+        void slotDividesEveryInterval() {
+            IntervalCatalog catalog = IntervalCatalog.defaults();
+            for (Interval interval : catalog.intervals()) {
+                assertThat(interval.getMillis() % catalog.slotMillis()).as(interval.getLabel()).isZero();
+            }
+            assertThat(catalog.slotMillis()).isEqualTo(50);
+        }
+    }
+
+    @Nested
+    @DisplayName("Allocation-free roll-over")
+    class AllocationFreeRollover {
+
+        private static final long T0 = 1_700_000_040L;
+
+        @Test
+        @DisplayName("primitive listener receives the completed OHLC values")
+        void primitiveListener() {
+            List<String> emitted = new ArrayList<>();
+            CandleAggregator seconds = new CandleAggregator(SYMBOL, Interval.ONE_SECOND,
+                    (interval, time, open, high, low, close, volume) ->
+                            emitted.add(interval.getLabel() + " " + time + " " + open + " " + high
+                                    + " " + low + " " + close + " " + volume),
+                    true, null);
+
+            seconds.process(event(100.0, T0));
+            seconds.process(event(105.0, T0));
+            seconds.process(event(95.0, T0));
+            seconds.process(event(101.0, T0 + 1));
+
+            assertThat(emitted).containsExactly("1s " + T0 * 1000 + " 100.0 105.0 95.0 95.0 3");
+        }
+
+        @Test
+        @DisplayName("rolling over and cascading through every interval allocates nothing")
+        void rollOverAllocatesNothing() {
+            Logger logger = (Logger) LoggerFactory.getLogger(CandleAggregator.class);
+            Level previous = logger.getLevel();
+            logger.setLevel(Level.INFO); // debug logging is allowed to allocate
+            try {
+                com.sun.management.ThreadMXBean threads =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                long[] completed = new long[1];
+                SymbolAggregators bundle = new SymbolAggregators(0, SYMBOL,
+                        (interval, time, open, high, low, close, volume) -> completed[0]++, true);
+
+                // One tick per second: every row rolls the 1s candle and cascades into the coarser ones
+                TickBatch batch = new TickBatch(10_000);
+                int[] rows = new int[batch.capacity()];
+                for (int i = 0; i < rows.length; i++) rows[i] = i;
+                long ts = T0;
+
+                for (int round = 0; round < 20; round++) {
+                    batch.clear();
+                    for (int i = 0; i < batch.capacity(); i++) {
+                        batch.add(0, 100.0 + (i % 7), 100.5 + (i % 7), (ts++) * 1000L);
+                    }
+                    long rollsBefore = completed[0];
+                    long before = threads.getCurrentThreadAllocatedBytes();
+                    bundle.processRows(batch, rows, 0, batch.size());
+                    long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+                    assertThat(completed[0] - rollsBefore).isGreaterThanOrEqualTo(batch.size());
+                    if (round >= 10) {
+                        assertThat(allocated).as("bytes allocated for %d roll-overs", batch.size()).isZero();
+                    }
+                }
+            } finally {
+                logger.setLevel(previous);
+            }
+        }
+    }
 }
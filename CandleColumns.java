@@ -0,0 +1,81 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A run of candles of one series laid out as columns, ascending by bucket start: row {@code i} is the candle
+ * starting at {@code timesMillis[i]}. All arrays have {@link #size()} elements.
+ *
+ * <p>The arrays are a private copy handed to the caller, who may keep or modify them; they are not defensively
+ * copied again, and {@code equals} compares them by reference.
+ *
+ * @param timesMillis Bucket start times in Unix milliseconds
+ * @param opens       Opening prices
+ * @param highs       Highest prices
+ * @param lows        Lowest prices
+ * @param closes      Closing prices
+ * @param volumes     Tick counts
+ */
+public record CandleColumns(long[] timesMillis, double[] opens, double[] highs, double[] lows, double[] closes,
+                            long[] volumes) {
+
+    private static final CandleColumns EMPTY = new CandleColumns(new long[0], new double[0], new double[0],
+            new double[0], new double[0], new long[0]);
+
+    public CandleColumns {
+        int n = timesMillis.length;
+        if (opens.length != n || highs.length != n || lows.length != n || closes.length != n || volumes.length != n) {
+            throw new IllegalArgumentException("All columns must have the same length");
+        }
+    }
+
+    public static CandleColumns empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Lay out {@code candles} as columns, in the order given.
+     */
+    public static CandleColumns of(List<Candle> candles) {
+        int n = candles.size();
+        CandleColumns columns = new CandleColumns(new long[n], new double[n], new double[n], new double[n],
+                new double[n], new long[n]);
+        for (int i = 0; i < n; i++) {
+            Candle candle = candles.get(i);
+            columns.timesMillis[i] = candle.timeMillis();
+            columns.opens[i] = candle.open();
+            columns.highs[i] = candle.high();
+            columns.lows[i] = candle.low();
+            columns.closes[i] = candle.close();
+            columns.volumes[i] = candle.volume();
+        }
+        return columns;
+    }
+
+    public int size() {
+        return timesMillis.length;
+    }
+
+    public boolean isEmpty() {
+        return timesMillis.length == 0;
+    }
+
+    /**
+     * Row {@code i} as a {@link Candle}.
+     */
+    public Candle candle(int i) {
+        return Candle.atMillis(timesMillis[i], opens[i], highs[i], lows[i], closes[i], volumes[i]);
+    }
+
+    /**
+     * Every row as a {@link Candle}, ascending.
+     */
+    public List<Candle> toCandles() {
+        List<Candle> candles = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) candles.add(candle(i));
+        return candles;
+    }
+}
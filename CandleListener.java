@@ -0,0 +1,36 @@
+package com.candle.aggregator;
+
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Receives completed candles as primitive values.
+ *
+ * <p>Used instead of handing out a fresh {@link Candle} record per completed bucket, so the
+ * aggregator's roll-over path allocates nothing; a listener that needs an object (such as the
+ * {@link com.candle.store.CandleStore}) creates it itself.
+ */
+@FunctionalInterface
+public interface CandleListener {
+
+    /**
+     * @param interval Interval of the completed candle
+     * @param time     Bucket start time in Unix milliseconds
+     * @param open     Opening price
+     * @param high     Highest price
+     * @param low      Lowest price
+     * @param close    Closing price
+     * @param volume   Number of ticks
+     */
+    void onCandle(Interval interval, long time, double open, double high, double low, double close, long volume);
+
+    /**
+     * Adapt a record-based callback {@code (intervalLabel, candle)}; allocates one {@link Candle} per call.
+     */
+    static CandleListener of(BiConsumer<String, Candle> onCandleComplete) {
+        return (interval, time, open, high, low, close, volume) ->
+                onCandleComplete.accept(interval.getLabel(), Candle.atMillis(time, open, high, low, close, volume));
+    }
+}
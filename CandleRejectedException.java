@@ -0,0 +1,18 @@
+package com.candle.store;
+
+/**
+ * Thrown by a {@link CandleSeries} that cannot take a candle: the off-heap budget is spent, or a mapped
+ * segment has no room or cannot be created. {@link CandleStore} counts and drops the candle.
+ */
+final class CandleRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    CandleRejectedException(String message) {
+        super(message);
+    }
+
+    CandleRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,27 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+
+/**
+ * The candles of one (symbol, interval) pair, ordered by bucket start, in the layout of a {@link StoreBackend}.
+ */
+interface CandleSeries {
+
+    /**
+     * Save (or overwrite) the candle of its bucket.
+     *
+     * @return true if the bucket had no candle before
+     * @throws CandleRejectedException if the series has no room for the candle
+     */
+    boolean put(Candle candle);
+
+    /**
+     * The candle starting at {@code bucketTime} (Unix milliseconds), or null if there is none.
+     */
+    Candle get(long bucketTime);
+
+    /**
+     * Candles whose bucket starts in {@code [fromMs, toMs]}, ascending.
+     */
+    CandleColumns range(long fromMs, long toMs);
+}
@@ -0,0 +1,19 @@
+package com.candle.aggregator;
+
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+
+import java.util.Optional;
+
+/**
+ * Looks up candles that were completed earlier, so that aggregators recreated for an evicted symbol
+ * continue its open buckets instead of overwriting them (see {@link SymbolAggregators#resume}).
+ */
+@FunctionalInterface
+public interface CandleSource {
+
+    /**
+     * The stored candle of {@code interval} whose bucket starts at {@code bucketTime} (Unix milliseconds), if any.
+     */
+    Optional<Candle> find(Interval interval, long bucketTime);
+}
@@ -1,23 +1,42 @@
 package com.candle.store;
 
 import com.candle.model.Candle;
-import com.candle.model.CandleKey;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * In-memory, thread-safe store for completed candles.
  *
- * <p>Backed by a {@link ConcurrentHashMap} keyed on {@link CandleKey}.
- * Reads are fully concurrent and non-blocking.
- * Writes use putIfAbsent / merge to avoid lost updates.
+ * <p>Candles are held in one {@link CandleSeries} per (symbol, interval), ordered by bucket start and found
+ * through two {@link ConcurrentHashMap} lookups. A range query therefore touches only its own series: a binary
+ * search for the first bucket in range and a copy of the rows up to the last, with results already sorted —
+ * O(log n + k) rather than a scan of every candle in the store. A stored candle takes its 48 bytes of payload
+ * and no object of its own. Reads of a series share its lock, so they run concurrently.
+ *
+ * <p>{@code candle.store.backend} selects where the rows live (see {@link StoreBackend}): primitive column
+ * arrays on the heap, or fixed-width rows in native memory within {@code candle.store.off-heap-budget-mb}.
+ * Off the heap, a candle that would exceed the budget is rejected and counted rather than stored. The
+ * {@code mapped} backend appends candles to memory-mapped segment files under {@code candle.store.dir}, so
+ * history survives a restart: on startup the existing segments are mapped again, not read back.
  *
  * <p>For production use this can be swapped for a TimescaleDB or InfluxDB adapter
  * by implementing the same interface contract.
@@ -27,20 +46,127 @@ public class CandleStore {
 
     private static final Logger log = LoggerFactory.getLogger(CandleStore.class);
 
-    private final ConcurrentMap<CandleKey, Candle> store = new ConcurrentHashMap<>();
+    /** Symbol → interval label → series. */
+    private final ConcurrentMap<String, ConcurrentMap<String, CandleSeries>> bySymbol = new ConcurrentHashMap<>();
+
+    /** Candles across all series, so counting them does not visit every series. */
+    private final LongAdder candles = new LongAdder();
+
+    private final StoreBackend backend;
+
+    /** Native memory of the off-heap series, or null on the other backends. */
+    private final OffHeapArena arena;
+
+    /** Segment files of the mapped series, or null on the other backends. */
+    private final SegmentConfig segments;
+
+    private final AtomicLong candlesRejected = new AtomicLong();
+
+    /**
+     * A store keeping candles on the heap.
+     */
+    public CandleStore() {
+        this(StoreBackend.HEAP, 0);
+    }
+
+    /**
+     * @param backend         Where candles are kept ({@code heap}, {@code off-heap} or {@code mapped})
+     * @param offHeapBudgetMb Off-heap: most native memory to use, in MiB
+     * @param dir             Mapped: directory of the segment files
+     * @param segmentBytes    Mapped: size of a segment file
+     * @param segmentSeconds  Mapped: span of bucket time after which a segment rolls (0 rolls on size only)
+     * @param fsync           Mapped: when written candles are forced to disk ({@code candle}, {@code interval} or {@code roll})
+     */
+    @Autowired
+    public CandleStore(@Value("${candle.store.backend:heap}") String backend,
+                       @Value("${candle.store.off-heap-budget-mb:512}") long offHeapBudgetMb,
+                       @Value("${candle.store.dir:data/candles}") String dir,
+                       @Value("${candle.store.segment-bytes:4194304}") int segmentBytes,
+                       @Value("${candle.store.segment-seconds:86400}") long segmentSeconds,
+                       @Value("${candle.store.fsync:interval}") String fsync) {
+        this(StoreBackend.fromConfig(backend), offHeapBudgetMb << 20,
+                segmentConfig(backend, dir, segmentBytes, segmentSeconds, fsync));
+    }
+
+    /**
+     * A store keeping candles on the heap or off it.
+     *
+     * @param offHeapBudgetBytes Off-heap: most native memory to use, in bytes; ignored on the heap
+     */
+    public CandleStore(StoreBackend backend, long offHeapBudgetBytes) {
+        this(backend, offHeapBudgetBytes, null);
+        if (backend == StoreBackend.MAPPED) throw new IllegalArgumentException("A mapped store needs a directory");
+    }
+
+    /**
+     * A store keeping candles in memory-mapped segment files under {@code dir}, opening the series already there.
+     *
+     * @param segmentBytes   Size of a segment file
+     * @param segmentSeconds Span of bucket time after which a segment rolls (0 rolls on size only)
+     * @throws UncheckedIOException if {@code dir} cannot be read or created
+     */
+    public CandleStore(Path dir, int segmentBytes, long segmentSeconds, FsyncPolicy fsync) {
+        this(StoreBackend.MAPPED, 0, new SegmentConfig(dir, segmentBytes, segmentSeconds * 1000, fsync));
+    }
+
+    private CandleStore(StoreBackend backend, long offHeapBudgetBytes, SegmentConfig segments) {
+        this.backend = backend;
+        this.arena = backend == StoreBackend.OFF_HEAP ? new OffHeapArena(offHeapBudgetBytes) : null;
+        this.segments = segments;
+        if (segments != null) openSegments();
+    }
+
+    private static SegmentConfig segmentConfig(String backend, String dir, int segmentBytes, long segmentSeconds,
+                                               String fsync) {
+        if (StoreBackend.fromConfig(backend) != StoreBackend.MAPPED) return null;
+        return new SegmentConfig(Path.of(dir), segmentBytes, segmentSeconds * 1000, FsyncPolicy.fromConfig(fsync));
+    }
+
+    /** Map every series found under the segment directory, {@code <symbol>/<interval>/*.seg}. */
+    private void openSegments() {
+        try {
+            Files.createDirectories(segments.dir());
+            try (DirectoryStream<Path> symbolDirs = Files.newDirectoryStream(segments.dir(), Files::isDirectory)) {
+                for (Path symbolDir : symbolDirs) {
+                    String symbol = SegmentConfig.decode(symbolDir.getFileName().toString());
+                    try (DirectoryStream<Path> intervalDirs = Files.newDirectoryStream(symbolDir, Files::isDirectory)) {
+                        for (Path intervalDir : intervalDirs) {
+                            String interval = SegmentConfig.decode(intervalDir.getFileName().toString());
+                            MappedCandleSeries series = MappedCandleSeries.open(segments, intervalDir);
+                            bySymbol.computeIfAbsent(symbol, s -> new ConcurrentHashMap<>()).put(interval, series);
+                            candles.add(series.size());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open candle segments in " + segments.dir(), e);
+        }
+        log.info("Mapped {} candles of {} symbols from {}", candles.sum(), bySymbol.size(), segments.dir());
+    }
 
     /**
      * Save (or overwrite) a completed candle.
      * Overwrites are allowed to support late-arriving event corrections.
      */
     public void save(String symbol, String interval, Candle candle) {
-        CandleKey key = new CandleKey(symbol, interval, candle.time());
-        store.put(key, candle);
+        try {
+            CandleSeries series = bySymbol.computeIfAbsent(symbol, s -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(interval, i -> newSeries(symbol, i));
+            if (series.put(candle)) candles.increment();
+        } catch (CandleRejectedException e) {
+            if (candlesRejected.incrementAndGet() == 1) {
+                log.warn("Candle rejected: {} (symbol={} interval={} time={}); further rejections are only counted",
+                        e.getMessage(), symbol, interval, candle.time());
+            }
+            return;
+        }
         log.debug("Stored candle: symbol={} interval={} time={}", symbol, interval, candle.time());
     }
 
     /**
      * Query candles for a given symbol and interval within an inclusive time range.
+     * A sub-second candle is in range when the second it starts in is.
      *
      * @param symbol   Trading symbol
      * @param interval Interval label (e.g., "1m")
@@ -49,13 +175,48 @@ public class CandleStore {
      * @return List of matching candles sorted ascending by time
      */
     public List<Candle> query(String symbol, String interval, long from, long to) {
-        return store.entrySet().stream()
-                .filter(e -> e.getKey().symbol().equals(symbol))
-                .filter(e -> e.getKey().interval().equals(interval))
-                .filter(e -> e.getKey().bucketTime() >= from && e.getKey().bucketTime() <= to)
-                .map(java.util.Map.Entry::getValue)
-                .sorted(java.util.Comparator.comparingLong(Candle::time))
-                .collect(Collectors.toList());
+        return queryColumns(symbol, interval, from, to).toCandles();
+    }
+
+    /**
+     * Like {@link #query}, returning the candles as columns copied straight out of the series, without
+     * creating a {@link Candle} per row.
+     */
+    public CandleColumns queryColumns(String symbol, String interval, long from, long to) {
+        CandleSeries series = series(symbol, interval);
+        if (series == null || from > to) return CandleColumns.empty();
+        // A bucket is in range when the second it starts in is: [from s, to s + 999 ms]
+        long fromMs = from <= Long.MIN_VALUE / 1000 ? Long.MIN_VALUE : from * 1000;
+        long toMs = to >= Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : to * 1000 + 999;
+        return series.range(fromMs, toMs);
+    }
+
+    /**
+     * Look up a single candle by its bucket start.
+     *
+     * @param symbol     Trading symbol
+     * @param interval   Interval label (e.g., "1m")
+     * @param bucketTime Bucket start in Unix milliseconds
+     */
+    public Optional<Candle> find(String symbol, String interval, long bucketTime) {
+        CandleSeries series = series(symbol, interval);
+        return Optional.ofNullable(series != null ? series.get(bucketTime) : null);
+    }
+
+    private CandleSeries newSeries(String symbol, String interval) {
+        if (arena != null) return new OffHeapCandleSeries(arena);
+        if (segments == null) return new HeapCandleSeries();
+        Path dir = segments.seriesDir(symbol, interval);
+        try {
+            return MappedCandleSeries.create(segments, dir);
+        } catch (IOException e) {
+            throw new CandleRejectedException("Cannot create series directory " + dir, e);
+        }
+    }
+
+    private CandleSeries series(String symbol, String interval) {
+        Map<String, CandleSeries> byInterval = bySymbol.get(symbol);
+        return byInterval != null ? byInterval.get(interval) : null;
     }
 
     /**
@@ -63,24 +224,100 @@ public class CandleStore {
      * Useful for health/metrics endpoints.
      */
     public int totalCandles() {
-        return store.size();
+        return candles.intValue();
     }
 
     /**
      * Returns distinct symbols known to the store.
      */
     public List<String> knownSymbols() {
-        return store.keySet().stream()
-                .map(CandleKey::symbol)
-                .distinct()
+        return bySymbol.keySet().stream()
                 .sorted()
                 .collect(Collectors.toList());
     }
 
     /**
-     * Clears all data — primarily for testing.
+     * Clears all data — primarily for testing. Not atomic with concurrent saves.
      */
     public void clear() {
-        store.clear();
+        if (segments != null) {
+            for (Map<String, CandleSeries> byInterval : bySymbol.values()) {
+                for (CandleSeries series : byInterval.values()) {
+                    try {
+                        ((MappedCandleSeries) series).delete();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        bySymbol.clear();
+        candles.reset();
+        candlesRejected.set(0);
+        if (arena != null) arena.reset();
+    }
+
+    /**
+     * Mapped store with {@code candle.store.fsync=interval}: force the series written since the last pass to disk.
+     */
+    @Scheduled(fixedRateString = "${candle.store.fsync-interval-ms:1000}")
+    public void syncSegments() {
+        if (segments == null || segments.fsync() != FsyncPolicy.INTERVAL) return;
+        forceSegments();
+    }
+
+    /**
+     * Force every mapped series to disk now, whatever the fsync policy; nothing to do on the heap or off-heap.
+     */
+    public void force() {
+        if (segments != null) forceSegments();
+    }
+
+    /**
+     * On shutdown, force every mapped series to disk, whatever the fsync policy.
+     */
+    @PreDestroy
+    public void close() {
+        if (segments == null) return;
+        forceSegments();
+        log.info("Shutdown: forced {} candles to {}", candles.sum(), segments.dir());
+    }
+
+    private void forceSegments() {
+        for (Map<String, CandleSeries> byInterval : bySymbol.values()) {
+            for (CandleSeries series : byInterval.values()) ((MappedCandleSeries) series).sync();
+        }
+    }
+
+    public StoreBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Candles not stored because the off-heap budget was spent.
+     */
+    public long candlesRejected() {
+        return candlesRejected.get();
+    }
+
+    /**
+     * Off-heap: the configured native memory budget in bytes; 0 on the heap.
+     */
+    public long offHeapBudgetBytes() {
+        return arena != null ? arena.budgetBytes() : 0;
+    }
+
+    /**
+     * Off-heap: native memory reserved so far, in bytes; 0 on the heap.
+     */
+    public long offHeapReservedBytes() {
+        return arena != null ? arena.reservedBytes() : 0;
+    }
+
+    /**
+     * Off-heap: native memory holding candle rows (whole chunks), in bytes; 0 on the heap.
+     */
+    public long offHeapUsedBytes() {
+        return arena != null ? arena.usedBytes() : 0;
     }
 }
@@ -1,10 +1,15 @@
 package com.candle.store;
 
 import com.candle.model.Candle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,11 +23,20 @@ class CandleStoreTest {
         return new Candle(time, 100.0, 110.0, 90.0, 105.0, 5);
     }
 
+    @TempDir
+    Path dir;
+
     @BeforeEach
     void setUp() {
         store = new CandleStore();
     }
 
+    private CandleStore open(StoreBackend backend) {
+        return backend == StoreBackend.MAPPED
+                ? new CandleStore(dir, 4 << 20, 0, FsyncPolicy.ROLL)
+                : new CandleStore(backend, 64 << 20);
+    }
+
     @Test
     @DisplayName("save and query within range returns correct candles sorted by time")
     void saveAndQueryBasic() {
@@ -111,6 +125,130 @@ class CandleStoreTest {
         assertThat(symbols).containsExactly("BTC-USD", "ETH-USD", "SOL-USD");
     }
 
+    @ParameterizedTest
+    @EnumSource(StoreBackend.class)
+    @DisplayName("query seeks its own series and returns it sorted, whatever the save order")
+    void querySortedFromSeries(StoreBackend backend) {
+        CandleStore store = open(backend);
+        long t0 = 1_700_000_000L;
+        for (int i = 9; i >= 0; i--) {
+            store.save("BTC-USD", "1s", new Candle(t0 + i, 100, 110, 90, 105, i + 1));
+            store.save("ETH-USD", "1s", new Candle(t0 + i, 100, 110, 90, 105, 1));
+        }
+        store.save("BTC-USD", "1s", new Candle(t0 + 3, 100, 110, 90, 105, 99)); // overwrite
+
+        assertThat(store.query("BTC-USD", "1s", t0 + 2, t0 + 5)).extracting(Candle::time)
+                .containsExactly(t0 + 2, t0 + 3, t0 + 4, t0 + 5);
+        assertThat(store.query("BTC-USD", "1s", t0 + 3, t0 + 3)).extracting(Candle::volume).containsExactly(99L);
+        assertThat(store.query("BTC-USD", "1s", Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(10);
+        assertThat(store.query("BTC-USD", "1s", t0 + 5, t0 + 2)).isEmpty();
+        assertThat(store.totalCandles()).isEqualTo(20);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StoreBackend.class)
+    @DisplayName("sub-second candles are in range when the second they start in is")
+    void subSecondRange(StoreBackend backend) {
+        CandleStore store = open(backend);
+        long t0Ms = 1_700_000_000_000L;
+        for (int i = 0; i < 30; i++) {
+            store.save("BTC-USD", "100ms", Candle.atMillis(t0Ms + i * 100L, 100, 110, 90, 105, 1));
+        }
+        assertThat(store.query("BTC-USD", "100ms", 1_700_000_001L, 1_700_000_001L)).extracting(Candle::timeMillis)
+                .containsExactly(t0Ms + 1000, t0Ms + 1100, t0Ms + 1200, t0Ms + 1300, t0Ms + 1400,
+                        t0Ms + 1500, t0Ms + 1600, t0Ms + 1700, t0Ms + 1800, t0Ms + 1900);
+        assertThat(store.find("BTC-USD", "100ms", t0Ms + 2900)).isPresent();
+        assertThat(store.find("BTC-USD", "100ms", t0Ms + 2950)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StoreBackend.class)
+    @DisplayName("a series spanning several chunks answers ranges across chunk boundaries, in columns")
+    void columnsAcrossChunks(StoreBackend backend) {
+        CandleStore store = open(backend);
+        long t0 = 1_700_000_000L;
+        int n = 3 * HeapCandleSeries.CHUNK_ROWS + 7;
+        for (int i = 0; i < n; i++) store.save("BTC-USD", "1s", new Candle(t0 + i, i, i + 1, i - 1, i + 0.5, i));
+
+        long from = t0 + HeapCandleSeries.CHUNK_ROWS - 3;
+        long to = t0 + 2L * HeapCandleSeries.CHUNK_ROWS + 3;
+        CandleColumns columns = store.queryColumns("BTC-USD", "1s", from, to);
+        assertThat(columns.size()).isEqualTo((int) (to - from + 1));
+        for (int i = 0; i < columns.size(); i++) {
+            long row = from - t0 + i;
+            assertThat(columns.timesMillis()[i]).isEqualTo((t0 + row) * 1000);
+            assertThat(columns.opens()[i]).isEqualTo(row);
+            assertThat(columns.highs()[i]).isEqualTo(row + 1);
+            assertThat(columns.lows()[i]).isEqualTo(row - 1);
+            assertThat(columns.closes()[i]).isEqualTo(row + 0.5);
+            assertThat(columns.volumes()[i]).isEqualTo(row);
+        }
+        assertThat(columns.toCandles()).isEqualTo(store.query("BTC-USD", "1s", from, to));
+        assertThat(store.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).hasSize(n);
+        assertThat(store.queryColumns("BTC-USD", "1s", t0 + n, Long.MAX_VALUE).isEmpty()).isTrue();
+        assertThat(store.queryColumns("ETH-USD", "1s", t0, t0 + n).isEmpty()).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StoreBackend.class)
+    @DisplayName("out-of-order saves are inserted in bucket order, across chunk boundaries")
+    void outOfOrderInsert(StoreBackend backend) {
+        CandleStore store = open(backend);
+        long t0 = 1_700_000_000L;
+        int n = 2 * HeapCandleSeries.CHUNK_ROWS + 10;
+        for (int i = 0; i < n; i += 2) store.save("BTC-USD", "1s", new Candle(t0 + i, 100, 110, 90, 105, i));
+        for (int i = n - 1; i > 0; i -= 2) store.save("BTC-USD", "1s", new Candle(t0 + i, 100, 110, 90, 105, i));
+
+        List<Candle> all = store.query("BTC-USD", "1s", t0, t0 + n);
+        assertThat(all).hasSize(n);
+        for (int i = 0; i < n; i++) {
+            assertThat(all.get(i).time()).isEqualTo(t0 + i);
+            assertThat(all.get(i).volume()).isEqualTo(i);
+        }
+        assertThat(store.totalCandles()).isEqualTo(n);
+        assertThat(store.find("BTC-USD", "1s", (t0 + 1001) * 1000)).map(Candle::volume).contains(1001L);
+    }
+
+    @Test
+    @DisplayName("off the heap, candles beyond the budget are rejected and counted, overwrites still land")
+    void offHeapBudget() {
+        CandleStore store = new CandleStore(StoreBackend.OFF_HEAP, 2L * OffHeapArena.CHUNK_BYTES);
+        long t0 = 1_700_000_000L;
+        int fits = 2 * OffHeapArena.CHUNK_ROWS;
+        for (int i = 0; i < fits + 5; i++) store.save("BTC-USD", "1s", new Candle(t0 + i, 100, 110, 90, 105, 1));
+        store.save("BTC-USD", "1s", new Candle(t0, 100, 110, 90, 105, 7));
+        store.save("ETH-USD", "1s", new Candle(t0, 100, 110, 90, 105, 1));
+
+        assertThat(store.totalCandles()).isEqualTo(fits);
+        assertThat(store.candlesRejected()).isEqualTo(6);
+        assertThat(store.query("BTC-USD", "1s", t0, t0)).extracting(Candle::volume).containsExactly(7L);
+        assertThat(store.offHeapUsedBytes()).isEqualTo(2L * OffHeapArena.CHUNK_BYTES);
+        assertThat(store.offHeapReservedBytes()).isEqualTo(store.offHeapBudgetBytes());
+
+        store.clear();
+        assertThat(store.offHeapUsedBytes()).isZero();
+        store.save("ETH-USD", "1s", new Candle(t0, 100, 110, 90, 105, 1));
+        assertThat(store.totalCandles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("store size and off-heap memory are published as metrics")
+    void metrics() {
+        CandleStore store = new CandleStore(StoreBackend.OFF_HEAP, 1 << 20);
+        store.save("BTC-USD", "1s", new Candle(1_700_000_000L, 100, 110, 90, 105, 1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new StoreMetrics(store).bindTo(registry);
+
+        assertThat(registry.get("candle.store.candles").tag("backend", "off-heap").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("candle.store.offheap.budget").gauge().value()).isEqualTo(1 << 20);
+        assertThat(registry.get("candle.store.offheap.used").gauge().value()).isEqualTo(OffHeapArena.CHUNK_BYTES);
+        assertThat(registry.get("candle.store.candles.rejected").functionCounter().count()).isZero();
+
+        SimpleMeterRegistry heapRegistry = new SimpleMeterRegistry();
+        new StoreMetrics(new CandleStore()).bindTo(heapRegistry);
+        assertThat(heapRegistry.find("candle.store.offheap.budget").gauge()).isNull();
+    }
+
     @Test
     @DisplayName("clear empties the store")
     void clearEmptiesStore() {
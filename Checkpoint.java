@@ -0,0 +1,101 @@
+package com.candle.service;
+
+import com.candle.aggregator.AggregatorState;
+import com.candle.model.Candle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of the aggregation state committed with a {@link com.candle.ingest.TickLog} checkpoint: for
+ * every symbol, the state of its live aggregators and where its last evicted bundle left off.
+ */
+final class Checkpoint {
+
+    private static final int VERSION = 1;
+
+    /**
+     * @param symbol       Symbol name
+     * @param evictedUntil {@link com.candle.aggregator.SymbolAggregators#activeUntil()} of its last evicted bundle, 0 if none
+     * @param aggregators  State of each interval of its live bundle; empty if it has none
+     */
+    record SymbolState(String symbol, long evictedUntil, List<AggregatorState> aggregators) {
+    }
+
+    private Checkpoint() {
+    }
+
+    static byte[] encode(List<SymbolState> symbols) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(VERSION);
+            out.writeInt(symbols.size());
+            for (SymbolState symbol : symbols) {
+                out.writeUTF(symbol.symbol());
+                out.writeLong(symbol.evictedUntil());
+                out.writeInt(symbol.aggregators().size());
+                for (AggregatorState state : symbol.aggregators()) {
+                    out.writeUTF(state.interval());
+                    out.writeBoolean(state.open() != null);
+                    if (state.open() != null) write(out, state.open());
+                    out.writeLong(state.closeTime());
+                    out.writeInt(state.closed().size());
+                    for (Candle candle : state.closed()) write(out, candle);
+                    out.writeLong(state.lastClosedBucket());
+                    out.writeLong(state.flushDeadline());
+                    out.writeLong(state.resumedVolume());
+                    out.writeBoolean(state.resuming());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<SymbolState> decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+        int count = in.readInt();
+        List<SymbolState> symbols = new ArrayList<>(count);
+        for (int s = 0; s < count; s++) {
+            String symbol = in.readUTF();
+            long evictedUntil = in.readLong();
+            int intervals = in.readInt();
+            List<AggregatorState> states = new ArrayList<>(intervals);
+            for (int i = 0; i < intervals; i++) {
+                String interval = in.readUTF();
+                Candle open = in.readBoolean() ? read(in) : null;
+                long closeTime = in.readLong();
+                int closedCount = in.readInt();
+                List<Candle> closed = new ArrayList<>(closedCount);
+                for (int c = 0; c < closedCount; c++) closed.add(read(in));
+                states.add(new AggregatorState(interval, open, closeTime, closed, in.readLong(), in.readLong(),
+                        in.readLong(), in.readBoolean()));
+            }
+            symbols.add(new SymbolState(symbol, evictedUntil, states));
+        }
+        return symbols;
+    }
+
+    private static void write(DataOutputStream out, Candle candle) throws IOException {
+        out.writeLong(candle.timeMillis());
+        out.writeDouble(candle.open());
+        out.writeDouble(candle.high());
+        out.writeDouble(candle.low());
+        out.writeDouble(candle.close());
+        out.writeLong(candle.volume());
+    }
+
+    private static Candle read(DataInputStream in) throws IOException {
+        return Candle.atMillis(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                in.readLong());
+    }
+}
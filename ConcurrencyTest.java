@@ -4,20 +4,26 @@ import com.candle.event.BidAskEvent;
 import com.candle.model.Candle;
 import com.candle.model.Interval;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * Verifies that {@link CandleAggregator} is thread-safe under concurrent load.
+ * Verifies that {@link CandleAggregator} is thread-safe under concurrent load, in both the locked
+ * and the {@link CandleAggregator#lockFree lock-free} configuration.
  */
 @DisplayName("CandleAggregator concurrency")
 class ConcurrencyTest {
@@ -81,4 +87,135 @@ class ConcurrencyTest {
             assertThat(c.volume()).isGreaterThan(0);
         }
     }
+
+    @Nested
+    @DisplayName("Stress: many writers on one aggregator")
+    class Stress {
+
+        private static final int THREADS = 32;
+        private static final int BUCKETS = 20;
+        /** Ticks per thread per bucket; THREADS * TICKS_PER_BUCKET stays below 1000 so timestamps are unique. */
+        private static final int TICKS_PER_BUCKET = 30;
+        private static final long T0 = 1_700_000_040L;
+
+        /** One accepted tick: its price and unique millisecond timestamp. */
+        private record Tick(double price, long timestampMs) {}
+
+        @Test
+        @DisplayName("lock-free: buckets in lockstep lose no ticks and give exact OHLCV")
+        void lockFreeLockstep() throws InterruptedException {
+            assertExactCandles(listener -> CandleAggregator.lockFree("BTC-USD", Interval.ONE_SECOND, listener, null),
+                    true, true);
+        }
+
+        @Test
+        @DisplayName("lock-free: free-running writers racing bucket rolls give exact OHLCV for accepted ticks")
+        void lockFreeFreeRunning() throws InterruptedException {
+            assertExactCandles(listener -> CandleAggregator.lockFree("BTC-USD", Interval.ONE_SECOND, listener, null),
+                    false, true);
+        }
+
+        @Test
+        @DisplayName("locked: free-running writers give exact HLV for accepted ticks")
+        void lockedFreeRunning() throws InterruptedException {
+            // The locked aggregator closes on the last tick to take the lock, not the latest timestamp
+            assertExactCandles(listener -> new CandleAggregator("BTC-USD", Interval.ONE_SECOND, listener, false, null),
+                    false, false);
+        }
+
+        @Test
+        @DisplayName("lock-free cascade: the 1m candle equals the merge of its 1s candles")
+        void lockFreeCascade() throws InterruptedException {
+            Map<String, List<Candle>> byInterval = new TreeMap<>();
+            SymbolAggregators bundle = SymbolAggregators.lockFree(0, "BTC-USD",
+                    CandleListener.of((label, candle) -> byInterval.computeIfAbsent(label, k -> new ArrayList<>()).add(candle)));
+
+            List<Tick> accepted = runWriters(bundle.get(Interval.ONE_SECOND), false);
+            bundle.forceFlush();
+
+            List<Candle> seconds = byInterval.get("1s");
+            List<Candle> minutes = byInterval.get("1m");
+            assertThat(minutes).hasSize(1);
+            Candle minute = minutes.get(0);
+            assertThat(minute.volume()).isEqualTo(accepted.size());
+            assertThat(minute.open()).isEqualTo(seconds.get(0).open());
+            assertThat(minute.close()).isEqualTo(seconds.get(seconds.size() - 1).close());
+            assertThat(minute.high()).isEqualTo(seconds.stream().mapToDouble(Candle::high).max().orElseThrow());
+            assertThat(minute.low()).isEqualTo(seconds.stream().mapToDouble(Candle::low).min().orElseThrow());
+        }
+
+        private void assertExactCandles(Function<CandleListener, CandleAggregator> factory, boolean lockstep,
+                                        boolean closeByTimestamp) throws InterruptedException {
+            List<Candle> completed = Collections.synchronizedList(new ArrayList<>());
+            CandleAggregator aggregator = factory.apply(CandleListener.of((label, candle) -> completed.add(candle)));
+
+            List<Tick> accepted = runWriters(aggregator, lockstep);
+            aggregator.forceFlush();
+
+            if (lockstep) {
+                assertThat(accepted).hasSize(THREADS * BUCKETS * TICKS_PER_BUCKET);
+            }
+            Map<Long, List<Tick>> expected = new TreeMap<>();
+            for (Tick tick : accepted) {
+                expected.computeIfAbsent(tick.timestampMs() / 1000L, k -> new ArrayList<>()).add(tick);
+            }
+            assertThat(completed).extracting(Candle::time).containsExactlyElementsOf(expected.keySet());
+
+            for (Candle candle : completed) {
+                List<Tick> ticks = expected.get(candle.time());
+                assertThat(candle.volume()).as("volume of %d", candle.time()).isEqualTo(ticks.size());
+                assertThat(candle.high()).isEqualTo(ticks.stream().mapToDouble(Tick::price).max().orElseThrow());
+                assertThat(candle.low()).isEqualTo(ticks.stream().mapToDouble(Tick::price).min().orElseThrow());
+                assertThat(ticks).extracting(Tick::price).contains(candle.open(), candle.close());
+                if (closeByTimestamp) {
+                    Tick latest = ticks.stream().max((a, b) -> Long.compare(a.timestampMs(), b.timestampMs())).orElseThrow();
+                    assertThat(candle.close()).as("close of %d", candle.time()).isEqualTo(latest.price());
+                }
+            }
+        }
+
+        /**
+         * Feed {@link #THREADS} writers into one aggregator, each walking through {@link #BUCKETS}
+         * one-second buckets. In lockstep mode no writer enters a bucket before all have left the
+         * previous one, so nothing is late.
+         *
+         * @return the ticks the aggregator accepted
+         */
+        private List<Tick> runWriters(CandleAggregator aggregator, boolean lockstep) throws InterruptedException {
+            List<Tick> accepted = Collections.synchronizedList(new ArrayList<>());
+            Phaser phaser = new Phaser(THREADS);
+            CountDownLatch startLatch = new CountDownLatch(1);
+            CountDownLatch doneLatch = new CountDownLatch(THREADS);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                executor.submit(() -> {
+                    List<Tick> mine = new ArrayList<>();
+                    try {
+                        startLatch.await();
+                        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                            for (int i = 0; i < TICKS_PER_BUCKET; i++) {
+                                long timestampMs = (T0 + bucket) * 1000L + (long) i * THREADS + thread;
+                                double mid = 100.0 + ((thread * 7919 + bucket * 31 + i * 13) % 1000) / 10.0;
+                                BidAskEvent event = new BidAskEvent("BTC-USD", mid, mid, timestampMs);
+                                if (aggregator.process(event)) mine.add(new Tick(event.midPrice(), timestampMs));
+                            }
+                            if (lockstep) phaser.arriveAndAwaitAdvance();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        accepted.addAll(mine);
+                        doneLatch.countDown();
+                    }
+                });
+            }
+
+            startLatch.countDown();
+            assertThat(doneLatch.await(60, TimeUnit.SECONDS)).isTrue();
+            executor.shutdown();
+            return accepted;
+        }
+    }
 }
@@ -0,0 +1,221 @@
+package com.candle.aggregator;
+
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Multi-writer accumulator for an in-progress candle, updated without locks.
+ *
+ * <p>High and low are maintained with {@link VarHandle} compare-and-set loops. Volume and close
+ * are kept in striped cells: a writer claims a free stripe with a CAS, records its tick there and
+ * releases it, so concurrent writers never contend on one counter. The close is the price of the
+ * tick with the latest timestamp across all stripes (ties resolve to the lowest stripe).
+ *
+ * <p>The stripe claim doubles as an in-flight marker: {@link #awaitWriters()} spins until every
+ * stripe is released, after which all updates are visible and the candle may be read or
+ * {@link #reset reset}. Resetting is only allowed while the candle is not published to writers.
+ */
+final class ConcurrentMutableCandle {
+
+    private static final VarHandle HIGH;
+    private static final VarHandle LOW;
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HIGH = lookup.findVarHandle(ConcurrentMutableCandle.class, "high", double.class);
+            LOW = lookup.findVarHandle(ConcurrentMutableCandle.class, "low", double.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Longs per stripe — one 64-byte cache line, so neighbouring stripes do not false-share. */
+    private static final int STRIDE = 8;
+    private static final int BUSY = 0;
+    private static final int VOLUME = 1;
+    private static final int CLOSE_TIME = 2;
+    private static final int CLOSE_PRICE = 3;
+
+    /** Bucket start in Unix milliseconds. Written only while unpublished; read by writers to detect a recycled candle. */
+    private volatile long bucketTime;
+    private double open;
+    private double high;
+    private double low;
+
+    /** Stripe {@code i} occupies {@code cells[i * STRIDE .. i * STRIDE + 3]}. */
+    private final long[] cells;
+    private final int stripeMask;
+
+    ConcurrentMutableCandle() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    ConcurrentMutableCandle(int minStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(minStripes, 64)) * 2 - 1);
+        this.cells = new long[stripes * STRIDE];
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Start over as a new candle whose first tick is {@code firstPrice} at {@code timestampMs}.
+     * Must not race with writers: call only while unpublished and after {@link #awaitWriters()}.
+     */
+    void reset(long bucketTime, double firstPrice, long timestampMs) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int base = stripe * STRIDE;
+            cells[base + VOLUME] = 0;
+            cells[base + CLOSE_TIME] = Long.MIN_VALUE;
+        }
+        cells[VOLUME] = 1;
+        cells[CLOSE_TIME] = timestampMs;
+        cells[CLOSE_PRICE] = Double.doubleToRawLongBits(firstPrice);
+        this.open = firstPrice;
+        this.high = firstPrice;
+        this.low = firstPrice;
+        this.bucketTime = bucketTime; // volatile write publishes the fields above
+    }
+
+    /**
+     * Fold in the earlier part of this bucket, completed before the first tick given to {@link #reset}:
+     * it supplies the open, widens the extremes and adds its volume; the close stays with the newer tick.
+     * Must not race with writers, like {@link #reset}.
+     */
+    void resume(Candle earlier) {
+        cells[VOLUME] += earlier.volume();
+        this.open = earlier.open();
+        this.high = Math.max(high, earlier.high());
+        this.low = Math.min(low, earlier.low());
+    }
+
+    /**
+     * Start over from a candle copied by {@link #snapshot}, whose close was set by a tick at {@code closeTimeMs}.
+     * Must not race with writers, like {@link #reset}.
+     */
+    void restore(Candle candle, long closeTimeMs) {
+        reset(candle.timeMillis(), candle.close(), closeTimeMs);
+        cells[VOLUME] = candle.volume();
+        this.open = candle.open();
+        this.high = candle.high();
+        this.low = candle.low();
+    }
+
+    long getBucketTime() {
+        return bucketTime;
+    }
+
+    /**
+     * Claim a stripe for one update. Starts at a per-thread stripe and moves on when it is taken,
+     * so the call only spins if every stripe is busy.
+     *
+     * @return the claimed stripe, to be passed to {@link #update} and {@link #exit}
+     */
+    int enter() {
+        int stripe = System.identityHashCode(Thread.currentThread()) & stripeMask;
+        while (!CELLS.compareAndSet(cells, stripe * STRIDE + BUSY, 0L, 1L)) {
+            stripe = (stripe + 1) & stripeMask;
+            Thread.onSpinWait();
+        }
+        return stripe;
+    }
+
+    /** Release a stripe claimed with {@link #enter()}, publishing its update. */
+    void exit(int stripe) {
+        CELLS.setRelease(cells, stripe * STRIDE + BUSY, 0L);
+    }
+
+    /**
+     * Incorporate a price tick. The caller must hold {@code stripe}.
+     */
+    void update(int stripe, double price, long timestampMs) {
+        double current;
+        while (price > (current = (double) HIGH.getVolatile(this))
+                && !HIGH.compareAndSet(this, current, price)) {
+            Thread.onSpinWait();
+        }
+        while (price < (current = (double) LOW.getVolatile(this))
+                && !LOW.compareAndSet(this, current, price)) {
+            Thread.onSpinWait();
+        }
+        int base = stripe * STRIDE;
+        cells[base + VOLUME]++;
+        if (timestampMs >= cells[base + CLOSE_TIME]) {
+            cells[base + CLOSE_TIME] = timestampMs;
+            cells[base + CLOSE_PRICE] = Double.doubleToRawLongBits(price);
+        }
+    }
+
+    /**
+     * Spin until no writer holds a stripe. Once the candle is unpublished, this makes every
+     * accepted update visible to the caller.
+     */
+    void awaitWriters() {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            // Volatile read: pairs with the writer's claim-then-recheck, so no writer can slip past an unpublish
+            while ((long) CELLS.getVolatile(cells, stripe * STRIDE + BUSY) != 0L) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Hand the current values to a listener without allocating. Call only after {@link #awaitWriters()}.
+     */
+    void emit(Interval interval, CandleListener listener) {
+        listener.onCandle(interval, bucketTime, open, high, low, close(), volume());
+    }
+
+    /**
+     * Fold the current values into a coarser aggregator without allocating. Call only after {@link #awaitWriters()}.
+     *
+     * @param carriedVolume Part of the volume the coarser aggregator already holds, left out of the merge
+     */
+    void mergeInto(CandleAggregator rollUp, long carriedVolume) {
+        rollUp.merge(bucketTime, open, high, low, close(), volume() - carriedVolume);
+    }
+
+    /**
+     * Copy the current values into a single-writer candle. Call only after {@link #awaitWriters()}.
+     */
+    void copyTo(MutableCandle target) {
+        target.reset(bucketTime, open, high, low, close(), volume());
+    }
+
+    /**
+     * Produce an immutable snapshot of the current state. Call only after {@link #awaitWriters()}.
+     */
+    Candle snapshot() {
+        return Candle.atMillis(bucketTime, open, high, low, close(), volume());
+    }
+
+    /**
+     * Timestamp of the tick that set the close. Call only after {@link #awaitWriters()}.
+     */
+    long closeTime() {
+        long latest = Long.MIN_VALUE;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            latest = Math.max(latest, cells[stripe * STRIDE + CLOSE_TIME]);
+        }
+        return latest;
+    }
+
+    private double close() {
+        int latest = 0;
+        for (int stripe = 1; stripe <= stripeMask; stripe++) {
+            if (cells[stripe * STRIDE + CLOSE_TIME] > cells[latest * STRIDE + CLOSE_TIME]) latest = stripe;
+        }
+        return Double.longBitsToDouble(cells[latest * STRIDE + CLOSE_PRICE]);
+    }
+
+    private long volume() {
+        long total = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            total += cells[stripe * STRIDE + VOLUME];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,186 @@
+package com.candle.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Ticks folded into partial candles, one per symbol and slot: the first price, high, low, last
+ * in-order price and tick count. Slots are a second long unless configured shorter; conflation is
+ * lossless for candles whose interval is a multiple of the slot, in far less space than the ticks
+ * themselves — see {@link OverflowPolicy#CONFLATE}.
+ *
+ * <p>Prices are mid-prices. Partial candles are kept in the order their first tick arrived. A tick
+ * older than its symbol's newest partial candle extends the high, low and count of the partial
+ * candle of its own slot, as a late tick would patch a closed candle; without one it starts a
+ * new partial candle. This class is not thread-safe.
+ */
+public final class ConflatedTicks {
+
+    /** Slot length in milliseconds; slots are aligned to the Unix epoch. */
+    private final long slotMillis;
+
+    private int[] symbolId;
+    /** Slot number, i.e. {@code timestampMs / slotMillis}. */
+    private long[] slot;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] count;
+    /** Previous partial candle of the same symbol, or -1: walked to find a late tick's slot. */
+    private int[] previous;
+    private int size;
+
+    /** Symbol ID → index + 1 of its partial candle with the newest slot; 0 (or stale) when none. */
+    private int[] newestBySymbol = new int[16];
+    /** Symbol ID → index + 1 of its most recently added partial candle. */
+    private int[] lastBySymbol = new int[16];
+
+    public ConflatedTicks(int initialCapacity) {
+        this(initialCapacity, 1000);
+    }
+
+    /**
+     * @param initialCapacity Partial candles held before growing
+     * @param slotMillis      Slot length in milliseconds; must divide every candle interval to stay lossless
+     */
+    public ConflatedTicks(int initialCapacity, long slotMillis) {
+        if (initialCapacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        if (slotMillis < 1) throw new IllegalArgumentException("Slot must be at least 1ms");
+        this.slotMillis = slotMillis;
+        this.symbolId = new int[initialCapacity];
+        this.slot = new long[initialCapacity];
+        this.open = new double[initialCapacity];
+        this.high = new double[initialCapacity];
+        this.low = new double[initialCapacity];
+        this.close = new double[initialCapacity];
+        this.count = new long[initialCapacity];
+        this.previous = new int[initialCapacity];
+    }
+
+    /**
+     * Fold a tick into its symbol's partial candle for the tick's slot.
+     *
+     * @return {@code false} if the tick is invalid (same rules as {@link com.candle.event.TickBatch#isValid})
+     *         and was ignored
+     */
+    public boolean fold(int symbolId, double bid, double ask, long timestampMs) {
+        if (symbolId < 0 || bid <= 0 || ask <= 0 || ask < bid || timestampMs <= 0) return false;
+        double price = (bid + ask) / 2.0;
+        long tickSlot = timestampMs / slotMillis;
+        int newest = indexOf(newestBySymbol, symbolId);
+        if (newest >= 0 && slot[newest] == tickSlot) {
+            if (price > high[newest]) high[newest] = price;
+            if (price < low[newest]) low[newest] = price;
+            close[newest] = price;
+            count[newest]++;
+            return true;
+        }
+        if (newest >= 0 && tickSlot < slot[newest]) {
+            for (int i = indexOf(lastBySymbol, symbolId); i >= 0; i = previous[i]) {
+                if (slot[i] == tickSlot) {
+                    if (price > high[i]) high[i] = price;
+                    if (price < low[i]) low[i] = price;
+                    count[i]++;
+                    return true;
+                }
+            }
+        }
+        int added = add(symbolId, tickSlot, price);
+        if (newest < 0 || tickSlot > slot[newest]) newestBySymbol[symbolId] = added + 1;
+        return true;
+    }
+
+    private int add(int id, long tickSlot, double price) {
+        if (size == symbolId.length) grow();
+        if (id >= lastBySymbol.length) {
+            int length = Math.max(id + 1, lastBySymbol.length * 2);
+            lastBySymbol = Arrays.copyOf(lastBySymbol, length);
+            newestBySymbol = Arrays.copyOf(newestBySymbol, length);
+        }
+        int i = size++;
+        symbolId[i] = id;
+        slot[i] = tickSlot;
+        open[i] = price;
+        high[i] = price;
+        low[i] = price;
+        close[i] = price;
+        count[i] = 1;
+        previous[i] = indexOf(lastBySymbol, id);
+        lastBySymbol[id] = i + 1;
+        return i;
+    }
+
+    /** A per-symbol index that is valid for the current contents, or -1. Entries left over from before {@link #clear()} are stale. */
+    private int indexOf(int[] bySymbol, int id) {
+        if (id >= bySymbol.length) return -1;
+        int i = bySymbol[id] - 1;
+        return i >= 0 && i < size && symbolId[i] == id ? i : -1;
+    }
+
+    private void grow() {
+        int capacity = symbolId.length * 2;
+        symbolId = Arrays.copyOf(symbolId, capacity);
+        slot = Arrays.copyOf(slot, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        count = Arrays.copyOf(count, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+    }
+
+    public int symbolId(int i) {
+        return symbolId[i];
+    }
+
+    /** Unix second of partial candle {@code i}'s ticks. */
+    public long second(int i) {
+        return slotStart(i) / 1000;
+    }
+
+    /** Start of partial candle {@code i}'s slot in Unix milliseconds. */
+    public long slotStart(int i) {
+        return slot[i] * slotMillis;
+    }
+
+    public long slotMillis() {
+        return slotMillis;
+    }
+
+    public double open(int i) {
+        return open[i];
+    }
+
+    public double high(int i) {
+        return high[i];
+    }
+
+    public double low(int i) {
+        return low[i];
+    }
+
+    public double close(int i) {
+        return close[i];
+    }
+
+    /** Number of ticks folded into partial candle {@code i}. */
+    public long count(int i) {
+        return count[i];
+    }
+
+    /** Number of partial candles. */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every partial candle; capacity is kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
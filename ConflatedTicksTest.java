@@ -0,0 +1,70 @@
+package com.candle.ingest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ConflatedTicks")
+class ConflatedTicksTest {
+
+    @Test
+    @DisplayName("Ticks fold into one partial candle per symbol and second, in arrival order")
+    void foldsPerSymbolAndSecond() {
+        ConflatedTicks partials = new ConflatedTicks(1);
+        partials.fold(0, 100.0, 100.0, 1_000);
+        partials.fold(1, 50.0, 50.0, 1_100);
+        partials.fold(0, 104.0, 104.0, 1_200);
+        partials.fold(0, 98.0, 98.0, 1_999);
+        partials.fold(0, 101.0, 101.0, 2_000);
+
+        assertThat(partials.size()).isEqualTo(3);
+        assertThat(partials.symbolId(0)).isZero();
+        assertThat(partials.second(0)).isEqualTo(1);
+        assertThat(partials.open(0)).isEqualTo(100.0);
+        assertThat(partials.high(0)).isEqualTo(104.0);
+        assertThat(partials.low(0)).isEqualTo(98.0);
+        assertThat(partials.close(0)).isEqualTo(98.0);
+        assertThat(partials.count(0)).isEqualTo(3);
+        assertThat(partials.symbolId(1)).isEqualTo(1);
+        assertThat(partials.second(2)).isEqualTo(2);
+        assertThat(partials.count(2)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A late tick extends its own second's partial candle but leaves its close alone")
+    void lateTickPatchesEarlierPartial() {
+        ConflatedTicks partials = new ConflatedTicks(4);
+        partials.fold(0, 100.0, 100.0, 1_000);
+        partials.fold(0, 101.0, 101.0, 2_000);
+        partials.fold(0, 90.0, 90.0, 1_500);   // second 1, behind second 2
+        partials.fold(0, 102.0, 102.0, 2_500);
+        partials.fold(0, 80.0, 80.0, 500);     // second 0: nothing to patch, a partial candle of its own
+
+        assertThat(partials.size()).isEqualTo(3);
+        assertThat(partials.low(0)).isEqualTo(90.0);
+        assertThat(partials.close(0)).isEqualTo(100.0);
+        assertThat(partials.count(0)).isEqualTo(2);
+        assertThat(partials.close(1)).isEqualTo(102.0);
+        assertThat(partials.second(2)).isZero();
+
+        partials.fold(0, 103.0, 103.0, 2_900); // second 2 is still the newest
+        assertThat(partials.close(1)).isEqualTo(103.0);
+    }
+
+    @Test
+    @DisplayName("Invalid ticks are ignored and clear() starts over")
+    void invalidTicksAndClear() {
+        ConflatedTicks partials = new ConflatedTicks(4);
+        assertThat(partials.fold(0, 101.0, 100.0, 1_000)).isFalse(); // crossed
+        assertThat(partials.fold(-1, 100.0, 100.0, 1_000)).isFalse();
+        assertThat(partials.isEmpty()).isTrue();
+
+        partials.fold(0, 100.0, 100.0, 5_000);
+        partials.clear();
+        partials.fold(0, 90.0, 90.0, 1_000);
+        assertThat(partials.size()).isEqualTo(1);
+        assertThat(partials.open(0)).isEqualTo(90.0);
+        assertThat(partials.count(0)).isEqualTo(1);
+    }
+}
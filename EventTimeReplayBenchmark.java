@@ -0,0 +1,87 @@
+package com.candle.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.BidAskEvent;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replaying one day of ticks as fast as the CPU allows, with candles closed by the event-time watermark,
+ * against the same replay closed only by newer ticks and the final shutdown flush.
+ *
+ * <p>50 symbols tick at random, about 5 ticks per second in total, so most symbols' candles are closed
+ * by the watermark sweep rather than by their own next tick.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Event-time replay benchmark")
+class EventTimeReplayBenchmark {
+
+    private static final int SYMBOLS = 50;
+    private static final long DAY_SECONDS = 86_400;
+    private static final long START_MS = 1_699_920_000_000L; // midnight UTC
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("one day replayed with and without event-time flushing")
+    void replayDay() {
+        BidAskEvent[] day = day();
+        for (int i = 0; i < 3; i++) {
+            replay(day, FlushClock.WALL_CLOCK);
+            replay(day, FlushClock.EVENT_TIME);
+        }
+        long[] eventDriven = replay(day, FlushClock.WALL_CLOCK);
+        long[] eventTime = replay(day, FlushClock.EVENT_TIME);
+
+        System.out.printf("replay of %,d ticks (1 day, %d symbols): event-driven only %,d ms (%,d candles before shutdown) | "
+                        + "event-time watermark %,d ms (%,d of %,d candles before shutdown)%n",
+                day.length, SYMBOLS, eventDriven[0] / 1_000_000, eventDriven[1],
+                eventTime[0] / 1_000_000, eventTime[1], eventTime[2]);
+        assertThat(eventTime[2]).isEqualTo(eventDriven[2]);
+    }
+
+    private static BidAskEvent[] day() {
+        SplittableRandom random = new SplittableRandom(42);
+        BidAskEvent[] ticks = new BidAskEvent[(int) (DAY_SECONDS * 5)];
+        for (int i = 0; i < ticks.length; i++) {
+            long timestampMs = START_MS + i * 200L;
+            double mid = 100.0 + random.nextInt(1_000) * 0.01;
+            ticks[i] = new BidAskEvent("SYM-" + random.nextInt(SYMBOLS), mid - 0.005, mid + 0.005, timestampMs);
+        }
+        return ticks;
+    }
+
+    /**
+     * The wall-clock run never calls the scheduled flush, as a replay must not: the wall clock is far
+     * ahead of the replayed ticks and would close every open candle.
+     *
+     * @return elapsed nanos, candles stored before shutdown, candles stored after shutdown
+     */
+    private static long[] replay(BidAskEvent[] day, FlushClock clock) {
+        CandleStore store = new CandleStore();
+        AggregationService service = new AggregationService(store, AggregationConfig.builder()
+                .reorderWindowSeconds(0).flushClock(clock).idleEvictSeconds(0).build());
+        long start = System.nanoTime();
+        for (BidAskEvent tick : day) {
+            service.ingest(tick);
+        }
+        long elapsed = System.nanoTime() - start;
+        long beforeShutdown = store.totalCandles();
+        service.shutdown();
+        return new long[]{elapsed, beforeShutdown, store.totalCandles()};
+    }
+}
@@ -0,0 +1,119 @@
+package com.candle.aggregator;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-time clock for closing candles, as an alternative to the wall clock.
+ *
+ * <p>Every source of ticks is a {@link Feed} that records the newest event time it has seen.
+ * The watermark is the oldest of those, minus an allowed lateness: every feed has moved past it,
+ * so a bucket ending at or before the watermark can be closed. Feeds that have not delivered an
+ * event yet do not hold the watermark back.
+ *
+ * <p>Driving a {@link StaleFlushWheel} from {@link #current()} instead of {@code Instant.now()}
+ * gives the same candle boundaries whether ticks arrive live, are replayed at full speed, or come
+ * from a source whose clock is skewed.
+ *
+ * <p>The watermark never moves backwards: a feed that first appears behind it, or that falls
+ * behind, only makes its own ticks late (see {@link CandleAggregator#setReorderWindow}).
+ * All methods are thread-safe.
+ */
+public final class EventTimeWatermark {
+
+    /** {@link #current()} before any feed has delivered an event. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private final long allowedLatenessSeconds;
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+    /** Copy of {@code feeds.values()}, replaced when a feed is added, so {@link #current()} does not iterate the map. */
+    private volatile Feed[] snapshot = new Feed[0];
+
+    private final AtomicLong current = new AtomicLong(NONE);
+
+    /**
+     * @param allowedLatenessSeconds How far the watermark trails the feeds' event time
+     */
+    public EventTimeWatermark(long allowedLatenessSeconds) {
+        if (allowedLatenessSeconds < 0) throw new IllegalArgumentException("Allowed lateness must be >= 0 seconds");
+        this.allowedLatenessSeconds = allowedLatenessSeconds;
+    }
+
+    /**
+     * The feed with the given name, created on first use.
+     */
+    public Feed feed(String name) {
+        Feed feed = feeds.get(name);
+        return feed != null ? feed : feeds.computeIfAbsent(name, this::register);
+    }
+
+    private Feed register(String name) {
+        Feed feed = new Feed(name);
+        synchronized (this) {
+            Feed[] grown = Arrays.copyOf(snapshot, snapshot.length + 1);
+            grown[grown.length - 1] = feed;
+            snapshot = grown;
+        }
+        return feed;
+    }
+
+    /**
+     * The current watermark in Unix seconds, or {@link #NONE} if no feed has delivered an event.
+     */
+    public long current() {
+        long oldest = Long.MAX_VALUE;
+        for (Feed feed : snapshot) {
+            long newest = feed.newestSeconds.get();
+            if (newest != NONE && newest < oldest) oldest = newest;
+        }
+        if (oldest == Long.MAX_VALUE) return current.get();
+        long candidate = oldest - allowedLatenessSeconds;
+        return current.accumulateAndGet(candidate, Math::max);
+    }
+
+    public long getAllowedLatenessSeconds() {
+        return allowedLatenessSeconds;
+    }
+
+    /**
+     * One source of ticks. {@link #observe} is cheap when event time has not advanced —
+     * a single volatile read — so it can be called for every tick.
+     */
+    public static final class Feed {
+
+        private final String name;
+        private final AtomicLong newestSeconds = new AtomicLong(NONE);
+
+        private Feed(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Record a tick's event time. Older times than the newest seen are ignored.
+         *
+         * @return true if this moved the feed's event time forward
+         */
+        public boolean observe(long eventSeconds) {
+            long newest = newestSeconds.get();
+            while (eventSeconds > newest) {
+                if (newestSeconds.compareAndSet(newest, eventSeconds)) return true;
+                newest = newestSeconds.get();
+            }
+            return false;
+        }
+
+        /**
+         * Newest event time seen in Unix seconds, or {@link #NONE}.
+         */
+        public long newestSeconds() {
+            return newestSeconds.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.candle.aggregator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link EventTimeWatermark}.
+ */
+class EventTimeWatermarkTest {
+
+    private static final long T0 = 1_700_000_040L;
+
+    @Test
+    @DisplayName("follows the newest event time, minus the allowed lateness, and never goes back")
+    void monotonicWithLateness() {
+        EventTimeWatermark watermark = new EventTimeWatermark(2);
+        EventTimeWatermark.Feed feed = watermark.feed("ingest");
+        assertThat(watermark.current()).isEqualTo(EventTimeWatermark.NONE);
+
+        assertThat(feed.observe(T0)).isTrue();
+        assertThat(watermark.current()).isEqualTo(T0 - 2);
+        assertThat(feed.observe(T0 - 10)).isFalse();
+        assertThat(watermark.current()).isEqualTo(T0 - 2);
+        feed.observe(T0 + 5);
+        assertThat(watermark.current()).isEqualTo(T0 + 3);
+    }
+
+    @Test
+    @DisplayName("the slowest feed holds the watermark back; a feed with no events yet does not")
+    void slowestFeedWins() {
+        EventTimeWatermark watermark = new EventTimeWatermark(0);
+        EventTimeWatermark.Feed fast = watermark.feed("fast");
+        EventTimeWatermark.Feed slow = watermark.feed("slow");
+
+        fast.observe(T0 + 10);
+        assertThat(watermark.current()).isEqualTo(T0 + 10);
+        slow.observe(T0 + 12);
+        assertThat(watermark.current()).isEqualTo(T0 + 10);
+        fast.observe(T0 + 20);
+        assertThat(watermark.current()).isEqualTo(T0 + 12);
+        assertThat(watermark.feed("fast")).isSameAs(fast);
+    }
+
+    @Test
+    @DisplayName("a feed that joins behind the watermark does not move it back")
+    void lateJoinerDoesNotRewind() {
+        EventTimeWatermark watermark = new EventTimeWatermark(0);
+        watermark.feed("live").observe(T0 + 60);
+        assertThat(watermark.current()).isEqualTo(T0 + 60);
+
+        watermark.feed("backfill").observe(T0);
+        assertThat(watermark.current()).isEqualTo(T0 + 60);
+    }
+
+    @Test
+    @DisplayName("negative allowed lateness is rejected")
+    void negativeLatenessRejected() {
+        assertThatThrownBy(() -> new EventTimeWatermark(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
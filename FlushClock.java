@@ -0,0 +1,31 @@
+package com.candle.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Selects the clock {@link AggregationService} uses to close candles that no newer tick has rolled.
+ *
+ * <ul>
+ *   <li>{@link #WALL_CLOCK} — the scheduled flush closes buckets that ended before {@code Instant.now()}.</li>
+ *   <li>{@link #EVENT_TIME} — buckets close when the ingested ticks' event-time watermark passes their
+ *       end, as ticks arrive. Replays and backfills then get the same candles as a live feed.</li>
+ * </ul>
+ */
+public enum FlushClock {
+
+    WALL_CLOCK,
+    EVENT_TIME;
+
+    /**
+     * Parse a configuration value such as {@code "wall-clock"} or {@code "event-time"} (case-insensitive).
+     */
+    public static FlushClock fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported flush clock: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.candle.store;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * When the {@link StoreBackend#MAPPED mapped} store forces written candles to disk. Whatever the policy, a
+ * process crash loses nothing the store accepted, since the page cache outlives the process; the policy
+ * bounds what a power failure or kernel crash can lose.
+ *
+ * <ul>
+ *   <li>{@link #CANDLE} — every save is forced before it returns. Nothing accepted is lost, at the cost of
+ *       a disk flush per candle.</li>
+ *   <li>{@link #INTERVAL} — a background task forces every series written since its last pass, every
+ *       {@code candle.store.fsync-interval-ms}. Up to one interval of candles can be lost.</li>
+ *   <li>{@link #ROLL} — a segment is forced only when it rolls and on shutdown. Up to a segment can be lost.</li>
+ * </ul>
+ */
+public enum FsyncPolicy {
+
+    CANDLE,
+    INTERVAL,
+    ROLL;
+
+    /**
+     * Parse a configuration value such as {@code "candle"}, {@code "interval"} or {@code "roll"} (case-insensitive).
+     */
+    public static FsyncPolicy fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported fsync policy: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
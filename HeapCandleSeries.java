@@ -0,0 +1,177 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@link StoreBackend#HEAP heap} series: candles held as primitive columns ordered by bucket start.
+ *
+ * <p>Rows live in chunks of {@value #CHUNK_ROWS}, each a {@code long[]} of start times, four {@code double[]}
+ * price columns and a {@code long[]} of volumes, so a candle costs its 48 bytes of payload and no object of its
+ * own. Row {@code i} is in chunk {@code i >>> CHUNK_SHIFT}: every chunk but the last is full. The first chunk
+ * starts at {@value #FIRST_CHUNK_ROWS} rows and doubles until full, so a short series (a daily bar) stays
+ * small; later chunks are allocated full, so growing a long series never copies its rows.
+ *
+ * <p>Candles are saved in bucket order, so a save is nearly always an O(1) append. Overwriting a bucket (a
+ * late-arriving correction) is a binary search; inserting before the last bucket shifts the rows after it,
+ * which is O(n) but does not happen in normal operation. A range lookup is two binary searches and a copy of
+ * the rows between them.
+ *
+ * <p>A read-write lock guards each series: saves to one series are serialized, reads of it share the lock.
+ */
+final class HeapCandleSeries implements CandleSeries {
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int FIRST_CHUNK_ROWS = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[][] times = new long[1][];
+    private double[][] opens = new double[1][];
+    private double[][] highs = new double[1][];
+    private double[][] lows = new double[1][];
+    private double[][] closes = new double[1][];
+    private long[][] volumes = new long[1][];
+    private int chunks;
+    private int size;
+
+    @Override
+    public boolean put(Candle candle) {
+        long time = candle.timeMillis();
+        lock.writeLock().lock();
+        try {
+            int row = size == 0 || time > timeAt(size - 1) ? size : lowerBound(time);
+            if (row < size && timeAt(row) == time) {
+                set(row, candle);
+                return false;
+            }
+            ensureCapacity(size + 1);
+            for (int i = size; i > row; i--) move(i - 1, i);
+            set(row, candle);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Candle get(long bucketTime) {
+        lock.readLock().lock();
+        try {
+            int row = lowerBound(bucketTime);
+            if (row == size || timeAt(row) != bucketTime) return null;
+            int c = row >>> CHUNK_SHIFT;
+            int r = row & CHUNK_MASK;
+            return Candle.atMillis(times[c][r], opens[c][r], highs[c][r], lows[c][r], closes[c][r], volumes[c][r]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CandleColumns range(long fromMs, long toMs) {
+        if (fromMs > toMs) return CandleColumns.empty();
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromMs);
+            int to = toMs == Long.MAX_VALUE ? size : lowerBound(toMs + 1);
+            int n = to - from;
+            if (n <= 0) return CandleColumns.empty();
+            CandleColumns out = new CandleColumns(new long[n], new double[n], new double[n], new double[n],
+                    new double[n], new long[n]);
+            for (int row = from; row < to; ) {
+                int c = row >>> CHUNK_SHIFT;
+                int r = row & CHUNK_MASK;
+                int len = Math.min(to - row, CHUNK_ROWS - r);
+                int at = row - from;
+                System.arraycopy(times[c], r, out.timesMillis(), at, len);
+                System.arraycopy(opens[c], r, out.opens(), at, len);
+                System.arraycopy(highs[c], r, out.highs(), at, len);
+                System.arraycopy(lows[c], r, out.lows(), at, len);
+                System.arraycopy(closes[c], r, out.closes(), at, len);
+                System.arraycopy(volumes[c], r, out.volumes(), at, len);
+                row += len;
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** First row whose bucket starts at or after {@code time}, or {@link #size} if none does. */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeAt(mid) < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long timeAt(int row) {
+        return times[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    private void set(int row, Candle candle) {
+        int c = row >>> CHUNK_SHIFT;
+        int r = row & CHUNK_MASK;
+        times[c][r] = candle.timeMillis();
+        opens[c][r] = candle.open();
+        highs[c][r] = candle.high();
+        lows[c][r] = candle.low();
+        closes[c][r] = candle.close();
+        volumes[c][r] = candle.volume();
+    }
+
+    private void move(int from, int to) {
+        int fc = from >>> CHUNK_SHIFT, fr = from & CHUNK_MASK;
+        int tc = to >>> CHUNK_SHIFT, tr = to & CHUNK_MASK;
+        times[tc][tr] = times[fc][fr];
+        opens[tc][tr] = opens[fc][fr];
+        highs[tc][tr] = highs[fc][fr];
+        lows[tc][tr] = lows[fc][fr];
+        closes[tc][tr] = closes[fc][fr];
+        volumes[tc][tr] = volumes[fc][fr];
+    }
+
+    /** Make room for {@code rows} rows: grow the last chunk, or start a new one when it is full. */
+    private void ensureCapacity(int rows) {
+        int last = chunks - 1;
+        int capacity = last < 0 ? 0 : last * CHUNK_ROWS + times[last].length;
+        if (rows <= capacity) return;
+        if (last >= 0 && times[last].length < CHUNK_ROWS) {
+            int grown = Math.min(CHUNK_ROWS, times[last].length * 2);
+            times[last] = Arrays.copyOf(times[last], grown);
+            opens[last] = Arrays.copyOf(opens[last], grown);
+            highs[last] = Arrays.copyOf(highs[last], grown);
+            lows[last] = Arrays.copyOf(lows[last], grown);
+            closes[last] = Arrays.copyOf(closes[last], grown);
+            volumes[last] = Arrays.copyOf(volumes[last], grown);
+            return;
+        }
+        if (chunks == times.length) {
+            int grown = chunks * 2;
+            times = Arrays.copyOf(times, grown);
+            opens = Arrays.copyOf(opens, grown);
+            highs = Arrays.copyOf(highs, grown);
+            lows = Arrays.copyOf(lows, grown);
+            closes = Arrays.copyOf(closes, grown);
+            volumes = Arrays.copyOf(volumes, grown);
+        }
+        int rowsInChunk = chunks == 0 ? FIRST_CHUNK_ROWS : CHUNK_ROWS;
+        times[chunks] = new long[rowsInChunk];
+        opens[chunks] = new double[rowsInChunk];
+        highs[chunks] = new double[rowsInChunk];
+        lows[chunks] = new double[rowsInChunk];
+        closes[chunks] = new double[rowsInChunk];
+        volumes[chunks] = new long[rowsInChunk];
+        chunks++;
+    }
+}
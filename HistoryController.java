@@ -1,14 +1,14 @@
 package com.candle.controller;
 
-import com.candle.model.Candle;
 import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
+import com.candle.store.CandleColumns;
 import com.candle.store.CandleStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,16 +28,18 @@ public class HistoryController {
     private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
 
     private final CandleStore candleStore;
+    private final IntervalCatalog intervals;
 
-    public HistoryController(CandleStore candleStore) {
+    public HistoryController(CandleStore candleStore, IntervalCatalog intervals) {
         this.candleStore = candleStore;
+        this.intervals = intervals;
     }
 
     /**
      * Fetch candlestick history for a symbol and interval within a time range.
      *
      * @param symbol   Trading pair (e.g., "BTC-USD")
-     * @param interval Interval string (e.g., "1m", "1h")
+     * @param interval Interval string (e.g., "1m", "1h"); one of the configured {@code candle.intervals}
      * @param from     Start time in Unix seconds (inclusive)
      * @param to       End time in Unix seconds (inclusive)
      * @return TradingView-compatible OHLCV response
@@ -52,12 +54,12 @@ public class HistoryController {
         log.info("History request: symbol={} interval={} from={} to={}", symbol, interval, from, to);
 
         // Validate interval
-        Optional<Interval> parsedInterval = Interval.fromLabel(interval);
+        Optional<Interval> parsedInterval = intervals.fromLabel(interval);
         if (parsedInterval.isEmpty()) {
             log.warn("Invalid interval requested: {}", interval);
             return ResponseEntity.badRequest()
                     .body(HistoryResponse.error("Unsupported interval: " + interval
-                            + ". Supported: " + String.join(", ", Interval.supportedLabels())));
+                            + ". Supported: " + String.join(", ", intervals.labels())));
         }
 
         // Validate time range
@@ -72,7 +74,7 @@ public class HistoryController {
         }
 
         // Query store
-        List<Candle> candles = candleStore.query(symbol.toUpperCase(), interval, from, to);
+        CandleColumns candles = candleStore.queryColumns(symbol.toUpperCase(), interval, from, to);
 
         if (candles.isEmpty()) {
             log.debug("No candles found for symbol={} interval={} from={} to={}", symbol, interval, from, to);
@@ -80,6 +82,6 @@ public class HistoryController {
         }
 
         log.info("Returning {} candles for symbol={} interval={}", candles.size(), symbol, interval);
-        return ResponseEntity.ok(HistoryResponse.ok(candles));
+        return ResponseEntity.ok(HistoryResponse.ok(candles, parsedInterval.get()));
     }
 }
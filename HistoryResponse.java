@@ -1,6 +1,9 @@
 package com.candle.controller;
 
 import com.candle.model.Candle;
+import com.candle.model.Interval;
+import com.candle.store.CandleColumns;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -19,38 +22,50 @@ import java.util.List;
  *   "v": [10, ...]
  * }
  * </pre>
+ *
+ * <p>Each field is a primitive array, filled from the store's {@link CandleColumns} without a {@link Candle}
+ * per row; {@code equals} therefore compares them by reference.
+ *
+ * <p>{@code t} is in whole seconds. For a sub-second interval several candles share a second, so the
+ * response also carries {@code "tms"}, each candle's start in Unix milliseconds.
  */
 public record HistoryResponse(
         @JsonProperty("s") String status,
-        @JsonProperty("t") List<Long> times,
-        @JsonProperty("o") List<Double> opens,
-        @JsonProperty("h") List<Double> highs,
-        @JsonProperty("l") List<Double> lows,
-        @JsonProperty("c") List<Double> closes,
-        @JsonProperty("v") List<Long> volumes
+        @JsonProperty("t") long[] times,
+        @JsonProperty("o") double[] opens,
+        @JsonProperty("h") double[] highs,
+        @JsonProperty("l") double[] lows,
+        @JsonProperty("c") double[] closes,
+        @JsonProperty("v") long[] volumes,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @JsonProperty("tms") long[] timesMillis
 ) {
 
     /**
      * Build a successful response from a list of sorted candles.
      */
     public static HistoryResponse ok(List<Candle> candles) {
-        List<Long> t = new java.util.ArrayList<>();
-        List<Double> o = new java.util.ArrayList<>();
-        List<Double> h = new java.util.ArrayList<>();
-        List<Double> l = new java.util.ArrayList<>();
-        List<Double> c = new java.util.ArrayList<>();
-        List<Long> v = new java.util.ArrayList<>();
+        return ok(CandleColumns.of(candles), null);
+    }
 
-        for (Candle candle : candles) {
-            t.add(candle.time());
-            o.add(round(candle.open()));
-            h.add(round(candle.high()));
-            l.add(round(candle.low()));
-            c.add(round(candle.close()));
-            v.add(candle.volume());
-        }
+    /**
+     * Build a successful response from a list of sorted candles of {@code interval}.
+     */
+    public static HistoryResponse ok(List<Candle> candles, Interval interval) {
+        return ok(CandleColumns.of(candles), interval);
+    }
 
-        return new HistoryResponse("ok", t, o, h, l, c, v);
+    /**
+     * Build a successful response from sorted candles of {@code interval} laid out as columns, adding
+     * millisecond start times when the interval is sub-second. The volume and millisecond columns are
+     * taken over as they are, so {@code columns} must not be modified afterwards.
+     */
+    public static HistoryResponse ok(CandleColumns columns, Interval interval) {
+        int n = columns.size();
+        long[] t = new long[n];
+        for (int i = 0; i < n; i++) t[i] = Math.floorDiv(columns.timesMillis()[i], 1000);
+        long[] tms = interval != null && interval.isSubSecond() ? columns.timesMillis() : null;
+        return new HistoryResponse("ok", t, round(columns.opens()), round(columns.highs()), round(columns.lows()),
+                round(columns.closes()), columns.volumes(), tms);
     }
 
     /**
@@ -58,7 +73,7 @@ public record HistoryResponse(
      */
     public static HistoryResponse noData() {
         return new HistoryResponse("no_data",
-                List.of(), List.of(), List.of(), List.of(), List.of(), List.of());
+                new long[0], new double[0], new double[0], new double[0], new double[0], new long[0], null);
     }
 
     /**
@@ -66,10 +81,12 @@ public record HistoryResponse(
      */
     public static HistoryResponse error(String message) {
         return new HistoryResponse("error: " + message,
-                List.of(), List.of(), List.of(), List.of(), List.of(), List.of());
+                new long[0], new double[0], new double[0], new double[0], new double[0], new long[0], null);
     }
 
-    private static double round(double value) {
-        return Math.round(value * 100.0) / 100.0;
+    private static double[] round(double[] values) {
+        double[] rounded = new double[values.length];
+        for (int i = 0; i < values.length; i++) rounded[i] = Math.round(values[i] * 100.0) / 100.0;
+        return rounded;
     }
 }
@@ -0,0 +1,87 @@
+package com.candle.service;
+
+import com.candle.ingest.TickLog;
+import com.candle.model.Interval;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes ingest pressure to the actuator metrics endpoint ({@code /actuator/metrics/candle.ingest.*}
+ * and {@code candle.symbols.*}):
+ * <ul>
+ *   <li>{@code candle.ingest.queue.depth} — ring entries accepted but not yet aggregated</li>
+ *   <li>{@code candle.ingest.ticks.dropped} — ticks shed by the {@code drop-oldest} overflow policy</li>
+ *   <li>{@code candle.ingest.ticks.conflated} — ticks folded into partial candles by the {@code conflate} policy</li>
+ *   <li>{@code candle.ingest.late.patched} / {@code candle.ingest.late.dropped} — late ticks inside / outside
+ *       the reorder window, tagged with the interval: every link of the cascade counts the ticks it lost</li>
+ *   <li>{@code candle.symbols.active} — symbols with live aggregators</li>
+ *   <li>{@code candle.symbols.evicted} — symbols evicted as idle or to stay under the active symbol cap</li>
+ *   <li>{@code candle.tick-log.*} — with the tick log on: ticks logged and replayed, group commits, producer
+ *       stalls on a full buffer, and checkpoints</li>
+ * </ul>
+ * Every meter is read from {@link AggregationService} when scraped; nothing is counted twice.
+ */
+@Component
+public class IngestMetrics implements MeterBinder {
+
+    private final AggregationService aggregationService;
+
+    public IngestMetrics(AggregationService aggregationService) {
+        this.aggregationService = aggregationService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String policy = aggregationService.getOverflowPolicy().name().toLowerCase().replace('_', '-');
+        Gauge.builder("candle.ingest.queue.depth", aggregationService, AggregationService::queuedEvents)
+                .description("Ring entries accepted but not yet aggregated")
+                .tag("policy", policy)
+                .register(registry);
+        FunctionCounter.builder("candle.ingest.ticks.dropped", aggregationService, AggregationService::ticksDropped)
+                .description("Ticks shed from a full shard ring")
+                .tag("policy", policy)
+                .register(registry);
+        FunctionCounter.builder("candle.ingest.ticks.conflated", aggregationService, AggregationService::ticksConflated)
+                .description("Ticks folded into partial candles because their shard ring was full")
+                .tag("policy", policy)
+                .register(registry);
+        for (Interval interval : aggregationService.getIntervals().intervals()) {
+            FunctionCounter.builder("candle.ingest.late.patched", aggregationService,
+                            service -> service.lateTicksPatched(interval))
+                    .description("Late ticks patched into a recently closed candle")
+                    .tag("interval", interval.getLabel())
+                    .register(registry);
+            FunctionCounter.builder("candle.ingest.late.dropped", aggregationService,
+                            service -> service.lateTicksDropped(interval))
+                    .description("Late ticks dropped as older than the reorder window, or too late for a roll-up")
+                    .tag("interval", interval.getLabel())
+                    .register(registry);
+        }
+        Gauge.builder("candle.symbols.active", aggregationService, AggregationService::activeSymbolCount)
+                .description("Symbols with live aggregators")
+                .register(registry);
+        FunctionCounter.builder("candle.symbols.evicted", aggregationService, AggregationService::symbolsEvicted)
+                .description("Symbols evicted as idle or to stay under the active symbol cap")
+                .register(registry);
+        TickLog tickLog = aggregationService.getTickLog();
+        if (tickLog == null) return;
+        FunctionCounter.builder("candle.tick-log.ticks", tickLog, TickLog::appendedTicks)
+                .description("Ticks written to the tick log since startup")
+                .register(registry);
+        Gauge.builder("candle.tick-log.replayed", tickLog, TickLog::replayedTicks)
+                .description("Ticks replayed from the tick log on startup")
+                .register(registry);
+        FunctionCounter.builder("candle.tick-log.syncs", tickLog, TickLog::syncs)
+                .description("Group commits: tick log writes forced to disk with one fsync")
+                .register(registry);
+        FunctionCounter.builder("candle.tick-log.stalls", tickLog, TickLog::stalls)
+                .description("Times a producer waited for a full tick log buffer to be written out")
+                .register(registry);
+        FunctionCounter.builder("candle.tick-log.checkpoints", aggregationService, AggregationService::checkpointsTaken)
+                .description("Tick log checkpoints committed")
+                .register(registry);
+    }
+}
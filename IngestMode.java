@@ -0,0 +1,36 @@
+package com.candle.ingest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Selects how {@link com.candle.service.AggregationService} executes ingestion.
+ *
+ * <ul>
+ *   <li>{@link #LOCKED} — events are aggregated on the calling thread; every
+ *       {@link com.candle.aggregator.CandleAggregator} guards itself with a {@code ReentrantLock}.</li>
+ *   <li>{@link #SHARDED} — symbols are hash-partitioned across dedicated worker threads, each
+ *       fed by a bounded ring buffer. Every aggregator is owned by exactly one thread and runs lock-free.</li>
+ *   <li>{@link #LOCK_FREE} — events are aggregated on the calling thread like {@link #LOCKED}, but
+ *       same-bucket ticks update the open candle with CAS operations; only bucket rolls take a lock.</li>
+ * </ul>
+ */
+public enum IngestMode {
+
+    LOCKED,
+    SHARDED,
+    LOCK_FREE;
+
+    /**
+     * Parse a configuration value such as {@code "locked"}, {@code "sharded"} or {@code "lock-free"}
+     * (case-insensitive).
+     */
+    public static IngestMode fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported ingest mode: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
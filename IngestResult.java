@@ -0,0 +1,24 @@
+package com.candle.ingest;
+
+/**
+ * Outcome of a batch ingest call.
+ *
+ * @param accepted Events handed to aggregation (applied, or queued to a shard in sharded mode)
+ * @param rejected Events that were not aggregated: null entries, or late events dropped synchronously
+ */
+public record IngestResult(int accepted, int rejected) {
+
+    public static final IngestResult EMPTY = new IngestResult(0, 0);
+
+    public IngestResult {
+        if (accepted < 0 || rejected < 0) throw new IllegalArgumentException("Counts must be non-negative");
+    }
+
+    public int total() {
+        return accepted + rejected;
+    }
+
+    public IngestResult plus(IngestResult other) {
+        return new IngestResult(accepted + other.accepted, rejected + other.rejected);
+    }
+}
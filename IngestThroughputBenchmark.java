@@ -0,0 +1,96 @@
+package com.candle.ingest;
+
+import com.candle.event.BidAskEvent;
+import com.candle.service.AggregationConfig;
+import com.candle.service.AggregationService;
+import com.candle.store.CandleStore;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Multi-feed ingest throughput, locked vs sharded mode.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ * Several producer threads publish interleaved ticks for a small symbol set so that
+ * hot symbols are shared between feeds — the case where per-aggregator locks contend.
+ */
+@Tag("benchmark")
+@DisplayName("Ingest throughput benchmark")
+class IngestThroughputBenchmark {
+
+    private static final String[] SYMBOLS = {"BTC-USD", "ETH-USD", "SOL-USD", "BNB-USD"};
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 500_000;
+
+    @BeforeAll
+    static void quietLogging() {
+        // Per-candle INFO/DEBUG logging would otherwise dominate the measurement
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("locked vs sharded vs lock-free ingest throughput")
+    void lockedVsSharded() throws InterruptedException {
+        // Warm-up every path before measuring
+        run(IngestMode.LOCKED);
+        run(IngestMode.SHARDED);
+        run(IngestMode.LOCK_FREE);
+
+        double locked = run(IngestMode.LOCKED);
+        double sharded = run(IngestMode.SHARDED);
+        double lockFree = run(IngestMode.LOCK_FREE);
+
+        System.out.printf("ingest throughput: locked=%,.0f ev/s sharded=%,.0f ev/s lock-free=%,.0f ev/s (producers=%d)%n",
+                locked, sharded, lockFree, PRODUCERS);
+        assertThat(locked).isPositive();
+        assertThat(sharded).isPositive();
+        assertThat(lockFree).isPositive();
+    }
+
+    private double run(IngestMode mode) throws InterruptedException {
+        AggregationService service = new AggregationService(new CandleStore(), AggregationConfig.builder()
+                .mode(mode).shards(SYMBOLS.length).reorderWindowSeconds(0).idleEvictSeconds(0).build());
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int feed = p;
+            producers.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                        double mid = 100.0 + (i % 50);
+                        // Feeds share the wall clock so they stay (almost) in order, like real venues
+                        service.ingest(new BidAskEvent(SYMBOLS[(i + feed) % SYMBOLS.length],
+                                mid - 0.05, mid + 0.05, System.currentTimeMillis()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        assertThat(done.await(120, TimeUnit.SECONDS)).isTrue();
+        service.shutdown(); // sharded mode: includes draining the rings
+        long elapsed = System.nanoTime() - t0;
+        producers.shutdown();
+
+        return (double) PRODUCERS * EVENTS_PER_PRODUCER / (elapsed / 1e9);
+    }
+}
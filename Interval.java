@@ -1,62 +1,336 @@
 package com.candle.model;
 
+import java.math.BigInteger;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * Supported candlestick aggregation intervals.
- * Each entry maps a human-readable label to its duration in seconds.
+ * A candlestick aggregation interval: a human-readable label and its duration in milliseconds.
+ *
+ * <p>Buckets are aligned to the Unix epoch at millisecond resolution, so sub-second intervals
+ * ({@code 100ms}, {@code 250ms}, {@code 500ms}) bucket the same way as the whole-second ones.
+ *
+ * <p>The built-in intervals are constants, in ascending order; {@link #values()} returns them. Others are
+ * {@link #parse parsed} from labels such as {@code 3m}, {@code 4h} or {@code 1d}. Which intervals a service
+ * aggregates is decided by its {@link IntervalCatalog}.
+ *
+ * <p><b>Division-free bucket math:</b> each interval precomputes how to find a bucket start without a
+ * 64-bit division. A power-of-two duration masks the low bits; any other uses a multiply-high by a
+ * rounded-up reciprocal and a shift, exact for every timestamp below 2<sup>62</sup> ms. Timestamps outside
+ * that range (negative, or sentinels such as {@link Long#MAX_VALUE}) fall back to a division.
+ *
+ * <p><b>Calendar intervals:</b> {@code 1d}, {@code 1w} and {@code 1M} follow a {@link SessionCalendar} rather
+ * than the epoch, so their buckets vary in length. Their boundaries are precomputed into a table that
+ * {@link #bucketStartMillis} binary-searches; timestamps outside the table (before 1970 or after
+ * {@value SessionCalendar#LAST_YEAR}) fall into its first or last bucket. {@link #getMillis()} is then
+ * only a nominal length, used for ordering; {@link #bucketEndMillis} gives the real end of a bucket.
  */
-public enum Interval {
+public final class Interval implements Comparable<Interval> {
 
-    ONE_SECOND("1s", 1),
-    FIVE_SECONDS("5s", 5),
-    FIFTEEN_SECONDS("15s", 15),
-    ONE_MINUTE("1m", 60),
-    FIVE_MINUTES("5m", 300),
-    FIFTEEN_MINUTES("15m", 900),
-    ONE_HOUR("1h", 3600);
+    public static final Interval HUNDRED_MILLIS = new Interval("HUNDRED_MILLIS", "100ms", 100);
+    public static final Interval TWO_HUNDRED_FIFTY_MILLIS = new Interval("TWO_HUNDRED_FIFTY_MILLIS", "250ms", 250);
+    public static final Interval FIVE_HUNDRED_MILLIS = new Interval("FIVE_HUNDRED_MILLIS", "500ms", 500);
+    public static final Interval ONE_SECOND = new Interval("ONE_SECOND", "1s", 1_000);
+    public static final Interval FIVE_SECONDS = new Interval("FIVE_SECONDS", "5s", 5_000);
+    public static final Interval FIFTEEN_SECONDS = new Interval("FIFTEEN_SECONDS", "15s", 15_000);
+    public static final Interval ONE_MINUTE = new Interval("ONE_MINUTE", "1m", 60_000);
+    public static final Interval FIVE_MINUTES = new Interval("FIVE_MINUTES", "5m", 300_000);
+    public static final Interval FIFTEEN_MINUTES = new Interval("FIFTEEN_MINUTES", "15m", 900_000);
+    public static final Interval ONE_HOUR = new Interval("ONE_HOUR", "1h", 3_600_000);
 
-    private final String label;
-    private final long seconds;
+    private static final Interval[] BUILT_IN = {
+            HUNDRED_MILLIS, TWO_HUNDRED_FIFTY_MILLIS, FIVE_HUNDRED_MILLIS, ONE_SECOND, FIVE_SECONDS,
+            FIFTEEN_SECONDS, ONE_MINUTE, FIVE_MINUTES, FIFTEEN_MINUTES, ONE_HOUR
+    };
 
-    private static final Map<String, Interval> BY_LABEL = Arrays.stream(values())
+    private static final Map<String, Interval> BY_LABEL = Arrays.stream(BUILT_IN)
             .collect(Collectors.toMap(Interval::getLabel, Function.identity()));
 
-    Interval(String label, long seconds) {
+    /** Timestamps below this are bucketed without dividing. */
+    private static final long FAST_RANGE = 1L << 62;
+
+    private final String name;
+    private final String label;
+    private final long millis;
+
+    /** {@code log2(millis)} when the duration is a power of two, else -1. */
+    private final int shift;
+    /** {@code ceil(2^(62 + l) / millis)} with {@code l = ceil(log2(millis))}; unused for a power of two. */
+    private final long reciprocal;
+    /** Shift applied to the high word of {@code timestamp * reciprocal}, i.e. {@code l - 2}. */
+    private final int reciprocalShift;
+
+    /** Calendar intervals only: bucket starts in ascending Unix milliseconds. Null for a fixed interval. */
+    private final long[] boundaries;
+    private final ChronoUnit calendarUnit;
+    private final SessionCalendar calendar;
+    /** Calendar intervals only: greatest common divisor of the boundaries — a fixed interval nests iff it divides this. */
+    private final long alignment;
+
+    private Interval(String label, ChronoUnit unit, SessionCalendar calendar) {
+        this.name = label;
         this.label = label;
-        this.seconds = seconds;
+        this.millis = unit.getDuration().toMillis();
+        this.shift = -1;
+        this.reciprocal = 0;
+        this.reciprocalShift = 0;
+        this.calendarUnit = unit;
+        this.calendar = calendar;
+        this.boundaries = calendar.boundaries(unit);
+        long gcd = 0;
+        for (long boundary : boundaries) {
+            long a = Math.abs(boundary);
+            long b = gcd;
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            gcd = a;
+        }
+        this.alignment = gcd;
+    }
+
+    private Interval(String name, String label, long millis) {
+        if (millis < 1) throw new IllegalArgumentException("Interval " + label + " must be at least 1ms");
+        this.name = name;
+        this.label = label;
+        this.millis = millis;
+        this.boundaries = null;
+        this.calendarUnit = null;
+        this.calendar = null;
+        this.alignment = 0;
+        if (Long.bitCount(millis) == 1) {
+            this.shift = Long.numberOfTrailingZeros(millis);
+            this.reciprocal = 0;
+            this.reciprocalShift = 0;
+        } else {
+            int l = 64 - Long.numberOfLeadingZeros(millis - 1); // >= 2, as millis >= 3
+            BigInteger[] qr = BigInteger.ONE.shiftLeft(62 + l).divideAndRemainder(BigInteger.valueOf(millis));
+            this.shift = -1;
+            this.reciprocal = qr[0].longValueExact() + (qr[1].signum() != 0 ? 1 : 0);
+            this.reciprocalShift = l - 2;
+        }
+    }
+
+    /**
+     * Parse a label of the form {@code <count><unit>}, with unit {@code ms}, {@code s}, {@code m} or {@code h}
+     * (e.g. {@code 250ms}, {@code 3m}, {@code 4h}), or one of the calendar intervals {@code 1d}, {@code 1w} and
+     * {@code 1M} on {@link SessionCalendar#UTC UTC days}. A built-in label yields the built-in constant.
+     *
+     * @throws IllegalArgumentException if the label is malformed
+     */
+    public static Interval parse(String label) {
+        return parse(label, SessionCalendar.UTC);
+    }
+
+    /**
+     * Like {@link #parse(String)}, with {@code 1d}, {@code 1w} and {@code 1M} following {@code calendar}.
+     *
+     * @throws IllegalArgumentException if the label is malformed
+     */
+    public static Interval parse(String label, SessionCalendar calendar) {
+        String trimmed = label.trim();
+        Interval builtIn = BY_LABEL.get(trimmed);
+        if (builtIn != null) return builtIn;
+        int unitStart = 0;
+        while (unitStart < trimmed.length() && Character.isDigit(trimmed.charAt(unitStart))) unitStart++;
+        if (unitStart == 0 || unitStart > 12) {
+            throw new IllegalArgumentException("Invalid interval: '" + label + "' (expected e.g. 250ms, 3m, 4h, 1d)");
+        }
+        long count = Long.parseLong(trimmed.substring(0, unitStart));
+        String unit = trimmed.substring(unitStart);
+        ChronoUnit calendarUnit = switch (unit) {
+            case "d" -> ChronoUnit.DAYS;
+            case "w" -> ChronoUnit.WEEKS;
+            case "M" -> ChronoUnit.MONTHS;
+            default -> null;
+        };
+        if (calendarUnit != null) {
+            if (count != 1) {
+                throw new IllegalArgumentException("Invalid interval: '" + label + "' (calendar intervals are 1d, 1w and 1M)");
+            }
+            return new Interval(trimmed, calendarUnit, calendar);
+        }
+        long unitMillis = switch (unit) {
+            case "ms" -> 1L;
+            case "s" -> 1_000L;
+            case "m" -> 60_000L;
+            case "h" -> 3_600_000L;
+            default -> throw new IllegalArgumentException(
+                    "Invalid interval unit in '" + label + "' (expected ms, s, m, h, d, w or M)");
+        };
+        return new Interval(trimmed, trimmed, Math.multiplyExact(count, unitMillis));
+    }
+
+    /**
+     * The built-in intervals, in ascending order — the {@link IntervalCatalog#defaults() default catalog}.
+     */
+    public static Interval[] values() {
+        return BUILT_IN.clone();
+    }
+
+    /**
+     * Look up a built-in interval by its constant name (e.g., "ONE_MINUTE").
+     *
+     * @throws IllegalArgumentException if there is no such constant
+     */
+    public static Interval valueOf(String name) {
+        for (Interval interval : BUILT_IN) {
+            if (interval.name.equals(name)) return interval;
+        }
+        throw new IllegalArgumentException("No built-in interval " + name);
+    }
+
+    /**
+     * Constant name of a built-in interval; the label of a parsed one.
+     */
+    public String name() {
+        return name;
     }
 
     public String getLabel() {
         return label;
     }
 
+    /**
+     * Duration in whole seconds; 0 for a sub-second interval. Nominal for a calendar interval.
+     */
     public long getSeconds() {
-        return seconds;
+        return millis / 1000;
+    }
+
+    /**
+     * Duration in milliseconds. Nominal for a calendar interval, whose buckets vary in length.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * True for {@code 1d}, {@code 1w} and {@code 1M}, whose buckets follow a {@link SessionCalendar}.
+     */
+    public boolean isCalendar() {
+        return boundaries != null;
     }
 
     /**
-     * Given a raw Unix timestamp in seconds, compute the start of the bucket it falls into.
+     * The calendar a calendar interval follows; null for a fixed one.
+     */
+    public SessionCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * True for intervals shorter than a second.
+     */
+    public boolean isSubSecond() {
+        return millis < 1000;
+    }
+
+    /**
+     * True if the duration is a power of two milliseconds, so bucket starts are found by masking.
+     */
+    public boolean isPowerOfTwo() {
+        return shift >= 0;
+    }
+
+    /**
+     * True if every bucket of {@code coarser} is made of whole buckets of this interval,
+     * so its candles can be rolled up from this one's. A fixed interval nests in a calendar one if it divides
+     * every boundary (with a whole-hour session open, {@code 1h} nests in {@code 1d}); a day nests in the
+     * week and month of the same calendar. Nothing nests in a fixed interval but a finer fixed one.
+     */
+    public boolean nestsIn(Interval coarser) {
+        if (coarser.millis <= millis) return false;
+        if (coarser.boundaries == null) return boundaries == null && coarser.millis % millis == 0;
+        if (boundaries == null) return coarser.alignment % millis == 0;
+        return calendarUnit == ChronoUnit.DAYS && calendar.equals(coarser.calendar);
+    }
+
+    /**
+     * Given a raw Unix timestamp in seconds, compute the start (in seconds) of the bucket it falls into.
+     * A sub-second interval has a bucket starting at every whole second, so the timestamp is returned as is.
      */
     public long bucketStart(long timestampSeconds) {
-        return (timestampSeconds / seconds) * seconds;
+        return bucketStartMillis(timestampSeconds * 1000) / 1000;
+    }
+
+    /**
+     * Given a raw Unix timestamp in milliseconds, compute the start (in milliseconds) of the bucket it falls into.
+     */
+    public long bucketStartMillis(long timestampMs) {
+        if (boundaries != null) return boundaries[boundaryIndex(timestampMs)];
+        if (Long.compareUnsigned(timestampMs, FAST_RANGE) < 0) {
+            if (shift >= 0) return timestampMs & -millis;
+            return (Math.multiplyHigh(timestampMs, reciprocal) >>> reciprocalShift) * millis;
+        }
+        return (timestampMs / millis) * millis;
     }
 
     /**
-     * Look up an Interval by its label string (e.g., "1m").
+     * End (exclusive, in milliseconds) of the bucket starting at {@code bucketStartMs}: the next boundary of a
+     * calendar interval, or {@link Long#MAX_VALUE} past the end of its table.
+     */
+    public long bucketEndMillis(long bucketStartMs) {
+        if (boundaries == null) return bucketStartMs + millis;
+        int index = boundaryIndex(bucketStartMs) + 1;
+        return index < boundaries.length ? boundaries[index] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Start of the bucket {@code count} buckets before the one starting at {@code bucketStartMs}.
+     */
+    public long bucketsBefore(long bucketStartMs, int count) {
+        if (boundaries == null) return bucketStartMs - count * millis;
+        int index = boundaryIndex(bucketStartMs) - count;
+        return index >= 0 ? boundaries[index] : Long.MIN_VALUE;
+    }
+
+    /** Index of the last boundary at or before {@code timestampMs}, clamped to the table. */
+    private int boundaryIndex(long timestampMs) {
+        int found = Arrays.binarySearch(boundaries, timestampMs);
+        return found >= 0 ? found : Math.max(-found - 2, 0);
+    }
+
+    /**
+     * Look up a built-in interval by its label string (e.g., "1m").
      */
     public static Optional<Interval> fromLabel(String label) {
         return Optional.ofNullable(BY_LABEL.get(label));
     }
 
     /**
-     * Returns all supported label strings for validation or documentation.
+     * Returns the built-in label strings, in ascending order.
      */
     public static String[] supportedLabels() {
-        return BY_LABEL.keySet().toArray(String[]::new);
+        return Arrays.stream(BUILT_IN).map(Interval::getLabel).toArray(String[]::new);
+    }
+
+    /** Orders by duration. */
+    @Override
+    public int compareTo(Interval other) {
+        return Long.compare(millis, other.millis);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Interval interval && interval.millis == millis && interval.label.equals(label)
+                && Objects.equals(interval.calendar, calendar);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(millis) * 31 + label.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return label;
     }
 }
@@ -0,0 +1,202 @@
+package com.candle.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The immutable set of intervals a service aggregates, loaded once at startup from
+ * {@code candle.intervals} (e.g. {@code 1m,3m,5m,15m,1h,4h,1d,1w,1M}) and held in ascending order.
+ *
+ * <p>Besides ordering and lookup, the catalog works out how the intervals nest: the {@link #feeder feeder}
+ * of an interval is the coarsest finer one that divides it evenly, whose completed candles it is rolled up
+ * from. Several intervals may share a feeder ({@code 1m} feeds both {@code 3m} and {@code 5m}); an interval
+ * without one heads a cascade that is fed raw ticks.
+ *
+ * <p>Every fixed interval must divide evenly into the coarsest fixed one, so each roll-up tree ends in it and
+ * every bucket of the coarsest interval is made of whole buckets of all the others. {@link Interval#isCalendar
+ * Calendar intervals} are built from candles only, so each needs a feeder: {@code 1h} or finer for a session
+ * opening on the hour, {@code 1m} or finer for one opening at, say, {@code 09:30}. A catalog that breaks either
+ * rule ({@code 1m,1h,90m}, or {@code 1M} alone), repeats a label or a duration, or has no fixed interval is
+ * rejected at startup.
+ */
+public final class IntervalCatalog {
+
+    private static final IntervalCatalog DEFAULTS = of(Arrays.asList(Interval.values()));
+
+    private final Interval[] intervals;
+    private final Map<Interval, Integer> indexes = new HashMap<>();
+    private final Map<String, Interval> byLabel = new HashMap<>();
+    private final int[] feeder;
+    private final int mainHead;
+    private final long slotMillis;
+
+    private IntervalCatalog(Interval[] sorted) {
+        if (sorted.length == 0) throw new IllegalArgumentException("At least one interval must be configured");
+        this.intervals = sorted;
+        int coarsestFixed = sorted.length - 1;
+        while (coarsestFixed >= 0 && sorted[coarsestFixed].isCalendar()) coarsestFixed--;
+        if (coarsestFixed < 0) {
+            throw new IllegalArgumentException("At least one fixed interval must be configured to build calendar bars from");
+        }
+        Interval coarsest = sorted[coarsestFixed];
+        for (int i = 0; i < sorted.length; i++) {
+            Interval interval = sorted[i];
+            if (i > 0 && interval.getMillis() == sorted[i - 1].getMillis()) {
+                throw new IllegalArgumentException("Intervals " + sorted[i - 1] + " and " + interval + " have the same duration");
+            }
+            if (byLabel.put(interval.getLabel(), interval) != null) {
+                throw new IllegalArgumentException("Interval " + interval + " is configured twice");
+            }
+            if (!interval.isCalendar() && interval != coarsest && !interval.nestsIn(coarsest)) {
+                throw new IllegalArgumentException("Interval " + interval + " does not divide evenly into " + coarsest
+                        + ", so its candles cannot roll up exactly");
+            }
+            indexes.put(interval, i);
+        }
+        this.feeder = new int[sorted.length];
+        for (int j = 0; j < sorted.length; j++) {
+            feeder[j] = -1;
+            for (int i = j - 1; i >= 0; i--) {
+                if (sorted[i].nestsIn(sorted[j])) {
+                    feeder[j] = i;
+                    break;
+                }
+            }
+            if (feeder[j] < 0 && sorted[j].isCalendar()) {
+                throw new IllegalArgumentException("Calendar interval " + sorted[j] + " on " + sorted[j].getCalendar()
+                        + " cannot be built from any configured interval; add one that divides every session open, e.g. 1h or 1m");
+            }
+        }
+        int root = coarsestFixed;
+        while (feeder[root] >= 0) root = feeder[root];
+        this.mainHead = root;
+        long gcd = 0;
+        for (Interval interval : sorted) {
+            if (interval.isCalendar()) continue;
+            long a = interval.getMillis();
+            long b = gcd;
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            gcd = a;
+        }
+        this.slotMillis = gcd;
+    }
+
+    /**
+     * Parse a comma-separated list of interval labels, in any order.
+     *
+     * @throws IllegalArgumentException if a label is malformed or the intervals do not nest (see the class documentation)
+     */
+    public static IntervalCatalog parse(String labels) {
+        return parse(labels, SessionCalendar.UTC);
+    }
+
+    /**
+     * Like {@link #parse(String)}, with calendar intervals following {@code calendar}.
+     *
+     * @throws IllegalArgumentException if a label is malformed or the intervals do not nest (see the class documentation)
+     */
+    public static IntervalCatalog parse(String labels, SessionCalendar calendar) {
+        return of(Arrays.stream(labels.split(","))
+                .map(String::trim)
+                .filter(label -> !label.isEmpty())
+                .map(label -> Interval.parse(label, calendar))
+                .toList());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the intervals do not nest (see the class documentation)
+     */
+    public static IntervalCatalog of(Collection<Interval> intervals) {
+        Interval[] sorted = intervals.toArray(new Interval[0]);
+        Arrays.sort(sorted);
+        return new IntervalCatalog(sorted);
+    }
+
+    /**
+     * The built-in intervals, {@code 100ms} through {@code 1h}.
+     */
+    public static IntervalCatalog defaults() {
+        return DEFAULTS;
+    }
+
+    public int size() {
+        return intervals.length;
+    }
+
+    /**
+     * The interval at {@code index}, finest first.
+     */
+    public Interval get(int index) {
+        return intervals[index];
+    }
+
+    /**
+     * Position of {@code interval} in ascending order, or -1 if it is not in the catalog.
+     */
+    public int indexOf(Interval interval) {
+        Integer index = indexes.get(interval);
+        return index != null ? index : -1;
+    }
+
+    public boolean contains(Interval interval) {
+        return indexes.containsKey(interval);
+    }
+
+    /**
+     * Look up a configured interval by its label (e.g., "4h").
+     */
+    public Optional<Interval> fromLabel(String label) {
+        return Optional.ofNullable(byLabel.get(label));
+    }
+
+    /**
+     * The intervals in ascending order.
+     */
+    public List<Interval> intervals() {
+        return List.of(intervals);
+    }
+
+    /**
+     * The configured labels in ascending order.
+     */
+    public String[] labels() {
+        return Arrays.stream(intervals).map(Interval::getLabel).toArray(String[]::new);
+    }
+
+    /**
+     * Index of the interval whose completed candles the one at {@code index} is rolled up from — the coarsest
+     * finer interval dividing it evenly — or -1 if none does and it must be fed raw ticks.
+     */
+    public int feeder(int index) {
+        return feeder[index];
+    }
+
+    /**
+     * Index of the head of the cascade that reaches the coarsest fixed interval.
+     */
+    public int mainHead() {
+        return mainHead;
+    }
+
+    /**
+     * Longest slot, in milliseconds, that lies within one bucket of every interval: the greatest common
+     * divisor of the fixed intervals' lengths ({@code 50ms} for the defaults), which divides every calendar
+     * boundary too.
+     */
+    public long slotMillis() {
+        return slotMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", labels());
+    }
+}
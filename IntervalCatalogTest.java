@@ -0,0 +1,159 @@
+package com.candle.aggregator;
+
+import com.candle.event.BidAskEvent;
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
+import com.candle.model.SessionCalendar;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Interval catalog")
+class IntervalCatalogTest {
+
+    private static final long T0_MS = (1_700_000_000L - 1_700_000_000L % 86_400) * 1000;
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final SessionCalendar FX = new SessionCalendar(NEW_YORK, LocalTime.of(17, 0), DayOfWeek.SUNDAY);
+
+    @Test
+    @DisplayName("Parses labels in any order and sorts them finest first")
+    void parsesAndSorts() {
+        IntervalCatalog catalog = IntervalCatalog.parse("1h, 1m,4h,1d,15m ,5m,3m");
+        assertThat(catalog.labels()).containsExactly("1m", "3m", "5m", "15m", "1h", "4h", "1d");
+        assertThat(catalog.fromLabel("4h")).contains(Interval.parse("4h"));
+        assertThat(catalog.fromLabel("1s")).isEmpty();
+        assertThat(catalog.indexOf(Interval.ONE_MINUTE)).isZero();
+        assertThat(catalog.slotMillis()).isEqualTo(60_000);
+    }
+
+    @Test
+    @DisplayName("Each interval is fed by the coarsest finer interval dividing it, which may feed several")
+    void detectsNesting() {
+        IntervalCatalog catalog = IntervalCatalog.parse("1m,3m,5m,15m,1h");
+        assertThat(catalog.feeder(0)).isEqualTo(-1);
+        assertThat(catalog.feeder(1)).as("3m").isZero();
+        assertThat(catalog.feeder(2)).as("5m").isZero();
+        assertThat(catalog.feeder(3)).as("15m").isEqualTo(2);
+        assertThat(catalog.feeder(4)).as("1h").isEqualTo(3);
+        assertThat(catalog.mainHead()).isZero();
+    }
+
+    @Test
+    @DisplayName("The defaults keep 100ms beside the 250ms cascade")
+    void defaults() {
+        IntervalCatalog catalog = IntervalCatalog.defaults();
+        assertThat(catalog.labels()).containsExactly(Interval.supportedLabels());
+        assertThat(catalog.feeder(0)).as("100ms").isEqualTo(-1);
+        assertThat(catalog.feeder(1)).as("250ms").isEqualTo(-1);
+        assertThat(catalog.feeder(2)).as("500ms").isEqualTo(1);
+        assertThat(catalog.mainHead()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Rejects intervals that do not divide the coarsest, duplicates and bad labels")
+    void rejectsInvalid() {
+        assertThatThrownBy(() -> IntervalCatalog.parse("1m,1h,90m"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("1h");
+        assertThatThrownBy(() -> IntervalCatalog.parse("1m,5m,1m")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IntervalCatalog.parse("1m,60s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IntervalCatalog.parse("1m,5q")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IntervalCatalog.parse(" ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Calendar bars are fed by the coarsest interval dividing every session open")
+    void calendarFeeders() {
+        IntervalCatalog catalog = IntervalCatalog.parse("1M,1w,1d,1h,1m", FX);
+        assertThat(catalog.labels()).containsExactly("1m", "1h", "1d", "1w", "1M");
+        assertThat(catalog.feeder(2)).as("1d").isEqualTo(1);
+        assertThat(catalog.feeder(3)).as("1w").isEqualTo(2);
+        assertThat(catalog.feeder(4)).as("1M").isEqualTo(2);
+        assertThat(catalog.mainHead()).isZero();
+        assertThat(catalog.slotMillis()).isEqualTo(60_000);
+
+        SessionCalendar india = new SessionCalendar(ZoneId.of("Asia/Kolkata"), LocalTime.of(9, 15), DayOfWeek.MONDAY);
+        assertThat(IntervalCatalog.parse("1m,1h,1d", india).feeder(2)).as("1d from 1m").isZero();
+        assertThatThrownBy(() -> IntervalCatalog.parse("1h,1d", india))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("1d");
+        assertThatThrownBy(() -> IntervalCatalog.parse("1M")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IntervalCatalog.parse("1h,24h,1d")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Daily, weekly and monthly bars built from 1h candles match bucketing every tick")
+    void calendarBarsMatchTicks() {
+        IntervalCatalog catalog = IntervalCatalog.parse("1m,1h,1d,1w,1M", FX);
+        long start = ZonedDateTime.of(2024, 1, 25, 0, 0, 0, 0, NEW_YORK).toInstant().toEpochMilli();
+        Map<String, List<Candle>> emitted = run(catalog, start, 600_000L, 15_000);
+
+        List<Candle> days = emitted.get("1d");
+        for (Candle candle : days) {
+            ZonedDateTime open = Instant.ofEpochMilli(candle.timeMillis()).atZone(NEW_YORK);
+            assertThat(open.toLocalTime()).as("%s", open).isEqualTo(LocalTime.of(17, 0));
+        }
+        assertThat(emitted.get("1w")).extracting(c -> Instant.ofEpochMilli(c.timeMillis()).atZone(NEW_YORK).getDayOfWeek())
+                .containsOnly(DayOfWeek.SUNDAY);
+        assertThat(emitted.get("1M")).extracting(c -> Instant.ofEpochMilli(c.timeMillis()).atZone(NEW_YORK).getDayOfMonth())
+                .containsOnly(1);
+        assertThat(emitted.get("1M")).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("A fanned-out cascade matches bucketing every tick directly")
+    void fanOutMatchesTicks() {
+        IntervalCatalog catalog = IntervalCatalog.parse("1m,3m,5m,15m,1h,4h,1d");
+        Map<String, List<Candle>> emitted = run(catalog, T0_MS, 7_000L, 20_000);
+        assertThat(emitted).hasSize(7);
+    }
+
+    /**
+     * Feed {@code ticks} ticks {@code stepMs} apart through a bundle of {@code catalog} and check every interval's
+     * candles against bucketing each tick directly.
+     */
+    private static Map<String, List<Candle>> run(IntervalCatalog catalog, long startMs, long stepMs, int ticks) {
+        Map<String, List<Candle>> emitted = new HashMap<>();
+        SymbolAggregators bundle = new SymbolAggregators(0, "BTC-USD",
+                CandleListener.of((label, candle) -> emitted.computeIfAbsent(label, k -> new ArrayList<>()).add(candle)),
+                true, catalog);
+        assertThat(bundle.size()).isEqualTo(catalog.size());
+
+        Map<String, TreeMap<Long, double[]>> expected = new HashMap<>();
+        for (int i = 0; i < ticks; i++) {
+            long ts = startMs + i * stepMs;
+            double price = 100.0 + (i * 37 % 101) * 0.5;
+            bundle.process(new BidAskEvent("BTC-USD", price - 0.5, price + 0.5, ts));
+            for (Interval interval : catalog.intervals()) {
+                expected.computeIfAbsent(interval.getLabel(), k -> new TreeMap<>())
+                        .merge(interval.bucketStartMillis(ts), new double[]{price, price, price, price, 1},
+                                (c, t) -> new double[]{c[0], Math.max(c[1], t[1]), Math.min(c[2], t[2]), t[3], c[4] + 1});
+            }
+        }
+        bundle.forceFlush();
+
+        for (Interval interval : catalog.intervals()) {
+            List<Candle> candles = emitted.get(interval.getLabel());
+            TreeMap<Long, double[]> buckets = expected.get(interval.getLabel());
+            assertThat(candles).as(interval.getLabel()).hasSize(buckets.size());
+            for (Candle candle : candles) {
+                double[] ohlcv = buckets.get(candle.timeMillis());
+                assertThat(new double[]{candle.open(), candle.high(), candle.low(), candle.close(), candle.volume()})
+                        .as("%s at %d", interval, candle.timeMillis()).containsExactly(ohlcv);
+            }
+        }
+        return emitted;
+    }
+}
@@ -1,16 +1,24 @@
 package com.candle.aggregator;
 
 import com.candle.model.Interval;
+import com.candle.model.SessionCalendar;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.SplittableRandom;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
-@DisplayName("Interval enum")
+@DisplayName("Interval")
 class IntervalTest {
 
     @ParameterizedTest(name = "bucketStart({1}s) with interval={0} → {2}s")
@@ -30,12 +38,28 @@ class IntervalTest {
         assertThat(interval.bucketStart(timestamp)).isEqualTo(expectedBucket);
     }
 
+    @ParameterizedTest(name = "bucketStartMillis({1}ms) with interval={0} → {2}ms")
+    @CsvSource({
+            "HUNDRED_MILLIS,           1700000000099, 1700000000000",
+            "HUNDRED_MILLIS,           1700000000100, 1700000000100",
+            "TWO_HUNDRED_FIFTY_MILLIS, 1700000000499, 1700000000250",
+            "FIVE_HUNDRED_MILLIS,      1700000000999, 1700000000500",
+            "ONE_SECOND,               1700000000999, 1700000000000",
+            "ONE_MINUTE,               1700000059999, 1700000040000",
+    })
+    @DisplayName("bucketStartMillis aligns millisecond timestamps, including sub-second intervals")
+    void bucketStartMillisAligns(String intervalName, long timestampMs, long expectedBucketMs) {
+        Interval interval = Interval.valueOf(intervalName);
+        assertThat(interval.bucketStartMillis(timestampMs)).isEqualTo(expectedBucketMs);
+    }
+
     @Test
     @DisplayName("fromLabel returns correct interval for known labels")
     void fromLabelKnown() {
         assertThat(Interval.fromLabel("1m")).contains(Interval.ONE_MINUTE);
         assertThat(Interval.fromLabel("1h")).contains(Interval.ONE_HOUR);
         assertThat(Interval.fromLabel("5s")).contains(Interval.FIVE_SECONDS);
+        assertThat(Interval.fromLabel("250ms")).contains(Interval.TWO_HUNDRED_FIFTY_MILLIS);
     }
 
     @Test
@@ -55,4 +79,99 @@ class IntervalTest {
                 .count();
         assertThat(uniqueCount).isEqualTo(Interval.values().length);
     }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({"1ms", "64ms", "100ms", "250ms", "1s", "3m", "7m", "1h", "4h", "12h", "24h", "168h"})
+    @DisplayName("Precomputed bucket math matches division across the timestamp range")
+    void bucketMathMatchesDivision(String label) {
+        Interval interval = Interval.parse(label);
+        long millis = interval.getMillis();
+        SplittableRandom random = new SplittableRandom(label.hashCode());
+        for (int i = 0; i < 200_000; i++) {
+            long ts = i % 2 == 0 ? random.nextLong(0, 1L << 62) : random.nextLong(1_600_000_000_000L, 1_900_000_000_000L);
+            assertThat(interval.bucketStartMillis(ts)).as("%s at %d", label, ts).isEqualTo(ts / millis * millis);
+        }
+        long[] edges = {0, 1, millis - 1, millis, millis + 1, (1L << 62) - 1, 1L << 62, Long.MAX_VALUE, -1, -millis};
+        for (long ts : edges) {
+            assertThat(interval.bucketStartMillis(ts)).as("%s at %d", label, ts).isEqualTo(ts / millis * millis);
+        }
+    }
+
+    @Test
+    @DisplayName("parse accepts any count of ms, s, m, h, d or w and reuses built-ins")
+    void parseLabels() {
+        assertThat(Interval.parse("1m")).isSameAs(Interval.ONE_MINUTE);
+        assertThat(Interval.parse("3m").getMillis()).isEqualTo(180_000);
+        assertThat(Interval.parse("4h").getMillis()).isEqualTo(14_400_000);
+        assertThat(Interval.parse("1d").getMillis()).isEqualTo(86_400_000);
+        assertThat(Interval.parse("1w").getLabel()).isEqualTo("1w");
+        assertThat(Interval.parse("64ms").isPowerOfTwo()).isTrue();
+        assertThat(Interval.parse("1d").isPowerOfTwo()).isFalse();
+        assertThat(Interval.parse("60s")).isEqualTo(Interval.parse("60s")).isNotEqualTo(Interval.ONE_MINUTE);
+        assertThatThrownBy(() -> Interval.parse("m")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Interval.parse("3y")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Interval.parse("0s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Interval.parse("7d")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Calendar bars follow the session open across daylight-saving changes and month lengths")
+    void calendarBoundaries() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        SessionCalendar fx = new SessionCalendar(newYork, LocalTime.of(17, 0), DayOfWeek.SUNDAY);
+        Interval day = Interval.parse("1d", fx);
+        Interval week = Interval.parse("1w", fx);
+        Interval month = Interval.parse("1M", fx);
+        assertThat(day.isCalendar()).isTrue();
+
+        long monday = ZonedDateTime.of(2024, 3, 11, 12, 0, 0, 0, newYork).toInstant().toEpochMilli();
+        long opened = ZonedDateTime.of(2024, 3, 10, 17, 0, 0, 0, newYork).toInstant().toEpochMilli();
+        assertThat(day.bucketStartMillis(monday)).isEqualTo(opened);
+        assertThat(day.bucketStartMillis(opened)).isEqualTo(opened);
+        assertThat(day.bucketStartMillis(opened - 1)).isEqualTo(opened - 23 * 3_600_000L); // clocks went forward
+        assertThat(day.bucketEndMillis(opened)).isEqualTo(opened + 24 * 3_600_000L);
+        assertThat(day.bucketsBefore(opened, 1)).isEqualTo(opened - 23 * 3_600_000L);
+        assertThat(week.bucketStartMillis(monday)).isEqualTo(opened);
+
+        long leapDay = ZonedDateTime.of(2024, 2, 29, 9, 0, 0, 0, newYork).toInstant().toEpochMilli();
+        long february = month.bucketStartMillis(leapDay);
+        assertThat(february).isEqualTo(ZonedDateTime.of(2024, 2, 1, 17, 0, 0, 0, newYork).toInstant().toEpochMilli());
+        assertThat(month.bucketEndMillis(february))
+                .isEqualTo(ZonedDateTime.of(2024, 3, 1, 17, 0, 0, 0, newYork).toInstant().toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("Calendar bucket starts match ZonedDateTime arithmetic")
+    void calendarMatchesZonedDateTime() {
+        ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+        SessionCalendar session = new SessionCalendar(kolkata, LocalTime.of(9, 15), DayOfWeek.MONDAY);
+        Interval day = Interval.parse("1d", session);
+        Interval month = Interval.parse("1M", session);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 20_000; i++) {
+            long ts = random.nextLong(0, 4_000_000_000_000L);
+            ZonedDateTime at = Instant.ofEpochMilli(ts).atZone(kolkata);
+            ZonedDateTime open = at.with(LocalTime.of(9, 15));
+            if (open.isAfter(at)) open = open.minusDays(1);
+            assertThat(day.bucketStartMillis(ts)).as("day of %s", at).isEqualTo(open.toInstant().toEpochMilli());
+            ZonedDateTime monthOpen = at.withDayOfMonth(1).with(LocalTime.of(9, 15));
+            if (monthOpen.isAfter(at)) monthOpen = monthOpen.minusMonths(1);
+            assertThat(month.bucketStartMillis(ts)).as("month of %s", at).isEqualTo(monthOpen.toInstant().toEpochMilli());
+        }
+    }
+
+    @Test
+    @DisplayName("Fixed intervals nest in calendar ones that open on their boundaries; days nest in weeks and months")
+    void calendarNesting() {
+        SessionCalendar fx = new SessionCalendar(ZoneId.of("America/New_York"), LocalTime.of(17, 0), DayOfWeek.SUNDAY);
+        SessionCalendar india = new SessionCalendar(ZoneId.of("Asia/Kolkata"), LocalTime.of(9, 15), DayOfWeek.MONDAY);
+        assertThat(Interval.ONE_HOUR.nestsIn(Interval.parse("1d", fx))).isTrue();
+        assertThat(Interval.ONE_HOUR.nestsIn(Interval.parse("1d", india))).isFalse();
+        assertThat(Interval.FIFTEEN_MINUTES.nestsIn(Interval.parse("1d", india))).isTrue();
+        assertThat(Interval.parse("1d", fx).nestsIn(Interval.parse("1w", fx))).isTrue();
+        assertThat(Interval.parse("1d", fx).nestsIn(Interval.parse("1M", fx))).isTrue();
+        assertThat(Interval.parse("1w", fx).nestsIn(Interval.parse("1M", fx))).isFalse();
+        assertThat(Interval.parse("1d", fx).nestsIn(Interval.parse("1w", india))).isFalse();
+        assertThat(Interval.parse("1d").nestsIn(Interval.parse("168h"))).isFalse();
+    }
 }
@@ -0,0 +1,36 @@
+package com.candle.gateway;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Latency histogram")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("percentiles are within one sub-bucket (12.5%) above the true value")
+    void percentileAccuracy() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.percentile(50)).isBetween(50_000L, 56_250L);
+        assertThat(histogram.percentile(99)).isBetween(99_000L, 111_375L);
+        assertThat(histogram.percentile(100)).isGreaterThanOrEqualTo(100_000L);
+
+        histogram.reset();
+        assertThat(histogram.percentile(99)).isZero();
+    }
+
+    @Test
+    @DisplayName("every value falls in a bucket whose upper bound is at least the value")
+    void bucketBounds() {
+        for (long nanos : new long[]{0, 1, 7, 8, 15, 16, 17, 1_000, 1L << 40, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(nanos);
+            assertThat(LatencyHistogram.upperBound(index)).as("%d", nanos).isGreaterThanOrEqualTo(nanos);
+            if (index > 0) assertThat(LatencyHistogram.upperBound(index - 1)).isLessThan(nanos);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@link StoreBackend#MAPPED mapped} series: candles appended as fixed-width records to memory-mapped
+ * {@link SegmentFile segment files} in the series' directory, ordered by bucket start within and across
+ * segments.
+ *
+ * <p>Appends go to the last segment. It rolls — a new file is created and appends move to it — when it is full,
+ * or when a candle falls into a later window of {@link SegmentConfig#segmentMillis} than the segment's first
+ * candle (daily files, say). Candles at least that far apart roll on size only, so a monthly bar does not get
+ * a file of its own. An overwrite is done in place; a candle older than the newest is inserted into the segment
+ * covering its time, which fails if that segment is full.
+ *
+ * <p>Reads go straight to the mapped records, with no read call or intermediate buffer: a lookup binary-searches
+ * the segments' first buckets, then the records of one segment. Opening a series maps its segments and checks
+ * only the records written after each one was last forced (see {@link SegmentFile}).
+ *
+ * <p>A read-write lock guards each series: saves and syncs are serialized, reads share the lock.
+ */
+final class MappedCandleSeries implements CandleSeries {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedCandleSeries.class);
+
+    private static final String SUFFIX = ".seg";
+
+    private final SegmentConfig config;
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<SegmentFile> segments = new ArrayList<>();
+    private long nextSequence = 1;
+    private int size;
+    /** Written since the last {@link #sync}; read without the lock to skip clean series. */
+    private volatile boolean dirty;
+
+    private MappedCandleSeries(SegmentConfig config, Path dir) {
+        this.config = config;
+        this.dir = dir;
+    }
+
+    /**
+     * Open the series in {@code dir}, mapping the segments already there. Segments without a valid record are
+     * deleted; files that are not candle segments are skipped and left in place.
+     */
+    static MappedCandleSeries open(SegmentConfig config, Path dir) throws IOException {
+        MappedCandleSeries series = new MappedCandleSeries(config, dir);
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                series.nextSequence = Math.max(series.nextSequence,
+                        Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+            } catch (NumberFormatException e) {
+                log.warn("Skipping {}: not a numbered segment", file);
+                continue;
+            }
+            SegmentFile segment;
+            try {
+                segment = SegmentFile.open(file);
+            } catch (IOException e) {
+                log.warn("Skipping {}: {}", file, e.getMessage());
+                continue;
+            }
+            if (segment.rows() == 0) {
+                Files.delete(file);
+                continue;
+            }
+            series.segments.add(segment);
+            series.size += segment.rows();
+        }
+        return series;
+    }
+
+    /**
+     * Create a series with no segments yet in {@code dir}.
+     */
+    static MappedCandleSeries create(SegmentConfig config, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return new MappedCandleSeries(config, dir);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean put(Candle candle) {
+        long time = candle.timeMillis();
+        lock.writeLock().lock();
+        try {
+            SegmentFile last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last == null || time > last.timeAt(last.rows() - 1)) {
+                if (last == null || last.isFull() || rollsOnTime(last, time)) last = roll(last);
+                last.append(candle);
+                size++;
+                written(last);
+                return true;
+            }
+            SegmentFile segment = segments.get(segmentFor(time));
+            int row = segment.lowerBound(time);
+            if (row < segment.rows() && segment.timeAt(row) == time) {
+                segment.rewrite(row, candle);
+                written(segment);
+                return false;
+            }
+            if (segment.isFull()) {
+                throw new CandleRejectedException("Segment " + segment.path() + " is full; cannot insert the candle at "
+                        + time + " before its last one");
+            }
+            segment.insert(row, candle);
+            size++;
+            written(segment);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Candle get(long bucketTime) {
+        lock.readLock().lock();
+        try {
+            if (segments.isEmpty()) return null;
+            SegmentFile segment = segments.get(segmentFor(bucketTime));
+            int row = segment.lowerBound(bucketTime);
+            return row < segment.rows() && segment.timeAt(row) == bucketTime ? segment.candle(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CandleColumns range(long fromMs, long toMs) {
+        if (fromMs > toMs) return CandleColumns.empty();
+        lock.readLock().lock();
+        try {
+            if (segments.isEmpty()) return CandleColumns.empty();
+            int first = segmentFor(fromMs);
+            int firstRow = segments.get(first).lowerBound(fromMs);
+            int last = segmentFor(toMs);
+            int endRow = toMs == Long.MAX_VALUE ? segments.get(last).rows() : segments.get(last).lowerBound(toMs + 1);
+            int n = 0;
+            for (int k = first; k <= last; k++) {
+                n += (k == last ? endRow : segments.get(k).rows()) - (k == first ? firstRow : 0);
+            }
+            if (n <= 0) return CandleColumns.empty();
+            CandleColumns out = new CandleColumns(new long[n], new double[n], new double[n], new double[n],
+                    new double[n], new long[n]);
+            int at = 0;
+            for (int k = first; k <= last; k++) {
+                SegmentFile segment = segments.get(k);
+                int from = k == first ? firstRow : 0;
+                int to = k == last ? endRow : segment.rows();
+                segment.copy(from, to, out, at);
+                at += to - from;
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Force the segments written since the last sync to disk.
+     */
+    void sync() {
+        if (!dirty) return;
+        lock.writeLock().lock();
+        try {
+            dirty = false;
+            for (int k = segments.size() - 1; k >= 0; k--) {
+                if (segments.get(k).isDirty()) segments.get(k).force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete every segment of the series.
+     */
+    void delete() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (SegmentFile segment : segments) Files.deleteIfExists(segment.path());
+            segments.clear();
+            size = 0;
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Last segment whose first bucket is at or before {@code time}, or the first segment if none is. */
+    private int segmentFor(long time) {
+        int lo = 1;
+        int hi = segments.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segments.get(mid).timeAt(0) <= time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private boolean rollsOnTime(SegmentFile last, long time) {
+        long span = config.segmentMillis();
+        return span > 0
+                && Math.floorDiv(time, span) != Math.floorDiv(last.timeAt(0), span)
+                && time - last.timeAt(last.rows() - 1) < span;
+    }
+
+    private SegmentFile roll(SegmentFile last) {
+        if (last != null) last.force();
+        Path file = dir.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+        try {
+            SegmentFile segment = SegmentFile.create(file, config.segmentBytes());
+            nextSequence++;
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new CandleRejectedException("Cannot create segment " + file, e);
+        }
+    }
+
+    private void written(SegmentFile segment) {
+        if (config.fsync() == FsyncPolicy.CANDLE) segment.force();
+        else dirty = true;
+    }
+}
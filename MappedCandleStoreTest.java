@@ -0,0 +1,267 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CandleStore on mapped segments")
+class MappedCandleStoreTest {
+
+    private static final long T0 = 1_700_000_000L;
+    /** 100 candles per segment. */
+    private static final int SEGMENT_BYTES = SegmentFile.HEADER_BYTES + 100 * SegmentFile.RECORD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    private CandleStore open(long segmentSeconds, FsyncPolicy fsync) {
+        return new CandleStore(dir, SEGMENT_BYTES, segmentSeconds, fsync);
+    }
+
+    private static Candle candle(long time, long volume) {
+        return new Candle(time, 100 + volume, 110 + volume, 90 + volume, 105 + volume, volume);
+    }
+
+    private Path seriesDir() {
+        return dir.resolve("BTC-USD").resolve("1_s");
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(seriesDir())) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long verified(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SegmentFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return header.getLong(16);
+        }
+    }
+
+    @Test
+    @DisplayName("history survives a restart: segments are mapped again and appends carry on")
+    void survivesRestart() {
+        CandleStore store = open(0, FsyncPolicy.INTERVAL);
+        for (int i = 0; i < 1000; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        for (int i = 0; i < 10; i++) store.save("ETH-USD", "1M", candle(T0 + i * 2_592_000L, i));
+        List<Candle> before = store.query("BTC-USD", "1s", 0, Long.MAX_VALUE);
+        store.close();
+
+        CandleStore reopened = open(0, FsyncPolicy.INTERVAL);
+        assertThat(reopened.totalCandles()).isEqualTo(1010);
+        assertThat(reopened.knownSymbols()).containsExactly("BTC-USD", "ETH-USD");
+        assertThat(reopened.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).isEqualTo(before);
+        assertThat(reopened.query("ETH-USD", "1M", 0, Long.MAX_VALUE)).hasSize(10);
+        assertThat(reopened.query("ETH-USD", "1m", 0, Long.MAX_VALUE)).isEmpty();
+
+        reopened.save("BTC-USD", "1s", candle(T0 + 1000, 1000));
+        reopened.save("BTC-USD", "1s", candle(T0 + 5, 55));
+        reopened.close();
+        CandleStore again = open(0, FsyncPolicy.INTERVAL);
+        assertThat(again.totalCandles()).isEqualTo(1011);
+        assertThat(again.find("BTC-USD", "1s", (T0 + 5) * 1000)).map(Candle::volume).contains(55L);
+        assertThat(again.query("BTC-USD", "1s", T0 + 998, T0 + 1000)).extracting(Candle::volume)
+                .containsExactly(998L, 999L, 1000L);
+    }
+
+    @Test
+    @DisplayName("segments roll when full, and on a new time window for candles closer together than it")
+    void rollsOnSizeAndTime() throws IOException {
+        CandleStore store = open(60, FsyncPolicy.ROLL);
+        for (int i = 0; i < 250; i++) store.save("BTC-USD", "1s", candle(T0 - T0 % 60 + i, i));
+        // 60 per one-minute window, well under the 100 a segment holds
+        assertThat(segmentFiles()).hasSize(5);
+        assertThat(store.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).extracting(Candle::volume)
+                .containsExactlyElementsOf(Stream.iterate(0L, v -> v + 1).limit(250).toList());
+
+        for (int i = 0; i < 250; i++) store.save("BTC-USD", "1h", candle(T0 + i * 3600L, i));
+        try (Stream<Path> files = Files.list(dir.resolve("BTC-USD").resolve("1_h"))) {
+            assertThat(files.count()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    @DisplayName("a tail cut short by a crash loses only the torn candle")
+    void truncatedTail() throws IOException {
+        CandleStore store = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 150; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        // No close: the crash leaves the last segment's 50 candles unforced, and cuts it in the middle of the 41st
+        Path last = segmentFiles().get(1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(SegmentFile.HEADER_BYTES + 40L * SegmentFile.RECORD_BYTES + 20);
+        }
+
+        CandleStore reopened = open(0, FsyncPolicy.ROLL);
+        assertThat(reopened.totalCandles()).isEqualTo(140);
+        assertThat(reopened.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).extracting(Candle::volume)
+                .containsExactlyElementsOf(Stream.iterate(0L, v -> v + 1).limit(140).toList());
+        assertThat(verified(last)).isEqualTo(40);
+
+        // The shortened segment is full; the next candle rolls to a new one
+        reopened.save("BTC-USD", "1s", candle(T0 + 140, 140));
+        reopened.close();
+        assertThat(open(0, FsyncPolicy.ROLL).totalCandles()).isEqualTo(141);
+        assertThat(segmentFiles()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("a torn record ends its segment, and the stale records after it stay gone")
+    void tornRecord() throws IOException {
+        CandleStore store = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 30; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), SegmentFile.HEADER_BYTES + 20L * SegmentFile.RECORD_BYTES + 9);
+        }
+
+        CandleStore reopened = open(0, FsyncPolicy.ROLL);
+        assertThat(reopened.totalCandles()).isEqualTo(20);
+        reopened.save("BTC-USD", "1s", candle(T0 + 20, 200));
+        reopened.close();
+
+        CandleStore again = open(0, FsyncPolicy.ROLL);
+        assertThat(again.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).hasSize(21)
+                .last().extracting(Candle::volume).isEqualTo(200L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("an insert cut short by a crash loses only the inserted candle, not the records it had shifted")
+    void interruptedInsert(boolean torn) throws IOException {
+        CandleStore store = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 30; i++) store.save("BTC-USD", "1s", candle(T0 + 2 * i, i));
+        store.syncSegments();
+        Path segment = segmentFiles().get(0);
+        // Inserting T0 + 19 at row 10 shifts rows 29..10 up by one; the crash comes while row 19 is copied to 20
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(10).putLong(11).flip();
+            channel.write(header, 16);
+            for (int from = 29; from >= 19; from--) {
+                ByteBuffer record = ByteBuffer.allocate(SegmentFile.RECORD_BYTES);
+                channel.read(record, SegmentFile.HEADER_BYTES + (long) from * SegmentFile.RECORD_BYTES);
+                if (from == 19 && torn) record.limit(SegmentFile.RECORD_BYTES / 2);
+                channel.write(record.flip(), SegmentFile.HEADER_BYTES + (from + 1L) * SegmentFile.RECORD_BYTES);
+            }
+        }
+
+        CandleStore reopened = open(0, FsyncPolicy.ROLL);
+        assertThat(reopened.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).extracting(Candle::volume)
+                .containsExactlyElementsOf(Stream.iterate(0L, v -> v + 1).limit(30).toList());
+        assertThat(verified(segment)).isEqualTo(30);
+        reopened.save("BTC-USD", "1s", candle(T0 + 19, 99));
+        reopened.close();
+
+        CandleStore again = open(0, FsyncPolicy.ROLL);
+        assertThat(again.totalCandles()).isEqualTo(31);
+        assertThat(again.query("BTC-USD", "1s", T0 + 18, T0 + 20)).extracting(Candle::volume)
+                .containsExactly(9L, 99L, 10L);
+    }
+
+    @Test
+    @DisplayName("a segment header that is not a candle segment is skipped, not overwritten")
+    void foreignFileSkipped() throws IOException {
+        CandleStore store = open(0, FsyncPolicy.CANDLE);
+        for (int i = 0; i < 150; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        Path first = segmentFiles().get(0);
+        Files.write(first, new byte[SEGMENT_BYTES]);
+        Files.write(first, "not a segment".getBytes(), StandardOpenOption.WRITE);
+
+        CandleStore reopened = open(0, FsyncPolicy.CANDLE);
+        assertThat(reopened.totalCandles()).isEqualTo(50);
+        reopened.save("BTC-USD", "1s", candle(T0 + 150, 150));
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(Files.readAllBytes(first)).startsWith("not a segment".getBytes());
+    }
+
+    @Test
+    @DisplayName("fsync per candle verifies each save; per interval, on each pass; on roll, when a segment rolls")
+    void fsyncPolicies() throws IOException {
+        CandleStore perCandle = open(0, FsyncPolicy.CANDLE);
+        for (int i = 0; i < 10; i++) perCandle.save("BTC-USD", "1s", candle(T0 + i, i));
+        assertThat(verified(segmentFiles().get(0))).isEqualTo(10);
+        perCandle.clear();
+
+        CandleStore perInterval = open(0, FsyncPolicy.INTERVAL);
+        for (int i = 0; i < 10; i++) perInterval.save("BTC-USD", "1s", candle(T0 + i, i));
+        assertThat(verified(segmentFiles().get(0))).isZero();
+        perInterval.syncSegments();
+        assertThat(verified(segmentFiles().get(0))).isEqualTo(10);
+        perInterval.clear();
+
+        CandleStore onRoll = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 101; i++) onRoll.save("BTC-USD", "1s", candle(T0 + i, i));
+        onRoll.syncSegments();
+        assertThat(verified(segmentFiles().get(0))).isEqualTo(100);
+        assertThat(verified(segmentFiles().get(1))).isZero();
+        onRoll.close();
+        assertThat(verified(segmentFiles().get(1))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rewriting a forced candle unverifies it first, so a torn rewrite is caught")
+    void rewriteUnverifies() throws IOException {
+        CandleStore store = open(0, FsyncPolicy.INTERVAL);
+        for (int i = 0; i < 10; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        store.syncSegments();
+        store.save("BTC-USD", "1s", candle(T0 + 4, 44));
+        assertThat(verified(segmentFiles().get(0))).isEqualTo(4);
+        store.syncSegments();
+        assertThat(verified(segmentFiles().get(0))).isEqualTo(10);
+        assertThat(store.find("BTC-USD", "1s", (T0 + 4) * 1000)).map(Candle::volume).contains(44L);
+    }
+
+    @Test
+    @DisplayName("an older candle is inserted into its segment, or rejected and counted when that segment is full")
+    void insertIntoFullSegment() {
+        CandleStore store = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 300; i += 2) store.save("BTC-USD", "1s", candle(T0 + i, i));
+
+        store.save("BTC-USD", "1s", candle(T0 + 1, 1));      // first segment is full
+        store.save("BTC-USD", "1s", candle(T0 + 201, 201));  // second has room
+        assertThat(store.candlesRejected()).isEqualTo(1);
+        assertThat(store.totalCandles()).isEqualTo(151);
+        assertThat(store.find("BTC-USD", "1s", (T0 + 1) * 1000)).isEmpty();
+        assertThat(store.query("BTC-USD", "1s", T0 + 198, T0 + 203)).extracting(Candle::volume)
+                .containsExactly(198L, 200L, 201L, 202L);
+    }
+
+    @Test
+    @DisplayName("clear deletes the segment files")
+    void clearDeletes() throws IOException {
+        CandleStore store = open(0, FsyncPolicy.ROLL);
+        for (int i = 0; i < 250; i++) store.save("BTC-USD", "1s", candle(T0 + i, i));
+        store.clear();
+        assertThat(segmentFiles()).isEmpty();
+        assertThat(open(0, FsyncPolicy.ROLL).totalCandles()).isZero();
+    }
+
+    @Test
+    @DisplayName("series names are encoded distinctly on case-insensitive file systems, and decoded back")
+    void nameEncoding() {
+        assertThat(SegmentConfig.encode("BTC-USD")).isEqualTo("BTC-USD");
+        assertThat(SegmentConfig.encode("1m")).isEqualTo("1_m");
+        assertThat(SegmentConfig.encode("1M")).isEqualTo("1M");
+        assertThat(SegmentConfig.encode("100ms")).isEqualTo("100_m_s");
+        assertThat(SegmentConfig.encode("../x.y")).isEqualTo("%2e%2e%2f_x%2e_y");
+        for (String name : List.of("BTC-USD", "1m", "1M", "../x.y", "eth/usdt", "€uro_1%")) {
+            assertThat(SegmentConfig.decode(SegmentConfig.encode(name))).isEqualTo(name);
+        }
+    }
+}
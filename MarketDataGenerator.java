@@ -1,6 +1,6 @@
 package com.candle.generator;
 
-import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
 import com.candle.service.AggregationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +23,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * <p>Price walks are seeded per-symbol with independent random states so each
  * symbol behaves independently. A spread of 0.1% of price is applied to generate
  * realistic bid/ask pairs.
+ *
+ * <p>Each round of ticks is written into a reusable columnar {@link TickBatch} keyed by interned
+ * symbol IDs and ingested in one call, so steady-state generation allocates nothing per tick.
  */
 @Component
 @ConditionalOnProperty(name = "candle.generator.enabled", havingValue = "true", matchIfMissing = true)
@@ -32,8 +35,11 @@ public class MarketDataGenerator {
 
     private final AggregationService aggregationService;
 
-    /** Current simulated mid-price per symbol */
-    private final Map<String, Double> prices;
+    /** Configured symbols, their interned IDs and current simulated mid-prices, index-aligned */
+    private final String[] symbols;
+    private final int[] symbolIds;
+    private final double[] prices;
+    private final TickBatch batch;
     private final Random random = new Random();
     private final AtomicLong eventCount = new AtomicLong(0);
 
@@ -50,12 +56,15 @@ public class MarketDataGenerator {
             @Value("${candle.generator.symbols:BTC-USD,ETH-USD}") List<String> symbols) {
         this.aggregationService = aggregationService;
 
-        // Initialize price map from configured symbols
-        this.prices = new java.util.concurrent.ConcurrentHashMap<>();
-        for (String symbol : symbols) {
-            double basePrice = BASE_PRICES.getOrDefault(symbol, 100.0);
-            prices.put(symbol, basePrice);
+        // Initialize prices from configured symbols
+        this.symbols = symbols.toArray(String[]::new);
+        this.symbolIds = new int[this.symbols.length];
+        this.prices = new double[this.symbols.length];
+        for (int i = 0; i < this.symbols.length; i++) {
+            symbolIds[i] = aggregationService.getSymbolRegistry().intern(this.symbols[i]);
+            prices[i] = BASE_PRICES.getOrDefault(this.symbols[i], 100.0);
         }
+        this.batch = new TickBatch(this.symbols.length);
 
         log.info("MarketDataGenerator initialized with symbols: {}", symbols);
     }
@@ -68,7 +77,10 @@ public class MarketDataGenerator {
     public void generate() {
         long now = System.currentTimeMillis();
 
-        prices.replaceAll((symbol, currentPrice) -> {
+        batch.clear();
+        for (int i = 0; i < symbols.length; i++) {
+            double currentPrice = prices[i];
+
             // Random walk: ±0.05% per tick
             double change = currentPrice * (random.nextGaussian() * 0.0005);
             double newMid = Math.max(currentPrice + change, 0.01);
@@ -78,17 +90,16 @@ public class MarketDataGenerator {
             double bid = newMid - spread / 2;
             double ask = newMid + spread / 2;
 
-            BidAskEvent event = new BidAskEvent(symbol, bid, ask, now);
-            aggregationService.ingest(event);
+            batch.add(symbolIds[i], bid, ask, now);
+            prices[i] = newMid;
 
             long count = eventCount.incrementAndGet();
             if (count % 500 == 0) {
                 log.info("Generated {} total events. Latest: symbol={} mid={}",
-                        count, symbol, String.format("%.2f", newMid));
+                        count, symbols[i], String.format("%.2f", newMid));
             }
-
-            return newMid;
-        });
+        }
+        aggregationService.ingestBatch(batch);
     }
 
     /**
@@ -0,0 +1,87 @@
+package com.candle.aggregator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.TickBatch;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Micro-batch pre-aggregation on bursty feeds: 4M ticks of one symbol at 1, 10, 100 or 1000 ticks per
+ * second, applied tick by tick (one row per {@link SymbolAggregators#processRows} call, so no run is
+ * longer than one tick) and as a whole batch (same-second runs folded into partial candles).
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Micro-batch pre-aggregation benchmark")
+class MicroBatchBenchmark {
+
+    private static final int TICKS = 4_000_000;
+    private static final long T0 = 1_700_000_000L;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("tick by tick vs micro-batched at 1, 10, 100 and 1000 ticks per second")
+    void bursts() {
+        TickBatch warmUp = feed(100);
+        for (int i = 0; i < 5; i++) {
+            run(warmUp, false, null);
+            run(warmUp, true, null);
+        }
+        for (int ticksPerSecond : new int[]{1, 10, 100, 1000}) {
+            TickBatch feed = feed(ticksPerSecond);
+            List<String> byTick = new ArrayList<>();
+            List<String> byRun = new ArrayList<>();
+            long tickNanos = run(feed, false, byTick);
+            long runNanos = run(feed, true, byRun);
+            System.out.printf("%4d ticks/s: tick by tick %,.1fM ticks/s | micro-batched %,.1fM ticks/s (%.1fx)%n",
+                    ticksPerSecond, TICKS / (tickNanos / 1e9) / 1e6, TICKS / (runNanos / 1e9) / 1e6,
+                    (double) tickNanos / runNanos);
+            assertThat(byRun).isEqualTo(byTick);
+        }
+    }
+
+    private static TickBatch feed(int ticksPerSecond) {
+        TickBatch batch = new TickBatch(TICKS);
+        for (int i = 0; i < TICKS; i++) {
+            double mid = 100.0 + (i % 97) * 0.01;
+            batch.add(0, mid - 0.005, mid + 0.005, T0 * 1000L + (long) i * 1000L / ticksPerSecond);
+        }
+        return batch;
+    }
+
+    /** @return elapsed nanos; completed 1h candles are added to {@code hours} if not null */
+    private static long run(TickBatch feed, boolean batched, List<String> hours) {
+        SymbolAggregators bundle = new SymbolAggregators(0, "BTC-USD",
+                (interval, time, open, high, low, close, volume) -> {
+                    if (hours != null && interval.getSeconds() == 3600) {
+                        hours.add(time + " " + open + " " + high + " " + low + " " + close + " " + volume);
+                    }
+                }, true);
+        int[] rows = new int[feed.size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+
+        long start = System.nanoTime();
+        if (batched) {
+            bundle.processRows(feed, rows, 0, rows.length);
+        } else {
+            for (int i = 0; i < rows.length; i++) bundle.processRows(feed, rows, i, i + 1);
+        }
+        long elapsed = System.nanoTime() - start;
+        bundle.forceFlush();
+        return elapsed;
+    }
+}
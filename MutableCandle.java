@@ -1,6 +1,7 @@
 package com.candle.aggregator;
 
 import com.candle.model.Candle;
+import com.candle.model.Interval;
 
 /**
  * Mutable accumulator for an in-progress candle.
@@ -8,17 +9,27 @@ import com.candle.model.Candle;
  * This class is NOT thread-safe by itself — callers must synchronize on a per-key basis.
  * Kept separate from the immutable {@link Candle} record to clearly separate
  * mutable aggregation state from the immutable domain model.
+ *
+ * <p>An aggregator owns a single instance for its whole life and {@link #reset resets} it on
+ * every bucket roll, so rolling over allocates nothing.
  */
 class MutableCandle {
 
-    private final long bucketTime;
+    /** Bucket start in Unix milliseconds. */
+    private long bucketTime;
     private double open;
     private double high;
     private double low;
     private double close;
     private long volume;
 
-    MutableCandle(long bucketTime, double firstPrice) {
+    MutableCandle() {
+    }
+
+    /**
+     * Start over as a new candle whose first tick is {@code firstPrice}.
+     */
+    void reset(long bucketTime, double firstPrice) {
         this.bucketTime = bucketTime;
         this.open = firstPrice;
         this.high = firstPrice;
@@ -27,6 +38,18 @@ class MutableCandle {
         this.volume = 1;
     }
 
+    /**
+     * Start over from the values of a completed candle of a finer interval.
+     */
+    void reset(long bucketTime, double open, double high, double low, double close, long volume) {
+        this.bucketTime = bucketTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
     /**
      * Incorporate a new price tick into this candle.
      */
@@ -37,14 +60,59 @@ class MutableCandle {
         volume++;
     }
 
+    /**
+     * Fold a completed candle of a finer interval, or a partial candle of consecutive ticks, into this one.
+     * Candles must be merged in time order: open is kept, close is taken from the newer candle,
+     * so the finer candle's open is not needed.
+     */
+    void merge(double high, double low, double close, long volume) {
+        if (high > this.high) this.high = high;
+        if (low < this.low) this.low = low;
+        this.close = close;
+        this.volume += volume;
+    }
+
+    /**
+     * Incorporate a late tick: extends high and low and counts it, but leaves open and close to the
+     * ticks that arrived in order.
+     */
+    void patch(double price) {
+        if (price > high) high = price;
+        if (price < low) low = price;
+        volume++;
+    }
+
+    /**
+     * Copy the current values into {@code target}, e.g. to keep a closed candle for late ticks.
+     */
+    void copyTo(MutableCandle target) {
+        target.reset(bucketTime, open, high, low, close, volume);
+    }
+
     long getBucketTime() {
         return bucketTime;
     }
 
+    /**
+     * Hand the current values to a listener without allocating.
+     */
+    void emit(Interval interval, CandleListener listener) {
+        listener.onCandle(interval, bucketTime, open, high, low, close, volume);
+    }
+
+    /**
+     * Fold the current values into a coarser aggregator without allocating.
+     *
+     * @param carriedVolume Part of the volume the coarser aggregator already holds, left out of the merge
+     */
+    void mergeInto(CandleAggregator rollUp, long carriedVolume) {
+        rollUp.merge(bucketTime, open, high, low, close, volume - carriedVolume);
+    }
+
     /**
      * Produce an immutable snapshot of the current state.
      */
     Candle snapshot() {
-        return new Candle(bucketTime, open, high, low, close, volume);
+        return Candle.atMillis(bucketTime, open, high, low, close, volume);
     }
 }
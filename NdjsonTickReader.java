@@ -0,0 +1,141 @@
+package com.candle.controller;
+
+import com.candle.event.TickBatch;
+import com.candle.ingest.IngestResult;
+import com.candle.service.AggregationService;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Incremental reader for a stream of newline-delimited JSON ticks, one object per line:
+ *
+ * <pre>
+ * {"symbol":"BTC-USD","bid":64999.5,"ask":65000.5,"timestamp":1700000000000}
+ * </pre>
+ *
+ * <p>Lines are cut out of a reusable byte buffer and tokenized with a Jackson streaming
+ * {@link JsonParser} — no databind, no {@code BidAskEvent} — straight into a {@link TickBatch}.
+ * The batch is ingested when it fills up and whenever the stream has no more bytes buffered, so a
+ * slow producer's ticks are not held back waiting for a full batch.
+ *
+ * <p>A line that is not a JSON object with a string {@code symbol} and numeric {@code bid},
+ * {@code ask} and {@code timestamp} (epoch ms) counts as rejected, as do lines longer than
+ * {@value #MAX_LINE_BYTES} bytes; the rest of the stream is still read. Unknown fields are ignored.
+ * Blank lines are skipped. Not thread-safe: one reader per request.
+ */
+final class NdjsonTickReader {
+
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final AggregationService aggregationService;
+    private final TickBatch batch;
+    private final byte[] buffer = new byte[MAX_LINE_BYTES];
+
+    private IngestResult result = IngestResult.EMPTY;
+    private int malformed;
+
+    NdjsonTickReader(AggregationService aggregationService, int batchSize) {
+        this.aggregationService = aggregationService;
+        this.batch = new TickBatch(batchSize);
+    }
+
+    /**
+     * Read and ingest {@code in} until it ends.
+     *
+     * @return ticks accepted and rejected, malformed lines included
+     */
+    IngestResult read(InputStream in) throws IOException {
+        int start = 0;
+        int end = 0;
+        boolean skippingLongLine = false;
+        while (true) {
+            if (batch.size() > 0 && in.available() == 0) flush(); // the next read may block
+            if (end == buffer.length) {
+                if (start == 0) {
+                    // No newline in a full buffer: reject the line and drop bytes until its end
+                    if (!skippingLongLine) malformed++;
+                    skippingLongLine = true;
+                    end = 0;
+                } else {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+            }
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) break;
+            for (int i = end, limit = end + read; i < limit; i++) {
+                if (buffer[i] != '\n') continue;
+                if (skippingLongLine) {
+                    skippingLongLine = false;
+                } else {
+                    parseLine(start, i);
+                }
+                start = i + 1;
+            }
+            end += read;
+        }
+        if (!skippingLongLine && start < end) parseLine(start, end); // last line without a newline
+        flush();
+        return result.plus(new IngestResult(0, malformed));
+    }
+
+    private void parseLine(int from, int to) throws IOException {
+        while (from < to && isWhitespace(buffer[from])) from++;
+        while (to > from && isWhitespace(buffer[to - 1])) to--;
+        if (from == to) return;
+
+        String symbol = null;
+        double bid = Double.NaN;
+        double ask = Double.NaN;
+        long timestampMs = -1;
+        try (JsonParser parser = JSON.createParser(buffer, from, to - from)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                malformed++;
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "symbol" -> symbol = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "bid" -> bid = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    case "ask" -> ask = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    case "timestamp" -> timestampMs = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : -1;
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                malformed++;
+                return;
+            }
+        } catch (JacksonException e) {
+            malformed++;
+            return;
+        }
+        if (symbol == null || symbol.isBlank()) {
+            malformed++;
+            return;
+        }
+        // Out-of-range prices and timestamps are rejected by TickBatch.isValid at ingest
+        batch.add(aggregationService.getSymbolRegistry().intern(symbol), bid, ask, timestampMs);
+        if (batch.isFull()) flush();
+    }
+
+    private void flush() {
+        if (batch.size() == 0) return;
+        result = result.plus(aggregationService.ingestBatch(batch));
+        batch.clear();
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
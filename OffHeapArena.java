@@ -0,0 +1,96 @@
+package com.candle.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The native memory behind {@link StoreBackend#OFF_HEAP off-heap} series: direct-buffer slabs of up to
+ * {@value #CHUNKS_PER_SLAB} chunks, each chunk holding {@value #CHUNK_ROWS} fixed-width candle rows.
+ *
+ * <p>Series take chunks one at a time and never give them back. Slabs are reserved lazily and never exceed
+ * the byte budget; once it is spent, {@link #allocateChunk} throws {@link CandleRejectedException}. All
+ * memory is released together by {@link #reset}: the slabs are dropped, and the JDK frees their native
+ * memory once the last chunk sliced from them is unreachable.
+ */
+final class OffHeapArena {
+
+    /** Bytes per candle row: start time, open, high, low, close, volume. */
+    static final int ROW_BYTES = 48;
+    static final int TIME = 0;
+    static final int OPEN = 8;
+    static final int HIGH = 16;
+    static final int LOW = 24;
+    static final int CLOSE = 32;
+    static final int VOLUME = 40;
+
+    static final int CHUNK_SHIFT = 8;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    static final int CHUNK_BYTES = CHUNK_ROWS * ROW_BYTES;
+    private static final int CHUNKS_PER_SLAB = 256;
+
+    private final long budgetBytes;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private ByteBuffer slab;
+    private int nextChunk;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param budgetBytes Most native memory to reserve; at least one chunk
+     */
+    OffHeapArena(long budgetBytes) {
+        if (budgetBytes < CHUNK_BYTES) {
+            throw new IllegalArgumentException("Off-heap budget must hold at least one chunk of " + CHUNK_BYTES + " bytes");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * A zeroed chunk of {@value #CHUNK_BYTES} bytes in native byte order.
+     *
+     * @throws CandleRejectedException if the budget cannot fit another chunk
+     */
+    synchronized ByteBuffer allocateChunk() {
+        if (slab == null || nextChunk * CHUNK_BYTES == slab.capacity()) {
+            long chunksLeft = (budgetBytes - reservedBytes.get()) / CHUNK_BYTES;
+            if (chunksLeft == 0) {
+                throw new CandleRejectedException("Off-heap candle store budget of " + budgetBytes + " bytes is exhausted");
+            }
+            slab = ByteBuffer.allocateDirect((int) Math.min(CHUNKS_PER_SLAB, chunksLeft) * CHUNK_BYTES);
+            slabs.add(slab);
+            nextChunk = 0;
+            reservedBytes.addAndGet(slab.capacity());
+        }
+        ByteBuffer chunk = slab.slice(nextChunk++ * CHUNK_BYTES, CHUNK_BYTES).order(ByteOrder.nativeOrder());
+        usedBytes.addAndGet(CHUNK_BYTES);
+        return chunk;
+    }
+
+    /**
+     * Release every chunk. Series holding chunks must be dropped first.
+     */
+    synchronized void reset() {
+        slabs.clear();
+        slab = null;
+        nextChunk = 0;
+        reservedBytes.set(0);
+        usedBytes.set(0);
+    }
+
+    long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /** Native memory reserved in slabs. */
+    long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /** Native memory handed out to series as chunks. */
+    long usedBytes() {
+        return usedBytes.get();
+    }
+}
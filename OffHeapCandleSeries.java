@@ -0,0 +1,174 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.candle.store.OffHeapArena.CHUNK_ROWS;
+import static com.candle.store.OffHeapArena.CHUNK_SHIFT;
+import static com.candle.store.OffHeapArena.CLOSE;
+import static com.candle.store.OffHeapArena.HIGH;
+import static com.candle.store.OffHeapArena.LOW;
+import static com.candle.store.OffHeapArena.OPEN;
+import static com.candle.store.OffHeapArena.ROW_BYTES;
+import static com.candle.store.OffHeapArena.TIME;
+import static com.candle.store.OffHeapArena.VOLUME;
+
+/**
+ * The {@link StoreBackend#OFF_HEAP off-heap} series: candles held as fixed-width 48-byte rows in chunks of
+ * native memory from an {@link OffHeapArena}, ordered by bucket start.
+ *
+ * <p>The heap holds only the index: one chunk reference and the chunk's first bucket start per
+ * {@value OffHeapArena#CHUNK_ROWS} candles. A lookup binary-searches that index for the chunk, then the rows
+ * of the chunk in native memory. A range is read field by field straight from the rows into the
+ * {@link CandleColumns} it returns, with no {@link Candle} in between.
+ *
+ * <p>As with {@link HeapCandleSeries}, a save is nearly always an append; inserting before the last bucket
+ * shifts the rows after it. A read-write lock guards each series: saves to one series are serialized, reads of
+ * it share the lock.
+ */
+final class OffHeapCandleSeries implements CandleSeries {
+
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    private final OffHeapArena arena;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    /** Bucket start of row 0 of each chunk. */
+    private long[] firstTimes = new long[4];
+    private int chunkCount;
+    private int size;
+
+    OffHeapCandleSeries(OffHeapArena arena) {
+        this.arena = arena;
+    }
+
+    @Override
+    public boolean put(Candle candle) {
+        long time = candle.timeMillis();
+        lock.writeLock().lock();
+        try {
+            int row = size == 0 || time > timeAt(size - 1) ? size : lowerBound(time);
+            if (row < size && timeAt(row) == time) {
+                write(row, candle);
+                return false;
+            }
+            if (size == chunkCount * CHUNK_ROWS) addChunk();
+            for (int i = size; i > row; i--) move(i - 1, i);
+            write(row, candle);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Candle get(long bucketTime) {
+        lock.readLock().lock();
+        try {
+            int row = lowerBound(bucketTime);
+            if (row == size || timeAt(row) != bucketTime) return null;
+            ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+            int at = (row & CHUNK_MASK) * ROW_BYTES;
+            return Candle.atMillis(chunk.getLong(at + TIME), chunk.getDouble(at + OPEN), chunk.getDouble(at + HIGH),
+                    chunk.getDouble(at + LOW), chunk.getDouble(at + CLOSE), chunk.getLong(at + VOLUME));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CandleColumns range(long fromMs, long toMs) {
+        if (fromMs > toMs) return CandleColumns.empty();
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromMs);
+            int to = toMs == Long.MAX_VALUE ? size : lowerBound(toMs + 1);
+            int n = to - from;
+            if (n <= 0) return CandleColumns.empty();
+            long[] times = new long[n];
+            double[] opens = new double[n];
+            double[] highs = new double[n];
+            double[] lows = new double[n];
+            double[] closes = new double[n];
+            long[] volumes = new long[n];
+            for (int i = 0; i < n; i++) {
+                int row = from + i;
+                ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+                int at = (row & CHUNK_MASK) * ROW_BYTES;
+                times[i] = chunk.getLong(at + TIME);
+                opens[i] = chunk.getDouble(at + OPEN);
+                highs[i] = chunk.getDouble(at + HIGH);
+                lows[i] = chunk.getDouble(at + LOW);
+                closes[i] = chunk.getDouble(at + CLOSE);
+                volumes[i] = chunk.getLong(at + VOLUME);
+            }
+            return new CandleColumns(times, opens, highs, lows, closes, volumes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** First row whose bucket starts at or after {@code time}, or {@link #size} if none does. */
+    private int lowerBound(long time) {
+        // Last chunk starting before time: the first row at or after time is in it, or starts the next one
+        int lo = 0;
+        int hi = chunkCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firstTimes[mid] < time) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == 0) return 0;
+        int chunk = lo - 1;
+        int base = chunk << CHUNK_SHIFT;
+        int rowLo = 1;
+        int rowHi = Math.min(CHUNK_ROWS, size - base);
+        while (rowLo < rowHi) {
+            int mid = (rowLo + rowHi) >>> 1;
+            if (chunks[chunk].getLong(mid * ROW_BYTES + TIME) < time) rowLo = mid + 1;
+            else rowHi = mid;
+        }
+        return base + rowLo;
+    }
+
+    private long timeAt(int row) {
+        return chunks[row >>> CHUNK_SHIFT].getLong((row & CHUNK_MASK) * ROW_BYTES + TIME);
+    }
+
+    private void write(int row, Candle candle) {
+        ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+        int at = (row & CHUNK_MASK) * ROW_BYTES;
+        chunk.putLong(at + TIME, candle.timeMillis());
+        chunk.putDouble(at + OPEN, candle.open());
+        chunk.putDouble(at + HIGH, candle.high());
+        chunk.putDouble(at + LOW, candle.low());
+        chunk.putDouble(at + CLOSE, candle.close());
+        chunk.putLong(at + VOLUME, candle.volume());
+        if ((row & CHUNK_MASK) == 0) firstTimes[row >>> CHUNK_SHIFT] = candle.timeMillis();
+    }
+
+    private void move(int from, int to) {
+        ByteBuffer source = chunks[from >>> CHUNK_SHIFT];
+        ByteBuffer target = chunks[to >>> CHUNK_SHIFT];
+        int sourceAt = (from & CHUNK_MASK) * ROW_BYTES;
+        int targetAt = (to & CHUNK_MASK) * ROW_BYTES;
+        for (int field = 0; field < ROW_BYTES; field += Long.BYTES) {
+            target.putLong(targetAt + field, source.getLong(sourceAt + field));
+        }
+        if ((to & CHUNK_MASK) == 0) firstTimes[to >>> CHUNK_SHIFT] = source.getLong(sourceAt + TIME);
+    }
+
+    private void addChunk() {
+        ByteBuffer chunk = arena.allocateChunk();
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            firstTimes = Arrays.copyOf(firstTimes, chunkCount * 2);
+        }
+        chunks[chunkCount++] = chunk;
+    }
+}
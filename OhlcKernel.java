@@ -0,0 +1,95 @@
+package com.candle.aggregator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batch kernel behind {@link CandleAggregator#processRows}: folds a run of columnar ticks that fall
+ * into one bucket — mid-prices from the bid and ask columns, reduced to their extremes — in one pass.
+ *
+ * <p>Two implementations exist. {@link VectorOhlcKernel} uses the incubating Vector API
+ * ({@code jdk.incubator.vector}) and is selected when that module is resolved, i.e. the JVM was started
+ * with {@code --add-modules jdk.incubator.vector}. Otherwise the {@link Scalar} kernel is used. Both
+ * return exactly the values of a per-tick {@link MutableCandle#update} loop.
+ */
+public abstract class OhlcKernel {
+
+    private static final Logger log = LoggerFactory.getLogger(OhlcKernel.class);
+
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final OhlcKernel INSTANCE = select();
+
+    OhlcKernel() {
+    }
+
+    /**
+     * The kernel used by every aggregator of this JVM.
+     */
+    public static OhlcKernel get() {
+        return INSTANCE;
+    }
+
+    /**
+     * The Vector API kernel if {@value #VECTOR_MODULE} is resolved, otherwise the scalar one.
+     */
+    static OhlcKernel select() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (OhlcKernel) Class.forName("com.candle.aggregator.VectorOhlcKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API kernel unavailable, using the scalar one", e);
+            }
+        }
+        return new Scalar();
+    }
+
+    /**
+     * Short description for logs, e.g. {@code "scalar"} or {@code "vector (4 x double)"}.
+     */
+    public abstract String name();
+
+    /**
+     * Fold the rows {@code rows[from]}, {@code rows[from + 1]}, … while their timestamps lie in
+     * {@code [startMs, endMs)}.
+     *
+     * @param extremes Receives the highest ({@code [0]}) and lowest ({@code [1]}) mid-price of the run;
+     *                 left untouched if the run is empty
+     * @return end (exclusive) of the run: the first index whose row lies outside the range, or {@code to}
+     */
+    abstract int foldRun(long[] timestampMs, double[] bid, double[] ask, int[] rows, int from, int to,
+                         long startMs, long endMs, double[] extremes);
+
+    /**
+     * Reference kernel: one row at a time, as {@link MutableCandle#update} would see them.
+     */
+    static final class Scalar extends OhlcKernel {
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+
+        @Override
+        int foldRun(long[] timestampMs, double[] bid, double[] ask, int[] rows, int from, int to,
+                    long startMs, long endMs, double[] extremes) {
+            double high = Double.NEGATIVE_INFINITY;
+            double low = Double.POSITIVE_INFINITY;
+            int i = from;
+            for (; i < to; i++) {
+                int row = rows[i];
+                long ts = timestampMs[row];
+                if (ts < startMs || ts >= endMs) break;
+                double mid = (bid[row] + ask[row]) / 2.0;
+                if (mid > high) high = mid;
+                if (mid < low) low = mid;
+            }
+            if (i > from) {
+                extremes[0] = high;
+                extremes[1] = low;
+            }
+            return i;
+        }
+    }
+}
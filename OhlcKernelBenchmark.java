@@ -0,0 +1,111 @@
+package com.candle.aggregator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Folding an 8192-row batch of columnar ticks, 500 times over, into per-second runs of 10, 100 or
+ * 1000 ticks: a per-tick
+ * {@link MutableCandle#update} loop, the scalar {@link OhlcKernel} and the selected kernel — the
+ * Vector API one under {@code -Pbenchmark}, which resolves {@code jdk.incubator.vector}. The rows are
+ * either all consecutive (a batch of one symbol) or skip every tenth row, as
+ * {@link com.candle.event.TickBatch#groupedRows()} does for a second symbol.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("OHLC kernel benchmark")
+class OhlcKernelBenchmark {
+
+    private static final int TICKS = 8192;
+    private static final int PASSES = 500;
+    private static final long T0_MS = 1_700_000_000_000L;
+    private static final int ROUNDS = 20;
+
+    private static long sink;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("update loop vs scalar kernel vs selected kernel at 10, 100 and 1000 ticks per second")
+    void kernels() {
+        OhlcKernel scalar = new OhlcKernel.Scalar();
+        OhlcKernel selected = OhlcKernel.get();
+        System.out.println("selected kernel: " + selected.name());
+        for (int ticksPerSecond : new int[]{10, 100, 1000}) {
+            long[] timestampMs = new long[TICKS];
+            double[] bid = new double[TICKS];
+            double[] ask = new double[TICKS];
+            for (int i = 0; i < TICKS; i++) {
+                timestampMs[i] = T0_MS + (long) i * 1000L / ticksPerSecond;
+                bid[i] = 100.0 + (i % 97) * 0.01;
+                ask[i] = bid[i] + 0.01;
+            }
+            for (boolean interleaved : new boolean[]{false, true}) {
+                int[] rows = new int[interleaved ? TICKS - TICKS / 10 : TICKS];
+                for (int i = 0, row = 0; row < TICKS; row++) {
+                    if (!interleaved || row % 10 != 9) rows[i++] = row;
+                }
+                long updateNanos = Long.MAX_VALUE;
+                long scalarNanos = Long.MAX_VALUE;
+                long selectedNanos = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    updateNanos = Math.min(updateNanos, updateLoop(timestampMs, bid, ask, rows));
+                    scalarNanos = Math.min(scalarNanos, kernel(scalar, timestampMs, bid, ask, rows));
+                    selectedNanos = Math.min(selectedNanos, kernel(selected, timestampMs, bid, ask, rows));
+                }
+                System.out.printf("%4d ticks/s, %s rows: update loop %.2f ns/tick | scalar kernel %.2f ns/tick | %s %.2f ns/tick%n",
+                        ticksPerSecond, interleaved ? "interleaved" : "consecutive",
+                        (double) updateNanos / PASSES / rows.length, (double) scalarNanos / PASSES / rows.length,
+                        selected.name(), (double) selectedNanos / PASSES / rows.length);
+            }
+        }
+        assertThat(sink).isNotZero();
+    }
+
+    /** Per-tick reference: one {@link MutableCandle} update per row, reset at every second. */
+    private static long updateLoop(long[] timestampMs, double[] bid, double[] ask, int[] rows) {
+        MutableCandle candle = new MutableCandle();
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            long second = Long.MIN_VALUE;
+            for (int row : rows) {
+                double mid = (bid[row] + ask[row]) / 2.0;
+                long ts = timestampMs[row] / 1000L;
+                if (ts != second) {
+                    second = ts;
+                    candle.reset(ts, mid);
+                } else {
+                    candle.update(mid);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += candle.getBucketTime();
+        return elapsed;
+    }
+
+    private static long kernel(OhlcKernel kernel, long[] timestampMs, double[] bid, double[] ask, int[] rows) {
+        double[] extremes = new double[2];
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < rows.length; ) {
+                long startMs = timestampMs[rows[i]] / 1000L * 1000L;
+                i = kernel.foldRun(timestampMs, bid, ask, rows, i, rows.length, startMs, startMs + 1000L, extremes);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += (long) extremes[0];
+        return elapsed;
+    }
+}
@@ -0,0 +1,87 @@
+package com.candle.aggregator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs under the default surefire execution (scalar kernel) and again under the {@code vector-kernel}
+ * execution, where {@code jdk.incubator.vector} is resolved and {@link OhlcKernel#get()} is the Vector API one.
+ */
+@DisplayName("OhlcKernel")
+class OhlcKernelTest {
+
+    private static final long T0_MS = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("The Vector API kernel is selected exactly when its module is resolved")
+    void selectsByModule() {
+        boolean resolved = ModuleLayer.boot().findModule(OhlcKernel.VECTOR_MODULE).isPresent();
+        assertThat(OhlcKernel.get().name()).startsWith(resolved ? "vector" : "scalar");
+    }
+
+    @ParameterizedTest(name = "interleaved rows: {0}")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Runs end at the first row outside the bucket, with the extremes of a per-tick update loop")
+    void foldsRunsLikeTickUpdates(boolean interleaved) {
+        Random random = new Random(7);
+        int n = 5_000;
+        long[] timestampMs = new long[n];
+        double[] bid = new double[n];
+        double[] ask = new double[n];
+        long ms = T0_MS;
+        for (int row = 0; row < n; row++) {
+            ms += random.nextInt(40) == 0 ? 1000 : random.nextInt(3); // runs of a few to hundreds of rows
+            timestampMs[row] = random.nextInt(60) == 0 ? ms - 1000 : ms; // an occasional late row splits a run
+            bid[row] = 100.0 + random.nextInt(1000) / 100.0;
+            ask[row] = bid[row] + random.nextInt(5) / 100.0;
+        }
+        // Rows of one symbol as TickBatch#groupedRows() lists them: ascending, with gaps if other symbols are interleaved
+        int[] rows = new int[n];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            if (!interleaved || random.nextInt(10) != 0) rows[count++] = row;
+        }
+
+        OhlcKernel kernel = OhlcKernel.get();
+        double[] extremes = new double[2];
+        int runs = 0;
+        for (int i = 0; i < count; runs++) {
+            long startMs = timestampMs[rows[i]] / 1000L * 1000L;
+            int end = kernel.foldRun(timestampMs, bid, ask, rows, i, count, startMs, startMs + 1000, extremes);
+
+            MutableCandle expected = new MutableCandle();
+            expected.reset(startMs / 1000L, mid(bid, ask, rows[i]));
+            int expectedEnd = i + 1;
+            while (expectedEnd < count && timestampMs[rows[expectedEnd]] / 1000L == startMs / 1000L) {
+                expected.update(mid(bid, ask, rows[expectedEnd++]));
+            }
+            assertThat(end).isEqualTo(expectedEnd);
+            assertThat(extremes[0]).isEqualTo(expected.snapshot().high());
+            assertThat(extremes[1]).isEqualTo(expected.snapshot().low());
+            i = end;
+        }
+        assertThat(runs).isGreaterThan(100);
+    }
+
+    @Test
+    @DisplayName("An empty run leaves the extremes untouched")
+    void emptyRun() {
+        long[] timestampMs = {T0_MS + 1000, T0_MS + 1000};
+        double[] prices = {100.0, 101.0};
+        double[] extremes = {-1.0, -1.0};
+
+        assertThat(OhlcKernel.get().foldRun(timestampMs, prices, prices, new int[]{0, 1}, 0, 2, T0_MS, T0_MS + 1000,
+                extremes)).isZero();
+        assertThat(extremes).containsExactly(-1.0, -1.0);
+    }
+
+    private static double mid(double[] bid, double[] ask, int row) {
+        return (bid[row] + ask[row]) / 2.0;
+    }
+}
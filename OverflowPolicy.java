@@ -0,0 +1,44 @@
+package com.candle.ingest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * What a {@link ShardedIngestEngine} does with a tick published to a shard whose ring is full.
+ *
+ * <ul>
+ *   <li>{@link #BLOCK} (default) — the producer waits for a free slot. Nothing is lost, but a burst
+ *       slows every producer down to the aggregation rate.</li>
+ *   <li>{@link #DROP_OLDEST} — the producer discards the oldest queued slot of ticks or events, counted as
+ *       dropped, and takes the slot it frees: one slot shed per slot missing, and no waiting for the
+ *       worker unless the oldest slot holds something other than ticks.</li>
+ *   <li>{@link #CONFLATE} — the producer folds the tick into a per-symbol, per-slot partial candle
+ *       (open, high, low, close, tick count) and moves on; the worker merges the partial candles
+ *       once it has caught up with the ring. Candles come out the same, except that conflated ticks
+ *       arriving late are dropped instead of patched.</li>
+ * </ul>
+ *
+ * <p>{@link #CONFLATE} applies to ticks ({@link ShardedIngestEngine#publishTick} and
+ * {@link ShardedIngestEngine#publishTicks}); event objects, event lists and tasks wait, and the partial
+ * candles pending when they are queued are applied ahead of them. {@link #DROP_OLDEST} sheds and admits
+ * events and event lists too. Tasks are never shed and always wait.
+ */
+public enum OverflowPolicy {
+
+    BLOCK,
+    DROP_OLDEST,
+    CONFLATE;
+
+    /**
+     * Parse a configuration value such as {@code "block"}, {@code "drop-oldest"} or {@code "conflate"}
+     * (case-insensitive).
+     */
+    public static OverflowPolicy fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported overflow policy: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.candle.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.BidAskEvent;
+import com.candle.gateway.LatencyHistogram;
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.OverflowPolicy;
+import com.candle.model.Candle;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A feed burst against a shard whose store is slow: one producer ingests 20 ticks per event-second
+ * for 4 symbols as fast as it can, while every saved candle costs the worker 20µs. Reports, per
+ * {@link OverflowPolicy}, the producer's rate and tail {@code ingest} latency, and how many ticks
+ * were dropped or conflated.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Overflow policy benchmark")
+class OverflowPolicyBenchmark {
+
+    private static final String[] SYMBOLS = {"BTC-USD", "ETH-USD", "SOL-USD", "BNB-USD"};
+    private static final int TICKS = 1_000_000;
+    private static final long SAVE_NANOS = 20_000;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("producer rate and ingest latency under a burst, per overflow policy")
+    void burstPerPolicy() {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            run(policy); // warm-up
+            run(policy);
+        }
+    }
+
+    private void run(OverflowPolicy policy) {
+        CandleStore store = new CandleStore() {
+            @Override
+            public void save(String symbol, String interval, Candle candle) {
+                LockSupport.parkNanos(SAVE_NANOS);
+                super.save(symbol, interval, candle);
+            }
+        };
+        AggregationService service = new AggregationService(store, AggregationConfig.builder()
+                .mode(IngestMode.SHARDED).shards(1).queueCapacity(4_096).reorderWindowSeconds(0)
+                .overflowPolicy(policy).idleEvictSeconds(0).build());
+        LatencyHistogram latency = new LatencyHistogram();
+        long timestampMs = 1_700_000_040_000L;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            double mid = 100.0 + (i % 50) * 0.1;
+            BidAskEvent tick = new BidAskEvent(SYMBOLS[i % SYMBOLS.length], mid - 0.05, mid + 0.05, timestampMs + i * 50L);
+            long before = System.nanoTime();
+            service.ingest(tick);
+            latency.record(System.nanoTime() - before);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        service.shutdown();
+
+        long ticks1s = 0;
+        for (String symbol : SYMBOLS) {
+            ticks1s += store.query(symbol, "1s", 0, Long.MAX_VALUE).stream().mapToLong(Candle::volume).sum();
+        }
+        System.out.printf("%-11s producer %,.2fM ticks/s | ingest p99.9=%,d us p99.99=%,d us max=%,d us | dropped=%,d conflated=%,d aggregated=%,d%n",
+                policy, TICKS / seconds / 1e6, latency.percentile(99.9) / 1_000, latency.percentile(99.99) / 1_000,
+                latency.percentile(100) / 1_000,
+                service.ticksDropped(), service.ticksConflated(), ticks1s);
+        assertThat(ticks1s + service.ticksDropped()).isEqualTo(TICKS);
+    }
+}
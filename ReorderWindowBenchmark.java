@@ -0,0 +1,95 @@
+package com.candle.aggregator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.TickBatch;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of the reorder window on a disordered feed: 10 ticks per second, with 1%, 5% or 20% of ticks
+ * delayed by up to 2 seconds, aggregated with no window (late ticks dropped) and a 2s window
+ * (late ticks patched into closed candles).
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Reorder window benchmark")
+class ReorderWindowBenchmark {
+
+    private static final int TICKS = 2_000_000;
+    private static final int TICKS_PER_SECOND = 10;
+    private static final int MAX_DELAY_TICKS = 20;
+    private static final long T0 = 1_700_000_000L;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("drop vs patch at 1%, 5% and 20% disorder")
+    void disorder() {
+        TickBatch warmUp = feed(0.05);
+        for (int i = 0; i < 5; i++) {
+            run(warmUp, 0);
+            run(warmUp, 2);
+        }
+        for (double disorder : new double[]{0.0, 0.01, 0.05, 0.20}) {
+            TickBatch feed = feed(disorder);
+            long[] dropped = run(feed, 0);
+            long[] patched = run(feed, 2);
+            System.out.printf("disorder %2.0f%%: no window %,.1fM ticks/s (dropped %,d) | 2s window %,.1fM ticks/s (patched %,d, dropped %,d)%n",
+                    disorder * 100, TICKS / (dropped[0] / 1e9) / 1e6, dropped[2],
+                    TICKS / (patched[0] / 1e9) / 1e6, patched[1], patched[2]);
+            assertThat(patched[2]).isLessThanOrEqualTo(dropped[2]);
+        }
+    }
+
+    /**
+     * An in-order feed in which a {@code disorder} fraction of ticks is moved up to
+     * {@link #MAX_DELAY_TICKS} positions later.
+     */
+    private static TickBatch feed(double disorder) {
+        long[] timestampMs = new long[TICKS];
+        for (int i = 0; i < TICKS; i++) {
+            timestampMs[i] = T0 * 1000L + (long) i * 1000L / TICKS_PER_SECOND;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < TICKS - MAX_DELAY_TICKS; i++) {
+            if (random.nextDouble() < disorder) {
+                int delay = 1 + random.nextInt(MAX_DELAY_TICKS);
+                long late = timestampMs[i];
+                System.arraycopy(timestampMs, i + 1, timestampMs, i, delay);
+                timestampMs[i + delay] = late;
+            }
+        }
+        TickBatch batch = new TickBatch(TICKS);
+        for (int i = 0; i < TICKS; i++) {
+            double mid = 100.0 + (i % 97) * 0.01;
+            batch.add(0, mid - 0.005, mid + 0.005, timestampMs[i]);
+        }
+        return batch;
+    }
+
+    /** @return elapsed nanos, late ticks patched, late ticks dropped */
+    private static long[] run(TickBatch feed, long windowSeconds) {
+        SymbolAggregators bundle = new SymbolAggregators(0, "BTC-USD",
+                (interval, time, open, high, low, close, volume) -> { }, true);
+        bundle.setReorderWindow(windowSeconds);
+        int[] rows = new int[feed.size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+
+        long start = System.nanoTime();
+        bundle.processRows(feed, rows, 0, rows.length);
+        long elapsed = System.nanoTime() - start;
+        return new long[]{elapsed, bundle.latePatched(), bundle.lateDropped()};
+    }
+}
@@ -0,0 +1,65 @@
+package com.candle.store;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Where and how the {@link StoreBackend#MAPPED mapped} store writes segment files.
+ *
+ * <p>Each series has its own directory, {@code dir/<symbol>/<interval>}, holding segments named by a sequence
+ * number ({@code 00000000000000000001.seg}, …). Names are encoded so that they are safe and distinct on any
+ * file system, including case-insensitive ones: upper-case letters, digits and {@code -} are kept, a lower-case
+ * letter is written as {@code _} and the letter, and any other byte of its UTF-8 form as {@code %} and two hex
+ * digits. {@code BTC-USD/1m} is thus stored under {@code BTC-USD/1_m}, and {@code 1M} under {@code 1M}.
+ *
+ * @param dir           Root directory of all series
+ * @param segmentBytes  Size of a segment file, header included; a segment rolls when full
+ * @param segmentMillis Span of bucket time after which a segment rolls (0 rolls on size only)
+ * @param fsync         When written candles are forced to disk
+ */
+record SegmentConfig(Path dir, int segmentBytes, long segmentMillis, FsyncPolicy fsync) {
+
+    SegmentConfig {
+        if (segmentBytes < SegmentFile.HEADER_BYTES + 2 * SegmentFile.RECORD_BYTES) {
+            throw new IllegalArgumentException("Segment size must hold at least two candles: " + segmentBytes + " bytes");
+        }
+        if (segmentMillis < 0) throw new IllegalArgumentException("Segment span must not be negative");
+    }
+
+    Path seriesDir(String symbol, String interval) {
+        return dir.resolve(encode(symbol)).resolve(encode(interval));
+    }
+
+    static String encode(String name) {
+        StringBuilder out = new StringBuilder();
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if (c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-') out.append(c);
+            else if (c >= 'a' && c <= 'z') out.append('_').append(c);
+            else out.append('%').append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+        }
+        return out.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code encoded} is not the output of {@link #encode}
+     */
+    static String decode(String encoded) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '_' && i + 1 < encoded.length()) {
+                out.write(encoded.charAt(++i));
+            } else if (c == '%' && i + 2 < encoded.length()) {
+                out.write(Integer.parseInt(encoded, i + 1, i + 3, 16));
+                i += 2;
+            } else if (c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-') {
+                out.write(c);
+            } else {
+                throw new IllegalArgumentException("Not an encoded series name: " + encoded);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
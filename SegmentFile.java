@@ -0,0 +1,296 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped segment file of a {@link MappedCandleSeries}: a 64-byte header followed by fixed-width
+ * 64-byte candle records in ascending bucket order, little-endian.
+ *
+ * <pre>
+ * header  0 magic "CANDLSEG"  8 format version  12 record bytes  16 verified records  24 shifting from  32..63 zero
+ * record  0 start (ms)  8 open  16 high  24 low  32 close  40 volume  48 CRC32C of bytes 0..47  52..63 zero
+ * </pre>
+ *
+ * <p>The whole file is mapped once, when it is created or opened, and records are read and written in place
+ * through the mapping; a record never spans two pages. The header's verified count is the number of leading
+ * records that were forced to disk and not rewritten since, and it is lowered (and forced) before any of
+ * them is rewritten. Opening a segment trusts those records and checks only the ones after them: each must
+ * match its CRC and start after the one before. The first that does not ends the segment — a torn write or
+ * a tail cut short by a crash — and it and any stale records after it are zeroed, so that a later append
+ * cannot bring them back.
+ *
+ * <p>An insert shifts the records after it up one at a time, from the last down. Before it starts, the header
+ * notes the row it shifts from (plus one, so that zero means none) and is forced. A crash partway through
+ * leaves one record, torn or a copy of the one before, between two intact runs. The second run holds the
+ * records already shifted. On opening, a segment whose header notes a shift closes that gap by moving the
+ * second run down over it. Only the candle being inserted is lost. A crash while the gap is being closed
+ * leaves the same pattern one record further on.
+ *
+ * <p>Not thread-safe: the owning series' lock guards every call.
+ */
+final class SegmentFile {
+
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 64;
+
+    /** "CANDLSEG" read as a little-endian long. */
+    private static final long MAGIC = 0x4745534C444E4143L;
+    private static final int VERSION = 1;
+    private static final int VERSION_AT = 8;
+    private static final int RECORD_BYTES_AT = 12;
+    private static final int VERIFIED_AT = 16;
+    private static final int SHIFTING_AT = 24;
+    private static final int PAYLOAD_BYTES = 48;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private int rows;
+    /** First record written since the segment was last forced; {@link #rows} when it is clean. */
+    private int dirtyFrom;
+
+    private SegmentFile(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+    }
+
+    /**
+     * Create an empty segment of {@code segmentBytes} at {@code path}, which must not exist. The file is sparse:
+     * disk blocks are allocated as records are written.
+     */
+    static SegmentFile create(Path path, int segmentBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            SegmentFile segment = new SegmentFile(path, map(channel, segmentBytes));
+            segment.writeHeader();
+            return segment;
+        }
+    }
+
+    /**
+     * Map an existing segment and find where its records end (see the class documentation).
+     *
+     * @throws IOException if the file cannot be mapped or is not a candle segment
+     */
+    static SegmentFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + RECORD_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a candle segment: " + size + " bytes");
+            }
+            SegmentFile segment = new SegmentFile(path, map(channel, (int) size));
+            ByteBuffer header = segment.buffer;
+            if (header.getLong(0) == 0 && header.getLong(VERSION_AT) == 0) {
+                // Created, but the crash came before its header was written
+                segment.writeHeader();
+            } else if (header.getLong(0) != MAGIC || header.getInt(VERSION_AT) != VERSION
+                    || header.getInt(RECORD_BYTES_AT) != RECORD_BYTES) {
+                throw new IOException(path + " is not a candle segment of format version " + VERSION);
+            }
+            segment.recover();
+            return segment;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, int bytes) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private void writeHeader() {
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(VERSION_AT, VERSION);
+        buffer.putInt(RECORD_BYTES_AT, RECORD_BYTES);
+        buffer.putLong(VERIFIED_AT, 0);
+        buffer.putLong(SHIFTING_AT, 0);
+        buffer.force(0, HEADER_BYTES);
+    }
+
+    private void recover() {
+        long verified = buffer.getLong(VERIFIED_AT);
+        long shifting = buffer.getLong(SHIFTING_AT);
+        int trusted = (int) Math.max(0, Math.min(verified, capacity));
+        rows = intactFrom(trusted);
+        if (shifting > 0 && rows >= shifting - 1 && rows + 1 < capacity && follows(rows + 1, rows)) {
+            // An insert cut short: drop the record at rows and move the records it had shifted down over it
+            int end = intactFrom(rows + 2);
+            for (int row = rows; row < end - 1; row++) copyRecord(row + 1, row);
+            rows = end - 1;
+        }
+        int stale = rows;
+        while (stale < capacity && !isZero(stale)) {
+            for (int field = 0; field < RECORD_BYTES; field += Long.BYTES) buffer.putLong(offset(stale) + field, 0);
+            stale++;
+        }
+        if (stale > trusted || verified != rows || shifting != 0) {
+            buffer.force(offset(trusted), (stale - trusted) * RECORD_BYTES);
+            buffer.putLong(VERIFIED_AT, rows);
+            buffer.putLong(SHIFTING_AT, 0);
+            buffer.force(0, HEADER_BYTES);
+        }
+        dirtyFrom = rows;
+    }
+
+    /** The first row from {@code row} on that does not match its CRC or start after the one before. */
+    private int intactFrom(int row) {
+        while (row < capacity && follows(row, row)) row++;
+        return row;
+    }
+
+    /** Whether the record at {@code row} is intact and starts after the one at {@code previous - 1}. */
+    private boolean follows(int row, int previous) {
+        return isIntact(row) && (previous == 0 || timeAt(row) > timeAt(previous - 1));
+    }
+
+    private boolean isIntact(int row) {
+        crc.reset();
+        crc.update(buffer.slice(offset(row), PAYLOAD_BYTES));
+        return buffer.getInt(offset(row) + PAYLOAD_BYTES) == (int) crc.getValue();
+    }
+
+    private boolean isZero(int row) {
+        for (int field = 0; field < RECORD_BYTES; field += Long.BYTES) {
+            if (buffer.getLong(offset(row) + field) != 0) return false;
+        }
+        return true;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    boolean isFull() {
+        return rows == capacity;
+    }
+
+    long timeAt(int row) {
+        return buffer.getLong(offset(row));
+    }
+
+    /** First record whose bucket starts at or after {@code time}, or {@link #rows} if none does. */
+    int lowerBound(long time) {
+        int lo = 0;
+        int hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeAt(mid) < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    Candle candle(int row) {
+        int at = offset(row);
+        return Candle.atMillis(buffer.getLong(at), buffer.getDouble(at + 8), buffer.getDouble(at + 16),
+                buffer.getDouble(at + 24), buffer.getDouble(at + 32), buffer.getLong(at + 40));
+    }
+
+    /**
+     * Copy records {@code [from, to)} straight from the mapping into {@code out}, starting at row {@code at}.
+     */
+    void copy(int from, int to, CandleColumns out, int at) {
+        for (int row = from; row < to; row++, at++) {
+            int offset = offset(row);
+            out.timesMillis()[at] = buffer.getLong(offset);
+            out.opens()[at] = buffer.getDouble(offset + 8);
+            out.highs()[at] = buffer.getDouble(offset + 16);
+            out.lows()[at] = buffer.getDouble(offset + 24);
+            out.closes()[at] = buffer.getDouble(offset + 32);
+            out.volumes()[at] = buffer.getLong(offset + 40);
+        }
+    }
+
+    /**
+     * Append a candle starting after the last one. The segment must not be full.
+     */
+    void append(Candle candle) {
+        write(rows++, candle);
+    }
+
+    /**
+     * Overwrite the record at {@code row}, which holds the same bucket.
+     */
+    void rewrite(int row, Candle candle) {
+        unverify(row);
+        write(row, candle);
+        dirtyFrom = Math.min(dirtyFrom, row);
+    }
+
+    /**
+     * Insert a candle at {@code row}, shifting the records from there on by one. The segment must not be full.
+     * The header notes the shift first, so that a crash partway through cannot cost the shifted records.
+     */
+    void insert(int row, Candle candle) {
+        if (buffer.getLong(VERIFIED_AT) > row) buffer.putLong(VERIFIED_AT, row);
+        buffer.putLong(SHIFTING_AT, row + 1L);
+        buffer.force(0, HEADER_BYTES);
+        for (int from = rows - 1; from >= row; from--) copyRecord(from, from + 1);
+        rows++;
+        write(row, candle);
+        buffer.putLong(SHIFTING_AT, 0); // forced with the header by the next force
+        dirtyFrom = Math.min(dirtyFrom, row);
+    }
+
+    boolean isDirty() {
+        return dirtyFrom < rows;
+    }
+
+    /**
+     * Force the records written since the last call to disk, then record them as verified in the header.
+     */
+    void force() {
+        if (dirtyFrom == rows) return;
+        buffer.force(offset(dirtyFrom), (rows - dirtyFrom) * RECORD_BYTES);
+        buffer.putLong(VERIFIED_AT, rows);
+        buffer.force(0, HEADER_BYTES);
+        dirtyFrom = rows;
+    }
+
+    /** Stop trusting records from {@code row} on, durably, before one of them is rewritten. */
+    private void unverify(int row) {
+        if (buffer.getLong(VERIFIED_AT) > row) {
+            buffer.putLong(VERIFIED_AT, row);
+            buffer.force(0, HEADER_BYTES);
+        }
+    }
+
+    private void copyRecord(int from, int to) {
+        for (int field = 0; field < RECORD_BYTES; field += Long.BYTES) {
+            buffer.putLong(offset(to) + field, buffer.getLong(offset(from) + field));
+        }
+    }
+
+    private void write(int row, Candle candle) {
+        record.putLong(0, candle.timeMillis());
+        record.putDouble(8, candle.open());
+        record.putDouble(16, candle.high());
+        record.putDouble(24, candle.low());
+        record.putDouble(32, candle.close());
+        record.putLong(40, candle.volume());
+        crc.reset();
+        crc.update(record.array(), 0, PAYLOAD_BYTES);
+        record.putInt(PAYLOAD_BYTES, (int) crc.getValue());
+        buffer.put(offset(row), record.array());
+    }
+
+    private static int offset(int row) {
+        return HEADER_BYTES + row * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,98 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The {@link StoreBackend#MAPPED mapped} store: save rate per {@link FsyncPolicy}, time to reopen a 2M-candle
+ * history (20 symbols × 10 intervals × 10,000), and the latency of a 500-candle query read straight from the
+ * mapped segments, next to the heap store. Segments are the default 4 MiB. Per-candle fsync is timed over
+ * 2,000 saves, as each one waits for the disk.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Segment store benchmark")
+class SegmentStoreBenchmark {
+
+    private static final int SYMBOLS = 20;
+    private static final String[] INTERVALS = {"1s", "5s", "15s", "1m", "5m", "15m", "1h", "250ms", "500ms", "100ms"};
+    private static final int PER_SERIES = 10_000;
+    private static final long T0 = 1_700_000_000L;
+    private static final int SEGMENT_BYTES = 4 << 20;
+    private static final int WINDOW = 500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("save rate per fsync policy, reopen time and query latency")
+    void segmentStore() {
+        CandleStore heap = new CandleStore();
+        fill(heap);
+
+        for (FsyncPolicy fsync : new FsyncPolicy[]{FsyncPolicy.ROLL, FsyncPolicy.INTERVAL}) {
+            Path root = dir.resolve(fsync.name());
+            CandleStore store = new CandleStore(root, SEGMENT_BYTES, 86_400, fsync);
+            long start = System.nanoTime();
+            fill(store);
+            store.close();
+            long nanos = System.nanoTime() - start;
+            System.out.printf("fsync=%-8s %,d candles saved and forced in %,d ms: %,.2f M candles/s%n",
+                    fsync.name().toLowerCase(), store.totalCandles(), nanos / 1_000_000,
+                    store.totalCandles() * 1e3 / nanos);
+        }
+
+        CandleStore perCandle = new CandleStore(dir.resolve("CANDLE"), SEGMENT_BYTES, 86_400, FsyncPolicy.CANDLE);
+        long start = System.nanoTime();
+        for (int i = 0; i < 2_000; i++) perCandle.save("SYM-0", "1s", new Candle(T0 + i, 100, 101, 99, 100.5, 1));
+        System.out.printf("fsync=candle   %,.1f µs per saved candle%n", (System.nanoTime() - start) / 1e3 / 2_000);
+
+        Path root = dir.resolve(FsyncPolicy.ROLL.name());
+        start = System.nanoTime();
+        CandleStore reopened = new CandleStore(root, SEGMENT_BYTES, 86_400, FsyncPolicy.ROLL);
+        long reopenNanos = System.nanoTime() - start;
+        assertThat(reopened.totalCandles()).isEqualTo(heap.totalCandles());
+        System.out.printf("reopen %,d candles in %,d segments: %,d ms%n",
+                reopened.totalCandles(), SYMBOLS * INTERVALS.length, reopenNanos / 1_000_000);
+
+        System.out.printf("%d-candle query: heap %,.1f µs · mapped %,.1f µs%n",
+                WINDOW, queryMicros(heap), queryMicros(reopened));
+    }
+
+    private static void fill(CandleStore store) {
+        for (int s = 0; s < SYMBOLS; s++) {
+            for (String interval : INTERVALS) {
+                for (int i = 0; i < PER_SERIES; i++) {
+                    store.save("SYM-" + s, interval, new Candle(T0 + i, 100 + i, 101 + i, 99 + i, 100.5 + i, i));
+                }
+            }
+        }
+    }
+
+    private static double queryMicros(CandleStore store) {
+        SplittableRandom random = new SplittableRandom(1);
+        int queries = 20_000;
+        long nanos = 0;
+        for (int round = 0; round < 2; round++) {
+            nanos = 0;
+            for (int q = 0; q < queries; q++) {
+                long from = T0 + random.nextInt(PER_SERIES - WINDOW);
+                String symbol = "SYM-" + random.nextInt(SYMBOLS);
+                long start = System.nanoTime();
+                CandleColumns columns = store.queryColumns(symbol, "1m", from, from + WINDOW - 1);
+                nanos += System.nanoTime() - start;
+                assertThat(columns.size()).isEqualTo(WINDOW);
+            }
+        }
+        return nanos / 1e3 / queries;
+    }
+}
@@ -0,0 +1,44 @@
+package com.candle.ingest;
+
+/**
+ * The consumer's view of a {@link TickRingBuffer}: waits, with the ring's {@link WaitStrategy},
+ * until a sequence is published and reports how far past it the consumer may read.
+ *
+ * <p>{@link #alert()} interrupts a wait, e.g. to run a control task or shut down; the alert stays
+ * raised until the consumer calls {@link #clearAlert()}.
+ */
+public final class SequenceBarrier {
+
+    private final TickRingBuffer ring;
+    private final WaitStrategy waitStrategy;
+    private volatile boolean alerted;
+
+    SequenceBarrier(TickRingBuffer ring, WaitStrategy waitStrategy) {
+        this.ring = ring;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Wait until {@code sequence} is published.
+     *
+     * @return the highest sequence up to which every slot from {@code sequence} on is published,
+     *         or a value below {@code sequence} if the barrier was alerted before it was
+     */
+    public long waitFor(long sequence) {
+        long claimed = waitStrategy.waitFor(sequence, ring.cursor(), this);
+        if (claimed < sequence) return sequence - 1;
+        return ring.highestPublished(sequence, claimed);
+    }
+
+    public void alert() {
+        alerted = true;
+    }
+
+    public void clearAlert() {
+        alerted = false;
+    }
+
+    public boolean isAlerted() {
+        return alerted;
+    }
+}
@@ -0,0 +1,89 @@
+package com.candle.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Where calendar bars ({@code 1d}, {@code 1w}, {@code 1M}) start: every trading day opens at
+ * {@code sessionOpen} in {@code zone}, a week on the session open of {@code weekStart}, a month on the
+ * session open of its first day. With the {@link #UTC default} a day is a UTC calendar day.
+ *
+ * <p>Bars start at the session open of the day they are named after. A session that opens in the evening
+ * (say {@code 17:00 America/New_York}) therefore gives each daily bar the date the session opened on.
+ * Daylight-saving shifts move the boundaries in UTC, so a calendar day may last 23 or 25 hours; a session
+ * open that falls into a spring-forward gap starts at the end of the gap.
+ *
+ * <p>{@link #boundaries} computes every boundary from 1970 to {@value #LAST_YEAR} once, so bucketing a
+ * timestamp is a binary search rather than {@link ZonedDateTime} arithmetic.
+ *
+ * @param zone        Time zone the session open is given in
+ * @param sessionOpen Local time at which each trading day starts
+ * @param weekStart   Day whose session open starts a week
+ */
+public record SessionCalendar(ZoneId zone, LocalTime sessionOpen, DayOfWeek weekStart) {
+
+    /** UTC days starting at midnight, weeks starting on Monday. */
+    public static final SessionCalendar UTC = new SessionCalendar(ZoneOffset.UTC, LocalTime.MIDNIGHT, DayOfWeek.MONDAY);
+
+    /** Last year covered by the boundary tables. */
+    static final int LAST_YEAR = 2100;
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1969, 12, 1);
+    private static final LocalDate END_DAY = LocalDate.of(LAST_YEAR + 1, 1, 1);
+
+    public SessionCalendar {
+        if (zone == null || sessionOpen == null || weekStart == null) {
+            throw new IllegalArgumentException("Calendar zone, session open and week start are required");
+        }
+    }
+
+    /**
+     * @param zone        Zone ID, e.g. {@code UTC} or {@code America/New_York}
+     * @param sessionOpen Local time, e.g. {@code 00:00} or {@code 17:00}
+     * @param weekStart   Day name, e.g. {@code monday} or {@code sunday}
+     * @throws IllegalArgumentException if a value cannot be parsed
+     */
+    public static SessionCalendar fromConfig(String zone, String sessionOpen, String weekStart) {
+        try {
+            return new SessionCalendar(ZoneId.of(zone.trim()), LocalTime.parse(sessionOpen.trim()),
+                    DayOfWeek.valueOf(weekStart.trim().toUpperCase(Locale.ROOT)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid calendar: zone=" + zone + " session-open=" + sessionOpen
+                    + " week-start=" + weekStart + " (" + e.getMessage() + ")", e);
+        }
+    }
+
+    /**
+     * Start of every day, week or month from late 1969 through {@value #LAST_YEAR}, in ascending Unix milliseconds.
+     *
+     * @param unit {@link ChronoUnit#DAYS}, {@link ChronoUnit#WEEKS} or {@link ChronoUnit#MONTHS}
+     */
+    public long[] boundaries(ChronoUnit unit) {
+        LocalDate day = switch (unit) {
+            case DAYS -> FIRST_DAY;
+            case WEEKS -> FIRST_DAY.with(TemporalAdjusters.previousOrSame(weekStart));
+            case MONTHS -> FIRST_DAY.withDayOfMonth(1);
+            default -> throw new IllegalArgumentException("No calendar bars for " + unit);
+        };
+        long[] table = new long[(int) ChronoUnit.DAYS.between(day, END_DAY) + 2];
+        int size = 0;
+        for (; day.isBefore(END_DAY); day = day.plus(1, unit)) {
+            table[size++] = ZonedDateTime.of(day, sessionOpen, zone).toInstant().toEpochMilli();
+        }
+        table[size++] = ZonedDateTime.of(day, sessionOpen, zone).toInstant().toEpochMilli();
+        return Arrays.copyOf(table, size);
+    }
+
+    @Override
+    public String toString() {
+        return sessionOpen + " " + zone + ", weeks from " + weekStart.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,684 @@
+package com.candle.ingest;
+
+import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Single-writer ingestion engine.
+ *
+ * <p>Symbols are hash-partitioned across a fixed number of shards. Each shard owns one
+ * {@link TickRingBuffer} and one dedicated worker thread, so every event for a given symbol
+ * is processed by the same thread in publish order. State touched only from the event handler
+ * (the symbol's aggregators) therefore needs no locking at all.
+ *
+ * <p>Producers may publish a single tick's primitives into a pre-allocated ring slot with
+ * {@link #publishTick}, which allocates nothing, or publish an event object, a pre-grouped batch of
+ * one symbol's events, or a columnar {@link TickBatch} of one symbol's ticks; a batch occupies a
+ * single ring slot and is handed to its handler in one call. A producer blocks only while its shard's
+ * ring is full, never on the aggregation itself.
+ *
+ * <p>A worker consumes everything published since its last pass in one go, gathering consecutive
+ * ticks into a reusable {@link TickBatch} for the ticks handler. While its ring is empty it waits
+ * with the configured {@link WaitStrategy}.
+ *
+ * <p>What happens to a tick published to a full ring is set by an {@link OverflowPolicy}: the producer
+ * waits, sheds the oldest queued ticks, or the tick is conflated into a partial candle that
+ * the worker applies once it has caught up. {@link #queuedEvents()}, {@link #droppedTicks()} and
+ * {@link #conflatedTicks()} report the pressure.
+ *
+ * <p>Control work such as the stale-candle flush is posted to each shard with
+ * {@link #broadcast(IntConsumer)} and executed by the worker between events, preserving
+ * the single-writer guarantee. Work that must not overtake events already queued, such as an
+ * event-time flush, goes through the rings instead with {@link #broadcastInOrder(IntConsumer)}.
+ */
+public class ShardedIngestEngine implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedIngestEngine.class);
+
+    /** Most ticks a worker gathers into one call of the ticks handler. */
+    private static final int MAX_GATHERED_TICKS = 1024;
+
+    private final Shard[] shards;
+    private final OverflowPolicy overflowPolicy;
+    /** Whether ticks go into ring slots for a ticks handler, rather than out as {@link BidAskEvent}s. */
+    private final boolean primitiveTicks;
+    private volatile boolean running = true;
+
+    private ShardedIngestEngine(Builder builder) {
+        if (builder.shards < 1) throw new IllegalArgumentException("Shard count must be >= 1");
+        Objects.requireNonNull(builder.handler, "handler");
+        if (builder.overflowPolicy == OverflowPolicy.CONFLATE && builder.conflatedHandler == null) {
+            throw new IllegalArgumentException("Conflation needs a conflated ticks handler");
+        }
+        Consumer<BidAskEvent> handler = builder.handler;
+        Consumer<List<BidAskEvent>> batchHandler = builder.batchHandler != null
+                ? builder.batchHandler : events -> events.forEach(handler);
+        this.overflowPolicy = builder.overflowPolicy;
+        this.primitiveTicks = builder.ticksHandler != null;
+        this.shards = new Shard[builder.shards];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, builder.queueCapacity, builder.waitStrategy, builder.conflateSlotMillis, handler,
+                    batchHandler, builder.ticksHandler, builder.conflatedHandler);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Sharded ingest engine started: shards={} queueCapacity={} waitStrategy={} overflowPolicy={}",
+                shards.length, shards[0].ring.capacity(), builder.waitStrategy, overflowPolicy);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Index of the shard that owns the given symbol.
+     */
+    public int shardOf(String symbol) {
+        return Math.floorMod(symbol.hashCode(), shards.length);
+    }
+
+    /**
+     * Publish one tick to its symbol's shard by writing it into a pre-allocated ring slot.
+     * The worker hands it to the ticks handler, usually together with the ticks published around it.
+     * If the ring is full the {@link OverflowPolicy} decides whether to wait or to conflate the tick.
+     *
+     * Without a ticks handler the tick is published as a {@link BidAskEvent} instead.
+     *
+     * @param symbolId The symbol's ID, as understood by the ticks and conflated ticks handlers
+     * @throws IllegalArgumentException without a ticks handler, if the tick is not a valid {@link BidAskEvent}
+     */
+    public void publishTick(String symbol, int symbolId, double bid, double ask, long timestampMs) {
+        if (!primitiveTicks) {
+            publish(new BidAskEvent(symbol, bid, ask, timestampMs));
+            return;
+        }
+        Shard shard = claimable(shardOf(symbol));
+        TickRingBuffer ring = shard.ring;
+        long sequence = shard.conflating ? -1 : ring.tryNext();
+        if (sequence < 0) {
+            sequence = overflowPolicy == OverflowPolicy.CONFLATE
+                    ? shard.claimOrFold(symbolId, bid, ask, timestampMs)
+                    : shard.claimWaiting();
+            if (sequence < 0) return;
+        }
+        ring.get(sequence).setTick(symbolId, bid, ask, timestampMs);
+        ring.publish(sequence);
+    }
+
+    /**
+     * Publish an event to its symbol's shard.
+     * Blocks (spin, then park) while that shard's ring buffer is full, unless the {@link OverflowPolicy}
+     * is to drop the oldest.
+     */
+    public void publish(BidAskEvent event) {
+        offer(shardOf(event.symbol()), event);
+    }
+
+    /**
+     * Publish a batch of events that all belong to {@code symbol} as a single ring entry.
+     * The list must not be modified after publishing. Blocks while the shard's ring buffer is full,
+     * unless the {@link OverflowPolicy} is to drop the oldest.
+     */
+    public void publishBatch(String symbol, List<BidAskEvent> events) {
+        offer(shardOf(symbol), events);
+    }
+
+    /**
+     * Publish a columnar batch whose rows all belong to {@code symbol} as a single ring entry.
+     * The batch is handed to the worker, so the caller must not reuse it. If the ring is full the
+     * {@link OverflowPolicy} decides whether to wait or to conflate the batch's ticks. Without a ticks
+     * handler its valid rows are published as a batch of {@link BidAskEvent}s instead.
+     */
+    public void publishTicks(String symbol, TickBatch ticks) {
+        if (!primitiveTicks) {
+            List<BidAskEvent> events = new ArrayList<>(ticks.size());
+            for (int row = 0; row < ticks.size(); row++) {
+                if (ticks.isValid(row)) events.add(new BidAskEvent(symbol, ticks.bid(row), ticks.ask(row), ticks.timestampMs(row)));
+            }
+            if (!events.isEmpty()) publishBatch(symbol, events);
+            return;
+        }
+        Shard shard = claimable(shardOf(symbol));
+        long sequence = shard.conflating ? -1 : shard.ring.tryNext();
+        if (sequence < 0) {
+            sequence = overflowPolicy == OverflowPolicy.CONFLATE ? shard.claimOrFold(ticks) : shard.claimWaiting();
+            if (sequence < 0) return;
+        }
+        shard.ring.get(sequence).setEntry(ticks);
+        shard.ring.publish(sequence);
+    }
+
+    private void offer(int index, Object entry) {
+        Shard shard = claimable(index);
+        long sequence = shard.claimWaiting();
+        if (overflowPolicy == OverflowPolicy.CONFLATE) sequence = shard.sealConflated(sequence);
+        shard.ring.get(sequence).setEntry(entry);
+        shard.ring.publish(sequence);
+    }
+
+    private Shard claimable(int shard) {
+        if (!running) throw new IllegalStateException("Ingest engine is stopped");
+        return shards[shard];
+    }
+
+    /**
+     * Run {@code task} once on every shard's worker thread, passing the shard index.
+     * Returns immediately; tasks run between events in each worker's loop.
+     */
+    public void broadcast(IntConsumer task) {
+        for (Shard shard : shards) {
+            shard.control.add(task);
+            shard.barrier.alert();
+        }
+    }
+
+    /**
+     * Run {@code task} once on every shard's worker thread, after the events already published to
+     * that shard, ticks conflated under {@link OverflowPolicy#CONFLATE} included. The task takes a ring
+     * slot on every shard and blocks while a ring is full.
+     */
+    public void broadcastInOrder(IntConsumer task) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            offer(shard, task);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Ticks discarded by {@link OverflowPolicy#DROP_OLDEST}, across all shards.
+     */
+    public long droppedTicks() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.dropped.get();
+        }
+        return total;
+    }
+
+    /**
+     * Ticks folded into partial candles by {@link OverflowPolicy#CONFLATE} instead of taking a ring slot,
+     * across all shards.
+     */
+    public long conflatedTicks() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.conflated.get();
+        }
+        return total;
+    }
+
+    /**
+     * Total number of ring entries (single ticks or events, or per-symbol batches) not yet processed, across all shards.
+     */
+    public int queuedEvents() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.queued();
+        }
+        return total;
+    }
+
+    /**
+     * Stop accepting events, let every worker drain its ring buffer and pending control
+     * tasks, then wait for the workers to exit. After this returns, all state owned by
+     * the workers is safely visible to the calling thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.barrier.alert();
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for shard {} to drain", shard.index);
+                return;
+            }
+        }
+        log.info("Sharded ingest engine stopped");
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int index;
+        /**
+         * Holds ticks, {@link BidAskEvent}s, single-symbol {@code List<BidAskEvent>} / {@link TickBatch} batches,
+         * ordered tasks, and {@link ConflatedTicks} sealed ahead of them.
+         */
+        private final TickRingBuffer ring;
+        private final SequenceBarrier barrier;
+        private final Queue<IntConsumer> control = new ConcurrentLinkedQueue<>();
+        private final Consumer<BidAskEvent> handler;
+        private final Consumer<List<BidAskEvent>> batchHandler;
+        private final Consumer<TickBatch> ticksHandler;
+        private final Consumer<ConflatedTicks> conflatedHandler;
+        /** Consecutive ring ticks, handed to {@link #ticksHandler} together. Worker-owned and reused. */
+        private final TickBatch gathered;
+        private final Thread thread;
+
+        /**
+         * {@link OverflowPolicy#DROP_OLDEST}: highest sequence the worker has taken or a producer has shed.
+         * The worker takes each slot by advancing it by one; a producer facing a full ring sheds the oldest
+         * slot nobody has taken by doing the same, then hands that slot back itself.
+         */
+        private final Sequence taken = new Sequence(-1);
+        /** {@link OverflowPolicy#DROP_OLDEST}: highest sequence the worker has finished or skipped. */
+        private volatile long handled = -1;
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * {@link OverflowPolicy#CONFLATE}: ticks that found the ring full, folded under this shard's lock.
+         * While it is non-empty every tick for the shard is folded too, so none overtakes them through the ring.
+         */
+        private ConflatedTicks pending;
+        /** The previous {@link #pending}, swapped out and applied by the worker. */
+        private ConflatedTicks applying;
+        private volatile boolean conflating;
+        private final long conflateSlotMillis;
+        private final AtomicLong conflated = new AtomicLong();
+
+        Shard(int index, int queueCapacity, WaitStrategy waitStrategy, long conflateSlotMillis,
+              Consumer<BidAskEvent> handler, Consumer<List<BidAskEvent>> batchHandler,
+              Consumer<TickBatch> ticksHandler, Consumer<ConflatedTicks> conflatedHandler) {
+            this.index = index;
+            this.conflateSlotMillis = conflateSlotMillis;
+            this.pending = new ConflatedTicks(64, conflateSlotMillis);
+            this.applying = new ConflatedTicks(64, conflateSlotMillis);
+            this.ring = new TickRingBuffer(queueCapacity, waitStrategy);
+            this.barrier = ring.newBarrier();
+            this.handler = handler;
+            this.batchHandler = batchHandler;
+            this.ticksHandler = ticksHandler;
+            this.conflatedHandler = conflatedHandler;
+            this.gathered = new TickBatch(Math.min(ring.capacity(), MAX_GATHERED_TICKS));
+            this.thread = new Thread(this, "candle-ingest-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            while (true) {
+                // Cleared before the checks below, so an alert raised after them ends the next wait
+                barrier.clearAlert();
+                runControlTasks();
+                applyConflated(next - 1);
+                if (!running) break;
+                next = skipShed(next);
+                long available = barrier.waitFor(next);
+                if (available >= next) {
+                    handleRange(next, available);
+                    next = available + 1;
+                }
+            }
+            // Drain anything published concurrently with shutdown
+            next = skipShed(next);
+            long available = ring.highestPublished(next, ring.cursor().get());
+            if (available >= next) {
+                handleRange(next, available);
+                next = available + 1;
+            }
+            applyConflated(next - 1);
+            runControlTasks();
+        }
+
+        /**
+         * Claim a slot, waiting while the ring is full. With {@link OverflowPolicy#DROP_OLDEST} a full
+         * ring sheds its oldest ticks instead, one slot per failed claim, and waits only while the oldest
+         * entry is not a tick.
+         */
+        long claimWaiting() {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) return ring.next();
+            int spins = 0;
+            long sequence;
+            while ((sequence = ring.tryNext()) < 0) {
+                if (shedOldest()) continue;
+                if (++spins < TickRingBuffer.FULL_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(TickRingBuffer.FULL_PARK_NANOS);
+                }
+            }
+            return sequence;
+        }
+
+        /**
+         * {@link OverflowPolicy#DROP_OLDEST}: drop the oldest slot the worker has not taken, if it holds
+         * published ticks (a tick, an event, or a batch of either), and hand it back to producers.
+         *
+         * @return false if the oldest slot is still being written or holds a task
+         */
+        private boolean shedOldest() {
+            long last = taken.get();
+            long oldest = last + 1;
+            if (oldest > ring.cursor().get() || !ring.isPublished(oldest)) return false;
+            // Not rewritten before it is handed back, which needs the taken sequence past it
+            Object entry = ring.get(oldest).entry();
+            if (entry instanceof IntConsumer) return false;
+            if (!taken.compareAndSet(last, oldest)) return true; // raced with the worker or another producer
+            dropped.addAndGet(entry instanceof TickBatch ticks ? ticks.size()
+                    : entry instanceof List<?> events ? events.size() : 1);
+            release(oldest);
+            return true;
+        }
+
+        /**
+         * Hand the slots up to {@code sequence} back to producers. With {@link OverflowPolicy#DROP_OLDEST}
+         * producers shedding slots advance the consumer sequence too, so it only ever moves forward.
+         */
+        private void release(long sequence) {
+            Sequence consumer = ring.consumerSequence();
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+                consumer.setRelease(sequence);
+                return;
+            }
+            long current;
+            while ((current = consumer.get()) < sequence && !consumer.compareAndSet(current, sequence)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        /**
+         * {@link OverflowPolicy#DROP_OLDEST}: the first sequence from {@code next} on that no producer has shed.
+         */
+        private long skipShed(long next) {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) return next;
+            next = Math.max(next, taken.get() + 1);
+            handled = next - 1;
+            return next;
+        }
+
+        /** Slots claimed but not yet handled or shed. */
+        int queued() {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) return ring.size();
+            return (int) Math.max(0, Math.min(ring.cursor().get() - handled, ring.capacity()));
+        }
+
+        /**
+         * {@link OverflowPolicy#CONFLATE}: claim a slot if the ring has room and nothing is conflated,
+         * otherwise fold the tick into {@link #pending}.
+         *
+         * @return the claimed sequence, or -1 if the tick was folded
+         */
+        synchronized long claimOrFold(int symbolId, double bid, double ask, long timestampMs) {
+            if (!conflating) {
+                long sequence = ring.tryNext();
+                if (sequence >= 0) return sequence;
+            }
+            if (pending.fold(symbolId, bid, ask, timestampMs)) conflated.incrementAndGet();
+            startConflating();
+            return -1;
+        }
+
+        /** {@link #claimOrFold(int, double, double, long)} for every valid row of a batch. */
+        synchronized long claimOrFold(TickBatch ticks) {
+            if (!conflating) {
+                long sequence = ring.tryNext();
+                if (sequence >= 0) return sequence;
+            }
+            int folded = 0;
+            for (int row = 0; row < ticks.size(); row++) {
+                if (pending.fold(ticks.symbolId(row), ticks.bid(row), ticks.ask(row), ticks.timestampMs(row))) folded++;
+            }
+            conflated.addAndGet(folded);
+            startConflating();
+            return -1;
+        }
+
+        /** Must hold the shard's lock. */
+        private void startConflating() {
+            if (!conflating && !pending.isEmpty()) {
+                conflating = true;
+                barrier.alert(); // the worker may be idle, with nothing left in the ring to wake it
+            }
+        }
+
+        /**
+         * {@link OverflowPolicy#CONFLATE}: keep an entry published to the claimed {@code sequence} from
+         * overtaking the ticks conflated before it. The worker applies {@link #pending} only once the ring is
+         * drained, which an event-time flush or a checkpoint in the ring would run ahead of. So the partials
+         * are handed over in {@code sequence} themselves, and the entry takes a fresh slot behind them; ticks
+         * that find the ring full from now on are folded anew. Nothing is applied from {@link #pending} in the
+         * meantime, as the cursor stays ahead of the worker until {@code sequence} is published.
+         *
+         * @return the sequence to publish the entry to
+         */
+        long sealConflated(long sequence) {
+            synchronized (this) {
+                if (!conflating) return sequence;
+                ring.get(sequence).setEntry(pending);
+                pending = new ConflatedTicks(64, conflateSlotMillis);
+                conflating = false;
+            }
+            ring.publish(sequence);
+            return ring.next();
+        }
+
+        /**
+         * Apply the conflated partial candles, provided everything claimed in the ring before them has
+         * been handled, i.e. {@code consumed} is the cursor.
+         */
+        private void applyConflated(long consumed) {
+            if (!conflating) return;
+            ConflatedTicks partials;
+            synchronized (this) {
+                if (ring.cursor().get() != consumed) return;
+                partials = pending;
+                pending = applying;
+                applying = partials;
+                conflating = false;
+            }
+            try {
+                conflatedHandler.accept(partials);
+            } catch (RuntimeException e) {
+                log.error("[shard {}] Failed to apply {} conflated partial candles", index, partials.size(), e);
+            }
+            partials.clear();
+        }
+
+        /**
+         * Handle the published slots {@code [from, to]}, then hand them back to producers.
+         */
+        private void handleRange(long from, long to) {
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                handleShedding(from, to);
+                return;
+            }
+            for (long sequence = from; sequence <= to; sequence++) {
+                TickRingBuffer.Slot slot = ring.get(sequence);
+                Object entry = slot.entry();
+                if (entry == null) {
+                    if (gathered.isFull()) flushGathered();
+                    gathered.add(slot.symbolId(), slot.bid(), slot.ask(), slot.timestampMs());
+                } else {
+                    flushGathered(); // earlier ticks first, to keep publish order
+                    slot.setEntry(null);
+                    handle(entry);
+                }
+            }
+            flushGathered();
+            release(to);
+        }
+
+        /**
+         * {@link #handleRange} for {@link OverflowPolicy#DROP_OLDEST}. Each slot is read, then taken; a slot a
+         * producer shed first is skipped, and may already be rewritten, so the read is discarded. A taken slot
+         * may be handed back by a producer shedding the next one, so it is not written to either.
+         */
+        private void handleShedding(long from, long to) {
+            for (long sequence = from; sequence <= to; sequence++) {
+                TickRingBuffer.Slot slot = ring.get(sequence);
+                Object entry = slot.entry();
+                int symbolId = slot.symbolId();
+                double bid = slot.bid();
+                double ask = slot.ask();
+                long timestampMs = slot.timestampMs();
+                if (!taken.compareAndSet(sequence - 1, sequence)) continue;
+                if (entry == null) {
+                    if (gathered.isFull()) flushGathered();
+                    gathered.add(symbolId, bid, ask, timestampMs);
+                } else {
+                    flushGathered();
+                    handle(entry);
+                }
+            }
+            flushGathered();
+            handled = to;
+            release(to);
+        }
+
+        private void flushGathered() {
+            if (gathered.size() == 0) return;
+            try {
+                ticksHandler.accept(gathered);
+            } catch (RuntimeException e) {
+                log.error("[shard {}] Failed to process {} ticks", index, gathered.size(), e);
+            }
+            gathered.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void handle(Object entry) {
+            try {
+                if (entry instanceof BidAskEvent event) {
+                    handler.accept(event);
+                } else if (entry instanceof TickBatch ticks) {
+                    ticksHandler.accept(ticks);
+                } else if (entry instanceof IntConsumer task) {
+                    task.accept(index);
+                } else if (entry instanceof ConflatedTicks partials) {
+                    conflatedHandler.accept(partials);
+                } else {
+                    batchHandler.accept((List<BidAskEvent>) entry);
+                }
+            } catch (RuntimeException e) {
+                log.error("[shard {}] Failed to process ring entry", index, e);
+            }
+        }
+
+        private void runControlTasks() {
+            IntConsumer task;
+            while ((task = control.poll()) != null) {
+                try {
+                    task.accept(index);
+                } catch (RuntimeException e) {
+                    log.error("[shard {}] Control task failed", index, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Settings of a {@link ShardedIngestEngine}. Only {@link #handler} is required.
+     */
+    public static final class Builder {
+
+        private int shards = 1;
+        private int queueCapacity = 65_536;
+        private WaitStrategy waitStrategy = WaitStrategy.PARKING;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private long conflateSlotMillis = 1000;
+        private Consumer<BidAskEvent> handler;
+        private Consumer<List<BidAskEvent>> batchHandler;
+        private Consumer<TickBatch> ticksHandler;
+        private Consumer<ConflatedTicks> conflatedHandler;
+
+        private Builder() {
+        }
+
+        /** Number of worker threads (and ring buffers); 1 by default. */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /** Capacity of each shard's ring buffer, rounded up to a power of two; 65536 by default. */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /** How an idle worker waits for its ring; {@link WaitStrategy#PARKING} by default. */
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /** What happens to a tick published to a full ring; {@link OverflowPolicy#BLOCK} by default. */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * With {@link OverflowPolicy#CONFLATE}, the slot length of the partial candles (see {@link ConflatedTicks});
+         * must divide every interval the handler aggregates. 1000 by default.
+         */
+        public Builder conflateSlotMillis(long conflateSlotMillis) {
+            this.conflateSlotMillis = conflateSlotMillis;
+            return this;
+        }
+
+        /** Invoked on the owning worker thread for every published event. Required. */
+        public Builder handler(Consumer<BidAskEvent> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        /**
+         * Invoked on the owning worker thread for every published single-symbol batch; by default hands
+         * each event to the {@link #handler}.
+         */
+        public Builder batchHandler(Consumer<List<BidAskEvent>> batchHandler) {
+            this.batchHandler = batchHandler;
+            return this;
+        }
+
+        /**
+         * Invoked on the owning worker thread for published {@link TickBatch}es and for ticks published with
+         * {@link ShardedIngestEngine#publishTick}; the latter batch is reused afterwards. Without one, ticks are
+         * published to the event handlers as {@link BidAskEvent}s instead.
+         */
+        public Builder ticksHandler(Consumer<TickBatch> ticksHandler) {
+            this.ticksHandler = ticksHandler;
+            return this;
+        }
+
+        /**
+         * With {@link OverflowPolicy#CONFLATE}, invoked on the owning worker thread with the partial candles of
+         * ticks that found the ring full; reused afterwards. Required with that policy, unused with the others.
+         */
+        public Builder conflatedHandler(Consumer<ConflatedTicks> conflatedHandler) {
+            this.conflatedHandler = conflatedHandler;
+            return this;
+        }
+
+        public ShardedIngestEngine build() {
+            return new ShardedIngestEngine(this);
+        }
+    }
+}
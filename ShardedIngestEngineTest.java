@@ -0,0 +1,360 @@
+package com.candle.ingest;
+
+import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Sharded ingest engine")
+class ShardedIngestEngineTest {
+
+    private static BidAskEvent event(String symbol, long timestampMs) {
+        return new BidAskEvent(symbol, 100.0, 100.1, timestampMs);
+    }
+
+    @Test
+    @DisplayName("Ring buffer is FIFO and reports full at capacity")
+    void ringBufferFifoAndBounded() {
+        TickRingBuffer ring = new TickRingBuffer(4, WaitStrategy.PARKING);
+        SequenceBarrier barrier = ring.newBarrier();
+        for (int i = 0; i < 4; i++) {
+            long sequence = ring.tryNext();
+            assertThat(sequence).isEqualTo(i);
+            ring.get(sequence).setTick(i, 100.0, 100.1, i);
+            ring.publish(sequence);
+        }
+        assertThat(ring.tryNext()).isEqualTo(-1);
+        assertThat(ring.size()).isEqualTo(4);
+
+        assertThat(barrier.waitFor(0)).isEqualTo(3);
+        assertThat(ring.get(0).symbolId()).isZero();
+        ring.consumerSequence().setRelease(0);
+        long wrapped = ring.tryNext(); // slot freed by the consumer wraps around
+        assertThat(wrapped).isEqualTo(4);
+        assertThat(ring.get(wrapped)).isSameAs(ring.get(0));
+        ring.get(wrapped).setTick(4, 100.0, 100.1, 4);
+        ring.publish(wrapped);
+        assertThat(barrier.waitFor(4)).isEqualTo(4);
+        assertThat(ring.get(4).symbolId()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("A barrier stops at the first claimed but unpublished slot")
+    void barrierStopsAtUnpublishedSlot() {
+        TickRingBuffer ring = new TickRingBuffer(8, WaitStrategy.BUSY_SPIN);
+        SequenceBarrier barrier = ring.newBarrier();
+        long first = ring.next();
+        long second = ring.next();
+        long third = ring.next();
+        ring.publish(first);
+        ring.publish(third);
+        assertThat(barrier.waitFor(0)).isEqualTo(first);
+
+        ring.publish(second);
+        assertThat(barrier.waitFor(1)).isEqualTo(third);
+
+        barrier.alert();
+        assertThat(barrier.waitFor(3)).isEqualTo(2); // nothing published: an alert ends the wait
+    }
+
+    @Test
+    @DisplayName("Capacity is rounded up to a power of two")
+    void capacityRoundedUp() {
+        assertThat(new TickRingBuffer(1000, WaitStrategy.PARKING).capacity()).isEqualTo(1024);
+        assertThat(new TickRingBuffer(1024, WaitStrategy.PARKING).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    @DisplayName("Wait strategies parse from configuration values")
+    void waitStrategyFromConfig() {
+        assertThat(WaitStrategy.fromConfig("busy-spin")).isEqualTo(WaitStrategy.BUSY_SPIN);
+        assertThat(WaitStrategy.fromConfig("Yielding")).isEqualTo(WaitStrategy.YIELDING);
+        assertThat(WaitStrategy.fromConfig(" parking ")).isEqualTo(WaitStrategy.PARKING);
+        assertThatThrownBy(() -> WaitStrategy.fromConfig("sleeping"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("busy-spin");
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    @DisplayName("Ticks and events published to one shard reach their handlers in publish order")
+    void ticksAndEventsKeepPublishOrder(WaitStrategy waitStrategy) {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                .queueCapacity(8)
+                .waitStrategy(waitStrategy)
+                .handler(e -> seen.add(e.timestamp()))
+                .ticksHandler(ticks -> {
+                    for (int row = 0; row < ticks.size(); row++) seen.add(ticks.timestampMs(row));
+                })
+                .build();
+
+        for (long ts = 1; ts <= 2_000; ts++) {
+            if (ts % 10 == 0) {
+                engine.publish(event("BTC-USD", ts));
+            } else {
+                engine.publishTick("BTC-USD", 0, 100.0, 100.1, ts);
+            }
+        }
+        engine.close();
+
+        assertThat(seen).hasSize(2_000).isSorted();
+    }
+
+    @Test
+    @DisplayName("Every symbol is handled by a single thread, in publish order, with no lost events")
+    void perSymbolOrderingAndOwnership() throws InterruptedException {
+        Map<String, List<Long>> seen = new ConcurrentHashMap<>();
+        Map<String, String> owner = new ConcurrentHashMap<>();
+        List<String> violations = new CopyOnWriteArrayList<>();
+
+        ShardedIngestEngine engine = ShardedIngestEngine.builder().shards(4).queueCapacity(64).handler(e -> {
+            String thread = Thread.currentThread().getName();
+            String previous = owner.putIfAbsent(e.symbol(), thread);
+            if (previous != null && !previous.equals(thread)) violations.add(e.symbol());
+            seen.computeIfAbsent(e.symbol(), k -> new ArrayList<>()).add(e.timestamp());
+        }).build();
+
+        // One producer per symbol so per-symbol publish order is well defined
+        String[] symbols = {"BTC-USD", "ETH-USD", "SOL-USD", "BNB-USD", "XRP-USD", "ADA-USD"};
+        int perSymbol = 5_000;
+        ExecutorService producers = Executors.newFixedThreadPool(symbols.length);
+        CountDownLatch done = new CountDownLatch(symbols.length);
+        for (String symbol : symbols) {
+            producers.submit(() -> {
+                for (int i = 1; i <= perSymbol; i++) {
+                    engine.publish(event(symbol, i));
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(15, TimeUnit.SECONDS)).isTrue();
+        producers.shutdown();
+        engine.close();
+
+        assertThat(violations).isEmpty();
+        for (String symbol : symbols) {
+            List<Long> timestamps = seen.get(symbol);
+            assertThat(timestamps).hasSize(perSymbol);
+            assertThat(timestamps).isSorted();
+        }
+    }
+
+    @Test
+    @DisplayName("broadcast runs the task once on every shard")
+    void broadcastReachesEveryShard() {
+        Map<Integer, String> ranOn = new ConcurrentHashMap<>();
+        ShardedIngestEngine engine = ShardedIngestEngine.builder().shards(3).queueCapacity(16)
+                .handler(e -> { }).build();
+
+        engine.broadcast(shard -> ranOn.put(shard, Thread.currentThread().getName()));
+        engine.close();
+
+        assertThat(ranOn).containsOnlyKeys(0, 1, 2);
+        assertThat(ranOn.get(0)).isEqualTo("candle-ingest-0");
+    }
+
+    @Test
+    @DisplayName("broadcastInOrder runs the task after the events already queued to each shard")
+    void broadcastInOrderFollowsQueuedEvents() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedIngestEngine engine = ShardedIngestEngine.builder().queueCapacity(16).handler(e -> {
+            try {
+                release.await(5, TimeUnit.SECONDS); // hold the worker so the events stay queued
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            log.add(e.symbol());
+        }).build();
+
+        engine.publish(event("BTC-USD", 1_000L));
+        engine.publish(event("ETH-USD", 1_000L));
+        engine.broadcastInOrder(shard -> log.add("task"));
+        release.countDown();
+        engine.close();
+
+        assertThat(log).containsExactly("BTC-USD", "ETH-USD", "task");
+    }
+
+    @Test
+    @DisplayName("Overflow policies parse from configuration values")
+    void overflowPolicyFromConfig() {
+        assertThat(OverflowPolicy.fromConfig("block")).isEqualTo(OverflowPolicy.BLOCK);
+        assertThat(OverflowPolicy.fromConfig("Drop-Oldest")).isEqualTo(OverflowPolicy.DROP_OLDEST);
+        assertThat(OverflowPolicy.fromConfig("conflate")).isEqualTo(OverflowPolicy.CONFLATE);
+        assertThatThrownBy(() -> OverflowPolicy.fromConfig("drop-newest"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("drop-oldest");
+    }
+
+    @Test
+    @DisplayName("Conflated ticks are applied after the ticks queued ahead of them, and before later ones")
+    void conflatedTicksKeepPublishOrder() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                .queueCapacity(4)
+                .overflowPolicy(OverflowPolicy.CONFLATE)
+                .handler(e -> { })
+                .ticksHandler(ticks -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS); // hold the worker so the ring fills up
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int row = 0; row < ticks.size(); row++) log.add("tick " + ticks.timestampMs(row));
+                })
+                .conflatedHandler(partials -> {
+                    for (int i = 0; i < partials.size(); i++) {
+                        log.add("partial " + partials.second(i) + " x" + partials.count(i)
+                                + " o=" + partials.open(i) + " h=" + partials.high(i)
+                                + " l=" + partials.low(i) + " c=" + partials.close(i));
+                    }
+                })
+                .build();
+
+        engine.publishTick("BTC-USD", 0, 100.0, 100.0, 1_000);
+        await().atMost(Duration.ofSeconds(5)).until(() -> engine.queuedEvents() == 1); // worker holds it
+        for (long ts = 1_001; ts <= 1_003; ts++) {
+            engine.publishTick("BTC-USD", 0, 100.0, 100.0, ts); // fills the ring
+        }
+        double[] mids = {101.0, 104.0, 99.0, 102.0};
+        for (int i = 0; i < mids.length; i++) {
+            engine.publishTick("BTC-USD", 0, mids[i], mids[i], 2_000 + i); // ring full: conflated, no waiting
+        }
+        assertThat(engine.conflatedTicks()).isEqualTo(4);
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> log.size() == 5);
+        engine.publishTick("BTC-USD", 0, 100.0, 100.0, 3_000); // back through the ring
+        engine.close();
+
+        assertThat(log).containsExactly("tick 1000", "tick 1001", "tick 1002", "tick 1003",
+                "partial 2 x4 o=101.0 h=104.0 l=99.0 c=102.0", "tick 3000");
+    }
+
+    @Test
+    @DisplayName("Conflation cannot be configured without a handler for the partial candles")
+    void conflationNeedsAHandler() {
+        assertThatThrownBy(() -> ShardedIngestEngine.builder()
+                .overflowPolicy(OverflowPolicy.CONFLATE)
+                .handler(e -> { })
+                .ticksHandler(ticks -> { })
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("conflated ticks handler");
+    }
+
+    @Test
+    @DisplayName("Dropping the oldest sheds one queued tick per overflowing tick, without blocking the producer")
+    void dropOldestShedsOnlyTheOverflow() throws InterruptedException {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                .queueCapacity(8)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .handler(e -> { })
+                .ticksHandler(ticks -> {
+                    for (int row = 0; row < ticks.size(); row++) seen.add(ticks.timestampMs(row));
+                })
+                .build();
+        engine.broadcast(shard -> {
+            busy.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (long ts = 1; ts <= 8; ts++) {
+            engine.publishTick("BTC-USD", 0, 100.0, 100.0, ts); // fills the ring of 8
+        }
+        long start = System.nanoTime();
+        for (long ts = 9; ts <= 11; ts++) {
+            engine.publishTick("BTC-USD", 0, 100.0, 100.0, ts);
+        }
+        long overflowNanos = System.nanoTime() - start;
+        assertThat(engine.droppedTicks()).isEqualTo(3);
+        assertThat(engine.queuedEvents()).isEqualTo(8);
+        release.countDown();
+        engine.close();
+
+        assertThat(overflowNanos).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(seen).containsExactly(4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L);
+        assertThat(engine.droppedTicks()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Dropping the oldest sheds event batches too, counting each of their events")
+    void dropOldestShedsEventBatches() throws InterruptedException {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                .queueCapacity(8)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .handler(e -> seen.add(e.timestamp()))
+                .ticksHandler(ticks -> { })
+                .build();
+        engine.broadcast(shard -> {
+            busy.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (long ts = 1; ts <= 18; ts += 2) {
+            engine.publishBatch("BTC-USD", List.of(event("BTC-USD", ts), event("BTC-USD", ts + 1)));
+        }
+        release.countDown();
+        engine.close();
+
+        assertThat(engine.droppedTicks()).isEqualTo(2);
+        assertThat(seen).containsExactlyElementsOf(LongStream.rangeClosed(3, 18).boxed().toList());
+    }
+
+    @Test
+    @DisplayName("Without a ticks handler, ticks reach the event handlers as events")
+    void ticksWithoutTicksHandlerArriveAsEvents() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                .queueCapacity(16)
+                .handler(e -> log.add("event " + e.timestamp()))
+                .batchHandler(events -> log.add("batch " + events.stream().map(BidAskEvent::timestamp).toList()))
+                .build();
+
+        engine.publishTick("BTC-USD", 0, 100.0, 100.5, 1);
+        TickBatch ticks = new TickBatch(4);
+        ticks.add(0, 100.0, 100.5, 2);
+        ticks.add(0, -1.0, 100.5, 3); // invalid: left out
+        ticks.add(0, 101.0, 101.5, 4);
+        engine.publishTicks("BTC-USD", ticks);
+        engine.close();
+
+        assertThat(log).containsExactly("event 1", "batch [2, 4]");
+    }
+}
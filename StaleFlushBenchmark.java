@@ -0,0 +1,80 @@
+package com.candle.aggregator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.BidAskEvent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of the once-a-second stale flush: scanning every aggregator vs advancing a {@link StaleFlushWheel}.
+ *
+ * <p>Every symbol ticks once per simulated second, so 1s candles roll on their own and the flush
+ * finds almost nothing due — the common steady state. Only the flush itself is timed.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Stale flush benchmark")
+class StaleFlushBenchmark {
+
+    private static final int SYMBOLS = 5_000;
+    private static final int SECONDS = 600;
+    private static final long T0 = 1_699_999_200L;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("full scan vs timer wheel")
+    void scanVsWheel() {
+        run(false);
+        run(true);
+
+        double scan = run(false);
+        double wheel = run(true);
+
+        System.out.printf("stale flush per tick (%d symbols): scan=%,.0f us wheel=%,.0f us%n",
+                SYMBOLS, scan, wheel);
+        assertThat(wheel).isPositive();
+    }
+
+    /** @return mean flush time per simulated second, in microseconds */
+    private double run(boolean useWheel) {
+        StaleFlushWheel timers = new StaleFlushWheel(T0);
+        SymbolAggregators[] bundles = new SymbolAggregators[SYMBOLS];
+        BidAskEvent[] ticks = new BidAskEvent[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            bundles[i] = new SymbolAggregators(i, "SYM-" + i,
+                    (interval, time, open, high, low, close, volume) -> { }, false);
+            if (useWheel) bundles[i].scheduleOn(timers);
+        }
+
+        long flushNanos = 0;
+        for (long now = T0; now < T0 + SECONDS; now++) {
+            for (int i = 0; i < SYMBOLS; i++) {
+                if (ticks[i] == null || ticks[i].timestampSeconds() != now) {
+                    ticks[i] = new BidAskEvent("SYM-" + i, 100.0, 100.1, now * 1000L);
+                }
+                bundles[i].process(ticks[i]);
+            }
+            long start = System.nanoTime();
+            if (useWheel) {
+                timers.advance(now);
+            } else {
+                for (SymbolAggregators bundle : bundles) {
+                    bundle.flushIfStale(now);
+                }
+            }
+            flushNanos += System.nanoTime() - start;
+        }
+        return flushNanos / 1_000.0 / SECONDS;
+    }
+}
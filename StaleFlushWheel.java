@@ -0,0 +1,237 @@
+package com.candle.aggregator;
+
+import com.candle.model.IntervalCatalog;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hierarchical timer wheel that drives stale-candle flushing.
+ *
+ * <p>An aggregator attached with {@link CandleAggregator#scheduleOn} registers itself when it opens
+ * a candle, due at the end of that candle's bucket. {@link #advance(long)} then only visits aggregators
+ * whose slot has come up, so the flush tick costs O(candles due) instead of O(aggregators) — a
+ * 1h aggregator is looked at about once an hour, not once a second.
+ *
+ * <p>Each aggregator holds at most one entry, linked intrusively through the aggregator itself, so
+ * scheduling allocates nothing per candle. Bucket rolls only move the aggregator's deadline; when a
+ * stale entry comes up, the wheel reads the deadline without locking and re-inserts the entry if the
+ * candle has moved on.
+ *
+ * <p>Time is kept in Unix milliseconds, to match the aggregators' sub-second buckets. Level {@code n}
+ * has {@value #SLOTS} slots of {@code 64^n} milliseconds each (the last level spans about 4.7 hours);
+ * deadlines beyond it wait in its slots and are re-inserted when they come up. Entries due at the same time
+ * are flushed finest interval first, so a coarser candle has received its last roll-up before it is
+ * emitted.
+ *
+ * <p>{@link #schedule} is thread-safe; {@link #advance} must be called by one thread at a time.
+ */
+public final class StaleFlushWheel {
+
+    private static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    /** Longest advance stepped through slot by slot; a longer gap re-files every entry instead. */
+    private static final long STEP_LIMIT = 4 * SLOTS * SLOTS;
+
+    /** {@code slots[level][slot]} heads an intrusive list linked through {@link CandleAggregator#timerNext}. */
+    private final CandleAggregator[][] slots = new CandleAggregator[LEVELS][SLOTS];
+
+    /** Registrations from ingest threads, moved into the wheel on the next {@link #advance}. */
+    private final Queue<CandleAggregator> pending = new ConcurrentLinkedQueue<>();
+
+    /** Intervals of the aggregators scheduled here; ranks due entries. */
+    private final IntervalCatalog catalog;
+
+    /** Due entries grouped by interval position in {@link #catalog} while expiring, so finer ones flush first. */
+    private final CandleAggregator[] dueHeads;
+
+    /** Last millisecond that has been processed. */
+    private long currentMs;
+    private boolean started;
+    private int size;
+
+    /**
+     * @param nowSeconds Current wall-clock time in Unix seconds; the wheel starts here
+     */
+    public StaleFlushWheel(long nowSeconds) {
+        this(nowSeconds, IntervalCatalog.defaults());
+    }
+
+    /**
+     * @param nowSeconds Current wall-clock time in Unix seconds; the wheel starts here
+     * @param catalog    Intervals of the aggregators that will be scheduled
+     */
+    public StaleFlushWheel(long nowSeconds, IntervalCatalog catalog) {
+        this(catalog);
+        this.currentMs = CandleAggregator.toMillis(nowSeconds);
+        this.started = true;
+    }
+
+    /**
+     * A wheel that starts at the time of its first {@link #advance}, for clocks such as an
+     * {@link EventTimeWatermark} whose starting point is not known up front.
+     */
+    public StaleFlushWheel() {
+        this(IntervalCatalog.defaults());
+    }
+
+    /**
+     * Like {@link #StaleFlushWheel()}, for aggregators of the intervals of {@code catalog}.
+     */
+    public StaleFlushWheel(IntervalCatalog catalog) {
+        this.catalog = catalog;
+        this.dueHeads = new CandleAggregator[catalog.size()];
+    }
+
+    /**
+     * Register an aggregator that has just opened a candle. Called by the aggregator itself.
+     */
+    void schedule(CandleAggregator aggregator) {
+        pending.add(aggregator);
+    }
+
+    /**
+     * Flush every candle whose bucket ended at or before {@code nowSeconds}.
+     * The wheel never goes backwards: an earlier time than one already advanced to counts as that time.
+     *
+     * @return number of candles flushed
+     */
+    public int advance(long nowSeconds) {
+        return advanceMillis(CandleAggregator.toMillis(nowSeconds));
+    }
+
+    /**
+     * Millisecond form of {@link #advance}, for callers that flush sub-second candles between whole seconds.
+     *
+     * @return number of candles flushed
+     */
+    public synchronized int advanceMillis(long nowMs) {
+        if (!started) {
+            currentMs = nowMs;
+            started = true;
+        } else if (nowMs < currentMs) {
+            nowMs = currentMs;
+        }
+        fileRegistrations(nowMs);
+
+        if (nowMs - currentMs > STEP_LIMIT) {
+            // Long gap (first tick, paused scheduler): re-file everything rather than step millisecond by millisecond
+            CandleAggregator all = drainAll();
+            currentMs = nowMs;
+            while (all != null) {
+                CandleAggregator next = all.timerNext;
+                insertOrDue(all, all.flushDeadline(), nowMs);
+                all = next;
+            }
+        } else {
+            while (currentMs < nowMs) {
+                currentMs++;
+                // Cascade coarser slots that start at this millisecond down into finer levels
+                for (int level = 1; level < LEVELS; level++) {
+                    int shift = SLOT_BITS * level;
+                    if ((currentMs & ((1L << shift) - 1)) != 0) break;
+                    expire(level, (int) (currentMs >>> shift) & SLOT_MASK, nowMs);
+                }
+                expire(0, (int) currentMs & SLOT_MASK, nowMs);
+            }
+        }
+        int flushed = 0;
+        do {
+            fileRegistrations(nowMs);
+            flushed += flushDue(nowMs);
+        } while (!pending.isEmpty());
+        return flushed;
+    }
+
+    /**
+     * Number of aggregators currently holding an entry (including registrations not yet filed).
+     */
+    public synchronized int size() {
+        return size + pending.size();
+    }
+
+    private void fileRegistrations(long nowMs) {
+        CandleAggregator registered;
+        while ((registered = pending.poll()) != null) {
+            insertOrDue(registered, registered.flushDeadline(), nowMs);
+        }
+    }
+
+    /** Detach one slot and re-file its entries, collecting those that are due. */
+    private void expire(int level, int slot, long nowMs) {
+        CandleAggregator entry = slots[level][slot];
+        slots[level][slot] = null;
+        while (entry != null) {
+            CandleAggregator next = entry.timerNext;
+            size--;
+            insertOrDue(entry, entry.flushDeadline(), nowMs);
+            entry = next;
+        }
+    }
+
+    private void insertOrDue(CandleAggregator aggregator, long deadline, long nowMs) {
+        if (deadline <= nowMs) {
+            int rank = catalog.indexOf(aggregator.getInterval());
+            aggregator.timerNext = dueHeads[rank];
+            dueHeads[rank] = aggregator;
+            return;
+        }
+        long delta = Math.max(deadline - currentMs, 1);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // Past the last level's span: park in the slot that comes up soonest on that level and re-file then
+        long due = level == LEVELS - 1 && delta >= 1L << (SLOT_BITS * LEVELS)
+                ? currentMs + (1L << (SLOT_BITS * LEVELS)) - 1
+                : deadline;
+        int slot = (int) (due >>> (SLOT_BITS * level)) & SLOT_MASK;
+        aggregator.timerNext = slots[level][slot];
+        slots[level][slot] = aggregator;
+        size++;
+    }
+
+    private int flushDue(long nowMs) {
+        int flushed = 0;
+        for (int rank = 0; rank < dueHeads.length; rank++) {
+            CandleAggregator entry = dueHeads[rank];
+            dueHeads[rank] = null;
+            while (entry != null) {
+                CandleAggregator next = entry.timerNext;
+                entry.timerNext = null;
+                long nextDeadline = entry.flushIfDue(nowMs);
+                if (nextDeadline == CandleAggregator.FLUSHED) {
+                    flushed++;
+                } else if (nextDeadline != CandleAggregator.IDLE) {
+                    insertOrDue(entry, nextDeadline, nowMs);
+                }
+                entry = next;
+            }
+            // A flush rolls up into the next coarser candle and may open it, already due after a pause or
+            // a watermark jump: file it now, so it is flushed in this pass and before the intervals above it
+            fileRegistrations(nowMs);
+        }
+        return flushed;
+    }
+
+    private CandleAggregator drainAll() {
+        CandleAggregator all = null;
+        for (CandleAggregator[] level : slots) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                CandleAggregator entry = level[slot];
+                level[slot] = null;
+                while (entry != null) {
+                    CandleAggregator next = entry.timerNext;
+                    entry.timerNext = all;
+                    all = entry;
+                    entry = next;
+                }
+            }
+        }
+        size = 0;
+        return all;
+    }
+}
@@ -0,0 +1,152 @@
+package com.candle.aggregator;
+
+import com.candle.event.BidAskEvent;
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link StaleFlushWheel}.
+ */
+class StaleFlushWheelTest {
+
+    private static final long T0 = 1_699_999_200L; // 1-hour aligned
+
+    private Map<Interval, List<Candle>> emitted;
+    private StaleFlushWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        emitted = new HashMap<>();
+        wheel = new StaleFlushWheel(T0);
+    }
+
+    private SymbolAggregators bundle(String symbol) {
+        SymbolAggregators bundle = new SymbolAggregators(0, symbol,
+                (label, candle) -> emitted.computeIfAbsent(Interval.fromLabel(label).orElseThrow(),
+                        k -> new ArrayList<>()).add(candle),
+                false);
+        bundle.scheduleOn(wheel);
+        return bundle;
+    }
+
+    private static BidAskEvent event(String symbol, double mid, long timestampSeconds) {
+        return new BidAskEvent(symbol, mid, mid, timestampSeconds * 1000L);
+    }
+
+    private int count(Interval interval) {
+        return emitted.getOrDefault(interval, List.of()).size();
+    }
+
+    @Test
+    @DisplayName("each interval is flushed exactly when its bucket ends")
+    void flushesAtBucketEnd() {
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, T0));
+
+        assertThat(wheel.advance(T0)).isZero();
+        assertThat(wheel.advance(T0 + 1)).isEqualTo(4);        // 100ms, 250ms, 500ms and 1s
+        assertThat(count(Interval.HUNDRED_MILLIS)).isEqualTo(1);
+        assertThat(count(Interval.ONE_SECOND)).isEqualTo(1);
+
+        for (long now = T0 + 2; now < T0 + 3600; now++) {
+            wheel.advance(now);
+        }
+        assertThat(count(Interval.FIVE_SECONDS)).isEqualTo(1);
+        assertThat(count(Interval.FIFTEEN_MINUTES)).isEqualTo(1);
+        assertThat(count(Interval.ONE_HOUR)).isZero();
+
+        assertThat(wheel.advance(T0 + 3600)).isEqualTo(1);
+        assertThat(count(Interval.ONE_HOUR)).isEqualTo(1);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("a tick only visits due candles, not every aggregator")
+    void visitsOnlyDueCandles() {
+        for (int i = 0; i < 100; i++) {
+            bundle("SYM-" + i).process(event("SYM-" + i, 100.0, T0));
+        }
+        assertThat(wheel.advance(T0 + 1)).isEqualTo(400);      // 100ms, 250ms, 500ms and 1s candles
+        assertThat(wheel.advance(T0 + 4)).isZero();            // nothing due in between
+        assertThat(wheel.advance(T0 + 5)).isEqualTo(100);      // 5s candles
+        // Coarser candles only open when a finer one rolls up into them: now the 15s ones are scheduled
+        assertThat(wheel.size()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("candles due together flush finest first, so the coarser one includes the last roll-up")
+    void finestFirst() {
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, T0));
+        btc.process(event("BTC-USD", 110.0, T0 + 59)); // rolls the 1s candle; the 1m stays open
+
+        wheel.advance(T0 + 60);
+
+        Candle minute = emitted.get(Interval.ONE_MINUTE).get(0);
+        assertThat(minute.volume()).isEqualTo(2);
+        assertThat(minute.close()).isEqualTo(110.0);
+    }
+
+    @Test
+    @DisplayName("a rolled candle is re-filed at its new deadline instead of being flushed early")
+    void rolledCandleIsRefiled() {
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, T0));
+        btc.process(event("BTC-USD", 101.0, T0 + 1)); // event-driven roll; 1s deadline moves to T0 + 2
+
+        assertThat(wheel.advance(T0 + 1)).isZero();
+        assertThat(count(Interval.ONE_SECOND)).isEqualTo(1);   // only the event-driven one
+        assertThat(wheel.advance(T0 + 2)).isEqualTo(4);        // the 1s candle and the sub-second ones in it
+        assertThat(emitted.get(Interval.ONE_SECOND).get(1).open()).isEqualTo(101.0);
+    }
+
+    @Test
+    @DisplayName("a long pause flushes everything that became due, once")
+    void longGap() {
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, T0));
+
+        assertThat(wheel.advance(T0 + 2 * 3600)).isEqualTo(Interval.values().length);
+        for (Interval interval : Interval.values()) {
+            assertThat(count(interval)).as(interval.getLabel()).isEqualTo(1);
+        }
+        assertThat(wheel.advance(T0 + 3 * 3600)).isZero();
+    }
+
+    @Test
+    @DisplayName("an aggregator reopened after a timer flush is scheduled again")
+    void reopenedAfterFlush() {
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, T0));
+        wheel.advance(T0 + 1);
+
+        btc.process(event("BTC-USD", 105.0, T0 + 1));
+        assertThat(wheel.advance(T0 + 2)).isEqualTo(4);
+        assertThat(emitted.get(Interval.ONE_SECOND)).extracting(Candle::open).containsExactly(100.0, 105.0);
+    }
+
+    @Test
+    @DisplayName("a wheel without a start time starts at its first advance, however far in the past")
+    void startsAtFirstAdvance() {
+        wheel = new StaleFlushWheel();
+        long past = T0 - 365 * 86_400L;
+        SymbolAggregators btc = bundle("BTC-USD");
+        btc.process(event("BTC-USD", 100.0, past));
+
+        assertThat(wheel.advance(past)).isZero();
+        assertThat(wheel.advance(past + 1)).isEqualTo(4);
+        assertThat(wheel.advance(past)).isZero();              // never goes backwards
+        assertThat(wheel.advance(past + 5)).isEqualTo(1);
+        assertThat(count(Interval.FIVE_SECONDS)).isEqualTo(1);
+    }
+}
@@ -2,6 +2,7 @@ package com.candle.controller;
 
 import com.candle.generator.MarketDataGenerator;
 import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
 import com.candle.service.AggregationService;
 import com.candle.store.CandleStore;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,13 +24,16 @@ public class StatusController {
     private final AggregationService aggregationService;
     private final CandleStore candleStore;
     private final MarketDataGenerator generator;
+    private final IntervalCatalog intervals;
 
     public StatusController(AggregationService aggregationService,
                             CandleStore candleStore,
-                            MarketDataGenerator generator) {
+                            MarketDataGenerator generator,
+                            IntervalCatalog intervals) {
         this.aggregationService = aggregationService;
         this.candleStore = candleStore;
         this.generator = generator;
+        this.intervals = intervals;
     }
 
     /**
@@ -46,17 +51,33 @@ public class StatusController {
      */
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> status() {
-        return ResponseEntity.ok(Map.of(
-                "status", "ok",
-                "timestamp", Instant.now().getEpochSecond(),
-                "aggregators", aggregationService.aggregatorCount(),
-                "activeSymbols", aggregationService.activeSymbols(),
-                "totalCandlesStored", candleStore.totalCandles(),
-                "totalEventsGenerated", generator.getEventCount(),
-                "supportedIntervals", Arrays.asList(Interval.supportedLabels())
+        return ResponseEntity.ok(Map.ofEntries(
+                Map.entry("status", "ok"),
+                Map.entry("timestamp", Instant.now().getEpochSecond()),
+                Map.entry("aggregators", aggregationService.aggregatorCount()),
+                Map.entry("ingestMode", aggregationService.getMode().name().toLowerCase().replace('_', '-')),
+                Map.entry("flushClock", aggregationService.getFlushClock().name().toLowerCase().replace('_', '-')),
+                Map.entry("queuedEvents", aggregationService.queuedEvents()),
+                Map.entry("lateTicksPatched", aggregationService.lateTicksPatched()),
+                Map.entry("lateTicksDropped", aggregationService.lateTicksDropped()),
+                Map.entry("lateTicksDroppedByInterval", lateTicksDroppedByInterval()),
+                Map.entry("activeSymbols", aggregationService.activeSymbols()),
+                Map.entry("symbolsEvicted", aggregationService.symbolsEvicted()),
+                Map.entry("totalCandlesStored", candleStore.totalCandles()),
+                Map.entry("totalEventsGenerated", generator.getEventCount()),
+                Map.entry("supportedIntervals", Arrays.asList(intervals.labels()))
         ));
     }
 
+    /** Late ticks each interval lost, finest first: the cascade's coarser links count the ones they missed. */
+    private Map<String, Long> lateTicksDroppedByInterval() {
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        for (Interval interval : intervals.intervals()) {
+            dropped.put(interval.getLabel(), aggregationService.lateTicksDropped(interval));
+        }
+        return dropped;
+    }
+
     /**
      * Lists all symbols currently known to the store.
      * GET /symbols → ["BTC-USD", "ETH-USD", ...]
@@ -67,13 +88,11 @@ public class StatusController {
     }
 
     /**
-     * Lists all supported intervals.
-     * GET /intervals → ["1s", "5s", ...]
+     * Lists the configured intervals, finest first.
+     * GET /intervals → ["100ms", "250ms", ...]
      */
     @GetMapping("/intervals")
     public ResponseEntity<List<String>> intervals() {
-        return ResponseEntity.ok(
-                Arrays.stream(Interval.values()).map(Interval::getLabel).toList()
-        );
+        return ResponseEntity.ok(Arrays.asList(intervals.labels()));
     }
 }
@@ -0,0 +1,35 @@
+package com.candle.store;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Selects where {@link CandleStore} keeps candles.
+ *
+ * <ul>
+ *   <li>{@link #HEAP} — primitive column arrays on the Java heap, limited only by the heap.</li>
+ *   <li>{@link #OFF_HEAP} — fixed-width 48-byte rows in native memory, within {@code candle.store.off-heap-budget-mb};
+ *       only a small per-series index stays on the heap, so history adds nothing for the collector to trace
+ *       or copy.</li>
+ *   <li>{@link #MAPPED} — fixed-width records appended to memory-mapped segment files under
+ *       {@code candle.store.dir}, so history survives a restart; native memory is the page cache.</li>
+ * </ul>
+ */
+public enum StoreBackend {
+
+    HEAP,
+    OFF_HEAP,
+    MAPPED;
+
+    /**
+     * Parse a configuration value such as {@code "heap"}, {@code "off-heap"} or {@code "mapped"} (case-insensitive).
+     */
+    public static StoreBackend fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported store backend: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GC behaviour with a large history on each {@link StoreBackend}: 3M candles (30 symbols × 10 intervals ×
+ * 10,000) are stored, then for {@value #SOAK_SECONDS} seconds a writer appends a 1s candle for every symbol
+ * each millisecond while a reader runs 500-candle range queries. Every collection during the soak is recorded
+ * from GC notifications; a full GC afterwards shows what the collector pays to trace and compact the live
+ * history.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Store GC soak benchmark")
+class StoreGcSoakBenchmark {
+
+    private static final int SYMBOLS = 30;
+    private static final String[] INTERVALS = {"1s", "5s", "15s", "1m", "5m", "15m", "1h", "250ms", "500ms", "100ms"};
+    private static final int PER_SERIES = 10_000;
+    private static final long T0 = 1_700_000_000L;
+    private static final int SOAK_SECONDS = 15;
+    private static final int WINDOW = 500;
+
+    @Test
+    @DisplayName("GC pauses and live heap: heap vs off-heap store")
+    void soak() throws Exception {
+        for (StoreBackend backend : StoreBackend.values()) {
+            CandleStore store = new CandleStore(backend, 1L << 30);
+            for (int s = 0; s < SYMBOLS; s++) {
+                for (String interval : INTERVALS) {
+                    for (int i = 0; i < PER_SERIES; i++) store.save("SYM-" + s, interval, candle(T0 + i));
+                }
+            }
+            long liveBefore = fullGc()[1];
+
+            List<long[]> pauses = new ArrayList<>();
+            NotificationListener listener = (notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                synchronized (pauses) {
+                    pauses.add(new long[]{info.getGcInfo().getDuration(), info.getGcAction().contains("major") ? 1 : 0});
+                }
+            };
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+            }
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            long[] appended = new long[1];
+            Thread writer = new Thread(() -> {
+                long next = T0 + PER_SERIES;
+                while (running.get()) {
+                    for (int s = 0; s < SYMBOLS; s++) store.save("SYM-" + s, "1s", candle(next));
+                    next++;
+                    appended[0] += SYMBOLS;
+                    LockSupport.parkNanos(1_000_000);
+                }
+            }, "soak-writer");
+            writer.start();
+            SplittableRandom random = new SplittableRandom(7);
+            long queries = 0;
+            long rows = 0;
+            long deadline = System.nanoTime() + SOAK_SECONDS * 1_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                long from = T0 + random.nextInt(PER_SERIES - WINDOW);
+                CandleColumns columns = store.queryColumns("SYM-" + random.nextInt(SYMBOLS),
+                        INTERVALS[random.nextInt(INTERVALS.length)], from, from + WINDOW - 1);
+                rows += columns.size();
+                queries++;
+            }
+            running.set(false);
+            writer.join();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            }
+
+            long[] full = fullGc();
+            long minorCount = 0, minorTotal = 0, minorMax = 0, majorCount = 0, majorMax = 0;
+            synchronized (pauses) {
+                for (long[] pause : pauses) {
+                    if (pause[1] == 1) {
+                        majorCount++;
+                        majorMax = Math.max(majorMax, pause[0]);
+                    } else {
+                        minorCount++;
+                        minorTotal += pause[0];
+                        minorMax = Math.max(minorMax, pause[0]);
+                    }
+                }
+            }
+            System.out.printf("%-8s live heap %,5d MB · direct %,5d MB · soak: %,d queries, %,d candles appended ·"
+                            + " minor GCs %d (total %d ms, max %d ms) · major GCs %d (max %d ms) · full GC %d ms%n",
+                    backend, liveBefore >> 20, directBytes() >> 20, queries, appended[0],
+                    minorCount, minorTotal, minorMax, majorCount, majorMax, full[0]);
+            assertThat(rows).isEqualTo(queries * WINDOW);
+            assertThat(store.candlesRejected()).isZero();
+            store.clear();
+        }
+    }
+
+    private static Candle candle(long time) {
+        return new Candle(time, 100, 101, 99, 100.5, 1);
+    }
+
+    /** @return full GC duration in millis, used heap after it in bytes */
+    private static long[] fullGc() {
+        long start = System.nanoTime();
+        System.gc();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        return new long[]{millis, runtime.totalMemory() - runtime.freeMemory()};
+    }
+
+    private static long directBytes() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,101 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap retained per stored candle: 20 symbols × 10 intervals × 10,000 candles (2M in total) held in a flat
+ * map keyed on (symbol, interval, bucket), in one skip list of {@link Candle}s per series, and in
+ * {@link CandleStore}'s columnar series. Retained heap is measured as used heap after a full GC, before and
+ * after filling, with the store still reachable.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Store memory benchmark")
+class StoreMemoryBenchmark {
+
+    private static final int SYMBOLS = 20;
+    private static final String[] INTERVALS = {"1s", "5s", "15s", "1m", "5m", "15m", "1h", "250ms", "500ms", "100ms"};
+    private static final int PER_SERIES = 10_000;
+    private static final int TOTAL = SYMBOLS * INTERVALS.length * PER_SERIES;
+    private static final long T0 = 1_700_000_000L;
+
+    private record FlatKey(String symbol, String interval, long bucketTime) {}
+
+    @Test
+    @DisplayName("retained bytes per candle: flat map vs skip list per series vs columns")
+    void bytesPerCandle() {
+        double flat = measure("flat map", () -> {
+            Map<FlatKey, Candle> map = new ConcurrentHashMap<>();
+            fill((symbol, interval, candle) -> map.put(new FlatKey(symbol, interval, candle.timeMillis()), candle));
+            assertThat(map).hasSize(TOTAL);
+            return map;
+        });
+        double skipList = measure("skip list", () -> {
+            Map<String, Map<String, ConcurrentSkipListMap<Long, Candle>>> map = new ConcurrentHashMap<>();
+            fill((symbol, interval, candle) -> map.computeIfAbsent(symbol, s -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(interval, i -> new ConcurrentSkipListMap<>()).put(candle.timeMillis(), candle));
+            return map;
+        });
+        double columns = measure("columns", () -> {
+            CandleStore store = new CandleStore();
+            fill(store::save);
+            assertThat(store.totalCandles()).isEqualTo(TOTAL);
+            return store;
+        });
+        System.out.printf("columns hold %.1fx the candles of a flat map, %.1fx those of a skip list, in the same heap%n",
+                flat / columns, skipList / columns);
+        assertThat(columns).isLessThan(skipList);
+    }
+
+    private interface Sink {
+        void save(String symbol, String interval, Candle candle);
+    }
+
+    private static void fill(Sink sink) {
+        for (int s = 0; s < SYMBOLS; s++) {
+            String symbol = "SYM-" + s;
+            for (String interval : INTERVALS) {
+                for (int i = 0; i < PER_SERIES; i++) {
+                    double open = 100 + i * 0.01;
+                    sink.save(symbol, interval, new Candle(T0 + i, open, open + 1, open - 1, open + 0.5, i + 1));
+                }
+            }
+        }
+    }
+
+    private static double measure(String name, Supplier<Object> build) {
+        long before = usedAfterGc();
+        long start = System.nanoTime();
+        Object store = build.get();
+        long fillNanos = System.nanoTime() - start;
+        long after = usedAfterGc();
+        double perCandle = (double) (after - before) / TOTAL;
+        System.out.printf("%-9s %6.1f bytes/candle · fill %5.1f ns/candle%n", name, perCandle, (double) fillNanos / TOTAL);
+        assertThat(store).isNotNull();
+        return perCandle;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,56 @@
+package com.candle.store;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Publishes the candle store's size to the actuator metrics endpoint ({@code /actuator/metrics/candle.store.*}),
+ * tagged with the {@link StoreBackend}:
+ * <ul>
+ *   <li>{@code candle.store.candles} — candles stored across all series</li>
+ *   <li>{@code candle.store.candles.rejected} — candles not stored because the off-heap budget was spent</li>
+ *   <li>{@code candle.store.offheap.budget} / {@code .reserved} / {@code .used} — off-heap only: the native memory
+ *       budget, the memory reserved in slabs, and the memory holding candle rows, in bytes</li>
+ * </ul>
+ * Every meter is read from {@link CandleStore} when scraped.
+ */
+@Component
+public class StoreMetrics implements MeterBinder {
+
+    private final CandleStore candleStore;
+
+    public StoreMetrics(CandleStore candleStore) {
+        this.candleStore = candleStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String backend = candleStore.getBackend().name().toLowerCase(Locale.ROOT).replace('_', '-');
+        Gauge.builder("candle.store.candles", candleStore, CandleStore::totalCandles)
+                .description("Candles stored across all series")
+                .tag("backend", backend)
+                .register(registry);
+        FunctionCounter.builder("candle.store.candles.rejected", candleStore, CandleStore::candlesRejected)
+                .description("Candles not stored because the off-heap budget was spent")
+                .tag("backend", backend)
+                .register(registry);
+        if (candleStore.getBackend() != StoreBackend.OFF_HEAP) return;
+        Gauge.builder("candle.store.offheap.budget", candleStore, CandleStore::offHeapBudgetBytes)
+                .description("Native memory the off-heap store may use")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("candle.store.offheap.reserved", candleStore, CandleStore::offHeapReservedBytes)
+                .description("Native memory reserved by the off-heap store")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("candle.store.offheap.used", candleStore, CandleStore::offHeapUsedBytes)
+                .description("Native memory holding candle rows")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,98 @@
+package com.candle.store;
+
+import com.candle.model.Candle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code /history}-style query latency against store size: 20 symbols × 10 intervals, from 100k to 2M
+ * candles in total, each query asking one series for a 500-candle window. The {@link CandleStore} series
+ * index, both as {@link Candle}s and as {@link CandleColumns}, is compared with a flat map keyed on (symbol,
+ * interval, bucket) that filters every entry and sorts, as the store once did.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Store query benchmark")
+class StoreQueryBenchmark {
+
+    private static final int SYMBOLS = 20;
+    private static final String[] INTERVALS = {"1s", "5s", "15s", "1m", "5m", "15m", "1h", "250ms", "500ms", "100ms"};
+    private static final long T0 = 1_700_000_000L;
+    private static final int WINDOW = 500;
+
+    private record FlatKey(String symbol, String interval, long bucketTime) {}
+
+    @Test
+    @DisplayName("range query latency: series index vs full scan")
+    void queryLatency() {
+        for (int perSeries : new int[]{500, 5_000, 10_000}) {
+            CandleStore store = new CandleStore();
+            Map<FlatKey, Candle> flat = new ConcurrentHashMap<>();
+            for (int s = 0; s < SYMBOLS; s++) {
+                for (String interval : INTERVALS) {
+                    for (int i = 0; i < perSeries; i++) {
+                        Candle candle = new Candle(T0 + i, 100, 101, 99, 100.5, 1);
+                        store.save("SYM-" + s, interval, candle);
+                        flat.put(new FlatKey("SYM-" + s, interval, candle.timeMillis()), candle);
+                    }
+                }
+            }
+            int total = store.totalCandles();
+            SplittableRandom random = new SplittableRandom(1);
+            int scanQueries = Math.max(3, 2_000_000 / total);
+            long scanNanos = 0;
+            for (int q = 0; q < scanQueries; q++) {
+                long from = T0 + random.nextInt(Math.max(1, perSeries - WINDOW));
+                String symbol = "SYM-" + random.nextInt(SYMBOLS);
+                long start = System.nanoTime();
+                List<Candle> scanned = scan(flat, symbol, "1m", from, from + WINDOW - 1);
+                scanNanos += System.nanoTime() - start;
+                assertThat(scanned).isEqualTo(store.query(symbol, "1m", from, from + WINDOW - 1));
+            }
+            int indexQueries = 20_000;
+            long indexNanos = 0;
+            long columnNanos = 0;
+            for (int round = 0; round < 2; round++) {
+                indexNanos = 0;
+                columnNanos = 0;
+                for (int q = 0; q < indexQueries; q++) {
+                    long from = T0 + random.nextInt(Math.max(1, perSeries - WINDOW));
+                    String symbol = "SYM-" + random.nextInt(SYMBOLS);
+                    long start = System.nanoTime();
+                    List<Candle> found = store.query(symbol, "1m", from, from + WINDOW - 1);
+                    long mid = System.nanoTime();
+                    CandleColumns columns = store.queryColumns(symbol, "1m", from, from + WINDOW - 1);
+                    columnNanos += System.nanoTime() - mid;
+                    indexNanos += mid - start;
+                    assertThat(found).hasSize(Math.min(WINDOW, perSeries));
+                    assertThat(columns.size()).isEqualTo(found.size());
+                }
+            }
+            System.out.printf("%,10d candles: full scan %,10.1f µs/query · series index %,6.1f µs/query"
+                            + " · as columns %,6.1f µs/query%n",
+                    total, scanNanos / 1e3 / scanQueries, indexNanos / 1e3 / indexQueries, columnNanos / 1e3 / indexQueries);
+        }
+    }
+
+    private static List<Candle> scan(Map<FlatKey, Candle> flat, String symbol, String interval, long from, long to) {
+        return flat.entrySet().stream()
+                .filter(e -> e.getKey().symbol().equals(symbol))
+                .filter(e -> e.getKey().interval().equals(interval))
+                .filter(e -> Math.floorDiv(e.getKey().bucketTime(), 1000) >= from
+                        && Math.floorDiv(e.getKey().bucketTime(), 1000) <= to)
+                .map(Map.Entry::getValue)
+                .sorted(Comparator.comparingLong(Candle::timeMillis))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.candle.aggregator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.TickBatch;
+import com.candle.model.Candle;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ingest rate at 100ms granularity: 2M ticks for 20 symbols, each ticking every 10ms, so every
+ * 100ms candle holds 10 ticks. Ticks are applied one by one, through every interval from 100ms to 1h,
+ * once with a listener that only counts candles and once saving them to the {@link CandleStore}.
+ * Reports ticks/s and bytes allocated per completed candle on the ingest thread.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Sub-second interval benchmark")
+class SubSecondBenchmark {
+
+    private static final int TICKS = 2_000_000;
+    private static final int SYMBOLS = 20;
+    private static final long T0_MS = 1_700_000_000_000L;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("ticks every 10ms through 100ms…1h, counted vs stored")
+    void hundredMillis() {
+        TickBatch feed = feed();
+        for (int i = 0; i < 3; i++) {
+            run(feed, null);
+            run(feed, new CandleStore());
+        }
+        for (int i = 0; i < 2; i++) {
+            long[] counted = run(feed, null);
+            CandleStore store = new CandleStore();
+            long[] stored = run(feed, store);
+            System.out.printf("counted: %,.1fM ticks/s, %,d candles, %.1f B/candle | "
+                            + "stored: %,.1fM ticks/s, %.1f B/candle%n",
+                    TICKS / (counted[0] / 1e9) / 1e6, counted[1], (double) counted[2] / counted[1],
+                    TICKS / (stored[0] / 1e9) / 1e6, (double) stored[2] / stored[1]);
+            assertThat(stored[1]).isEqualTo(counted[1]);
+            assertThat(store.totalCandles()).isEqualTo((int) counted[1]);
+        }
+    }
+
+    private static TickBatch feed() {
+        TickBatch batch = new TickBatch(TICKS);
+        for (int i = 0; i < TICKS; i++) {
+            double mid = 100.0 + (i % 97) * 0.01;
+            batch.add(i % SYMBOLS, mid - 0.005, mid + 0.005, T0_MS + (long) (i / SYMBOLS) * 10);
+        }
+        return batch;
+    }
+
+    /** @return elapsed nanos, candles completed, bytes allocated by the ingest thread */
+    private static long[] run(TickBatch feed, CandleStore store) {
+        long[] candles = new long[1];
+        SymbolAggregators[] bundles = new SymbolAggregators[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            String symbol = "SYM-" + s;
+            CandleListener listener = store == null
+                    ? (interval, time, open, high, low, close, volume) -> candles[0]++
+                    : (interval, time, open, high, low, close, volume) -> {
+                        candles[0]++;
+                        store.save(symbol, interval.getLabel(), Candle.atMillis(time, open, high, low, close, volume));
+                    };
+            bundles[s] = new SymbolAggregators(s, symbol, listener, true);
+        }
+        int[] rows = new int[feed.size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < rows.length; i++) {
+            bundles[feed.symbolId(i)].processRows(feed, rows, i, i + 1);
+        }
+        for (SymbolAggregators bundle : bundles) bundle.forceFlush();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new long[]{elapsed, candles[0], allocated};
+    }
+}
@@ -0,0 +1,357 @@
+package com.candle.aggregator;
+
+import com.candle.event.BidAskEvent;
+import com.candle.event.TickBatch;
+import com.candle.model.Candle;
+import com.candle.model.Interval;
+import com.candle.model.IntervalCatalog;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * All interval aggregators of one symbol, held in an array indexed by {@link IntervalCatalog#indexOf position}
+ * in the symbol's interval catalog ({@link IntervalCatalog#defaults() the built-ins} unless one is given).
+ *
+ * <p>The aggregators form a roll-up cascade from the finest interval to the coarsest, so a tick
+ * is applied to exactly one of them ({@link #process}) and the scheduler only needs to poke the
+ * head ({@link #flushIfStale}). Routing a tick therefore costs one bundle lookup per symbol rather
+ * than one map lookup — and one key string — per interval.
+ *
+ * <p>Each interval is rolled up from its catalog {@link IntervalCatalog#feeder feeder}, the coarsest finer
+ * interval that divides it evenly; a feeder shared by several intervals {@link CandleAggregator#alsoRollUpInto
+ * fans out} to them ({@code 1m → 3m} and {@code 1m → 5m}). An interval without a feeder heads a cascade of its
+ * own: with the built-ins, {@code 100ms} divides no finer interval and nothing is rolled up from it, so the main
+ * cascade runs {@code 250ms → 500ms → 1s → … → 1h} and {@code 100ms} is a single-link cascade beside it. The main
+ * head {@link CandleAggregator#feedAlso feeds} the other heads every tick, so a tick still enters the bundle once.
+ *
+ * <p>A bundle whose symbol has gone quiet can be {@link #retireIfIdle retired}: every open candle is
+ * flushed and the bundle refuses further ticks, so its owner can drop it. A replacement bundle that
+ * {@link #resume resumes} from the candle store picks up the buckets the retired one left open.
+ */
+public class SymbolAggregators {
+
+    /** Returned by the batch methods of a retired bundle, which applies nothing. */
+    public static final int RETIRED = CandleAggregator.RETIRED;
+
+    private final int symbolId;
+    private final String symbol;
+    private final IntervalCatalog catalog;
+    private final CandleAggregator[] byInterval;
+
+    /** Head of the cascade that reaches the coarsest interval; the only aggregator the bundle feeds directly. */
+    private final CandleAggregator head;
+
+    /** Heads of every cascade, finest first, including {@link #head}. */
+    private final CandleAggregator[] heads;
+
+    /**
+     * @param symbolId         Dense ID of the symbol (see {@link com.candle.service.SymbolRegistry})
+     * @param symbol           The trading symbol
+     * @param onCandleComplete Callback invoked with the interval label and completed candle, for every interval
+     * @param threadConfined   If true, the aggregators take no locks — the caller confines access to one thread
+     */
+    public SymbolAggregators(int symbolId, String symbol, BiConsumer<String, Candle> onCandleComplete,
+                             boolean threadConfined) {
+        this(symbolId, symbol, CandleListener.of(onCandleComplete), threadConfined);
+    }
+
+    /**
+     * @param symbolId       Dense ID of the symbol (see {@link com.candle.service.SymbolRegistry})
+     * @param symbol         The trading symbol
+     * @param listener       Receives every completed candle, for every interval, as primitive values
+     * @param threadConfined If true, the aggregators take no locks — the caller confines access to one thread
+     */
+    public SymbolAggregators(int symbolId, String symbol, CandleListener listener, boolean threadConfined) {
+        this(symbolId, symbol, listener, threadConfined, IntervalCatalog.defaults());
+    }
+
+    /**
+     * @param symbolId       Dense ID of the symbol (see {@link com.candle.service.SymbolRegistry})
+     * @param symbol         The trading symbol
+     * @param listener       Receives every completed candle, for every interval, as primitive values
+     * @param threadConfined If true, the aggregators take no locks — the caller confines access to one thread
+     * @param catalog        The intervals to aggregate
+     */
+    public SymbolAggregators(int symbolId, String symbol, CandleListener listener, boolean threadConfined,
+                             IntervalCatalog catalog) {
+        this(symbolId, symbol, listener, threadConfined, false, catalog);
+    }
+
+    /**
+     * Create a bundle that many threads may feed concurrently: the finest interval is a
+     * {@link CandleAggregator#lockFree lock-free} aggregator, the coarser ones are locked and only
+     * touched on its bucket rolls.
+     *
+     * @param symbolId Dense ID of the symbol (see {@link com.candle.service.SymbolRegistry})
+     * @param symbol   The trading symbol
+     * @param listener Receives every completed candle, for every interval, as primitive values
+     */
+    public static SymbolAggregators lockFree(int symbolId, String symbol, CandleListener listener) {
+        return lockFree(symbolId, symbol, listener, IntervalCatalog.defaults());
+    }
+
+    /**
+     * {@link #lockFree(int, String, CandleListener)} over the intervals of {@code catalog}.
+     */
+    public static SymbolAggregators lockFree(int symbolId, String symbol, CandleListener listener,
+                                             IntervalCatalog catalog) {
+        return new SymbolAggregators(symbolId, symbol, listener, false, true, catalog);
+    }
+
+    private SymbolAggregators(int symbolId, String symbol, CandleListener listener,
+                              boolean threadConfined, boolean lockFreeHead, IntervalCatalog catalog) {
+        this.symbolId = symbolId;
+        this.symbol = symbol;
+        this.catalog = catalog;
+        int count = catalog.size();
+        this.byInterval = new CandleAggregator[count];
+        int headCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (catalog.feeder(i) < 0) headCount++;
+        }
+        CandleAggregator[] cascadeHeads = new CandleAggregator[headCount];
+        // The catalog is in ascending order; create coarsest-first so each roll-up target already exists
+        for (int i = count - 1; i >= 0; i--) {
+            CandleAggregator coarser = null;
+            for (int j = i + 1; j < count; j++) {
+                if (catalog.feeder(j) != i) continue;
+                if (coarser == null) {
+                    coarser = byInterval[j];
+                    continue;
+                }
+                if (byInterval[i] == null) byInterval[i] = create(catalog, i, listener, threadConfined, lockFreeHead, coarser);
+                byInterval[i].alsoRollUpInto(byInterval[j]);
+            }
+            if (byInterval[i] == null) byInterval[i] = create(catalog, i, listener, threadConfined, lockFreeHead, coarser);
+            if (catalog.feeder(i) < 0) cascadeHeads[--headCount] = byInterval[i];
+        }
+        this.head = byInterval[catalog.mainHead()];
+        this.heads = cascadeHeads;
+        for (CandleAggregator other : heads) {
+            if (other != head) head.feedAlso(other);
+        }
+    }
+
+    private CandleAggregator create(IntervalCatalog catalog, int i, CandleListener listener,
+                                    boolean threadConfined, boolean lockFreeHead, CandleAggregator coarser) {
+        return catalog.feeder(i) < 0 && lockFreeHead
+                ? CandleAggregator.lockFree(symbol, catalog.get(i), listener, coarser)
+                : new CandleAggregator(symbol, catalog.get(i), listener, threadConfined, coarser);
+    }
+
+    /**
+     * Apply a tick to the cascade.
+     *
+     * @return {@code false} if the tick was dropped as late, or the bundle has been retired
+     */
+    public boolean process(BidAskEvent event) {
+        return head.process(event);
+    }
+
+    /**
+     * Apply a batch of this symbol's ticks, in order, under a single lock acquisition.
+     *
+     * @return number of ticks applied (the rest were dropped as late), or {@link #RETIRED}
+     */
+    public int processAll(List<BidAskEvent> events) {
+        return head.processAll(events);
+    }
+
+    /**
+     * Apply rows of a columnar batch that belong to this symbol, under a single lock acquisition.
+     *
+     * @return number of rows applied (the rest were dropped as late), or {@link #RETIRED}
+     * @see CandleAggregator#processRows(TickBatch, int[], int, int)
+     */
+    public int processRows(TickBatch batch, int[] rows, int from, int to) {
+        return head.processRows(batch, rows, from, to);
+    }
+
+    /**
+     * Apply a partial candle of this symbol's ticks within one second.
+     *
+     * @return number of ticks applied (the rest were dropped as late), or {@link #RETIRED}
+     * @see CandleAggregator#processPartial(long, double, double, double, double, long)
+     */
+    public int processPartial(long timestampSeconds, double open, double high, double low, double close, long count) {
+        return head.processPartial(timestampSeconds, open, high, low, close, count);
+    }
+
+    /**
+     * Apply a partial candle of this symbol's ticks within a slot starting at {@code timestampMs}, which must
+     * not straddle a bucket of any interval (see {@link IntervalCatalog#slotMillis()}).
+     *
+     * @return number of ticks applied (the rest were dropped as late), or {@link #RETIRED}
+     * @see CandleAggregator#processPartialMillis(long, double, double, double, double, long)
+     */
+    public int processPartialMillis(long timestampMs, double open, double high, double low, double close, long count) {
+        return head.processPartialMillis(timestampMs, open, high, low, close, count);
+    }
+
+    /**
+     * Flush every interval whose bucket has ended before {@code nowSeconds}.
+     */
+    public void flushIfStale(long nowSeconds) {
+        for (CandleAggregator cascade : heads) cascade.flushIfStale(nowSeconds);
+    }
+
+    /**
+     * Register every interval's open candles with {@code wheel}, so stale flushing visits only
+     * candles that are due. Call once, before the first tick.
+     *
+     * @see CandleAggregator#scheduleOn(StaleFlushWheel)
+     */
+    public void scheduleOn(StaleFlushWheel wheel) {
+        for (CandleAggregator aggregator : byInterval) {
+            aggregator.scheduleOn(wheel);
+        }
+    }
+
+    /**
+     * Accept late ticks up to {@code windowSeconds} behind the newest bucket: each interval keeps
+     * enough recently closed candles to cover the window (at least one when the window is non-zero).
+     * Call once, before the first tick.
+     *
+     * @see CandleAggregator#setReorderWindow(int)
+     */
+    public void setReorderWindow(long windowSeconds) {
+        for (CandleAggregator aggregator : byInterval) {
+            long millis = aggregator.getInterval().getMillis();
+            aggregator.setReorderWindow((int) Math.min((windowSeconds * 1000 + millis - 1) / millis, 64));
+        }
+    }
+
+    /**
+     * Flush every interval and refuse all later ticks, unless a tick has opened a bucket ending after
+     * {@code idleBeforeSeconds}. Pass {@link Long#MAX_VALUE} to retire the bundle regardless.
+     *
+     * @return true if the bundle was retired by this call
+     * @see CandleAggregator#retireIfIdle(long)
+     */
+    public boolean retireIfIdle(long idleBeforeSeconds) {
+        return head.retireIfIdle(idleBeforeSeconds);
+    }
+
+    public boolean isRetired() {
+        return head.isRetired();
+    }
+
+    /**
+     * End of the newest main-head bucket a tick has opened, in Unix milliseconds; 0 before the first tick.
+     * Readable without locking, e.g. to find the least recently active bundles.
+     */
+    public long activeUntil() {
+        return head.flushDeadline();
+    }
+
+    /**
+     * Continue a retired bundle of the same symbol, whose {@link #activeUntil()} was {@code activeUntil}:
+     * each interval's first candle starts from the one {@code stored} holds for its bucket, and ticks before
+     * the retired bundle's last main-head bucket are dropped as late. Call once, before the first tick.
+     */
+    public void resume(long activeUntil, CandleSource stored) {
+        long lastTick = activeUntil - head.getInterval().getMillis();
+        for (CandleAggregator aggregator : byInterval) {
+            Interval interval = aggregator.getInterval();
+            long closedThrough = isHead(aggregator)
+                    ? interval.bucketStartMillis(lastTick) - interval.getMillis()
+                    : Long.MIN_VALUE;
+            aggregator.resume(stored, closedThrough);
+        }
+    }
+
+    private boolean isHead(CandleAggregator aggregator) {
+        for (CandleAggregator cascade : heads) {
+            if (cascade == aggregator) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copy every interval's state, finest first, for a checkpoint. The caller keeps ticks and flushes away
+     * from the bundle meanwhile (see {@link CandleAggregator#state()}).
+     */
+    public List<AggregatorState> state() {
+        return Arrays.stream(byInterval).map(CandleAggregator::state).toList();
+    }
+
+    /**
+     * Continue from states copied by {@link #state()} from a bundle of the same symbol, matched to the
+     * intervals by label; states of intervals no longer in the catalog are ignored. Call once, before the
+     * first tick, after {@link #setReorderWindow} and {@link #scheduleOn}.
+     */
+    public void restore(List<AggregatorState> states, CandleSource stored) {
+        for (AggregatorState state : states) {
+            int index = catalog.fromLabel(state.interval()).map(catalog::indexOf).orElse(-1);
+            if (index >= 0) byInterval[index].restore(state, stored);
+        }
+    }
+
+    /**
+     * Late ticks patched into a recently closed candle.
+     */
+    public long latePatched() {
+        return head.getLatePatched();
+    }
+
+    /**
+     * Late ticks dropped as older than the reorder window.
+     */
+    public long lateDropped() {
+        return head.getLateDropped();
+    }
+
+    /**
+     * Late ticks patched into a recently closed candle by the aggregator at {@code index} in the catalog.
+     * Only cascade heads, which take raw ticks, patch any of their own.
+     */
+    public long latePatched(int index) {
+        return byInterval[index].getLatePatched();
+    }
+
+    /**
+     * Late ticks lost by the aggregator at {@code index} in the catalog; see {@link CandleAggregator#getLateDropped}.
+     */
+    public long lateDropped(int index) {
+        return byInterval[index].getLateDropped();
+    }
+
+    /**
+     * Force-flush every interval, finest first.
+     *
+     * @return the main head's flushed candle, if one was open
+     */
+    public Optional<Candle> forceFlush() {
+        for (CandleAggregator cascade : heads) {
+            if (cascade != head) cascade.forceFlush();
+        }
+        return head.forceFlush();
+    }
+
+    /**
+     * @return the aggregator of {@code interval}, or null if the bundle's catalog does not hold it
+     */
+    public CandleAggregator get(Interval interval) {
+        int index = catalog.indexOf(interval);
+        return index >= 0 ? byInterval[index] : null;
+    }
+
+    public IntervalCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int size() {
+        return byInterval.length;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+}
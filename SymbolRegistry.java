@@ -0,0 +1,79 @@
+package com.candle.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns trading symbols to dense, stable {@code int} IDs (0, 1, 2, ...).
+ *
+ * <p>Lookups of known symbols are a single lock-free {@link ConcurrentHashMap} read and
+ * allocate nothing. Registration of a new symbol is synchronized, which is fine because it
+ * happens once per symbol for the lifetime of the process. IDs are never reused, so they can
+ * safely index arrays and be carried in primitive tick batches instead of {@code String}s.
+ */
+public class SymbolRegistry {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** id → symbol. Grown under the registry lock; published to readers through {@link #ids}. */
+    private volatile String[] symbols = new String[16];
+    private int count;
+
+    /**
+     * Return the ID for {@code symbol}, registering it if this is the first time it is seen.
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : register(symbol);
+    }
+
+    /**
+     * Return the ID for {@code symbol}, or {@code -1} if it has never been interned.
+     */
+    public int lookup(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Resolve an ID returned by {@link #intern} back to its symbol.
+     *
+     * @throws IllegalArgumentException if the ID was never issued
+     */
+    public String symbol(int id) {
+        String[] snapshot = symbols;
+        String symbol = id >= 0 && id < snapshot.length ? snapshot[id] : null;
+        if (symbol == null) throw new IllegalArgumentException("Unknown symbol id: " + id);
+        return symbol;
+    }
+
+    /**
+     * Number of symbols interned so far; valid IDs are {@code 0 .. size()-1}.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * All interned symbols in ID order.
+     */
+    public synchronized List<String> symbols() {
+        return List.of(Arrays.copyOf(symbols, count));
+    }
+
+    private synchronized int register(String symbol) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) return existing;
+
+        int id = count;
+        if (id == symbols.length) {
+            symbols = Arrays.copyOf(symbols, id * 2);
+        }
+        symbols[id] = symbol;
+        count++;
+        ids.put(symbol, id); // publishes the array slot written above
+        return id;
+    }
+}
@@ -0,0 +1,77 @@
+package com.candle.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("SymbolRegistry")
+class SymbolRegistryTest {
+
+    @Test
+    @DisplayName("intern assigns dense IDs in first-seen order and is idempotent")
+    void internAssignsDenseIds() {
+        SymbolRegistry registry = new SymbolRegistry();
+
+        assertThat(registry.intern("BTC-USD")).isEqualTo(0);
+        assertThat(registry.intern("ETH-USD")).isEqualTo(1);
+        assertThat(registry.intern("BTC-USD")).isEqualTo(0);
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.symbol(1)).isEqualTo("ETH-USD");
+        assertThat(registry.symbols()).containsExactly("BTC-USD", "ETH-USD");
+    }
+
+    @Test
+    @DisplayName("lookup does not register unknown symbols")
+    void lookupUnknown() {
+        SymbolRegistry registry = new SymbolRegistry();
+
+        assertThat(registry.lookup("XRP-USD")).isEqualTo(-1);
+        assertThat(registry.size()).isZero();
+        assertThatThrownBy(() -> registry.symbol(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Concurrent interning of many symbols yields one unique ID per symbol")
+    void concurrentIntern() throws InterruptedException {
+        SymbolRegistry registry = new SymbolRegistry();
+        int threads = 8;
+        int symbolCount = 1_000; // forces the id → symbol array to grow several times
+        Set<String> mismatches = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < symbolCount; i++) {
+                        String symbol = "SYM-" + i;
+                        if (!registry.symbol(registry.intern(symbol)).equals(symbol)) mismatches.add(symbol);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertThat(done.await(15, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(mismatches).isEmpty();
+        assertThat(registry.size()).isEqualTo(symbolCount);
+        assertThat(registry.symbols()).doesNotHaveDuplicates().hasSize(symbolCount);
+    }
+}
@@ -0,0 +1,196 @@
+package com.candle.event;
+
+import java.util.Arrays;
+
+/**
+ * Reusable, columnar batch of bid/ask ticks.
+ *
+ * <p>Struct-of-arrays alternative to a {@code List<BidAskEvent>}: each tick is a row across the
+ * parallel {@code symbolId}, {@code bid}, {@code ask} and {@code timestampMs} arrays, and symbols are
+ * referenced by their dense ID from {@link com.candle.service.SymbolRegistry} instead of a {@code String}.
+ * A producer fills the batch with {@link #add}, hands it to
+ * {@link com.candle.service.AggregationService#ingestBatch(TickBatch)}, then {@link #clear()}s and
+ * refills it — the steady-state path allocates nothing per tick.
+ *
+ * <p>Rows are not validated on {@link #add}; invalid rows (see {@link #isValid(int)}) are counted
+ * as rejected at ingest. This class is not thread-safe.
+ */
+public final class TickBatch {
+
+    private final int[] symbolId;
+    private final double[] bid;
+    private final double[] ask;
+    private final long[] timestampMs;
+    private int size;
+
+    /** Scratch space for {@link #groupBySymbol()}: row indices ordered by symbol. */
+    private final int[] grouped;
+    /** Scratch per-symbol counters for the counting sort; grows with the highest symbol ID seen. */
+    private int[] symbolCounts = new int[16];
+
+    public TickBatch(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        this.symbolId = new int[capacity];
+        this.bid = new double[capacity];
+        this.ask = new double[capacity];
+        this.timestampMs = new long[capacity];
+        this.grouped = new int[capacity];
+    }
+
+    /**
+     * Append a tick.
+     *
+     * @param symbolId    Dense symbol ID
+     * @param bid         Best bid price
+     * @param ask         Best ask price
+     * @param timestampMs Unix timestamp in milliseconds
+     * @return {@code false} if the batch is full (the tick was not added)
+     */
+    public boolean add(int symbolId, double bid, double ask, long timestampMs) {
+        if (size == this.symbolId.length) return false;
+        this.symbolId[size] = symbolId;
+        this.bid[size] = bid;
+        this.ask[size] = ask;
+        this.timestampMs[size] = timestampMs;
+        size++;
+        return true;
+    }
+
+    /**
+     * Copy the given rows into a new, compact batch — used to hand part of a reusable
+     * batch to another thread.
+     */
+    public TickBatch copyOf(int[] rows, int from, int to) {
+        TickBatch copy = new TickBatch(Math.max(1, to - from));
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            copy.add(symbolId[row], bid[row], ask[row], timestampMs[row]);
+        }
+        return copy;
+    }
+
+    /**
+     * Order the valid rows by symbol ID, preserving arrival order within each symbol
+     * (a stable counting sort into internal scratch arrays — no allocation once warmed up).
+     * The result is read through {@link #groupedRows()}.
+     *
+     * @return number of valid rows, i.e. the populated prefix of {@link #groupedRows()}
+     */
+    public int groupBySymbol() {
+        int maxId = -1;
+        for (int row = 0; row < size; row++) {
+            if (isValid(row) && symbolId[row] > maxId) maxId = symbolId[row];
+        }
+        if (maxId < 0) return 0;
+        if (maxId >= symbolCounts.length) {
+            symbolCounts = new int[Math.max(maxId + 1, symbolCounts.length * 2)];
+        }
+        int[] counts = symbolCounts;
+        Arrays.fill(counts, 0, maxId + 1, 0);
+        for (int row = 0; row < size; row++) {
+            if (isValid(row)) counts[symbolId[row]]++;
+        }
+        // Prefix sums: counts[id] becomes the first output slot of symbol id
+        int offset = 0;
+        for (int id = 0; id <= maxId; id++) {
+            int count = counts[id];
+            counts[id] = offset;
+            offset += count;
+        }
+        for (int row = 0; row < size; row++) {
+            if (isValid(row)) grouped[counts[symbolId[row]]++] = row;
+        }
+        return offset;
+    }
+
+    /**
+     * Row indices ordered by symbol, as computed by the last {@link #groupBySymbol()} call.
+     * The returned array is internal scratch space and is overwritten by the next call.
+     */
+    public int[] groupedRows() {
+        return grouped;
+    }
+
+    /**
+     * Same validation rules as {@link BidAskEvent}: non-negative symbol ID, positive prices,
+     * {@code ask >= bid}, positive timestamp.
+     */
+    public boolean isValid(int row) {
+        return symbolId[row] >= 0
+                && bid[row] > 0
+                && ask[row] > 0
+                && ask[row] >= bid[row]
+                && timestampMs[row] > 0;
+    }
+
+    public int symbolId(int row) {
+        return symbolId[row];
+    }
+
+    public double bid(int row) {
+        return bid[row];
+    }
+
+    public double ask(int row) {
+        return ask[row];
+    }
+
+    public long timestampMs(int row) {
+        return timestampMs[row];
+    }
+
+    /**
+     * Mid-price of a row, as in {@link BidAskEvent#midPrice()}.
+     */
+    public double midPrice(int row) {
+        return (bid[row] + ask[row]) / 2.0;
+    }
+
+    /**
+     * Timestamp of a row in Unix seconds, as in {@link BidAskEvent#timestampSeconds()}.
+     */
+    public long timestampSeconds(int row) {
+        return timestampMs[row] / 1000L;
+    }
+
+    /**
+     * Backing bid column, for batch kernels that read rows in bulk. Read-only by contract; rows at or
+     * beyond {@link #size()} hold stale data.
+     */
+    public double[] bidColumn() {
+        return bid;
+    }
+
+    /**
+     * Backing ask column; see {@link #bidColumn()}.
+     */
+    public double[] askColumn() {
+        return ask;
+    }
+
+    /**
+     * Backing timestamp column in Unix milliseconds; see {@link #bidColumn()}.
+     */
+    public long[] timestampColumn() {
+        return timestampMs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return symbolId.length;
+    }
+
+    public boolean isFull() {
+        return size == symbolId.length;
+    }
+
+    /**
+     * Reset to empty so the batch can be refilled. Array contents are left in place.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.candle.aggregator;
+
+import com.candle.event.TickBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TickBatch")
+class TickBatchTest {
+
+    private static final long TS = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("add fills rows until capacity, clear makes the batch reusable")
+    void addAndClear() {
+        TickBatch batch = new TickBatch(2);
+        assertThat(batch.add(0, 100.0, 102.0, TS)).isTrue();
+        assertThat(batch.add(1, 200.0, 202.0, TS + 1)).isTrue();
+        assertThat(batch.add(2, 300.0, 302.0, TS + 2)).isFalse();
+
+        assertThat(batch.size()).isEqualTo(2);
+        assertThat(batch.isFull()).isTrue();
+        assertThat(batch.midPrice(0)).isEqualTo(101.0);
+        assertThat(batch.timestampSeconds(1)).isEqualTo(1_700_000_000L);
+
+        batch.clear();
+        assertThat(batch.size()).isZero();
+        assertThat(batch.add(5, 1.0, 1.0, TS)).isTrue();
+        assertThat(batch.symbolId(0)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("isValid applies the BidAskEvent rules")
+    void validity() {
+        TickBatch batch = new TickBatch(6);
+        batch.add(0, 100.0, 101.0, TS);   // valid
+        batch.add(-1, 100.0, 101.0, TS);  // unknown symbol
+        batch.add(0, 0.0, 101.0, TS);     // non-positive bid
+        batch.add(0, 101.0, 100.0, TS);   // crossed
+        batch.add(0, 100.0, 101.0, 0);    // bad timestamp
+        batch.add(0, Double.NaN, 101.0, TS);
+
+        assertThat(batch.isValid(0)).isTrue();
+        for (int row = 1; row < batch.size(); row++) {
+            assertThat(batch.isValid(row)).as("row %d", row).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("groupBySymbol orders valid rows by symbol, stable within each symbol")
+    void groupBySymbolIsStable() {
+        TickBatch batch = new TickBatch(8);
+        batch.add(2, 1.0, 1.0, TS);       // row 0
+        batch.add(0, 1.0, 1.0, TS);       // row 1
+        batch.add(2, 1.0, 1.0, TS + 1);   // row 2
+        batch.add(1, -1.0, 1.0, TS);      // row 3 — invalid, skipped
+        batch.add(0, 1.0, 1.0, TS + 1);   // row 4
+        batch.add(40, 1.0, 1.0, TS);      // row 5 — forces the scratch counters to grow
+
+        int valid = batch.groupBySymbol();
+
+        assertThat(valid).isEqualTo(5);
+        assertThat(Arrays.copyOf(batch.groupedRows(), valid)).containsExactly(1, 4, 0, 2, 5);
+    }
+
+    @Test
+    @DisplayName("copyOf produces a compact batch of the selected rows")
+    void copyOfRows() {
+        TickBatch batch = new TickBatch(4);
+        batch.add(3, 10.0, 11.0, TS);
+        batch.add(3, 20.0, 21.0, TS + 1);
+        batch.add(3, 30.0, 31.0, TS + 2);
+
+        TickBatch copy = batch.copyOf(new int[]{2, 0}, 0, 2);
+
+        assertThat(copy.size()).isEqualTo(2);
+        assertThat(copy.bid(0)).isEqualTo(30.0);
+        assertThat(copy.ask(1)).isEqualTo(11.0);
+        assertThat(copy.timestampMs(1)).isEqualTo(TS);
+    }
+}
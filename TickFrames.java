@@ -0,0 +1,57 @@
+package com.candle.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the binary tick gateway. All values are big-endian (network order).
+ *
+ * <pre>
+ * TICK    'T' | int symbolId | double bid | double ask | long timestampMs        29 bytes
+ * DEFINE  'D' | int symbolId | short length | length bytes of UTF-8 symbol name
+ * </pre>
+ *
+ * <p>Symbol IDs are chosen by the client and are local to its connection: a {@code DEFINE} binds an
+ * ID to a symbol name before the first tick that uses it, and may be repeated to rebind it. Ticks
+ * for an ID that was never defined are counted as rejected.
+ */
+public final class TickFrames {
+
+    public static final byte TICK = 'T';
+    public static final byte DEFINE = 'D';
+
+    /** Size of a {@link #TICK} frame. */
+    public static final int TICK_BYTES = 1 + Integer.BYTES + 2 * Double.BYTES + Long.BYTES;
+
+    /** Size of a {@link #DEFINE} frame before the symbol name. */
+    public static final int DEFINE_HEADER_BYTES = 1 + Integer.BYTES + Short.BYTES;
+
+    public static final int MAX_SYMBOL_BYTES = 64;
+
+    /** Connection-local symbol IDs are {@code 0 <= id < MAX_SYMBOL_ID}, which bounds the per-connection ID table. */
+    public static final int MAX_SYMBOL_ID = 1 << 16;
+
+    private TickFrames() {
+    }
+
+    /**
+     * Append a {@link #TICK} frame. The buffer must have {@link #TICK_BYTES} remaining.
+     */
+    public static void putTick(ByteBuffer buffer, int symbolId, double bid, double ask, long timestampMs) {
+        buffer.put(TICK).putInt(symbolId).putDouble(bid).putDouble(ask).putLong(timestampMs);
+    }
+
+    /**
+     * Append a {@link #DEFINE} frame binding {@code symbolId} to {@code symbol} on this connection.
+     */
+    public static void putDefine(ByteBuffer buffer, int symbolId, String symbol) {
+        byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+        if (name.length == 0 || name.length > MAX_SYMBOL_BYTES) {
+            throw new IllegalArgumentException("Symbol must be 1-" + MAX_SYMBOL_BYTES + " UTF-8 bytes: " + symbol);
+        }
+        if (symbolId < 0 || symbolId >= MAX_SYMBOL_ID) {
+            throw new IllegalArgumentException("Symbol ID must be in [0, " + MAX_SYMBOL_ID + "): " + symbolId);
+        }
+        buffer.put(DEFINE).putInt(symbolId).putShort((short) name.length).put(name);
+    }
+}
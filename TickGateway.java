@@ -0,0 +1,304 @@
+package com.candle.gateway;
+
+import com.candle.event.TickBatch;
+import com.candle.ingest.IngestResult;
+import com.candle.service.AggregationService;
+import com.candle.service.SymbolRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking TCP gateway that feeds binary tick frames (see {@link TickFrames}) into
+ * {@link AggregationService}.
+ *
+ * <p>One selector thread serves every connection. Each connection owns a direct read buffer and a
+ * reusable {@link TickBatch}; frames are decoded with absolute reads straight out of the buffer into
+ * the batch's columns, and everything decoded from one read is ingested with a single
+ * {@link AggregationService#ingestBatch(TickBatch)} call. Steady-state decoding allocates nothing per
+ * tick. A slow aggregation path (a full shard ring) stalls the selector thread, and TCP flow control
+ * pushes back on the senders.
+ *
+ * <p>For each ingested batch the gateway records the time from the start of decoding to the return of
+ * {@code ingestBatch} in {@link #latency()}; that is the decode-to-aggregate latency of the batch's
+ * first tick, the longest-waiting one.
+ *
+ * <p>Enabled only when {@code candle.gateway.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "candle.gateway.enabled", havingValue = "true")
+public class TickGateway implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TickGateway.class);
+
+    private final AggregationService aggregationService;
+    private final InetSocketAddress bindAddress;
+    private final int bufferBytes;
+
+    private final AtomicLong ticksAccepted = new AtomicLong();
+    private final AtomicLong ticksRejected = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param port        TCP port to listen on; 0 picks a free port (see {@link #port()})
+     * @param bufferBytes Read buffer per connection; also bounds the ticks ingested per batch
+     */
+    @Autowired
+    public TickGateway(AggregationService aggregationService,
+                       @Value("${candle.gateway.host:0.0.0.0}") String host,
+                       @Value("${candle.gateway.port:7400}") int port,
+                       @Value("${candle.gateway.buffer-bytes:65536}") int bufferBytes) {
+        if (bufferBytes < TickFrames.DEFINE_HEADER_BYTES + TickFrames.MAX_SYMBOL_BYTES) {
+            throw new IllegalArgumentException("Gateway buffer must hold at least one frame: " + bufferBytes);
+        }
+        this.aggregationService = aggregationService;
+        this.bindAddress = new InetSocketAddress(host, port);
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Bind the listening socket and start the selector thread.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (running) return;
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.bind(bindAddress);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind tick gateway to " + bindAddress, e);
+        }
+        running = true;
+        thread = new Thread(this::run, "candle-gateway");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Tick gateway listening on {}", server.socket().getLocalSocketAddress());
+    }
+
+    /**
+     * Stop accepting data, close every connection and wait for the selector thread to exit.
+     * Ticks already decoded have been ingested when this returns.
+     */
+    @PreDestroy
+    @Override
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Tick gateway stopped: accepted={} rejected={} connections={}",
+                ticksAccepted.get(), ticksRejected.get(), connections.get());
+    }
+
+    /**
+     * The port the gateway is listening on.
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    public long ticksAccepted() {
+        return ticksAccepted.get();
+    }
+
+    public long ticksRejected() {
+        return ticksRejected.get();
+    }
+
+    /**
+     * Decode-to-aggregate latency per ingested batch.
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Tick gateway selector failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+                server.close();
+            } catch (IOException e) {
+                log.warn("Error closing tick gateway", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(bufferBytes));
+            connections.incrementAndGet();
+            log.info("Tick gateway accepted connection from {}", channel.getRemoteAddress());
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            int read = channel.read(connection.buffer);
+            if (read < 0) {
+                closeQuietly(key);
+                return;
+            }
+            long decodeStart = System.nanoTime();
+            connection.buffer.flip();
+            boolean wellFormed = decode(connection);
+            connection.buffer.compact();
+            ingest(connection, decodeStart);
+            if (!wellFormed) {
+                log.warn("Closing tick gateway connection {}: malformed frame", channel.getRemoteAddress());
+                closeQuietly(key);
+            }
+        } catch (IOException e) {
+            log.debug("Tick gateway connection failed", e);
+            closeQuietly(key);
+        }
+    }
+
+    /**
+     * Decode every complete frame in the connection's buffer into its batch, ingesting whenever the
+     * batch fills up. A partial frame at the end is left in the buffer for the next read.
+     *
+     * @return false if the stream holds an unknown frame type or an invalid {@code DEFINE}
+     */
+    private boolean decode(Connection connection) {
+        ByteBuffer in = connection.buffer;
+        TickBatch batch = connection.batch;
+        while (in.hasRemaining()) {
+            int at = in.position();
+            byte type = in.get(at);
+            if (type == TickFrames.TICK) {
+                if (in.remaining() < TickFrames.TICK_BYTES) break;
+                if (batch.isFull()) ingest(connection, System.nanoTime());
+                batch.add(connection.symbolId(in.getInt(at + 1)),
+                        in.getDouble(at + 5), in.getDouble(at + 13), in.getLong(at + 21));
+                in.position(at + TickFrames.TICK_BYTES);
+            } else if (type == TickFrames.DEFINE) {
+                if (in.remaining() < TickFrames.DEFINE_HEADER_BYTES) break;
+                int localId = in.getInt(at + 1);
+                int length = in.getShort(at + 5) & 0xFFFF;
+                if (localId < 0 || localId >= TickFrames.MAX_SYMBOL_ID
+                        || length == 0 || length > TickFrames.MAX_SYMBOL_BYTES) {
+                    return false;
+                }
+                if (in.remaining() < TickFrames.DEFINE_HEADER_BYTES + length) break;
+                byte[] name = new byte[length];
+                in.get(at + TickFrames.DEFINE_HEADER_BYTES, name);
+                // Ticks decoded so far refer to the previous binding
+                if (batch.size() > 0) ingest(connection, System.nanoTime());
+                connection.define(localId, aggregationService.getSymbolRegistry()
+                        .intern(new String(name, StandardCharsets.UTF_8)));
+                in.position(at + TickFrames.DEFINE_HEADER_BYTES + length);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ingest(Connection connection, long decodeStart) {
+        TickBatch batch = connection.batch;
+        if (batch.size() == 0) return;
+        IngestResult result = aggregationService.ingestBatch(batch);
+        latency.record(System.nanoTime() - decodeStart);
+        batch.clear();
+        ticksAccepted.addAndGet(result.accepted());
+        ticksRejected.addAndGet(result.rejected());
+    }
+
+    private void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Error closing tick gateway channel", e);
+        }
+    }
+
+    /**
+     * Per-connection decoding state. Touched only by the selector thread.
+     */
+    private static final class Connection {
+
+        final ByteBuffer buffer;
+        final TickBatch batch;
+
+        /** Connection-local symbol ID → {@link SymbolRegistry} ID; -1 when undefined. */
+        private int[] symbolIds = new int[16];
+
+        Connection(int bufferBytes) {
+            this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+            this.batch = new TickBatch(bufferBytes / TickFrames.TICK_BYTES);
+            Arrays.fill(symbolIds, -1);
+        }
+
+        /** Registry ID for a local ID, or -1 so that {@link TickBatch} rejects the row. */
+        int symbolId(int localId) {
+            return localId >= 0 && localId < symbolIds.length ? symbolIds[localId] : -1;
+        }
+
+        void define(int localId, int registryId) {
+            if (localId >= symbolIds.length) {
+                int oldLength = symbolIds.length;
+                symbolIds = Arrays.copyOf(symbolIds, Math.max(localId + 1, oldLength * 2));
+                Arrays.fill(symbolIds, oldLength, symbolIds.length, -1);
+            }
+            symbolIds[localId] = registryId;
+        }
+    }
+}
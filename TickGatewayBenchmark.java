@@ -0,0 +1,69 @@
+package com.candle.gateway;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.ingest.IngestMode;
+import com.candle.service.AggregationConfig;
+import com.candle.service.AggregationService;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Loopback load test of {@link TickGateway}: {@link TickLoadClient} streams binary ticks over
+ * 4 connections; reports the sustained aggregated rate and the gateway's p99 decode-to-aggregate latency.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Tick gateway benchmark")
+class TickGatewayBenchmark {
+
+    private static final int CONNECTIONS = 4;
+    private static final long WARM_UP_MILLIS = 2_000;
+    private static final long RUN_MILLIS = 5_000;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("sustained ticks/s and p99 decode-to-aggregate latency over loopback")
+    void loopback() throws InterruptedException {
+        for (IngestMode mode : new IngestMode[]{IngestMode.LOCKED, IngestMode.SHARDED}) {
+            AggregationService service = new AggregationService(new CandleStore(), AggregationConfig.builder()
+                    .mode(mode).shards(2).reorderWindowSeconds(0).idleEvictSeconds(0).build());
+            TickGateway gateway = new TickGateway(service, "127.0.0.1", 0, 65_536);
+            gateway.start();
+            TickLoadClient client = new TickLoadClient(new InetSocketAddress("127.0.0.1", gateway.port()), CONNECTIONS);
+
+            client.run(WARM_UP_MILLIS);
+            await().atMost(Duration.ofSeconds(30)).until(() -> gateway.ticksAccepted() > 0);
+            long acceptedBefore = gateway.ticksAccepted();
+            gateway.latency().reset();
+
+            long start = System.nanoTime();
+            long sent = client.run(RUN_MILLIS);
+            await().atMost(Duration.ofSeconds(30)).until(() -> gateway.ticksAccepted() - acceptedBefore >= sent);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%s mode, %d connections: %,.1fM ticks/s aggregated | decode-to-aggregate p50=%,d us p99=%,d us (%,d batches)%n",
+                    mode, CONNECTIONS, sent / seconds / 1e6,
+                    gateway.latency().percentile(50) / 1_000, gateway.latency().percentile(99) / 1_000,
+                    gateway.latency().count());
+            assertThat(gateway.ticksRejected()).isZero();
+            gateway.close();
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.candle.gateway;
+
+import com.candle.model.Candle;
+import com.candle.service.AggregationConfig;
+import com.candle.service.AggregationService;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Tick gateway")
+class TickGatewayTest {
+
+    private static final long T0 = 1_700_000_040_000L; // minute-aligned, in milliseconds
+
+    private CandleStore store;
+    private AggregationService service;
+    private TickGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        store = new CandleStore();
+        service = new AggregationService(store,
+                AggregationConfig.builder().reorderWindowSeconds(0).idleEvictSeconds(0).build());
+        gateway = new TickGateway(service, "127.0.0.1", 0, 4096);
+        gateway.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.port()));
+    }
+
+    private static void send(SocketChannel channel, ByteBuffer frames) throws IOException {
+        frames.flip();
+        while (frames.hasRemaining()) channel.write(frames);
+    }
+
+    @Test
+    @DisplayName("decoded ticks are aggregated under the symbol their connection defined")
+    void ticksAreAggregated() throws IOException {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer frames = ByteBuffer.allocate(1024);
+            TickFrames.putDefine(frames, 7, "BTC-USD");
+            TickFrames.putTick(frames, 7, 99.0, 101.0, T0);
+            TickFrames.putTick(frames, 7, 109.0, 111.0, T0 + 500);
+            TickFrames.putTick(frames, 7, 89.0, 91.0, T0 + 1_000);
+            send(channel, frames);
+            await().atMost(Duration.ofSeconds(5)).until(() -> gateway.ticksAccepted() == 3);
+        }
+        service.shutdown();
+
+        List<Candle> seconds = store.query("BTC-USD", "1s", 0, Long.MAX_VALUE);
+        assertThat(seconds).hasSize(2);
+        assertThat(seconds.get(0)).isEqualTo(new Candle(T0 / 1000, 100.0, 110.0, 100.0, 110.0, 2));
+        assertThat(gateway.latency().count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("frames split across writes are reassembled")
+    void partialFrames() throws IOException, InterruptedException {
+        ByteBuffer frames = ByteBuffer.allocate(4096);
+        TickFrames.putDefine(frames, 0, "ETH-USD");
+        for (int i = 0; i < 100; i++) {
+            TickFrames.putTick(frames, 0, 200.0 + i, 200.5 + i, T0 + i * 100L);
+        }
+        frames.flip();
+        try (SocketChannel channel = connect()) {
+            for (int chunk = 0; frames.hasRemaining(); chunk++) {
+                ByteBuffer slice = frames.slice();
+                slice.limit(Math.min(slice.remaining(), 7 + chunk % 31)); // never frame-aligned
+                int written = channel.write(slice);
+                frames.position(frames.position() + written);
+                if (chunk % 10 == 0) Thread.sleep(1);
+            }
+            await().atMost(Duration.ofSeconds(5)).until(() -> gateway.ticksAccepted() == 100);
+        }
+        assertThat(gateway.ticksRejected()).isZero();
+    }
+
+    @Test
+    @DisplayName("ticks for an undefined symbol ID are rejected; a malformed frame closes the connection")
+    void rejectsUndefinedAndMalformed() throws IOException {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer frames = ByteBuffer.allocate(1024);
+            TickFrames.putTick(frames, 3, 99.0, 101.0, T0);
+            TickFrames.putDefine(frames, 3, "SOL-USD");
+            TickFrames.putTick(frames, 3, 99.0, 101.0, T0);
+            frames.put((byte) 'X');
+            send(channel, frames);
+            await().atMost(Duration.ofSeconds(5)).until(() -> gateway.ticksAccepted() + gateway.ticksRejected() == 2);
+
+            ByteBuffer in = ByteBuffer.allocate(1);
+            await().atMost(Duration.ofSeconds(5)).until(() -> channel.read(in) < 0);
+        }
+        assertThat(gateway.ticksAccepted()).isEqualTo(1);
+        assertThat(gateway.ticksRejected()).isEqualTo(1);
+        assertThat(service.activeSymbols()).containsExactly("SOL-USD");
+    }
+}
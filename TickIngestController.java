@@ -0,0 +1,59 @@
+package com.candle.controller;
+
+import com.candle.ingest.IngestResult;
+import com.candle.service.AggregationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * REST controller for producers that can only POST JSON.
+ *
+ * <pre>
+ * POST /ticks   Content-Type: application/x-ndjson
+ * {"symbol":"BTC-USD","bid":64999.5,"ask":65000.5,"timestamp":1700000000000}
+ * {"symbol":"ETH-USD","bid":3499.9,"ask":3500.1,"timestamp":1700000000250}
+ * </pre>
+ *
+ * The body is read and aggregated as it arrives (see {@link NdjsonTickReader}), so a producer may
+ * keep one request open as a long-lived stream. When the body ends, the response reports
+ * {@code {"accepted":n,"rejected":m}} for that stream.
+ *
+ * <p>Each open stream holds a request thread while it waits for bytes; the application runs request
+ * handling on virtual threads ({@code spring.threads.virtual.enabled}, on by default), so thousands of
+ * slow producers park cheaply instead of exhausting the platform thread pool.
+ */
+@RestController
+@RequestMapping("/ticks")
+public class TickIngestController {
+
+    private static final Logger log = LoggerFactory.getLogger(TickIngestController.class);
+
+    private final AggregationService aggregationService;
+    private final int batchSize;
+
+    /**
+     * @param batchSize Most ticks handed to {@link AggregationService#ingestBatch} at once
+     */
+    public TickIngestController(AggregationService aggregationService,
+                                @Value("${candle.ticks.batch-size:1024}") int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be >= 1");
+        this.aggregationService = aggregationService;
+        this.batchSize = batchSize;
+    }
+
+    @PostMapping(consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<IngestResult> ingest(InputStream body) throws IOException {
+        IngestResult result = new NdjsonTickReader(aggregationService, batchSize).read(body);
+        log.debug("POST /ticks stream closed: accepted={} rejected={}", result.accepted(), result.rejected());
+        return ResponseEntity.ok(result);
+    }
+}
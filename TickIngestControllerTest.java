@@ -0,0 +1,128 @@
+package com.candle.controller;
+
+import com.candle.ingest.IngestResult;
+import com.candle.service.AggregationConfig;
+import com.candle.service.AggregationService;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName("POST /ticks")
+class TickIngestControllerTest {
+
+    private static final long T0 = 1_700_000_040_000L;
+
+    private CandleStore store;
+    private AggregationService service;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        store = new CandleStore();
+        service = new AggregationService(store,
+                AggregationConfig.builder().reorderWindowSeconds(0).idleEvictSeconds(0).build());
+        mockMvc = MockMvcBuilders.standaloneSetup(new TickIngestController(service, 2)).build();
+    }
+
+    private static String tick(String symbol, double bid, double ask, long timestampMs) {
+        return "{\"symbol\":\"" + symbol + "\",\"bid\":" + bid + ",\"ask\":" + ask + ",\"timestamp\":" + timestampMs + "}";
+    }
+
+    private IngestResult read(String body) throws IOException {
+        return new NdjsonTickReader(service, 2).read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("an NDJSON stream is aggregated and its counts returned when it ends")
+    void streamIsAggregated() throws Exception {
+        String body = String.join("\n",
+                tick("BTC-USD", 99.0, 101.0, T0),
+                tick("BTC-USD", 109.0, 111.0, T0 + 500),
+                tick("ETH-USD", 199.0, 201.0, T0),
+                "{\"symbol\":\"BTC-USD\",\"bid\":\"oops\"}",
+                tick("BTC-USD", 89.0, 91.0, T0 + 1_000)) + "\n";
+
+        mockMvc.perform(post("/ticks").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(4))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        service.shutdown();
+        assertThat(store.query("BTC-USD", "1s", 0, Long.MAX_VALUE)).hasSize(2);
+        assertThat(store.query("BTC-USD", "1s", 0, Long.MAX_VALUE).get(0).high()).isEqualTo(110.0);
+        assertThat(service.activeSymbols()).containsExactly("BTC-USD", "ETH-USD");
+    }
+
+    @Test
+    @DisplayName("malformed, incomplete and invalid lines are rejected one by one; blank lines and unknown fields are ignored")
+    void rejectsBadLines() throws IOException {
+        String body = String.join("\n",
+                "",
+                "not json",
+                "[1,2,3]",
+                "{\"symbol\":\"BTC-USD\",\"bid\":99.0,\"ask\":101.0}",                 // no timestamp
+                "{\"symbol\":\"BTC-USD\",\"bid\":99.0,\"ask\":101.0,\"timestamp\":1} {}",  // trailing value
+                tick("BTC-USD", 101.0, 99.0, T0),                                      // crossed
+                "   \r",
+                "{\"venue\":{\"id\":1},\"symbol\":\"BTC-USD\",\"bid\":99.0,\"ask\":101.0,\"timestamp\":" + T0 + "}",
+                tick("BTC-USD", 99.0, 101.0, T0 + 1));                                 // no final newline
+
+        assertThat(read(body)).isEqualTo(new IngestResult(2, 5));
+    }
+
+    @Test
+    @DisplayName("a line longer than the buffer is rejected and the stream recovers at the next line")
+    void overlongLine() throws IOException {
+        String huge = "{\"symbol\":\"" + "X".repeat(NdjsonTickReader.MAX_LINE_BYTES) + "\"}";
+        String body = tick("BTC-USD", 99.0, 101.0, T0) + "\n" + huge + "\n" + tick("BTC-USD", 99.0, 101.0, T0 + 1) + "\n";
+
+        assertThat(read(body)).isEqualTo(new IngestResult(2, 1));
+    }
+
+    @Test
+    @DisplayName("ticks are aggregated as they arrive, not when the stream ends")
+    void slowProducerIsNotHeldBack() throws IOException {
+        List<byte[]> chunks = List.of(
+                (tick("BTC-USD", 99.0, 101.0, T0) + "\n").getBytes(StandardCharsets.UTF_8),
+                (tick("BTC-USD", 99.0, 101.0, T0 + 1_000) + "\n").getBytes(StandardCharsets.UTF_8));
+        List<Integer> candlesBeforeEachRead = new ArrayList<>();
+
+        InputStream slow = new InputStream() {
+            private int next;
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                candlesBeforeEachRead.add(store.totalCandles());
+                if (next == chunks.size()) return -1;
+                byte[] chunk = chunks.get(next++);
+                System.arraycopy(chunk, 0, b, off, chunk.length);
+                return chunk.length;
+            }
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertThat(new NdjsonTickReader(service, 1024).read(slow)).isEqualTo(new IngestResult(2, 0));
+        // The second tick rolled the first 100ms, 250ms, 500ms and 1s candles before the stream ended
+        assertThat(candlesBeforeEachRead).containsExactly(0, 0, 4);
+    }
+}
@@ -0,0 +1,94 @@
+package com.candle.gateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for {@link TickGateway}: each connection defines its symbols, then streams tick frames
+ * as fast as the socket accepts them for a fixed duration.
+ *
+ * <p>Run standalone against a gateway with
+ * {@code java -cp app.jar com.candle.gateway.TickLoadClient host port connections seconds}; it prints
+ * the sustained send rate. Decode-to-aggregate latency is measured by the gateway itself (see
+ * {@link TickGateway#latency()}); {@code TickGatewayBenchmark} runs both in one JVM over loopback and
+ * reports the two together.
+ */
+public final class TickLoadClient {
+
+    private static final int SYMBOLS_PER_CONNECTION = 8;
+    private static final int FRAMES_PER_WRITE = 512;
+
+    private final InetSocketAddress address;
+    private final int connections;
+
+    public TickLoadClient(InetSocketAddress address, int connections) {
+        this.address = address;
+        this.connections = connections;
+    }
+
+    /**
+     * Stream ticks on every connection for {@code durationMillis}, then close them.
+     *
+     * @return ticks written
+     */
+    public long run(long durationMillis) throws InterruptedException {
+        AtomicLong sent = new AtomicLong();
+        long deadline = System.nanoTime() + durationMillis * 1_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            Thread thread = new Thread(() -> sent.addAndGet(stream(connection, deadline)), "tick-load-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return sent.get();
+    }
+
+    private long stream(int connection, long deadline) {
+        ByteBuffer frames = ByteBuffer.allocateDirect(FRAMES_PER_WRITE * TickFrames.TICK_BYTES);
+        long sent = 0;
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            for (int s = 0; s < SYMBOLS_PER_CONNECTION; s++) {
+                TickFrames.putDefine(frames, s, "LOAD-" + connection + "-" + s);
+            }
+            write(channel, frames);
+            while (System.nanoTime() < deadline) {
+                long timestampMs = System.currentTimeMillis();
+                for (int i = 0; i < FRAMES_PER_WRITE; i++) {
+                    double mid = 100.0 + (i & 63) * 0.01;
+                    TickFrames.putTick(frames, i % SYMBOLS_PER_CONNECTION, mid - 0.005, mid + 0.005, timestampMs);
+                }
+                write(channel, frames);
+                sent += FRAMES_PER_WRITE;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Load connection " + connection + " failed", e);
+        }
+        return sent;
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer frames) throws IOException {
+        frames.flip();
+        while (frames.hasRemaining()) channel.write(frames);
+        frames.clear();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7400;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        long sent = new TickLoadClient(new InetSocketAddress(host, port), connections).run(seconds * 1_000L);
+        System.out.printf("sent %,d ticks over %d connections in %ds: %,.0f ticks/s%n",
+                sent, connections, seconds, sent / (double) seconds);
+    }
+}
@@ -0,0 +1,532 @@
+package com.candle.ingest;
+
+import com.candle.event.TickBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of raw ticks, from which candles still open when the process died are rebuilt on startup.
+ *
+ * <p>The log is a series of numbered segment files ({@code 00000000000000000001.wal}, …) of CRC-framed records,
+ * little-endian. Each segment defines the symbols it uses before their first tick, so it can be read on its own:
+ * <pre>
+ * segment  0 magic "CANDLWAL"  8 format version  12 zero  16 frames
+ * frame    0 body length  4 CRC32C of the body  8 body
+ * body     0 type 1 (tick)    1 symbol ID  5 bid  13 ask  21 timestamp (ms)
+ *          0 type 2 (symbol)  1 symbol ID  5 name, UTF-8
+ * </pre>
+ *
+ * <p><b>Group commit:</b> {@link #append} copies a frame into an in-memory buffer under a short lock and returns;
+ * it never touches the file. A background syncer swaps in a second buffer every
+ * {@link TickLogConfig#syncIntervalMillis}, or sooner once the filling one is half full, then writes the full one
+ * out and forces it to disk with a single {@code fsync} for every tick logged in the interval. A crash loses at
+ * most the ticks of the last interval. A producer that finds the buffer full waits for the swap, and is
+ * counted as a stall.
+ *
+ * <p><b>Checkpoints:</b> the owner {@link #roll rolls} to a new segment at a point where it has also captured
+ * the state the ticks before it led to, and {@link #commit commits} that state with the new segment's number.
+ * The checkpoint file is replaced atomically and the segments before it are deleted, so the log holds only
+ * the ticks since the last checkpoint. On startup {@link #checkpoint()} gives that state back and
+ * {@link #replay} the ticks after it. Reading stops at the first frame that is cut short or fails its CRC,
+ * which ends that segment: a crash can only tear the tail of the newest one.
+ *
+ * <p>{@link #append} may be called from any thread; the other methods from one thread at a time.
+ */
+public final class TickLog {
+
+    private static final Logger log = LoggerFactory.getLogger(TickLog.class);
+
+    static final String SUFFIX = ".wal";
+    static final String CHECKPOINT = "checkpoint";
+    static final int SEGMENT_HEADER_BYTES = 16;
+    static final int FRAME_HEADER_BYTES = 8;
+    static final int TICK_BODY_BYTES = 29;
+
+    /** "CANDLWAL" and "CANDLCKP" read as little-endian longs. */
+    private static final long SEGMENT_MAGIC = 0x4C41574C444E4143L;
+    private static final long CHECKPOINT_MAGIC = 0x504B434C444E4143L;
+    private static final int VERSION = 1;
+    private static final int CHECKPOINT_HEADER_BYTES = 28;
+    private static final byte TICK = 1;
+    private static final byte SYMBOL = 2;
+    private static final int MAX_BODY_BYTES = 1 << 16;
+    private static final int READ_BYTES = 1 << 20;
+
+    /** Receives replayed ticks. */
+    @FunctionalInterface
+    public interface TickConsumer {
+        void accept(String symbol, double bid, double ask, long timestampMs);
+    }
+
+    private final TickLogConfig config;
+    private final byte[] checkpoint;
+    private final long checkpointSequence;
+    private final List<Path> segments;
+
+    /** Guards the filling buffer and the symbols defined in the current segment. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    /** Guards the file and the buffer being written out. Taken before {@link #lock}. */
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer active;
+    private ByteBuffer spare;
+    private boolean[] defined = new boolean[64];
+    private boolean wakeRequested;
+
+    private FileChannel channel;
+    private long sequence;
+    private long nextSequence;
+    private Thread syncer;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    private volatile long appended;
+    private volatile long stalls;
+    private volatile long syncs;
+    private volatile long replayed;
+
+    private TickLog(TickLogConfig config, byte[] checkpoint, long checkpointSequence, List<Path> segments) {
+        this.config = config;
+        this.checkpoint = checkpoint;
+        this.checkpointSequence = checkpointSequence;
+        this.segments = segments;
+        long last = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1));
+        this.nextSequence = Math.max(last + 1, checkpointSequence);
+    }
+
+    /**
+     * Read the checkpoint and list the segments in {@code config.dir()}, creating it if needed. Nothing is
+     * logged until {@link #start}.
+     *
+     * @throws IOException if the directory cannot be read, or the checkpoint is damaged
+     */
+    public static TickLog open(TickLogConfig config) throws IOException {
+        Files.createDirectories(config.dir());
+        byte[] state = null;
+        long from = 1;
+        Path checkpoint = config.dir().resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(checkpoint)).order(ByteOrder.LITTLE_ENDIAN);
+            if (file.remaining() < CHECKPOINT_HEADER_BYTES || file.getLong(0) != CHECKPOINT_MAGIC
+                    || file.getInt(8) != VERSION || file.getInt(20) != file.remaining() - CHECKPOINT_HEADER_BYTES) {
+                throw new IOException(checkpoint + " is not a tick log checkpoint of format version " + VERSION);
+            }
+            from = file.getLong(12);
+            state = Arrays.copyOfRange(file.array(), CHECKPOINT_HEADER_BYTES, file.limit());
+            CRC32C crc = new CRC32C();
+            crc.update(state);
+            if (file.getInt(24) != (int) crc.getValue()) throw new IOException(checkpoint + " fails its CRC");
+        }
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(config.dir(), "*" + SUFFIX)) {
+            for (Path file : stream) {
+                if (sequenceOf(file) >= from) segments.add(file);
+            }
+        }
+        segments.sort(null);
+        return new TickLog(config, state, from, segments);
+    }
+
+    /**
+     * The state committed with the last checkpoint, or null if there is none.
+     */
+    public byte[] checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Hand every tick logged since the last checkpoint to {@code consumer}, in the order it was logged.
+     *
+     * @return number of ticks replayed
+     */
+    public long replay(TickConsumer consumer) throws IOException {
+        long ticks = 0;
+        for (Path segment : segments) ticks += replay(segment, consumer);
+        replayed = ticks;
+        if (!segments.isEmpty()) log.info("Replayed {} ticks from {} tick log segments", ticks, segments.size());
+        return ticks;
+    }
+
+    private static long replay(Path segment, TickConsumer consumer) throws IOException {
+        Map<Integer, String> symbols = new HashMap<>();
+        CRC32C crc = new CRC32C();
+        long ticks = 0;
+        long offset = SEGMENT_HEADER_BYTES;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            if (!fill(channel, buffer, SEGMENT_HEADER_BYTES) || buffer.getLong(0) != SEGMENT_MAGIC
+                    || buffer.getInt(8) != VERSION) {
+                log.warn("Skipping {}: not a tick log segment of format version {}", segment, VERSION);
+                return 0;
+            }
+            buffer.position(SEGMENT_HEADER_BYTES);
+            while (fill(channel, buffer, FRAME_HEADER_BYTES)) {
+                int at = buffer.position();
+                int length = buffer.getInt(at);
+                if (length <= 0 || length > MAX_BODY_BYTES || !fill(channel, buffer, FRAME_HEADER_BYTES + length)) break;
+                at = buffer.position();
+                crc.reset();
+                crc.update(buffer.array(), at + FRAME_HEADER_BYTES, length);
+                if (buffer.getInt(at + 4) != (int) crc.getValue()) break;
+                int body = at + FRAME_HEADER_BYTES;
+                int symbolId = buffer.getInt(body + 1);
+                if (buffer.get(body) == SYMBOL) {
+                    symbols.put(symbolId, new String(buffer.array(), body + 5, length - 5, StandardCharsets.UTF_8));
+                } else if (buffer.get(body) == TICK && length == TICK_BODY_BYTES && symbols.containsKey(symbolId)) {
+                    consumer.accept(symbols.get(symbolId), buffer.getDouble(body + 5), buffer.getDouble(body + 13),
+                            buffer.getLong(body + 21));
+                    ticks++;
+                } else {
+                    break;
+                }
+                buffer.position(body + length);
+                offset += FRAME_HEADER_BYTES + length;
+            }
+            if (offset < channel.size()) {
+                log.warn("{} ends in a torn or damaged frame at byte {} of {}; {} ticks before it replayed",
+                        segment, offset, channel.size(), ticks);
+            }
+        }
+        return ticks;
+    }
+
+    /** Make at least {@code bytes} readable from the buffer's position, reading more of the file if needed. */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Open a new segment and start the background syncer; ticks can be appended from here on.
+     */
+    public void start() throws IOException {
+        ioLock.lock();
+        lock.lock();
+        try {
+            active = ByteBuffer.allocate(config.bufferBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            spare = ByteBuffer.allocate(config.bufferBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            openSegment();
+        } finally {
+            lock.unlock();
+            ioLock.unlock();
+        }
+        syncer = new Thread(this::runSyncer, "tick-log-syncer");
+        syncer.setDaemon(true);
+        syncer.start();
+        log.info("Tick log started in {}: segment {}, syncing every {} ms", config.dir(), sequence,
+                config.syncIntervalMillis());
+    }
+
+    /**
+     * Log a tick. Dropped once the log is closed, or after a write failure.
+     */
+    public void append(int symbolId, String symbol, double bid, double ask, long timestampMs) {
+        lock.lock();
+        try {
+            if (define(symbolId, symbol) && reserve(FRAME_HEADER_BYTES + TICK_BODY_BYTES)) {
+                putTick(symbolId, bid, ask, timestampMs);
+                appended++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Log the valid rows of a columnar batch under one lock acquisition. Rows whose symbol ID
+     * {@code symbols} does not know (returns null for) are left out.
+     */
+    public void append(TickBatch batch, IntFunction<String> symbols) {
+        lock.lock();
+        try {
+            long count = 0;
+            for (int row = 0; row < batch.size(); row++) {
+                if (!batch.isValid(row)) continue;
+                int symbolId = batch.symbolId(row);
+                if (!define(symbolId, symbols.apply(symbolId)) || !reserve(FRAME_HEADER_BYTES + TICK_BODY_BYTES)) continue;
+                putTick(symbolId, batch.bid(row), batch.ask(row), batch.timestampMs(row));
+                count++;
+            }
+            appended += count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Write a symbol frame unless the current segment has one. Must hold {@link #lock}. */
+    private boolean define(int symbolId, String symbol) {
+        if (symbolId < defined.length && defined[symbolId]) return true;
+        if (symbol == null || symbolId < 0) return false;
+        byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+        int length = 5 + name.length;
+        if (length > MAX_BODY_BYTES || !reserve(FRAME_HEADER_BYTES + length)) return false;
+        int at = active.position();
+        int body = at + FRAME_HEADER_BYTES;
+        active.put(body, SYMBOL).putInt(body + 1, symbolId).put(body + 5, name);
+        seal(at, length);
+        if (symbolId >= defined.length) defined = Arrays.copyOf(defined, Math.max(symbolId + 1, defined.length * 2));
+        defined[symbolId] = true;
+        return true;
+    }
+
+    /** Must hold {@link #lock}, with the frame reserved. */
+    private void putTick(int symbolId, double bid, double ask, long timestampMs) {
+        int at = active.position();
+        int body = at + FRAME_HEADER_BYTES;
+        active.put(body, TICK).putInt(body + 1, symbolId).putDouble(body + 5, bid).putDouble(body + 13, ask)
+                .putLong(body + 21, timestampMs);
+        seal(at, TICK_BODY_BYTES);
+    }
+
+    /** Write the header of the frame whose body was put at {@code at}, and move past it. */
+    private void seal(int at, int length) {
+        crc.reset();
+        crc.update(active.array(), at + FRAME_HEADER_BYTES, length);
+        active.putInt(at, length).putInt(at + 4, (int) crc.getValue());
+        active.position(at + FRAME_HEADER_BYTES + length);
+    }
+
+    /**
+     * Wait until the filling buffer has room for {@code bytes}, waking the syncer early once it is half full.
+     * Must hold {@link #lock}.
+     *
+     * @return false if the log no longer takes ticks
+     */
+    private boolean reserve(int bytes) {
+        while (active != null && active.remaining() < bytes && !closed && !failed) {
+            stalls++;
+            LockSupport.unpark(syncer);
+            drained.awaitUninterruptibly();
+        }
+        if (active == null || closed || failed) return false;
+        if (!wakeRequested && active.position() + bytes > active.capacity() / 2) {
+            wakeRequested = true;
+            LockSupport.unpark(syncer);
+        }
+        return true;
+    }
+
+    private void runSyncer() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.syncIntervalMillis());
+        while (!closed && !failed) {
+            LockSupport.parkNanos(this, intervalNanos);
+            sync();
+        }
+    }
+
+    /**
+     * Write out and force every tick logged so far: one group commit, as the syncer makes each interval.
+     */
+    public void sync() {
+        ioLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (failed || channel == null || active.position() == 0) return;
+                ByteBuffer full = active;
+                active = spare;
+                spare = full;
+                wakeRequested = false;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            spare.flip();
+            write(spare);
+            channel.force(false);
+            spare.clear();
+            syncs++;
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Force what was logged so far to the current segment and start a new one. No tick may be appended
+     * meanwhile if the caller is to tell which segment it is in.
+     *
+     * @return the new segment's number, to {@link #commit} a checkpoint with
+     */
+    public long roll() throws IOException {
+        ioLock.lock();
+        lock.lock();
+        try {
+            if (failed) throw new IOException("Tick log in " + config.dir() + " has failed");
+            active.flip();
+            write(active);
+            active.clear();
+            wakeRequested = false;
+            drained.signalAll();
+            channel.force(false);
+            syncs++;
+            channel.close();
+            openSegment();
+            return sequence;
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        } finally {
+            lock.unlock();
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the checkpoint with {@code state}, reached by the ticks logged before segment {@code sequence},
+     * then delete those segments.
+     */
+    public void commit(long sequence, byte[] state) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(state);
+        ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(CHECKPOINT_MAGIC).putInt(VERSION).putLong(sequence).putInt(state.length)
+                .putInt((int) crc.getValue()).flip();
+        Path target = config.dir().resolve(CHECKPOINT);
+        Path temp = config.dir().resolve(CHECKPOINT + ".tmp");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            file.write(new ByteBuffer[]{header, ByteBuffer.wrap(state)});
+            file.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(config.dir(), "*" + SUFFIX)) {
+            for (Path file : stream) {
+                if (sequenceOf(file) < sequence) {
+                    Files.delete(file);
+                    deleted++;
+                }
+            }
+        }
+        log.debug("Tick log checkpoint at segment {}: {} bytes of state, {} segments deleted",
+                sequence, state.length, deleted);
+    }
+
+    /** Make the checkpoint's rename durable; not every platform can open a directory for this. */
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(config.dir(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot force directory {}: {}", config.dir(), e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the syncer and force what is left. Ticks appended from here on are dropped.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (syncer != null) {
+            LockSupport.unpark(syncer);
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        ioLock.lock();
+        lock.lock();
+        try {
+            drained.signalAll();
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            log.warn("Closing tick log segment {}: {}", sequence, e.getMessage());
+        } finally {
+            lock.unlock();
+            ioLock.unlock();
+        }
+    }
+
+    /** Must hold both locks. */
+    private void openSegment() throws IOException {
+        Path file = config.dir().resolve(String.format("%020d%s", nextSequence, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(SEGMENT_MAGIC).putInt(VERSION).putInt(0).flip();
+        write(header);
+        sequence = nextSequence++;
+        Arrays.fill(defined, false);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            if (!failed) log.error("Tick log in {} failed; ticks are no longer logged", config.dir(), e);
+            failed = true;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Ticks logged since startup. */
+    public long appendedTicks() {
+        return appended;
+    }
+
+    /** Times a producer waited for a full buffer to be swapped out. */
+    public long stalls() {
+        return stalls;
+    }
+
+    /** Group commits: buffer writes each forced with one fsync. */
+    public long syncs() {
+        return syncs;
+    }
+
+    /** Ticks replayed on startup. */
+    public long replayedTicks() {
+        return replayed;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
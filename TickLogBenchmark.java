@@ -0,0 +1,120 @@
+package com.candle.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.event.BidAskEvent;
+import com.candle.gateway.LatencyHistogram;
+import com.candle.ingest.IngestMode;
+import com.candle.ingest.TickLog;
+import com.candle.ingest.TickLogConfig;
+import com.candle.store.CandleStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * What the tick log adds to {@code ingest}: one producer feeds 2M ticks for 8 symbols, with and without the
+ * log (default 10 ms group commit, 1 MiB buffers), in locked and sharded mode; reports ingest latency
+ * percentiles, the p99 overhead against the 1µs budget, and ticks per fsync. Then times recovery: opening the
+ * log and replaying the ticks since the last checkpoint.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Tick log benchmark")
+class TickLogBenchmark {
+
+    private static final String[] SYMBOLS = {"BTC-USD", "ETH-USD", "SOL-USD", "BNB-USD",
+            "XRP-USD", "ADA-USD", "DOT-USD", "AVAX-USD"};
+    private static final int TICKS = 2_000_000;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("ingest latency with and without the tick log, and replay rate")
+    void tickLogOverhead() throws IOException {
+        for (IngestMode mode : new IngestMode[]{IngestMode.LOCKED, IngestMode.SHARDED}) {
+            run(mode, null, "warm-up");
+            run(mode, dir.resolve("warm-up-" + mode), "warm-up");
+            LatencyHistogram without = run(mode, null, "off");
+            LatencyHistogram with = run(mode, dir.resolve(mode.name()), "on");
+            System.out.printf("%-7s p99 overhead %,d ns (budget 1,000 ns)%n", mode,
+                    with.percentile(99) - without.percentile(99));
+        }
+
+        AggregationService crashed = service(IngestMode.LOCKED, dir.resolve("crashed"));
+        feed(crashed, new LatencyHistogram());
+        crashed.getTickLog().sync(); // crash here: the log holds every tick since the startup checkpoint
+        Path image = dir.resolve("image");
+        copy(dir.resolve("crashed"), image);
+        crashed.shutdown();
+        long start = System.nanoTime();
+        AggregationService recovered = service(IngestMode.LOCKED, image);
+        long nanos = System.nanoTime() - start;
+        assertThat(recovered.getTickLog().replayedTicks()).isEqualTo(TICKS);
+        System.out.printf("recovery: %,d ticks replayed in %,d ms, %,.2fM ticks/s%n",
+                TICKS, nanos / 1_000_000, TICKS * 1e3 / nanos);
+        recovered.shutdown();
+    }
+
+    private LatencyHistogram run(IngestMode mode, Path tickLog, String label) {
+        AggregationService service = service(mode, tickLog);
+        LatencyHistogram latency = new LatencyHistogram();
+        long nanos = feed(service, latency);
+        TickLog log = service.getTickLog();
+        service.shutdown();
+        if (!label.equals("warm-up")) {
+            System.out.printf("%-7s log %-3s %,.2fM ticks/s | ingest p50=%,d ns p99=%,d ns p99.9=%,d ns%s%n",
+                    mode, label, TICKS * 1e3 / nanos, latency.percentile(50), latency.percentile(99),
+                    latency.percentile(99.9), log == null ? "" : String.format(
+                            " | %,d fsyncs, %,d ticks per fsync, %,d stalls",
+                            log.syncs(), log.appendedTicks() / Math.max(1, log.syncs()), log.stalls()));
+        }
+        return latency;
+    }
+
+    private static AggregationService service(IngestMode mode, Path tickLog) {
+        AggregationService service = new AggregationService(new CandleStore(), AggregationConfig.builder().mode(mode)
+                .shards(2).idleEvictSeconds(0).tickLog(tickLog != null ? new TickLogConfig(tickLog, 10, 1 << 20) : null)
+                .build());
+        service.start();
+        return service;
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) Files.copy(file, to.resolve(file.getFileName()));
+        }
+    }
+
+    /** @return nanoseconds the producer took */
+    private static long feed(AggregationService service, LatencyHistogram latency) {
+        long timestampMs = 1_700_000_040_000L;
+        long start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            double mid = 100.0 + (i % 50) * 0.1;
+            BidAskEvent tick = new BidAskEvent(SYMBOLS[i % SYMBOLS.length], mid - 0.05, mid + 0.05, timestampMs + i);
+            long before = System.nanoTime();
+            service.ingest(tick);
+            latency.record(System.nanoTime() - before);
+        }
+        return System.nanoTime() - start;
+    }
+}
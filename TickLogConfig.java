@@ -0,0 +1,20 @@
+package com.candle.ingest;
+
+import java.nio.file.Path;
+
+/**
+ * Where and how the {@link TickLog} writes.
+ *
+ * @param dir                Directory of the log segments and the checkpoint
+ * @param syncIntervalMillis Longest a logged tick waits to be written and forced to disk, along with every
+ *                           tick logged in the meantime
+ * @param bufferBytes        Size of each of the two in-memory buffers ticks are logged into; a producer that
+ *                           finds the filling one full waits for the next sync
+ */
+public record TickLogConfig(Path dir, long syncIntervalMillis, int bufferBytes) {
+
+    public TickLogConfig {
+        if (syncIntervalMillis <= 0) throw new IllegalArgumentException("Tick log sync interval must be positive");
+        if (bufferBytes < 4096) throw new IllegalArgumentException("Tick log buffer must be at least 4096 bytes");
+    }
+}
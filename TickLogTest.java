@@ -0,0 +1,175 @@
+package com.candle.ingest;
+
+import com.candle.event.TickBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Tick log")
+class TickLogTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    /** Segment header, then the BTC-USD symbol frame. */
+    private static final int FIRST_TICK = TickLog.SEGMENT_HEADER_BYTES + TickLog.FRAME_HEADER_BYTES + 5 + 7;
+    private static final int TICK_FRAME = TickLog.FRAME_HEADER_BYTES + TickLog.TICK_BODY_BYTES;
+
+    @TempDir
+    Path dir;
+
+    private record Tick(String symbol, double bid, double ask, long timestampMs) {
+    }
+
+    private TickLog started(long syncIntervalMillis, int bufferBytes) throws IOException {
+        TickLog log = TickLog.open(new TickLogConfig(dir, syncIntervalMillis, bufferBytes));
+        log.start();
+        return log;
+    }
+
+    private List<Tick> replay() throws IOException {
+        List<Tick> ticks = new ArrayList<>();
+        TickLog.open(new TickLogConfig(dir, 10, 4096)).replay((symbol, bid, ask, ts) -> ticks.add(new Tick(symbol, bid, ask, ts)));
+        return ticks;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(TickLog.SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static void appendTicks(TickLog log, int count) {
+        for (int i = 0; i < count; i++) log.append(0, "BTC-USD", 100 + i, 100.5 + i, T0 + i);
+    }
+
+    @Test
+    @DisplayName("ticks appended one by one and in batches replay in order, symbols and all")
+    void roundTrip() throws IOException {
+        TickLog log = started(10, 4096);
+        log.append(3, "ETH-USD", 2000.0, 2000.5, T0);
+        TickBatch batch = new TickBatch(4);
+        batch.add(0, 100.0, 100.5, T0 + 1);
+        batch.add(3, 2001.0, 2001.5, T0 + 2);
+        batch.add(0, -1.0, 100.5, T0 + 3);  // invalid: left out
+        batch.add(9, 50.0, 50.5, T0 + 4);   // unknown symbol: left out
+        log.append(batch, id -> id == 0 ? "BTC-USD" : id == 3 ? "ETH-USD" : null);
+        log.append(0, "BTC-USD", 101.0, 101.5, T0 + 5);
+        log.close();
+        log.append(0, "BTC-USD", 102.0, 102.5, T0 + 6); // dropped once closed
+
+        assertThat(log.appendedTicks()).isEqualTo(4);
+        assertThat(replay()).containsExactly(
+                new Tick("ETH-USD", 2000.0, 2000.5, T0),
+                new Tick("BTC-USD", 100.0, 100.5, T0 + 1),
+                new Tick("ETH-USD", 2001.0, 2001.5, T0 + 2),
+                new Tick("BTC-USD", 101.0, 101.5, T0 + 5));
+    }
+
+    @Test
+    @DisplayName("a tail cut short by a crash loses only the torn tick")
+    void tornTail() throws IOException {
+        TickLog log = started(10, 4096);
+        appendTicks(log, 100);
+        log.close();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.truncate(FIRST_TICK + 60L * TICK_FRAME + 11);
+        }
+
+        List<Tick> ticks = replay();
+        assertThat(ticks).hasSize(60);
+        assertThat(ticks.get(59).timestampMs()).isEqualTo(T0 + 59);
+    }
+
+    @Test
+    @DisplayName("a frame failing its CRC ends the segment")
+    void corruptFrame() throws IOException {
+        TickLog log = started(10, 4096);
+        appendTicks(log, 100);
+        log.close();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), FIRST_TICK + 40L * TICK_FRAME + 20);
+        }
+
+        assertThat(replay()).hasSize(40);
+    }
+
+    @Test
+    @DisplayName("a checkpoint keeps its state and deletes the segments before it; each segment defines its symbols")
+    void checkpoint() throws IOException {
+        TickLog log = started(10, 4096);
+        appendTicks(log, 50);
+        long sequence = log.roll();
+        log.append(0, "BTC-USD", 200.0, 200.5, T0 + 50);
+        log.commit(sequence, new byte[]{1, 2, 3});
+        log.close();
+        Files.write(dir.resolve(TickLog.CHECKPOINT + ".tmp"), new byte[]{9}); // a checkpoint cut short
+
+        assertThat(segments()).hasSize(1);
+        TickLog reopened = TickLog.open(new TickLogConfig(dir, 10, 4096));
+        assertThat(reopened.checkpoint()).containsExactly(1, 2, 3);
+        assertThat(replay()).containsExactly(new Tick("BTC-USD", 200.0, 200.5, T0 + 50));
+
+        reopened.start();
+        reopened.close();
+        assertThat(segments()).hasSize(2);
+        assertThat(replay()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("a damaged checkpoint fails the open rather than replaying from the wrong place")
+    void damagedCheckpoint() throws IOException {
+        TickLog log = started(10, 4096);
+        log.commit(log.roll(), new byte[]{1, 2, 3});
+        log.close();
+        Path checkpoint = dir.resolve(TickLog.CHECKPOINT);
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(checkpoint, bytes);
+
+        assertThatThrownBy(() -> TickLog.open(new TickLogConfig(dir, 10, 4096)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("CRC");
+    }
+
+    @Test
+    @DisplayName("concurrent producers share group commits and wait out a full buffer without losing ticks")
+    void groupCommit() throws Exception {
+        TickLog log = started(1_000, 4096);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            int symbolId = p;
+            producers.submit(() -> {
+                for (int i = 0; i < 5_000; i++) log.append(symbolId, "SYM-" + symbolId, 100, 100.5, T0 + i);
+            });
+        }
+        producers.shutdown();
+        assertThat(producers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        log.close();
+
+        assertThat(log.appendedTicks()).isEqualTo(20_000);
+        assertThat(log.stalls()).isPositive();
+        assertThat(log.syncs()).isLessThan(20_000 / 20);
+        List<Tick> ticks = replay();
+        assertThat(ticks).hasSize(20_000);
+        for (int p = 0; p < 4; p++) {
+            String symbol = "SYM-" + p;
+            assertThat(ticks.stream().filter(tick -> tick.symbol().equals(symbol)).map(Tick::timestampMs))
+                    .containsExactlyElementsOf(Stream.iterate(T0, ts -> ts + 1).limit(5_000).toList());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.candle.ingest;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated multi-producer ring of mutable tick slots, in the style of the LMAX Disruptor.
+ *
+ * <p>Every {@link Slot} is allocated once, up front, and overwritten in place on each lap: a
+ * producer claims a sequence with {@link #next()}, writes the tick's primitives into
+ * {@link #get(long)}, and makes it visible with {@link #publish(long)}. Publishing a tick therefore
+ * allocates nothing. A slot can instead carry an object entry (a batch or a task) for the rarer
+ * publications that are not a single tick.
+ *
+ * <p>Producers contend only on one CAS of the {@link #cursor()}. Because claimed sequences may be
+ * published out of order, each slot also records the lap it was last published on; the single
+ * consumer reads through a {@link SequenceBarrier}, which waits for the cursor with the ring's
+ * {@link WaitStrategy} and then hands back the longest contiguous run of published slots, so a
+ * whole backlog is consumed in one pass. The consumer reports progress on
+ * {@link #consumerSequence()}; producers never overwrite a slot it has not released.
+ *
+ * <p>Capacity is rounded up to a power of two so slot indexing is a mask rather than a modulo.
+ */
+public final class TickRingBuffer {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /** Spins before a producer facing a full ring starts parking. */
+    static final int FULL_SPINS = 100;
+
+    static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int indexShift;
+
+    /** Lap number each slot was last published on; -1 before its first publication. */
+    private final int[] available;
+
+    /** Highest sequence claimed by a producer. */
+    private final Sequence cursor = new Sequence(-1);
+
+    /** Highest sequence the consumer has finished with. */
+    private final Sequence consumer = new Sequence(-1);
+
+    /** Producers' last read of {@link #consumer}, so an uncontended claim does not touch the consumer's cache line. */
+    private final Sequence consumerCache = new Sequence(-1);
+
+    private final WaitStrategy waitStrategy;
+
+    public TickRingBuffer(int requestedCapacity, WaitStrategy waitStrategy) {
+        if (requestedCapacity < 2) throw new IllegalArgumentException("Capacity must be >= 2");
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.slots = new Slot[capacity];
+        this.available = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            available[i] = -1;
+        }
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Claim the next sequence, blocking (spin, then park) while the ring is full.
+     * The claim must be followed by {@link #publish(long)}, or the consumer stalls at it.
+     */
+    public long next() {
+        int spins = 0;
+        long claimed;
+        while ((claimed = tryNext()) < 0) {
+            if (++spins < FULL_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Claim the next sequence without blocking.
+     *
+     * @return the claimed sequence, or -1 if the ring is full
+     */
+    public long tryNext() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            long cachedConsumer = consumerCache.get();
+            if (wrapPoint > cachedConsumer) {
+                long consumed = consumer.get();
+                if (wrapPoint > consumed) return -1;
+                consumerCache.setRelease(consumed);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * The slot for a claimed (producer) or published (consumer) sequence.
+     */
+    public Slot get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Make a claimed slot visible to the consumer.
+     */
+    public void publish(long sequence) {
+        AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    boolean isPublished(long sequence) {
+        return (int) AVAILABLE.getAcquire(available, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * Highest sequence in {@code [lowerBound, claimed]} up to which every slot is published,
+     * or {@code lowerBound - 1} if {@code lowerBound} itself is not.
+     */
+    long highestPublished(long lowerBound, long claimed) {
+        for (long sequence = lowerBound; sequence <= claimed; sequence++) {
+            if (!isPublished(sequence)) return sequence - 1;
+        }
+        return claimed;
+    }
+
+    /**
+     * A barrier for the ring's single consumer.
+     */
+    public SequenceBarrier newBarrier() {
+        return new SequenceBarrier(this, waitStrategy);
+    }
+
+    /**
+     * Highest sequence claimed by a producer.
+     */
+    public Sequence cursor() {
+        return cursor;
+    }
+
+    /**
+     * The consumer's progress; advancing it hands slots back to producers.
+     */
+    public Sequence consumerSequence() {
+        return consumer;
+    }
+
+    /**
+     * Approximate number of claimed slots not yet released by the consumer.
+     */
+    public int size() {
+        long size = cursor.get() - consumer.get();
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * One ring position: either a tick's primitives, or an {@link #entry()} object. Written only
+     * by the producer that claimed it, between {@link #next()} and {@link #publish(long)}.
+     */
+    public static final class Slot {
+
+        private int symbolId;
+        private double bid;
+        private double ask;
+        private long timestampMs;
+        private Object entry;
+
+        public void setTick(int symbolId, double bid, double ask, long timestampMs) {
+            this.symbolId = symbolId;
+            this.bid = bid;
+            this.ask = ask;
+            this.timestampMs = timestampMs;
+            this.entry = null;
+        }
+
+        public void setEntry(Object entry) {
+            this.entry = entry;
+        }
+
+        public int symbolId() {
+            return symbolId;
+        }
+
+        public double bid() {
+            return bid;
+        }
+
+        public double ask() {
+            return ask;
+        }
+
+        public long timestampMs() {
+            return timestampMs;
+        }
+
+        /**
+         * The object published in this slot, or null if it holds a tick.
+         */
+        public Object entry() {
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.candle.aggregator;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link OhlcKernel} on the incubating Vector API, for row ranges that are one block of consecutive rows —
+ * a batch of one symbol, or one symbol's ticks copied into their own batch by the sharded engine. Other
+ * ranges, with other symbols' rows interleaved, are handed to the scalar kernel.
+ *
+ * <p>Each step loads one vector of timestamps, bids and asks straight from the columns and, if every lane
+ * lies in the bucket, folds the lanes' mid-prices into running max and min vectors. The vector in which
+ * the run ends (its last row lies outside the bucket, or a late row sits in it) and the remainder shorter
+ * than a vector are folded one row at a time. Runs shorter than two vectors never enter the vector loop,
+ * so a run of a few ticks costs no more than with the scalar kernel.
+ *
+ * <p>Rows are never gathered through the index array: besides being slower than plain loads, C2 in
+ * JDK 17 miscompiles this loop with gathers on AVX-512.
+ *
+ * <p>Until C2 compiles it, the Vector API boxes every vector, so this kernel allocates during warm-up.
+ * Only loaded by {@link OhlcKernel#select()} when {@code jdk.incubator.vector} is resolved.
+ */
+final class VectorOhlcKernel extends OhlcKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    /** Same shape as {@link #DOUBLES}, so a timestamp lane lines up with a price lane. */
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    /** As many int lanes as {@link #DOUBLES} has double lanes, for the row indices. */
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final IntVector LANE_INDEX = IntVector.zero(INTS).addIndex(1);
+
+    private static final OhlcKernel SCALAR = new OhlcKernel.Scalar();
+
+    @Override
+    public String name() {
+        return "vector (" + DOUBLES.length() + " x double)";
+    }
+
+    @Override
+    int foldRun(long[] timestampMs, double[] bid, double[] ask, int[] rows, int from, int to,
+                long startMs, long endMs, double[] extremes) {
+        int lanes = DOUBLES.length();
+        if (to - from < 2 * lanes || rows[to - 1] - rows[from] != to - 1 - from) {
+            return SCALAR.foldRun(timestampMs, bid, ask, rows, from, to, startMs, endMs, extremes);
+        }
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        int i = from;
+        while (true) {
+            // Entering the vector loop only pays off for at least two vectors of consecutive rows in the run
+            boolean vectorsAhead = to - i >= 2 * lanes && rows[i + 2 * lanes - 1] - rows[i] == 2 * lanes - 1
+                    && inRange(timestampMs[rows[i + 2 * lanes - 1]], startMs, endMs)
+                    && vectorFits(timestampMs, rows, i, startMs, endMs);
+            if (vectorsAhead) {
+                i = foldVectors(timestampMs, bid, ask, rows, i, to, startMs, endMs, extremes);
+                if (extremes[0] > high) high = extremes[0];
+                if (extremes[1] < low) low = extremes[1];
+            }
+            // After the vector loop, at most one vector's worth of rows before trying it again;
+            // otherwise the run most likely ends within two vectors, so finish it here
+            int stop = vectorsAhead ? Math.min(to, i + lanes) : to;
+            for (; i < stop; i++) {
+                int row = rows[i];
+                if (!inRange(timestampMs[row], startMs, endMs)) break;
+                double mid = (bid[row] + ask[row]) / 2.0;
+                if (mid > high) high = mid;
+                if (mid < low) low = mid;
+            }
+            if (i < stop || i == to) break;
+        }
+        if (i > from) {
+            extremes[0] = high;
+            extremes[1] = low;
+        }
+        return i;
+    }
+
+    /**
+     * Fold whole vectors of rows while their indices are consecutive and every lane lies in the run.
+     * The first vector must {@link #vectorFits fit}. Kept apart from the scalar loop of
+     * {@link #foldRun}: C2 keeps the vectors in registers only in a loop that does nothing else.
+     *
+     * @return index of the first row not folded
+     */
+    private static int foldVectors(long[] timestampMs, double[] bid, double[] ask, int[] rows, int from, int to,
+                                   long startMs, long endMs, double[] extremes) {
+        int lanes = DOUBLES.length();
+        DoubleVector highs = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        DoubleVector lows = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        int i = from;
+        for (; i <= to - lanes; i += lanes) {
+            if (i > from && !vectorFits(timestampMs, rows, i, startMs, endMs)) break;
+            int row = rows[i];
+            LongVector ts = LongVector.fromArray(LONGS, timestampMs, row);
+            if (ts.compare(VectorOperators.LT, startMs).or(ts.compare(VectorOperators.GE, endMs)).anyTrue()) break;
+            DoubleVector mids = DoubleVector.fromArray(DOUBLES, bid, row)
+                    .add(DoubleVector.fromArray(DOUBLES, ask, row))
+                    .mul(0.5); // exactly (bid + ask) / 2.0
+            highs = highs.max(mids);
+            lows = lows.min(mids);
+        }
+        extremes[0] = highs.reduceLanes(VectorOperators.MAX);
+        extremes[1] = lows.reduceLanes(VectorOperators.MIN);
+        return i;
+    }
+
+    /**
+     * Whether the vector of rows starting at {@code rows[i]} has consecutive indices and its last row
+     * lies in the run — a run usually ends inside the vector whose last row is outside it.
+     */
+    private static boolean vectorFits(long[] timestampMs, int[] rows, int i, long startMs, long endMs) {
+        int first = rows[i];
+        int last = rows[i + DOUBLES.length() - 1];
+        return last - first == DOUBLES.length() - 1
+                && inRange(timestampMs[last], startMs, endMs)
+                && IntVector.fromArray(INTS, rows, i).eq(LANE_INDEX.add(first)).allTrue();
+    }
+
+    private static boolean inRange(long timestampMs, long startMs, long endMs) {
+        return timestampMs >= startMs && timestampMs < endMs;
+    }
+}
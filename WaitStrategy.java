@@ -0,0 +1,95 @@
+package com.candle.ingest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a {@link ShardedIngestEngine} worker waits for its ring to receive work, trading CPU for latency.
+ *
+ * <ul>
+ *   <li>{@link #BUSY_SPIN} — never gives up the core. Lowest latency; burns a full core per shard
+ *       and should only be used with a core reserved for each worker.</li>
+ *   <li>{@link #YIELDING} — spins briefly, then {@link Thread#yield()}s. Near-spin latency while
+ *       letting other runnable threads in; still keeps the core busy when idle.</li>
+ *   <li>{@link #PARKING} (default) — spins, yields, then parks for {@value #PARK_MICROS}µs at a time.
+ *       Near-zero idle CPU, at the cost of up to one park period of wake-up latency.</li>
+ * </ul>
+ */
+public enum WaitStrategy {
+
+    BUSY_SPIN {
+        @Override
+        int idle(int counter) {
+            Thread.onSpinWait();
+            return counter;
+        }
+    },
+    YIELDING {
+        @Override
+        int idle(int counter) {
+            if (counter < SPIN_TRIES) {
+                Thread.onSpinWait();
+                return counter + 1;
+            }
+            Thread.yield();
+            return counter;
+        }
+    },
+    PARKING {
+        @Override
+        int idle(int counter) {
+            if (counter < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (counter < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+                return counter;
+            }
+            return counter + 1;
+        }
+    };
+
+    static final int SPIN_TRIES = 100;
+    static final int YIELD_TRIES = 100;
+    static final long PARK_MICROS = 50;
+    static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(PARK_MICROS);
+
+    /**
+     * Back off once while waiting.
+     *
+     * @param counter 0 on the first call of a wait, then the value returned by the previous call
+     * @return the counter for the next call
+     */
+    abstract int idle(int counter);
+
+    /**
+     * Wait until {@code cursor} has reached {@code sequence}, or the barrier is alerted.
+     *
+     * @return the cursor value last seen; less than {@code sequence} only when alerted
+     */
+    long waitFor(long sequence, Sequence cursor, SequenceBarrier barrier) {
+        long available;
+        int counter = 0;
+        while ((available = cursor.get()) < sequence) {
+            if (barrier.isAlerted()) return available;
+            counter = idle(counter);
+        }
+        return available;
+    }
+
+    /**
+     * Parse a configuration value such as {@code "busy-spin"}, {@code "yielding"} or {@code "parking"}
+     * (case-insensitive).
+     */
+    public static WaitStrategy fromConfig(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported wait strategy: " + value
+                    + ". Supported: " + Arrays.toString(values()).toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+}
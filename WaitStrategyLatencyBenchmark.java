@@ -0,0 +1,95 @@
+package com.candle.ingest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.candle.gateway.LatencyHistogram;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publish-to-handler latency of a {@link ShardedIngestEngine} shard under each {@link WaitStrategy}.
+ * One producer publishes ticks with a short pause between them, so the worker is idle and waiting
+ * when each tick arrives; the tick carries its publish time and the ticks handler records the delay.
+ * Also reports the worker's CPU time as a share of the run, the price of lower latency.
+ *
+ * <p>Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Wait strategy latency benchmark")
+class WaitStrategyLatencyBenchmark {
+
+    private static final int WARM_UP_TICKS = 20_000;
+    private static final int TICKS = 50_000;
+    private static final long PAUSE_NANOS = 20_000;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.candle")).setLevel(Level.WARN);
+    }
+
+    @Test
+    @DisplayName("p50/p99/p99.9 publish-to-handler latency and worker CPU per wait strategy")
+    void latencyPerStrategy() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            LatencyHistogram latency = new LatencyHistogram();
+            AtomicLong handled = new AtomicLong();
+            AtomicLong workerId = new AtomicLong(-1);
+            ShardedIngestEngine engine = ShardedIngestEngine.builder()
+                    .queueCapacity(65_536)
+                    .waitStrategy(waitStrategy)
+                    .handler(e -> { })
+                    .ticksHandler(ticks -> {
+                        long now = System.nanoTime();
+                        for (int row = 0; row < ticks.size(); row++) {
+                            latency.record(now - ticks.timestampMs(row));
+                        }
+                        workerId.set(Thread.currentThread().threadId());
+                        handled.addAndGet(ticks.size());
+                    })
+                    .build();
+
+            publish(engine, WARM_UP_TICKS);
+            awaitHandled(handled, WARM_UP_TICKS);
+            latency.reset();
+            long cpuBefore = threads.getThreadCpuTime(workerId.get());
+
+            long start = System.nanoTime();
+            publish(engine, TICKS);
+            awaitHandled(handled, WARM_UP_TICKS + TICKS);
+            long elapsed = System.nanoTime() - start;
+            long cpu = threads.getThreadCpuTime(workerId.get()) - cpuBefore;
+            engine.close();
+
+            System.out.printf("%-9s p50=%,d us p99=%,d us p99.9=%,d us | worker CPU %.0f%% of %,d ms (%,d ticks, %d CPUs)%n",
+                    waitStrategy, latency.percentile(50) / 1_000, latency.percentile(99) / 1_000,
+                    latency.percentile(99.9) / 1_000, 100.0 * cpu / elapsed, elapsed / 1_000_000,
+                    latency.count(), Runtime.getRuntime().availableProcessors());
+            assertThat(latency.count()).isEqualTo(TICKS);
+        }
+    }
+
+    /** Publish ticks whose timestamp field carries the publish time in nanoseconds. */
+    private static void publish(ShardedIngestEngine engine, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            engine.publishTick("BTC-USD", 0, 100.0, 100.1, System.nanoTime());
+            LockSupport.parkNanos(PAUSE_NANOS);
+        }
+    }
+
+    private static void awaitHandled(AtomicLong handled, long expected) {
+        while (handled.get() < expected) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+}